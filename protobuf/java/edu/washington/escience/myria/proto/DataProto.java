@@ -1254,6 +1254,20 @@ public final class DataProto {
      * <code>optional .DateTimeColumnMessage date_column = 9;</code>
      */
     edu.washington.escience.myria.proto.DataProto.DateTimeColumnMessageOrBuilder getDateColumnOrBuilder();
+
+    // optional .DictionaryStringColumnMessage dictionary_string_column = 10;
+    /**
+     * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+     */
+    boolean hasDictionaryStringColumn();
+    /**
+     * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+     */
+    edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage getDictionaryStringColumn();
+    /**
+     * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+     */
+    edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder getDictionaryStringColumnOrBuilder();
   }
   /**
    * Protobuf type {@code ColumnMessage}
@@ -1408,6 +1422,19 @@ public final class DataProto {
               bitField0_ |= 0x00000080;
               break;
             }
+            case 82: {
+              edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000100) == 0x00000100)) {
+                subBuilder = dictionaryStringColumn_.toBuilder();
+              }
+              dictionaryStringColumn_ = input.readMessage(edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(dictionaryStringColumn_);
+                dictionaryStringColumn_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000100;
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1753,6 +1780,28 @@ public final class DataProto {
       return dateColumn_;
     }
 
+    // optional .DictionaryStringColumnMessage dictionary_string_column = 10;
+    public static final int DICTIONARY_STRING_COLUMN_FIELD_NUMBER = 10;
+    private edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage dictionaryStringColumn_;
+    /**
+     * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+     */
+    public boolean hasDictionaryStringColumn() {
+      return ((bitField0_ & 0x00000100) == 0x00000100);
+    }
+    /**
+     * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+     */
+    public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage getDictionaryStringColumn() {
+      return dictionaryStringColumn_;
+    }
+    /**
+     * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+     */
+    public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder getDictionaryStringColumnOrBuilder() {
+      return dictionaryStringColumn_;
+    }
+
     private void initFields() {
       type_ = edu.washington.escience.myria.proto.DataProto.ColumnMessage.Type.INT;
       intColumn_ = edu.washington.escience.myria.proto.DataProto.IntColumnMessage.getDefaultInstance();
@@ -1762,6 +1811,7 @@ public final class DataProto {
       stringColumn_ = edu.washington.escience.myria.proto.DataProto.StringColumnMessage.getDefaultInstance();
       booleanColumn_ = edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage.getDefaultInstance();
       dateColumn_ = edu.washington.escience.myria.proto.DataProto.DateTimeColumnMessage.getDefaultInstance();
+      dictionaryStringColumn_ = edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance();
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -1814,6 +1864,12 @@ public final class DataProto {
           return false;
         }
       }
+      if (hasDictionaryStringColumn()) {
+        if (!getDictionaryStringColumn().isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
       memoizedIsInitialized = 1;
       return true;
     }
@@ -1845,6 +1901,9 @@ public final class DataProto {
       if (((bitField0_ & 0x00000080) == 0x00000080)) {
         output.writeMessage(9, dateColumn_);
       }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        output.writeMessage(10, dictionaryStringColumn_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -1886,6 +1945,10 @@ public final class DataProto {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(9, dateColumn_);
       }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(10, dictionaryStringColumn_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -2001,6 +2064,7 @@ public final class DataProto {
           getStringColumnFieldBuilder();
           getBooleanColumnFieldBuilder();
           getDateColumnFieldBuilder();
+          getDictionaryStringColumnFieldBuilder();
         }
       }
       private static Builder create() {
@@ -2053,6 +2117,12 @@ public final class DataProto {
           dateColumnBuilder_.clear();
         }
         bitField0_ = (bitField0_ & ~0x00000080);
+        if (dictionaryStringColumnBuilder_ == null) {
+          dictionaryStringColumn_ = edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance();
+        } else {
+          dictionaryStringColumnBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000100);
         return this;
       }
 
@@ -2141,6 +2211,14 @@ public final class DataProto {
         } else {
           result.dateColumn_ = dateColumnBuilder_.build();
         }
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000100;
+        }
+        if (dictionaryStringColumnBuilder_ == null) {
+          result.dictionaryStringColumn_ = dictionaryStringColumn_;
+        } else {
+          result.dictionaryStringColumn_ = dictionaryStringColumnBuilder_.build();
+        }
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -2181,6 +2259,9 @@ public final class DataProto {
         if (other.hasDateColumn()) {
           mergeDateColumn(other.getDateColumn());
         }
+        if (other.hasDictionaryStringColumn()) {
+          mergeDictionaryStringColumn(other.getDictionaryStringColumn());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -2232,6 +2313,12 @@ public final class DataProto {
             return false;
           }
         }
+        if (hasDictionaryStringColumn()) {
+          if (!getDictionaryStringColumn().isInitialized()) {
+            
+            return false;
+          }
+        }
         return true;
       }
 
@@ -3125,6 +3212,123 @@ public final class DataProto {
         return dateColumnBuilder_;
       }
 
+      // optional .DictionaryStringColumnMessage dictionary_string_column = 10;
+      private edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage dictionaryStringColumn_ = edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder> dictionaryStringColumnBuilder_;
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public boolean hasDictionaryStringColumn() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage getDictionaryStringColumn() {
+        if (dictionaryStringColumnBuilder_ == null) {
+          return dictionaryStringColumn_;
+        } else {
+          return dictionaryStringColumnBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public Builder setDictionaryStringColumn(edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage value) {
+        if (dictionaryStringColumnBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          dictionaryStringColumn_ = value;
+          onChanged();
+        } else {
+          dictionaryStringColumnBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000100;
+        return this;
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public Builder setDictionaryStringColumn(
+          edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder builderForValue) {
+        if (dictionaryStringColumnBuilder_ == null) {
+          dictionaryStringColumn_ = builderForValue.build();
+          onChanged();
+        } else {
+          dictionaryStringColumnBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000100;
+        return this;
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public Builder mergeDictionaryStringColumn(edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage value) {
+        if (dictionaryStringColumnBuilder_ == null) {
+          if (((bitField0_ & 0x00000100) == 0x00000100) &&
+              dictionaryStringColumn_ != edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance()) {
+            dictionaryStringColumn_ =
+              edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.newBuilder(dictionaryStringColumn_).mergeFrom(value).buildPartial();
+          } else {
+            dictionaryStringColumn_ = value;
+          }
+          onChanged();
+        } else {
+          dictionaryStringColumnBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000100;
+        return this;
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public Builder clearDictionaryStringColumn() {
+        if (dictionaryStringColumnBuilder_ == null) {
+          dictionaryStringColumn_ = edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance();
+          onChanged();
+        } else {
+          dictionaryStringColumnBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000100);
+        return this;
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder getDictionaryStringColumnBuilder() {
+        bitField0_ |= 0x00000100;
+        onChanged();
+        return getDictionaryStringColumnFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder getDictionaryStringColumnOrBuilder() {
+        if (dictionaryStringColumnBuilder_ != null) {
+          return dictionaryStringColumnBuilder_.getMessageOrBuilder();
+        } else {
+          return dictionaryStringColumn_;
+        }
+      }
+      /**
+       * <code>optional .DictionaryStringColumnMessage dictionary_string_column = 10;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilder<
+          edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder> 
+          getDictionaryStringColumnFieldBuilder() {
+        if (dictionaryStringColumnBuilder_ == null) {
+          dictionaryStringColumnBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder>(
+                  dictionaryStringColumn_,
+                  getParentForChildren(),
+                  isClean());
+          dictionaryStringColumn_ = null;
+        }
+        return dictionaryStringColumnBuilder_;
+      }
+
       // @@protoc_insertion_point(builder_scope:ColumnMessage)
     }
 
@@ -5485,38 +5689,94 @@ public final class DataProto {
     // @@protoc_insertion_point(class_scope:StringColumnMessage)
   }
 
-  public interface BooleanColumnMessageOrBuilder
+  public interface DictionaryStringColumnMessageOrBuilder
       extends com.google.protobuf.MessageOrBuilder {
 
-    // required bytes data = 1;
+    // required bytes dictionary = 1;
     /**
-     * <code>required bytes data = 1;</code>
+     * <code>required bytes dictionary = 1;</code>
+     *
+     * <pre>
+     * The entries of the dictionary, UTF-8 encoded, one after another
+     * </pre>
      */
-    boolean hasData();
+    boolean hasDictionary();
     /**
-     * <code>required bytes data = 1;</code>
+     * <code>required bytes dictionary = 1;</code>
+     *
+     * <pre>
+     * The entries of the dictionary, UTF-8 encoded, one after another
+     * </pre>
      */
-    com.google.protobuf.ByteString getData();
+    com.google.protobuf.ByteString getDictionary();
+
+    // repeated int32 dictionary_end_indices = 2 [packed = true];
+    /**
+     * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+     *
+     * <pre>
+     * The end of each entry in dictionary
+     * </pre>
+     */
+    java.util.List<java.lang.Integer> getDictionaryEndIndicesList();
+    /**
+     * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+     *
+     * <pre>
+     * The end of each entry in dictionary
+     * </pre>
+     */
+    int getDictionaryEndIndicesCount();
+    /**
+     * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+     *
+     * <pre>
+     * The end of each entry in dictionary
+     * </pre>
+     */
+    int getDictionaryEndIndices(int index);
+
+    // required bytes codes = 3;
+    /**
+     * <code>required bytes codes = 3;</code>
+     *
+     * <pre>
+     * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+     * </pre>
+     */
+    boolean hasCodes();
+    /**
+     * <code>required bytes codes = 3;</code>
+     *
+     * <pre>
+     * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+     * </pre>
+     */
+    com.google.protobuf.ByteString getCodes();
   }
   /**
-   * Protobuf type {@code BooleanColumnMessage}
+   * Protobuf type {@code DictionaryStringColumnMessage}
+   *
+   * <pre>
+   * A STRING column with few distinct values, as a dictionary of the distinct values and the code of each tuple.
+   * </pre>
    */
-  public static final class BooleanColumnMessage extends
+  public static final class DictionaryStringColumnMessage extends
       com.google.protobuf.GeneratedMessage
-      implements BooleanColumnMessageOrBuilder {
-    // Use BooleanColumnMessage.newBuilder() to construct.
-    private BooleanColumnMessage(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      implements DictionaryStringColumnMessageOrBuilder {
+    // Use DictionaryStringColumnMessage.newBuilder() to construct.
+    private DictionaryStringColumnMessage(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
       super(builder);
       this.unknownFields = builder.getUnknownFields();
     }
-    private BooleanColumnMessage(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+    private DictionaryStringColumnMessage(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
 
-    private static final BooleanColumnMessage defaultInstance;
-    public static BooleanColumnMessage getDefaultInstance() {
+    private static final DictionaryStringColumnMessage defaultInstance;
+    public static DictionaryStringColumnMessage getDefaultInstance() {
       return defaultInstance;
     }
 
-    public BooleanColumnMessage getDefaultInstanceForType() {
+    public DictionaryStringColumnMessage getDefaultInstanceForType() {
       return defaultInstance;
     }
 
@@ -5526,7 +5786,7 @@ public final class DataProto {
         getUnknownFields() {
       return this.unknownFields;
     }
-    private BooleanColumnMessage(
+    private DictionaryStringColumnMessage(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
@@ -5551,7 +5811,33 @@ public final class DataProto {
             }
             case 10: {
               bitField0_ |= 0x00000001;
-              data_ = input.readBytes();
+              dictionary_ = input.readBytes();
+              break;
+            }
+            case 16: {
+              if (!((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
+                dictionaryEndIndices_ = new java.util.ArrayList<java.lang.Integer>();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              dictionaryEndIndices_.add(input.readInt32());
+              break;
+            }
+            case 18: {
+              int length = input.readRawVarint32();
+              int limit = input.pushLimit(length);
+              if (!((mutable_bitField0_ & 0x00000002) == 0x00000002) && input.getBytesUntilLimit() > 0) {
+                dictionaryEndIndices_ = new java.util.ArrayList<java.lang.Integer>();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              while (input.getBytesUntilLimit() > 0) {
+                dictionaryEndIndices_.add(input.readInt32());
+              }
+              input.popLimit(limit);
+              break;
+            }
+            case 26: {
+              bitField0_ |= 0x00000002;
+              codes_ = input.readBytes();
               break;
             }
           }
@@ -5562,63 +5848,140 @@ public final class DataProto {
         throw new com.google.protobuf.InvalidProtocolBufferException(
             e.getMessage()).setUnfinishedMessage(this);
       } finally {
+        if (((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
+          dictionaryEndIndices_ = java.util.Collections.unmodifiableList(dictionaryEndIndices_);
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
     }
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return edu.washington.escience.myria.proto.DataProto.internal_static_BooleanColumnMessage_descriptor;
+      return edu.washington.escience.myria.proto.DataProto.internal_static_DictionaryStringColumnMessage_descriptor;
     }
 
     protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return edu.washington.escience.myria.proto.DataProto.internal_static_BooleanColumnMessage_fieldAccessorTable
+      return edu.washington.escience.myria.proto.DataProto.internal_static_DictionaryStringColumnMessage_fieldAccessorTable
           .ensureFieldAccessorsInitialized(
-              edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage.class, edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage.Builder.class);
+              edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.class, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder.class);
     }
 
-    public static com.google.protobuf.Parser<BooleanColumnMessage> PARSER =
-        new com.google.protobuf.AbstractParser<BooleanColumnMessage>() {
-      public BooleanColumnMessage parsePartialFrom(
+    public static com.google.protobuf.Parser<DictionaryStringColumnMessage> PARSER =
+        new com.google.protobuf.AbstractParser<DictionaryStringColumnMessage>() {
+      public DictionaryStringColumnMessage parsePartialFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws com.google.protobuf.InvalidProtocolBufferException {
-        return new BooleanColumnMessage(input, extensionRegistry);
+        return new DictionaryStringColumnMessage(input, extensionRegistry);
       }
     };
 
     @java.lang.Override
-    public com.google.protobuf.Parser<BooleanColumnMessage> getParserForType() {
+    public com.google.protobuf.Parser<DictionaryStringColumnMessage> getParserForType() {
       return PARSER;
     }
 
     private int bitField0_;
-    // required bytes data = 1;
-    public static final int DATA_FIELD_NUMBER = 1;
-    private com.google.protobuf.ByteString data_;
+    // required bytes dictionary = 1;
+    public static final int DICTIONARY_FIELD_NUMBER = 1;
+    private com.google.protobuf.ByteString dictionary_;
     /**
-     * <code>required bytes data = 1;</code>
+     * <code>required bytes dictionary = 1;</code>
+     *
+     * <pre>
+     * The entries of the dictionary, UTF-8 encoded, one after another
+     * </pre>
      */
-    public boolean hasData() {
+    public boolean hasDictionary() {
       return ((bitField0_ & 0x00000001) == 0x00000001);
     }
     /**
-     * <code>required bytes data = 1;</code>
+     * <code>required bytes dictionary = 1;</code>
+     *
+     * <pre>
+     * The entries of the dictionary, UTF-8 encoded, one after another
+     * </pre>
      */
-    public com.google.protobuf.ByteString getData() {
-      return data_;
+    public com.google.protobuf.ByteString getDictionary() {
+      return dictionary_;
+    }
+
+    // repeated int32 dictionary_end_indices = 2 [packed = true];
+    public static final int DICTIONARY_END_INDICES_FIELD_NUMBER = 2;
+    private java.util.List<java.lang.Integer> dictionaryEndIndices_;
+    /**
+     * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+     *
+     * <pre>
+     * The end of each entry in dictionary
+     * </pre>
+     */
+    public java.util.List<java.lang.Integer>
+        getDictionaryEndIndicesList() {
+      return dictionaryEndIndices_;
+    }
+    /**
+     * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+     *
+     * <pre>
+     * The end of each entry in dictionary
+     * </pre>
+     */
+    public int getDictionaryEndIndicesCount() {
+      return dictionaryEndIndices_.size();
+    }
+    /**
+     * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+     *
+     * <pre>
+     * The end of each entry in dictionary
+     * </pre>
+     */
+    public int getDictionaryEndIndices(int index) {
+      return dictionaryEndIndices_.get(index);
+    }
+    private int dictionaryEndIndicesMemoizedSerializedSize = -1;
+
+    // required bytes codes = 3;
+    public static final int CODES_FIELD_NUMBER = 3;
+    private com.google.protobuf.ByteString codes_;
+    /**
+     * <code>required bytes codes = 3;</code>
+     *
+     * <pre>
+     * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+     * </pre>
+     */
+    public boolean hasCodes() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>required bytes codes = 3;</code>
+     *
+     * <pre>
+     * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+     * </pre>
+     */
+    public com.google.protobuf.ByteString getCodes() {
+      return codes_;
     }
 
     private void initFields() {
-      data_ = com.google.protobuf.ByteString.EMPTY;
+      dictionary_ = com.google.protobuf.ByteString.EMPTY;
+      dictionaryEndIndices_ = java.util.Collections.emptyList();
+      codes_ = com.google.protobuf.ByteString.EMPTY;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized != -1) return isInitialized == 1;
 
-      if (!hasData()) {
+      if (!hasDictionary()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasCodes()) {
         memoizedIsInitialized = 0;
         return false;
       }
@@ -5630,7 +5993,17 @@ public final class DataProto {
                         throws java.io.IOException {
       getSerializedSize();
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        output.writeBytes(1, data_);
+        output.writeBytes(1, dictionary_);
+      }
+      if (getDictionaryEndIndicesList().size() > 0) {
+        output.writeRawVarint32(18);
+        output.writeRawVarint32(dictionaryEndIndicesMemoizedSerializedSize);
+      }
+      for (int i = 0; i < dictionaryEndIndices_.size(); i++) {
+        output.writeInt32NoTag(dictionaryEndIndices_.get(i));
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(3, codes_);
       }
       getUnknownFields().writeTo(output);
     }
@@ -5643,7 +6016,25 @@ public final class DataProto {
       size = 0;
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeBytesSize(1, data_);
+          .computeBytesSize(1, dictionary_);
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < dictionaryEndIndices_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeInt32SizeNoTag(dictionaryEndIndices_.get(i));
+        }
+        size += dataSize;
+        if (!getDictionaryEndIndicesList().isEmpty()) {
+          size += 1;
+          size += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(dataSize);
+        }
+        dictionaryEndIndicesMemoizedSerializedSize = dataSize;
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, codes_);
       }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
@@ -5657,42 +6048,645 @@ public final class DataProto {
       return super.writeReplace();
     }
 
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(byte[] data)
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(java.io.InputStream input)
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return PARSER.parseFrom(input);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return PARSER.parseFrom(input, extensionRegistry);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseDelimitedFrom(java.io.InputStream input)
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return PARSER.parseDelimitedFrom(input);
     }
-    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseDelimitedFrom(
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code DictionaryStringColumnMessage}
+     *
+     * <pre>
+     * A STRING column with few distinct values, as a dictionary of the distinct values and the code of each tuple.
+     * </pre>
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessageOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return edu.washington.escience.myria.proto.DataProto.internal_static_DictionaryStringColumnMessage_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return edu.washington.escience.myria.proto.DataProto.internal_static_DictionaryStringColumnMessage_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.class, edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.Builder.class);
+      }
+
+      // Construct using edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        dictionary_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000001);
+        dictionaryEndIndices_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        codes_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.washington.escience.myria.proto.DataProto.internal_static_DictionaryStringColumnMessage_descriptor;
+      }
+
+      public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage getDefaultInstanceForType() {
+        return edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance();
+      }
+
+      public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage build() {
+        edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage buildPartial() {
+        edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage result = new edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.dictionary_ = dictionary_;
+        if (((bitField0_ & 0x00000002) == 0x00000002)) {
+          dictionaryEndIndices_ = java.util.Collections.unmodifiableList(dictionaryEndIndices_);
+          bitField0_ = (bitField0_ & ~0x00000002);
+        }
+        result.dictionaryEndIndices_ = dictionaryEndIndices_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.codes_ = codes_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage) {
+          return mergeFrom((edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage other) {
+        if (other == edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage.getDefaultInstance()) return this;
+        if (other.hasDictionary()) {
+          setDictionary(other.getDictionary());
+        }
+        if (!other.dictionaryEndIndices_.isEmpty()) {
+          if (dictionaryEndIndices_.isEmpty()) {
+            dictionaryEndIndices_ = other.dictionaryEndIndices_;
+            bitField0_ = (bitField0_ & ~0x00000002);
+          } else {
+            ensureDictionaryEndIndicesIsMutable();
+            dictionaryEndIndices_.addAll(other.dictionaryEndIndices_);
+          }
+          onChanged();
+        }
+        if (other.hasCodes()) {
+          setCodes(other.getCodes());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasDictionary()) {
+          
+          return false;
+        }
+        if (!hasCodes()) {
+          
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // required bytes dictionary = 1;
+      private com.google.protobuf.ByteString dictionary_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>required bytes dictionary = 1;</code>
+       *
+       * <pre>
+       * The entries of the dictionary, UTF-8 encoded, one after another
+       * </pre>
+       */
+      public boolean hasDictionary() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required bytes dictionary = 1;</code>
+       *
+       * <pre>
+       * The entries of the dictionary, UTF-8 encoded, one after another
+       * </pre>
+       */
+      public com.google.protobuf.ByteString getDictionary() {
+        return dictionary_;
+      }
+      /**
+       * <code>required bytes dictionary = 1;</code>
+       *
+       * <pre>
+       * The entries of the dictionary, UTF-8 encoded, one after another
+       * </pre>
+       */
+      public Builder setDictionary(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        dictionary_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required bytes dictionary = 1;</code>
+       *
+       * <pre>
+       * The entries of the dictionary, UTF-8 encoded, one after another
+       * </pre>
+       */
+      public Builder clearDictionary() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        dictionary_ = getDefaultInstance().getDictionary();
+        onChanged();
+        return this;
+      }
+
+      // repeated int32 dictionary_end_indices = 2 [packed = true];
+      private java.util.List<java.lang.Integer> dictionaryEndIndices_ = java.util.Collections.emptyList();
+      private void ensureDictionaryEndIndicesIsMutable() {
+        if (!((bitField0_ & 0x00000002) == 0x00000002)) {
+          dictionaryEndIndices_ = new java.util.ArrayList<java.lang.Integer>(dictionaryEndIndices_);
+          bitField0_ |= 0x00000002;
+         }
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public java.util.List<java.lang.Integer>
+          getDictionaryEndIndicesList() {
+        return java.util.Collections.unmodifiableList(dictionaryEndIndices_);
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public int getDictionaryEndIndicesCount() {
+        return dictionaryEndIndices_.size();
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public int getDictionaryEndIndices(int index) {
+        return dictionaryEndIndices_.get(index);
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public Builder setDictionaryEndIndices(
+          int index, int value) {
+        ensureDictionaryEndIndicesIsMutable();
+        dictionaryEndIndices_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public Builder addDictionaryEndIndices(int value) {
+        ensureDictionaryEndIndicesIsMutable();
+        dictionaryEndIndices_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public Builder addAllDictionaryEndIndices(
+          java.lang.Iterable<? extends java.lang.Integer> values) {
+        ensureDictionaryEndIndicesIsMutable();
+        super.addAll(values, dictionaryEndIndices_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated int32 dictionary_end_indices = 2 [packed = true];</code>
+       *
+       * <pre>
+       * The end of each entry in dictionary
+       * </pre>
+       */
+      public Builder clearDictionaryEndIndices() {
+        dictionaryEndIndices_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        onChanged();
+        return this;
+      }
+
+      // required bytes codes = 3;
+      private com.google.protobuf.ByteString codes_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>required bytes codes = 3;</code>
+       *
+       * <pre>
+       * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+       * </pre>
+       */
+      public boolean hasCodes() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>required bytes codes = 3;</code>
+       *
+       * <pre>
+       * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+       * </pre>
+       */
+      public com.google.protobuf.ByteString getCodes() {
+        return codes_;
+      }
+      /**
+       * <code>required bytes codes = 3;</code>
+       *
+       * <pre>
+       * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+       * </pre>
+       */
+      public Builder setCodes(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        codes_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required bytes codes = 3;</code>
+       *
+       * <pre>
+       * The index of the entry of each tuple, in 1, 2 or 4 bytes depending on the size of the dictionary
+       * </pre>
+       */
+      public Builder clearCodes() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        codes_ = getDefaultInstance().getCodes();
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:DictionaryStringColumnMessage)
+    }
+
+    static {
+      defaultInstance = new DictionaryStringColumnMessage(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:DictionaryStringColumnMessage)
+  }
+
+  public interface BooleanColumnMessageOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // required bytes data = 1;
+    /**
+     * <code>required bytes data = 1;</code>
+     */
+    boolean hasData();
+    /**
+     * <code>required bytes data = 1;</code>
+     */
+    com.google.protobuf.ByteString getData();
+  }
+  /**
+   * Protobuf type {@code BooleanColumnMessage}
+   */
+  public static final class BooleanColumnMessage extends
+      com.google.protobuf.GeneratedMessage
+      implements BooleanColumnMessageOrBuilder {
+    // Use BooleanColumnMessage.newBuilder() to construct.
+    private BooleanColumnMessage(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private BooleanColumnMessage(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final BooleanColumnMessage defaultInstance;
+    public static BooleanColumnMessage getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public BooleanColumnMessage getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private BooleanColumnMessage(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              bitField0_ |= 0x00000001;
+              data_ = input.readBytes();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.washington.escience.myria.proto.DataProto.internal_static_BooleanColumnMessage_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.washington.escience.myria.proto.DataProto.internal_static_BooleanColumnMessage_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage.class, edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<BooleanColumnMessage> PARSER =
+        new com.google.protobuf.AbstractParser<BooleanColumnMessage>() {
+      public BooleanColumnMessage parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new BooleanColumnMessage(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<BooleanColumnMessage> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // required bytes data = 1;
+    public static final int DATA_FIELD_NUMBER = 1;
+    private com.google.protobuf.ByteString data_;
+    /**
+     * <code>required bytes data = 1;</code>
+     */
+    public boolean hasData() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required bytes data = 1;</code>
+     */
+    public com.google.protobuf.ByteString getData() {
+      return data_;
+    }
+
+    private void initFields() {
+      data_ = com.google.protobuf.ByteString.EMPTY;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      if (!hasData()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeBytes(1, data_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(1, data_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static edu.washington.escience.myria.proto.DataProto.BooleanColumnMessage parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -6334,6 +7328,11 @@ public final class DataProto {
   private static
     com.google.protobuf.GeneratedMessage.FieldAccessorTable
       internal_static_StringColumnMessage_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_DictionaryStringColumnMessage_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_DictionaryStringColumnMessage_fieldAccessorTable;
   private static com.google.protobuf.Descriptors.Descriptor
     internal_static_BooleanColumnMessage_descriptor;
   private static
@@ -6357,7 +7356,7 @@ public final class DataProto {
       " \002(\0162\021.DataMessage.Type\022\022\n\noperatorID\030\002 " +
       "\001(\004\022\037\n\007columns\030\003 \003(\0132\016.ColumnMessage\022\022\n\n" +
       "num_tuples\030\004 \001(\r\022\013\n\003seq\030\005 \001(\004\"\033\n\004Type\022\n\n" +
-      "\006NORMAL\020\001\022\007\n\003EOI\020\002\"\274\003\n\rColumnMessage\022!\n\004" +
+      "\006NORMAL\020\001\022\007\n\003EOI\020\002\"\376\003\n\rColumnMessage\022!\n\004" +
       "type\030\001 \002(\0162\023.ColumnMessage.Type\022%\n\nint_c" +
       "olumn\030\003 \001(\0132\021.IntColumnMessage\022\'\n\013long_c" +
       "olumn\030\004 \001(\0132\022.LongColumnMessage\022)\n\014float" +
@@ -6366,18 +7365,22 @@ public final class DataProto {
       "+\n\rstring_column\030\007 \001(\0132\024.StringColumnMes" +
       "sage\022-\n\016boolean_column\030\010 \001(\0132\025.BooleanCo" +
       "lumnMessage\022+\n\013date_column\030\t \001(\0132\026.DateT" +
-      "imeColumnMessage\"W\n\004Type\022\007\n\003INT\020\000\022\010\n\004LON" +
-      "G\020\001\022\t\n\005FLOAT\020\002\022\n\n\006DOUBLE\020\003\022\n\n\006STRING\020\004\022\013" +
-      "\n\007BOOLEAN\020\005\022\014\n\010DATETIME\020\006\" \n\020IntColumnMe" +
-      "ssage\022\014\n\004data\030\001 \002(\014\"!\n\021LongColumnMessage" +
-      "\022\014\n\004data\030\001 \002(\014\"\"\n\022FloatColumnMessage\022\014\n\004" +
-      "data\030\001 \002(\014\"#\n\023DoubleColumnMessage\022\014\n\004dat" +
-      "a\030\001 \002(\014\"O\n\023StringColumnMessage\022\014\n\004data\030\001",
-      " \002(\014\022\025\n\rstart_indices\030\002 \003(\005\022\023\n\013end_indic" +
-      "es\030\003 \003(\005\"$\n\024BooleanColumnMessage\022\014\n\004data" +
-      "\030\001 \002(\014\"%\n\025DateTimeColumnMessage\022\014\n\004data\030" +
-      "\001 \002(\014B0\n#edu.washington.escience.myria.p" +
-      "rotoB\tDataProto"
+      "imeColumnMessage\022@\n\030dictionary_string_co" +
+      "lumn\030\n \001(\0132\036.DictionaryStringColumnMessa" +
+      "ge\"W\n\004Type\022\007\n\003INT\020\000\022\010\n\004LONG\020\001\022\t\n\005FLOAT\020\002" +
+      "\022\n\n\006DOUBLE\020\003\022\n\n\006STRING\020\004\022\013\n\007BOOLEAN\020\005\022\014\n" +
+      "\010DATETIME\020\006\" \n\020IntColumnMessage\022\014\n\004data\030" +
+      "\001 \002(\014\"!\n\021LongColumnMessage\022\014\n\004data\030\001 \002(\014" +
+      "\"\"\n\022FloatColumnMessage\022\014\n\004data\030\001 \002(\014\"#\n\023",
+      "DoubleColumnMessage\022\014\n\004data\030\001 \002(\014\"O\n\023Str" +
+      "ingColumnMessage\022\014\n\004data\030\001 \002(\014\022\025\n\rstart_" +
+      "indices\030\002 \003(\005\022\023\n\013end_indices\030\003 \003(\005\"f\n\035Di" +
+      "ctionaryStringColumnMessage\022\022\n\ndictionar" +
+      "y\030\001 \002(\014\022\"\n\026dictionary_end_indices\030\002 \003(\005B" +
+      "\002\020\001\022\r\n\005codes\030\003 \002(\014\"$\n\024BooleanColumnMessa" +
+      "ge\022\014\n\004data\030\001 \002(\014\"%\n\025DateTimeColumnMessag" +
+      "e\022\014\n\004data\030\001 \002(\014B0\n#edu.washington.escien" +
+      "ce.myria.protoB\tDataProto"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -6395,7 +7398,7 @@ public final class DataProto {
           internal_static_ColumnMessage_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_ColumnMessage_descriptor,
-              new java.lang.String[] { "Type", "IntColumn", "LongColumn", "FloatColumn", "DoubleColumn", "StringColumn", "BooleanColumn", "DateColumn", });
+              new java.lang.String[] { "Type", "IntColumn", "LongColumn", "FloatColumn", "DoubleColumn", "StringColumn", "BooleanColumn", "DateColumn", "DictionaryStringColumn", });
           internal_static_IntColumnMessage_descriptor =
             getDescriptor().getMessageTypes().get(2);
           internal_static_IntColumnMessage_fieldAccessorTable = new
@@ -6426,14 +7429,20 @@ public final class DataProto {
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_StringColumnMessage_descriptor,
               new java.lang.String[] { "Data", "StartIndices", "EndIndices", });
-          internal_static_BooleanColumnMessage_descriptor =
+          internal_static_DictionaryStringColumnMessage_descriptor =
             getDescriptor().getMessageTypes().get(7);
+          internal_static_DictionaryStringColumnMessage_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_DictionaryStringColumnMessage_descriptor,
+              new java.lang.String[] { "Dictionary", "DictionaryEndIndices", "Codes", });
+          internal_static_BooleanColumnMessage_descriptor =
+            getDescriptor().getMessageTypes().get(8);
           internal_static_BooleanColumnMessage_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_BooleanColumnMessage_descriptor,
               new java.lang.String[] { "Data", });
           internal_static_DateTimeColumnMessage_descriptor =
-            getDescriptor().getMessageTypes().get(8);
+            getDescriptor().getMessageTypes().get(9);
           internal_static_DateTimeColumnMessage_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_DateTimeColumnMessage_descriptor,
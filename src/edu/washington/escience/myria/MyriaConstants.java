@@ -83,6 +83,9 @@ public final class MyriaConstants {
   /** Time interval between two resource usage reports. */
   public static final int RESOURCE_REPORT_INTERVAL = 1000;
 
+  /** The query id of the resource usage reports that describe a whole worker rather than one query. */
+  public static final long WORKER_RESOURCE_QUERY_ID = -1;
+
   /** The identity of the master worker is current always zero. */
   public static final int MASTER_ID = 0;
 
@@ -162,6 +165,11 @@ public final class MyriaConstants {
    */
   public static final String STORAGE_SYSTEM_POSTGRESQL = "postgresql";
 
+  /**
+   * Native columnar storage.
+   */
+  public static final String STORAGE_SYSTEM_COLUMNAR = "columnar";
+
   /** Worker config file name. */
   public static final String WORKER_CONFIG_FILE = "worker.cfg";
 
@@ -201,10 +209,25 @@ public final class MyriaConstants {
   public static final int DEFAULT_PIPED_INPUT_STREAM_SIZE = 1024 * 1024 * 16;
 
   /**
-   * The maximum number of currently active (running, queued, paused, ...) queries at the master.
+   * The default maximum number of queued queries of {@link QueryPriority#NORMAL} priority at the master. Queries of the
+   * other priorities may queue in proportion to their weight.
    */
   public static final int MAX_ACTIVE_QUERIES = 25;
 
+  /** The default maximum number of queries that the master runs at the same time. */
+  public static final int MAX_RUNNING_QUERIES = 1;
+
+  /** The default fraction of a worker's heap that the queries admitted by the master may use. */
+  public static final float ADMISSION_MEMORY_FRACTION = 0.8f;
+
+  /** The default load average per core of a worker above which the master starts no other query. */
+  public static final float ADMISSION_MAX_LOAD = 2.0f;
+
+  /**
+   * The default number of profiling records that a worker buffers for each profiling relation.
+   */
+  public static final int PROFILING_BUFFER_CAPACITY = 64 * 1024;
+
   /**
    * The relation that stores profiling information about which operators executed when.
    */
@@ -297,6 +320,12 @@ public final class MyriaConstants {
     "com.google.common.hash.Hashing", "java.nio.charset.Charset"
   };
 
+  /**
+   * The maximum number of compiled expressions kept by
+   * {@link edu.washington.escience.myria.expression.evaluate.CompiledExpressionCache}.
+   */
+  public static final int COMPILED_EXPRESSION_CACHE_SIZE = 1024;
+
   /** Private constructor to disallow building utility class. */
   private MyriaConstants() {}
 
@@ -320,6 +349,36 @@ public final class MyriaConstants {
     QUERY
   };
 
+  /**
+   * The priority classes of queries. Queued queries are started in proportion to the weight of their class, so that a
+   * class with twice the weight of another gets twice as many queries started while both have queries waiting.
+   */
+  public static enum QueryPriority {
+    /** Interactive queries. */
+    HIGH(4),
+    /** The default. */
+    NORMAL(2),
+    /** Batch queries. */
+    LOW(1);
+
+    /** The share of the started queries that this class gets. */
+    private final int weight;
+
+    /**
+     * @param weight the share of the started queries that this class gets.
+     */
+    QueryPriority(final int weight) {
+      this.weight = weight;
+    }
+
+    /**
+     * @return the share of the started queries that this class gets.
+     */
+    public int getWeight() {
+      return weight;
+    }
+  };
+
   /** Number of bytes per worker partition for parallel ingest - 100MB */
   public static final long PARALLEL_INGEST_WORKER_MINIMUM_PARTITION_SIZE = 100 * MB;
 
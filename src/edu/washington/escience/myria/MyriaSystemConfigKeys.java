@@ -31,6 +31,36 @@ public final class MyriaSystemConfigKeys {
   public static final String OPERATOR_INPUT_BUFFER_RECOVER_TRIGGER =
       "operator.consumer.inputbuffer.recover.trigger";
 
+  /**
+   * How the batches sent between workers are compressed: none, lightweight or adaptive. See
+   * {@link edu.washington.escience.myria.parallel.ColumnarFrame.Compression}.
+   */
+  public static final String NETWORK_COMPRESSION = "network.compression";
+
+  /** The number of profiling records that a worker buffers for each profiling relation. */
+  public static final String PROFILING_BUFFER_CAPACITY = "profiling.buffer.capacity";
+
+  /**
+   * What a worker does with a profiling record when its buffer is full: drop or block. See
+   * {@link edu.washington.escience.myria.profiling.ProfilingLogger.Overflow}.
+   */
+  public static final String PROFILING_OVERFLOW = "profiling.overflow";
+
+  /** The maximum number of queries that the master runs at the same time. */
+  public static final String ADMISSION_MAX_RUNNING_QUERIES = "admission.max.running.queries";
+
+  /**
+   * The maximum number of queued queries of NORMAL priority. HIGH and LOW priority queries may queue in proportion to
+   * their weight. Further queries are refused until the queue drains.
+   */
+  public static final String ADMISSION_MAX_QUEUED_QUERIES = "admission.max.queued.queries";
+
+  /** The fraction of each worker's heap that the running queries are expected to use at most. */
+  public static final String ADMISSION_MEMORY_FRACTION = "admission.memory.fraction";
+
+  /** The load average per core of a worker above which the master starts no other query. */
+  public static final String ADMISSION_MAX_LOAD = "admission.max.load";
+
   public static final String TCP_SEND_BUFFER_SIZE_BYTES = "tcp.sendbuffer.size.bytes";
 
   public static final String TCP_RECEIVE_BUFFER_SIZE_BYTES = "tcp.receivebuffer.size.bytes";
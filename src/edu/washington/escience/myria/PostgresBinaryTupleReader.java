@@ -0,0 +1,237 @@
+package edu.washington.escience.myria;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.builder.ColumnBuilder;
+import edu.washington.escience.myria.column.builder.ColumnFactory;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * PostgresBinaryTupleReader is a {@link TupleReader} that parses tuples in the binary format of PostgreSQL's
+ * <code>COPY ... TO ... WITH BINARY</code>, the inverse of {@link PostgresBinaryTupleWriter}. See
+ * http://www.postgresql.org/docs/current/interactive/sql-copy.html.
+ *
+ * The values are decoded straight into the column builders, and each column must have the PostgreSQL type that Myria
+ * uses for its type: <code>boolean</code>, <code>integer</code>, <code>bigint</code>, <code>real</code>,
+ * <code>double precision</code>, a string type, or <code>timestamp</code> with integer time stamps. As when reading
+ * through JDBC, NULL numbers are read as 0 and NULL booleans as false, while NULL strings and time stamps are errors.
+ */
+public class PostgresBinaryTupleReader implements TupleReader {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+  /** The 11 byte signature at the start of the data. */
+  private static final byte[] SIGNATURE =
+      "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+  /** The bit of the header flags that indicates that the tuples have OIDs. */
+  private static final int HAS_OIDS = 1 << 16;
+  /** The length of a NULL value. */
+  private static final int NULL_LENGTH = -1;
+  /** The size of the buffer of the input stream. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The schema of the tuples. */
+  private final Schema schema;
+  /** The data. */
+  private transient DataInputStream input;
+  /** Holds the bytes of a string value. */
+  private transient byte[] stringBytes;
+  /** Whether the trailer has been read. */
+  private transient boolean finished;
+
+  /**
+   * @param schema the schema of the tuples.
+   */
+  public PostgresBinaryTupleReader(final Schema schema) {
+    this.schema = Objects.requireNonNull(schema, "schema");
+  }
+
+  @Override
+  public void open(final InputStream stream) throws IOException, DbException {
+    input = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+    stringBytes = new byte[64];
+    finished = false;
+
+    final byte[] signature = new byte[SIGNATURE.length];
+    input.readFully(signature);
+    if (!Arrays.equals(SIGNATURE, signature)) {
+      throw new DbException("Not PostgreSQL binary COPY data");
+    }
+    final int flags = input.readInt();
+    if ((flags & HAS_OIDS) != 0) {
+      throw new DbException("PostgreSQL binary COPY data with OIDs is not supported");
+    }
+    // skip the header extension area
+    final int extensionLength = input.readInt();
+    if (input.skipBytes(extensionLength) != extensionLength) {
+      throw new EOFException("Truncated PostgreSQL binary COPY header");
+    }
+  }
+
+  @Override
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Converts the given postgresql seconds to java seconds. The inverse of {@link PostgresBinaryTupleWriter}'s
+   * conversion, valid for any year 100 BC onwards.
+   *
+   * from /org/postgresql/jdbc2/TimestampUtils.java
+   *
+   * @param seconds Postgresql seconds.
+   * @return Java seconds.
+   */
+  @SuppressWarnings("checkstyle:magicnumber")
+  private static long toJavaSecs(final long seconds) {
+    long secs = seconds;
+    // postgres epoc to java epoc
+    secs += 946684800L;
+
+    // Julian/Gregorian calendar cutoff point
+    if (secs < -12219292800L) { // October 4, 1582 -> October 15, 1582
+      secs += 86400 * 10;
+      if (secs < -14825808000L) { // 1500-02-28 -> 1500-03-01
+        int extraLeaps = (int) ((secs + 14825808000L) / 3155760000L);
+        extraLeaps--;
+        extraLeaps -= extraLeaps / 4;
+        secs += extraLeaps * 86400L;
+      }
+    }
+
+    return secs;
+  }
+
+  /**
+   * Read the length of a value and check that it is the length of the column's type, or the length of a NULL.
+   *
+   * @param column the column.
+   * @param expected the length of the column's type.
+   * @return false if the value is NULL.
+   * @throws IOException if there is an IO exception.
+   * @throws DbException if the value has a different length.
+   */
+  private boolean checkLength(final int column, final int expected)
+      throws IOException, DbException {
+    final int length = input.readInt();
+    if (length == NULL_LENGTH) {
+      return false;
+    }
+    if (length != expected) {
+      throw new DbException(lengthError(column, length));
+    }
+    return true;
+  }
+
+  /**
+   * @param column the column.
+   * @param length the length of a value in the column.
+   * @return the message describing an unexpected value length.
+   */
+  private String lengthError(final int column, final int length) {
+    if (length == NULL_LENGTH) {
+      return "Unexpected NULL in column " + schema.getColumnName(column);
+    }
+    return "Unexpected value of "
+        + length
+        + " bytes in column "
+        + schema.getColumnName(column)
+        + " of type "
+        + schema.getColumnType(column);
+  }
+
+  @Override
+  public TupleBatch readTuples() throws IOException, DbException {
+    if (finished) {
+      return null;
+    }
+    final int numColumns = schema.numColumns();
+    final List<ColumnBuilder<?>> builders = ColumnFactory.allocateColumns(schema);
+    int numTuples = 0;
+    while (numTuples < TupleBatch.BATCH_SIZE) {
+      // 16 bit integer number of fields, or -1 for the trailer
+      final short numFields = input.readShort();
+      if (numFields == -1) {
+        finished = true;
+        break;
+      }
+      if (numFields != numColumns) {
+        throw new DbException(
+            "Expected " + numColumns + " columns but the tuple has " + numFields + " fields");
+      }
+      for (int j = 0; j < numColumns; ++j) {
+        final ColumnBuilder<?> builder = builders.get(j);
+        switch (schema.getColumnType(j)) {
+          case BOOLEAN_TYPE:
+            builder.appendBoolean(checkLength(j, 1) && input.readByte() != 0);
+            break;
+          case DOUBLE_TYPE:
+            builder.appendDouble(checkLength(j, 8) ? input.readDouble() : 0);
+            break;
+          case FLOAT_TYPE:
+            builder.appendFloat(checkLength(j, 4) ? input.readFloat() : 0);
+            break;
+          case INT_TYPE:
+            builder.appendInt(checkLength(j, 4) ? input.readInt() : 0);
+            break;
+          case LONG_TYPE:
+            builder.appendLong(checkLength(j, 8) ? input.readLong() : 0);
+            break;
+          case DATETIME_TYPE:
+            if (!checkLength(j, 8)) {
+              throw new DbException(lengthError(j, NULL_LENGTH));
+            }
+            // micros since 2000-01-01 00:00:00, in local time
+            final long micros = input.readLong();
+            final long secs = toJavaSecs(Math.floorDiv(micros, TimeUnit.SECONDS.toMicros(1)));
+            final long localMillis =
+                TimeUnit.SECONDS.toMillis(secs)
+                    + TimeUnit.MICROSECONDS.toMillis(
+                        Math.floorMod(micros, TimeUnit.SECONDS.toMicros(1)));
+            builder.appendDateTime(
+                new DateTime(DateTimeZone.getDefault().convertLocalToUTC(localMillis, false)));
+            break;
+          case STRING_TYPE:
+            final int length = input.readInt();
+            if (length < 0) {
+              throw new DbException(lengthError(j, length));
+            }
+            if (length > stringBytes.length) {
+              stringBytes = new byte[Math.max(length, 2 * stringBytes.length)];
+            }
+            input.readFully(stringBytes, 0, length);
+            builder.appendString(new String(stringBytes, 0, length, StandardCharsets.UTF_8));
+            break;
+        }
+      }
+      ++numTuples;
+    }
+    if (numTuples == 0) {
+      return null;
+    }
+    final List<Column<?>> columns = new ArrayList<>(numColumns);
+    for (ColumnBuilder<?> builder : builders) {
+      columns.add(builder.build());
+    }
+    return new TupleBatch(schema, columns, numTuples);
+  }
+
+  @Override
+  public void close() throws IOException {
+    finished = true;
+    input.close();
+  }
+}
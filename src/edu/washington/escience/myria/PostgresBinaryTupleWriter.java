@@ -153,13 +153,21 @@ public class PostgresBinaryTupleWriter implements TupleWriter {
         }
       }
     }
+  }
 
-    // 16 bit file trailer
-    buffer.writeShort(-1);
+  /**
+   * Send the tuples written so far to the underlying stream.
+   *
+   * @throws IOException if there is an IO exception
+   */
+  public void flush() throws IOException {
+    buffer.flush();
   }
 
   @Override
   public void done() throws IOException {
+    // 16 bit file trailer
+    buffer.writeShort(-1);
     buffer.flush();
     buffer.close();
   }
@@ -4,12 +4,15 @@
 package edu.washington.escience.myria.accessmethod;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.LongFunction;
 
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
@@ -40,6 +43,8 @@ public abstract class AccessMethod {
     switch (dbms) {
       case MyriaConstants.STORAGE_SYSTEM_SQLITE:
         return new SQLiteAccessMethod((SQLiteInfo) connectionInfo, readOnly);
+      case MyriaConstants.STORAGE_SYSTEM_COLUMNAR:
+        return new ColumnarAccessMethod((ColumnarInfo) connectionInfo, readOnly);
       case MyriaConstants.STORAGE_SYSTEM_MONETDB:
       case MyriaConstants.STORAGE_SYSTEM_MYSQL:
       case MyriaConstants.STORAGE_SYSTEM_POSTGRESQL:
@@ -77,6 +82,83 @@ public abstract class AccessMethod {
   public abstract void tupleBatchInsert(final RelationKey relationKey, final TupleBatch tupleBatch)
       throws DbException;
 
+  /**
+   * Start inserting a stream of TupleBatches into a table. By default, each batch is inserted by
+   * {@link #tupleBatchInsert(RelationKey, TupleBatch)} when it is passed to the inserter.
+   *
+   * @param relationKey the table to insert into.
+   * @param asynchronous whether the inserter may write the batches on a separate thread, in which case this access
+   *          method must not be used until the inserter is committed or aborted.
+   * @return the inserter.
+   * @throws DbException if there is an error starting the insertion.
+   */
+  public BatchInserter openBatchInserter(final RelationKey relationKey, final boolean asynchronous)
+      throws DbException {
+    return new BatchInserter() {
+      @Override
+      public void insert(final TupleBatch tupleBatch) throws DbException {
+        tupleBatchInsert(relationKey, tupleBatch);
+      }
+
+      @Override
+      public void commit() {}
+
+      @Override
+      public void abort() {}
+    };
+  }
+
+  /**
+   * Split a table into ranges of its physical storage that can be scanned concurrently, each by
+   * <code>SELECT * FROM relationKey WHERE range</code>. By default, tables are not split.
+   *
+   * @param relationKey the table.
+   * @param numRanges the desired number of ranges.
+   * @return the conditions that select each range, at most numRanges of them, or an empty list if the table cannot be
+   *         split.
+   * @throws DbException if there is an error in the database.
+   */
+  public List<String> scanRanges(final RelationKey relationKey, final int numRanges)
+      throws DbException {
+    return ImmutableList.of();
+  }
+
+  /**
+   * Split the positions <code>[first, end)</code> of a table into at most numRanges non-empty ranges of about the same
+   * size. The first range has no lower bound and the last range has no upper bound, so that the ranges cover the rows
+   * outside of <code>[first, end)</code> as well.
+   *
+   * @param position the expression of the position of a row, e.g., <code>rowid</code>.
+   * @param first the first position.
+   * @param end the position after the last one.
+   * @param numRanges the desired number of ranges.
+   * @param literal converts a position to an SQL literal comparable with the position of a row.
+   * @return the conditions that select each range.
+   */
+  static List<String> rangeConditions(
+      final String position,
+      final long first,
+      final long end,
+      final int numRanges,
+      final LongFunction<String> literal) {
+    final long size = end - first;
+    final int n = (int) Math.max(1, Math.min(numRanges, size));
+    final ImmutableList.Builder<String> conditions = ImmutableList.builder();
+    for (int i = 0; i < n; ++i) {
+      final List<String> bounds = new ArrayList<>(2);
+      if (i > 0) {
+        bounds.add(position + " >= " + literal.apply(first + size / n * i + Math.min(i, size % n)));
+      }
+      if (i < n - 1) {
+        final int next = i + 1;
+        bounds.add(
+            position + " < " + literal.apply(first + size / n * next + Math.min(next, size % n)));
+      }
+      conditions.add(bounds.isEmpty() ? "1 = 1" : String.join(" AND ", bounds));
+    }
+    return conditions.build();
+  }
+
   /**
    * Runs a query and expose the results as an Iterator<TupleBatch>.
    *
@@ -0,0 +1,30 @@
+package edu.washington.escience.myria.accessmethod;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Inserts a stream of TupleBatches into a table, see {@link AccessMethod#openBatchInserter}. The tuples are only
+ * guaranteed to be stored once {@link #commit()} returns.
+ */
+public interface BatchInserter {
+  /**
+   * Insert the tuples of a batch.
+   *
+   * @param tupleBatch the batch.
+   * @throws DbException if there is an error inserting this or a previous batch.
+   */
+  void insert(TupleBatch tupleBatch) throws DbException;
+
+  /**
+   * Finish inserting, after the last batch.
+   *
+   * @throws DbException if there is an error inserting the batches.
+   */
+  void commit() throws DbException;
+
+  /**
+   * Give up inserting, discarding the batches if possible. Does nothing if the inserter has been committed or aborted.
+   */
+  void abort();
+}
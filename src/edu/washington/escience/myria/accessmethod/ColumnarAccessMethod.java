@@ -0,0 +1,799 @@
+package edu.washington.escience.myria.accessmethod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.RelationKey;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.SimplePredicate;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.parallel.ColumnarFrame;
+import edu.washington.escience.myria.parallel.ColumnarFrame.Compression;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.FSUtils;
+
+/**
+ * Access method for the native columnar storage of a worker, meant for relations that are written once and scanned
+ * many times.
+ *
+ * A relation is a directory holding its schema and a sequence of immutable segments of up to
+ * {@link TupleBatch#BATCH_SIZE} tuples. A segment is a directory holding the {@link ZoneMap} of the segment and one file
+ * per column, in the lightweight encodings of {@link ColumnarFrame}. Segments are written to a temporary directory and
+ * then renamed, so scans never see partial segments. Scans memory-map the column files, and plain numeric columns are
+ * views of the mapped files.
+ *
+ * Only full scans, <code>SELECT * FROM relation</code>, are supported as queries, but
+ * {@link #scan(RelationKey, Schema, List, int[])} also selects tuples and columns; indexes are not created, and other
+ * SQL commands fail.
+ */
+public final class ColumnarAccessMethod extends AccessMethod {
+  /** The logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ColumnarAccessMethod.class);
+  /** The file holding the schema of a relation. */
+  static final String SCHEMA_FILE = "schema";
+  /** The file holding the zone map of a segment. */
+  static final String ZONE_MAP_FILE = "zonemap";
+  /** The prefix of the name of a segment directory, followed by its sequence number. */
+  static final String SEGMENT_PREFIX = "segment-";
+  /** The prefix of the name of a temporary segment directory. */
+  private static final String TEMPORARY_PREFIX = ".tmp-";
+  /** The prefix of the name of a column file, followed by the index of the column. */
+  private static final String COLUMN_PREFIX = "column-";
+  /** The encoder of the columns. */
+  private static final ColumnarFrame ENCODER = new ColumnarFrame(Compression.LIGHTWEIGHT);
+  /** The only supported query. */
+  private static final Pattern FULL_SCAN =
+      Pattern.compile(
+          "\\s*SELECT\\s+\\*\\s+FROM\\s+\"([^\":]+):([^\":]+):([^\"]+)\"\\s*;?\\s*",
+          Pattern.CASE_INSENSITIVE);
+  /** Serializes the numbering of new segments in this process. */
+  private static final Object SEGMENT_LOCK = new Object();
+
+  /** The storage information. */
+  private ColumnarInfo columnarInfo;
+  /** Whether this access method may only read. */
+  private boolean readOnly;
+
+  /**
+   * The constructor.
+   *
+   * @param columnarInfo the storage information.
+   * @param readOnly whether this access method may only read.
+   * @throws DbException if the storage directory cannot be created.
+   */
+  public ColumnarAccessMethod(final ColumnarInfo columnarInfo, final Boolean readOnly)
+      throws DbException {
+    connect(columnarInfo, readOnly);
+  }
+
+  @Override
+  void connect(final ConnectionInfo connectionInfo, final Boolean readOnly) throws DbException {
+    Objects.requireNonNull(connectionInfo, "connectionInfo");
+    columnarInfo = (ColumnarInfo) connectionInfo;
+    this.readOnly = readOnly;
+    if (!readOnly) {
+      try {
+        Files.createDirectories(Paths.get(columnarInfo.getDirectory()));
+      } catch (IOException e) {
+        throw new DbException(e);
+      }
+    }
+  }
+
+  @Override
+  void setReadOnly(final Boolean readOnly) throws DbException {
+    connect(columnarInfo, readOnly);
+  }
+
+  /**
+   * @param relationKey a relation.
+   * @return the directory of the relation.
+   */
+  private Path relationDirectory(final RelationKey relationKey) {
+    return Paths.get(
+        columnarInfo.getDirectory(),
+        relationKey.getUserName(),
+        relationKey.getProgramName(),
+        relationKey.getRelationName());
+  }
+
+  /** @throws DbException if this access method may only read. */
+  private void checkWritable() throws DbException {
+    if (readOnly) {
+      throw new DbException("The columnar storage was opened read-only");
+    }
+  }
+
+  /**
+   * @param relationKey a relation.
+   * @return the schema of the relation.
+   * @throws DbException if the relation does not exist.
+   */
+  private Schema readSchema(final RelationKey relationKey) throws DbException {
+    final Path file = relationDirectory(relationKey).resolve(SCHEMA_FILE);
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      final int numColumns = in.readInt();
+      final List<Type> types = new ArrayList<>(numColumns);
+      final List<String> names = new ArrayList<>(numColumns);
+      for (int i = 0; i < numColumns; ++i) {
+        types.add(Type.values()[in.readUnsignedByte()]);
+        names.add(in.readUTF());
+      }
+      return new Schema(types, names);
+    } catch (NoSuchFileException e) {
+      throw new DbException("Relation " + relationKey + " does not exist");
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @param relationKey a relation.
+   * @param schema the schema of some tuples.
+   * @return the schema of the relation.
+   * @throws DbException if the relation does not exist or its column types differ from the schema's.
+   */
+  private Schema checkSchema(final RelationKey relationKey, final Schema schema)
+      throws DbException {
+    final Schema stored = readSchema(relationKey);
+    if (!stored.getColumnTypes().equals(schema.getColumnTypes())) {
+      throw new DbException(
+          "Relation " + relationKey + " has schema " + stored + ", which does not match " + schema);
+    }
+    return stored;
+  }
+
+  @Override
+  public void createTableIfNotExists(final RelationKey relationKey, final Schema schema)
+      throws DbException {
+    checkWritable();
+    final Path directory = relationDirectory(relationKey);
+    final Path file = directory.resolve(SCHEMA_FILE);
+    if (Files.exists(file)) {
+      return;
+    }
+    try {
+      Files.createDirectories(directory);
+      final Path temporary = Files.createTempFile(directory, TEMPORARY_PREFIX, SCHEMA_FILE);
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+        out.writeInt(schema.numColumns());
+        for (int i = 0; i < schema.numColumns(); ++i) {
+          out.writeByte(schema.getColumnType(i).ordinal());
+          out.writeUTF(schema.getColumnName(i));
+        }
+      }
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Write a batch as a new segment of a relation.
+   *
+   * @param directory the directory of the relation.
+   * @param schema the schema of the relation.
+   * @param tupleBatch the batch.
+   * @return the directory of the segment.
+   * @throws IOException if there is an error writing the segment.
+   */
+  private static Path writeSegment(
+      final Path directory, final Schema schema, final TupleBatch tupleBatch) throws IOException {
+    final TupleBatch tb = tupleBatch.compact();
+    final Path temporary = Files.createTempDirectory(directory, TEMPORARY_PREFIX);
+    final List<? extends Column<?>> columns = tb.getDataColumns();
+    for (int i = 0; i < columns.size(); ++i) {
+      final ChannelBuffer encoded = ENCODER.encodeColumn(columns.get(i), tb.numTuples());
+      try (FileChannel channel =
+          FileChannel.open(
+              temporary.resolve(COLUMN_PREFIX + i),
+              StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.WRITE)) {
+        for (ByteBuffer buffer : encoded.toByteBuffers()) {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        }
+      }
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporary.resolve(ZONE_MAP_FILE))))) {
+      ZoneMap.of(tb).write(out, schema);
+    }
+
+    synchronized (SEGMENT_LOCK) {
+      final List<Path> segments = listSegments(directory);
+      final int next =
+          segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+      final Path segment = directory.resolve(String.format("%s%08d", SEGMENT_PREFIX, next));
+      Files.move(temporary, segment, StandardCopyOption.ATOMIC_MOVE);
+      return segment;
+    }
+  }
+
+  /**
+   * @param segment the directory of a segment.
+   * @return the sequence number of the segment.
+   */
+  private static int segmentNumber(final Path segment) {
+    return Integer.parseInt(segment.getFileName().toString().substring(SEGMENT_PREFIX.length()));
+  }
+
+  /**
+   * @param directory the directory of a relation.
+   * @return the directories of the segments of the relation, in order.
+   * @throws IOException if there is an error listing the directory.
+   */
+  private static List<Path> listSegments(final Path directory) throws IOException {
+    final List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+      for (Path segment : stream) {
+        segments.add(segment);
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  @Override
+  public void tupleBatchInsert(final RelationKey relationKey, final TupleBatch tupleBatch)
+      throws DbException {
+    checkWritable();
+    final Schema schema = checkSchema(relationKey, tupleBatch.getSchema());
+    if (tupleBatch.numTuples() == 0) {
+      return;
+    }
+    try {
+      writeSegment(relationDirectory(relationKey), schema, tupleBatch);
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Gathers the inserted tuples into full segments. Aborting deletes the segments written by the inserter.
+   */
+  @Override
+  public BatchInserter openBatchInserter(final RelationKey relationKey, final boolean asynchronous)
+      throws DbException {
+    checkWritable();
+    final Schema schema = readSchema(relationKey);
+    final Path directory = relationDirectory(relationKey);
+    final TupleBatchBuffer buffer = new TupleBatchBuffer(schema);
+    final List<Path> written = new ArrayList<>();
+    return new BatchInserter() {
+      /**
+       * @param tb a batch to write as a segment.
+       * @throws DbException if there is an error writing the segment.
+       */
+      private void write(final TupleBatch tb) throws DbException {
+        try {
+          written.add(writeSegment(directory, schema, tb));
+        } catch (IOException e) {
+          throw new DbException(e);
+        }
+      }
+
+      @Override
+      public void insert(final TupleBatch tupleBatch) throws DbException {
+        Preconditions.checkArgument(
+            schema.getColumnTypes().equals(tupleBatch.getSchema().getColumnTypes()),
+            "Tuples of schema %s inserted into %s",
+            tupleBatch.getSchema(),
+            relationKey);
+        if (tupleBatch.numTuples() == TupleBatch.BATCH_SIZE && buffer.numTuples() == 0) {
+          write(tupleBatch);
+          return;
+        }
+        tupleBatch.compactInto(buffer);
+        while (buffer.hasFilledTB()) {
+          write(buffer.popFilled());
+        }
+      }
+
+      @Override
+      public void commit() throws DbException {
+        for (TupleBatch tb = buffer.popAny(); tb != null; tb = buffer.popAny()) {
+          write(tb);
+        }
+      }
+
+      @Override
+      public void abort() {
+        buffer.clear();
+        for (Path segment : written) {
+          try {
+            FSUtils.deleteFileFolder(segment.toFile());
+          } catch (IOException e) {
+            LOGGER.error("Error deleting segment " + segment, e);
+          }
+        }
+        written.clear();
+      }
+    };
+  }
+
+  /**
+   * Scan a relation, skipping the segments whose zone maps are rejected.
+   *
+   * @param relationKey the relation.
+   * @param schema the schema of the returned batches, whose column types must match the relation's.
+   * @param segmentFilter whether a segment, given its zone map, may contain tuples of interest.
+   * @return an Iterator<TupleBatch> of the segments accepted by the filter, one batch per segment.
+   * @throws DbException if the relation does not exist or its schema does not match.
+   */
+  public Iterator<TupleBatch> scan(
+      final RelationKey relationKey, final Schema schema, final Predicate<ZoneMap> segmentFilter)
+      throws DbException {
+    checkSchema(relationKey, schema);
+    return new SegmentIterator(segments(relationKey), schema, segmentFilter, null, null, null);
+  }
+
+  /**
+   * Scan the tuples of a relation that satisfy a conjunction of predicates, and only some of its columns. Segments whose
+   * zone maps show that none of their tuples satisfy the predicates are skipped, and only the columns that are returned
+   * or tested are decoded.
+   *
+   * @param relationKey the relation.
+   * @param schema the schema of the relation.
+   * @param predicates the predicates, on integral columns or testing strings for (in)equality, that all returned tuples
+   *          satisfy. The operand of a predicate is the plain value, e.g., <code>5</code> or <code>abc</code>.
+   * @param columns the columns to return, or null for all of them.
+   * @return the selected tuples, at most one batch per segment.
+   * @throws DbException if the relation does not exist, its schema does not match, or a predicate is not supported.
+   */
+  public SegmentIterator scan(
+      final RelationKey relationKey,
+      final Schema schema,
+      final List<SimplePredicate> predicates,
+      final int[] columns)
+      throws DbException {
+    checkSchema(relationKey, schema);
+    final List<Comparable<?>> operands = new ArrayList<>(predicates.size());
+    for (SimplePredicate predicate : predicates) {
+      if (predicate.getOp() == SimplePredicate.Op.LIKE) {
+        throw new DbException("LIKE predicates are not supported");
+      }
+      final Type type = schema.getColumnType(predicate.getField());
+      try {
+        switch (type) {
+          case INT_TYPE:
+          case LONG_TYPE:
+            operands.add(Long.parseLong(predicate.getOperand()));
+            break;
+          case STRING_TYPE:
+            operands.add(predicate.getOperand());
+            break;
+          default:
+            throw new DbException("Predicates on columns of type " + type + " are not supported");
+        }
+      } catch (NumberFormatException e) {
+        throw new DbException(e);
+      }
+    }
+    return new SegmentIterator(
+        segments(relationKey),
+        schema,
+        zoneMap -> mayMatch(zoneMap, predicates, operands),
+        predicates,
+        operands,
+        columns);
+  }
+
+  /**
+   * @param relationKey the relation.
+   * @return the directories of the segments of the relation.
+   * @throws DbException if there is an error listing the segments.
+   */
+  private List<Path> segments(final RelationKey relationKey) throws DbException {
+    try {
+      return listSegments(relationDirectory(relationKey));
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @param value a value of an integral or string column.
+   * @param operand the operand of a predicate on the column, a Long or a String.
+   * @return the comparison of the value with the operand.
+   */
+  private static int compareToOperand(final Comparable<?> value, final Comparable<?> operand) {
+    if (operand instanceof Long) {
+      return Long.compare(((Number) value).longValue(), (Long) operand);
+    }
+    return ((String) value).compareTo((String) operand);
+  }
+
+  /**
+   * @param op a comparison.
+   * @param cmp the result of comparing a value with the operand of the comparison.
+   * @return whether the value satisfies the comparison.
+   */
+  private static boolean compare(final SimplePredicate.Op op, final int cmp) {
+    switch (op) {
+      case EQUALS:
+        return cmp == 0;
+      case NOT_EQUALS:
+        return cmp != 0;
+      case LESS_THAN:
+        return cmp < 0;
+      case LESS_THAN_OR_EQ:
+        return cmp <= 0;
+      case GREATER_THAN:
+        return cmp > 0;
+      case GREATER_THAN_OR_EQ:
+        return cmp >= 0;
+      default:
+        throw new IllegalArgumentException("Unsupported comparison " + op);
+    }
+  }
+
+  /**
+   * @param zoneMap the zone map of a segment.
+   * @param predicates the predicates.
+   * @param operands the parsed operands of the predicates.
+   * @return false if no tuple of the segment can satisfy all the predicates.
+   */
+  private static boolean mayMatch(
+      final ZoneMap zoneMap,
+      final List<SimplePredicate> predicates,
+      final List<Comparable<?>> operands) {
+    for (int i = 0; i < predicates.size(); ++i) {
+      final SimplePredicate predicate = predicates.get(i);
+      final Comparable<?> min = zoneMap.getMin(predicate.getField());
+      final Comparable<?> max = zoneMap.getMax(predicate.getField());
+      if (min == null) {
+        continue;
+      }
+      final int cmpMin = compareToOperand(min, operands.get(i));
+      final int cmpMax = compareToOperand(max, operands.get(i));
+      final boolean mayMatch;
+      switch (predicate.getOp()) {
+        case EQUALS:
+          mayMatch = cmpMin <= 0 && cmpMax >= 0;
+          break;
+        case NOT_EQUALS:
+          mayMatch = cmpMin != 0 || cmpMax != 0;
+          break;
+        case LESS_THAN:
+        case LESS_THAN_OR_EQ:
+          mayMatch = compare(predicate.getOp(), cmpMin);
+          break;
+        default:
+          mayMatch = compare(predicate.getOp(), cmpMax);
+          break;
+      }
+      if (!mayMatch) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Iterator<TupleBatch> tupleBatchIteratorFromQuery(
+      final String queryString, final Schema schema) throws DbException {
+    final Matcher matcher = FULL_SCAN.matcher(queryString);
+    if (!matcher.matches()) {
+      throw new DbException(
+          "The columnar storage only supports SELECT * FROM relation, not " + queryString);
+    }
+    return scan(
+        RelationKey.of(matcher.group(1), matcher.group(2), matcher.group(3)),
+        schema,
+        zoneMap -> true);
+  }
+
+  /**
+   * Reads the segments of a relation, one batch per segment, and counts the tuples it skips.
+   */
+  public static final class SegmentIterator implements Iterator<TupleBatch> {
+    /** The remaining segments. */
+    private final Iterator<Path> segments;
+    /** The schema of the relation. */
+    private final Schema schema;
+    /** Whether a segment may contain tuples of interest. */
+    private final Predicate<ZoneMap> segmentFilter;
+    /** The predicates that the returned tuples satisfy. */
+    private final List<SimplePredicate> predicates;
+    /** The parsed operands of {@link #predicates}. */
+    private final List<Comparable<?>> operands;
+    /** The columns that are decoded, in increasing order. */
+    private final int[] decoded;
+    /** The positions in {@link #decoded} of the returned columns. */
+    private final int[] returned;
+    /** True if {@link #returned} are not exactly the decoded columns, in order. */
+    private final boolean projected;
+    /** The number of tuples of the relation, including skipped segments. */
+    private long numTuples = 0;
+    /** The number of tuples of the segments that were read. */
+    private long numTuplesRead = 0;
+    /** The number of returned tuples. */
+    private long numTuplesReturned = 0;
+    /** Next TB. */
+    private TupleBatch nextTB = null;
+
+    /**
+     * @param segments the directories of the segments.
+     * @param schema the schema of the relation.
+     * @param segmentFilter whether a segment may contain tuples of interest.
+     * @param predicates the predicates that the returned tuples satisfy, or null for none.
+     * @param operands the parsed operands of the predicates.
+     * @param columns the columns to return, or null for all of them.
+     */
+    private SegmentIterator(
+        final List<Path> segments,
+        final Schema schema,
+        final Predicate<ZoneMap> segmentFilter,
+        final List<SimplePredicate> predicates,
+        final List<Comparable<?>> operands,
+        final int[] columns) {
+      this.segments = segments.iterator();
+      this.schema = schema;
+      this.segmentFilter = segmentFilter;
+      this.predicates = predicates == null ? Collections.emptyList() : predicates;
+      this.operands = operands == null ? Collections.emptyList() : operands;
+      final int[] projection = columns == null ? allColumns(schema.numColumns()) : columns;
+      final BitSet needed = new BitSet(schema.numColumns());
+      for (int column : projection) {
+        needed.set(column);
+      }
+      for (SimplePredicate predicate : this.predicates) {
+        needed.set(predicate.getField());
+      }
+      decoded = needed.stream().toArray();
+      returned = new int[projection.length];
+      for (int i = 0; i < projection.length; ++i) {
+        returned[i] = Arrays.binarySearch(decoded, projection[i]);
+      }
+      projected = !Arrays.equals(returned, allColumns(decoded.length));
+    }
+
+    /**
+     * @param numColumns a number of columns.
+     * @return the indexes of all the columns.
+     */
+    private static int[] allColumns(final int numColumns) {
+      final int[] columns = new int[numColumns];
+      for (int i = 0; i < numColumns; ++i) {
+        columns[i] = i;
+      }
+      return columns;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (nextTB == null && segments.hasNext()) {
+          nextTB = readSegment(segments.next());
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(new DbException(e));
+      }
+      return nextTB != null;
+    }
+
+    /**
+     * @param segment the directory of a segment.
+     * @return the selected tuples of the segment, or null if there are none.
+     * @throws IOException if there is an error reading the segment.
+     */
+    private TupleBatch readSegment(final Path segment) throws IOException {
+      final ZoneMap zoneMap;
+      try (DataInputStream in =
+          new DataInputStream(
+              new BufferedInputStream(Files.newInputStream(segment.resolve(ZONE_MAP_FILE))))) {
+        zoneMap = ZoneMap.read(in, schema);
+      }
+      numTuples += zoneMap.numTuples();
+      if (zoneMap.numTuples() == 0 || !segmentFilter.test(zoneMap)) {
+        return null;
+      }
+      numTuplesRead += zoneMap.numTuples();
+      final List<Column<?>> columns = new ArrayList<>(decoded.length);
+      for (int i : decoded) {
+        try (FileChannel channel =
+            FileChannel.open(segment.resolve(COLUMN_PREFIX + i), StandardOpenOption.READ)) {
+          final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          columns.add(
+              ColumnarFrame.decodeColumn(
+                  ChannelBuffers.wrappedBuffer(mapped),
+                  schema.getColumnType(i),
+                  zoneMap.numTuples()));
+        }
+      }
+      TupleBatch tb = new TupleBatch(schema.getSubSchema(decoded), columns, zoneMap.numTuples());
+      if (!predicates.isEmpty()) {
+        final BitSet selected = select(columns, zoneMap.numTuples());
+        if (selected.isEmpty()) {
+          return null;
+        }
+        if (selected.cardinality() < zoneMap.numTuples()) {
+          tb = tb.filter(selected);
+        }
+      }
+      if (projected) {
+        tb = tb.selectColumns(returned);
+      }
+      numTuplesReturned += tb.numTuples();
+      return tb;
+    }
+
+    /**
+     * @param columns the decoded columns of a segment.
+     * @param numRows the number of tuples of the segment.
+     * @return the tuples of the segment that satisfy all the predicates.
+     */
+    private BitSet select(final List<Column<?>> columns, final int numRows) {
+      final BitSet selected = new BitSet(numRows);
+      selected.set(0, numRows);
+      for (int p = 0; p < predicates.size(); ++p) {
+        final SimplePredicate predicate = predicates.get(p);
+        final SimplePredicate.Op op = predicate.getOp();
+        final Column<?> column = columns.get(Arrays.binarySearch(decoded, predicate.getField()));
+        final Comparable<?> operand = operands.get(p);
+        for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+          final int cmp;
+          switch (column.getType()) {
+            case INT_TYPE:
+              cmp = Long.compare(column.getInt(row), (Long) operand);
+              break;
+            case LONG_TYPE:
+              cmp = Long.compare(column.getLong(row), (Long) operand);
+              break;
+            default:
+              cmp = column.getString(row).compareTo((String) operand);
+              break;
+          }
+          if (!compare(op, cmp)) {
+            selected.clear(row);
+          }
+        }
+      }
+      return selected;
+    }
+
+    @Override
+    public TupleBatch next() {
+      TupleBatch tmp = nextTB;
+      nextTB = null;
+      return tmp;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("SegmentIterator.remove()");
+    }
+
+    /**
+     * @return the number of tuples of the scanned segments, including the skipped ones.
+     */
+    public long getNumTuples() {
+      return numTuples;
+    }
+
+    /**
+     * @return the number of tuples of the segments that were not skipped.
+     */
+    public long getNumTuplesRead() {
+      return numTuplesRead;
+    }
+
+    /**
+     * @return the number of returned tuples.
+     */
+    public long getNumTuplesReturned() {
+      return numTuplesReturned;
+    }
+  }
+
+  @Override
+  public void dropAndRenameTables(final RelationKey oldRelation, final RelationKey newRelation)
+      throws DbException {
+    checkWritable();
+    dropTableIfExists(oldRelation);
+    final Path target = relationDirectory(oldRelation);
+    try {
+      Files.createDirectories(target.getParent());
+      Files.move(relationDirectory(newRelation), target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  @Override
+  public void dropTableIfExists(final RelationKey relationKey) throws DbException {
+    checkWritable();
+    try {
+      FSUtils.deleteFileFolder(relationDirectory(relationKey).toFile());
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /** The columnar storage has no views, so this is the same as {@link #dropTableIfExists(RelationKey)}. */
+  @Override
+  public void dropTableIfExistsCascade(final RelationKey relationKey) throws DbException {
+    dropTableIfExists(relationKey);
+  }
+
+  /** Indexes are not supported; scans use the zone maps of the segments instead. */
+  @Override
+  public void createIndexes(
+      final RelationKey relationKey, final Schema schema, final List<List<IndexRef>> indexes) {
+    if (indexes != null && !indexes.isEmpty()) {
+      LOGGER.debug("Ignoring indexes on {} in columnar storage", relationKey);
+    }
+  }
+
+  /** Indexes are not supported; scans use the zone maps of the segments instead. */
+  @Override
+  public void createIndexIfNotExists(
+      final RelationKey relationKey, final Schema schema, final List<IndexRef> index) {
+    LOGGER.debug("Ignoring index on {} in columnar storage", relationKey);
+  }
+
+  @Override
+  void execute(final String ddlCommand) throws DbException {
+    throw new DbException("The columnar storage does not support SQL commands: " + ddlCommand);
+  }
+
+  @Override
+  public void runCommand(final String command) throws DbException {
+    execute(command);
+  }
+
+  @Override
+  public void createView(final String viewName, final String viewDefinition) throws DbException {
+    throw new DbException("The columnar storage does not support views");
+  }
+
+  @Override
+  public String insertStatementFromSchema(final Schema schema, final RelationKey relationKey) {
+    throw new UnsupportedOperationException("The columnar storage does not use SQL");
+  }
+
+  @Override
+  public String createIfNotExistsStatementFromSchema(
+      final Schema schema, final RelationKey relationKey) {
+    throw new UnsupportedOperationException("The columnar storage does not use SQL");
+  }
+
+  /** Nothing to close: files are opened by each operation. */
+  @Override
+  public void close() {}
+}
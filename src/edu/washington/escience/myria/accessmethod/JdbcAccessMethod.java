@@ -5,6 +5,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
@@ -18,6 +19,8 @@ import org.postgresql.PGConnection;
 import org.postgresql.PGStatement;
 import org.postgresql.copy.CopyIn;
 import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+import org.postgresql.copy.PGCopyInputStream;
 import org.postgresql.copy.PGCopyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,9 +28,11 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.PostgresBinaryTupleReader;
 import edu.washington.escience.myria.PostgresBinaryTupleWriter;
 import edu.washington.escience.myria.RelationKey;
 import edu.washington.escience.myria.Schema;
@@ -121,12 +126,7 @@ public final class JdbcAccessMethod extends AccessMethod {
     // Use the postgres COPY command which is much faster
     try {
       CopyManager cpManager = ((PGConnection) jdbcConnection).getCopyAPI();
-      StringBuilder copyString =
-          new StringBuilder()
-              .append("COPY ")
-              .append(quote(relationKey))
-              .append(" FROM STDIN WITH BINARY");
-      CopyIn copyIn = cpManager.copyIn(copyString.toString());
+      CopyIn copyIn = cpManager.copyIn(copyStatement(relationKey));
 
       TupleWriter tw = new PostgresBinaryTupleWriter();
       tw.open(new PGCopyOutputStream(copyIn));
@@ -147,6 +147,35 @@ public final class JdbcAccessMethod extends AccessMethod {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * With PostgreSQL, the batches are inserted with a single COPY command in a transaction, see
+   * {@link PostgresCopyInserter}. Unlike {@link #tupleBatchInsert(RelationKey, TupleBatch)}, an error in the COPY
+   * command fails the whole insertion.
+   */
+  @Override
+  public BatchInserter openBatchInserter(final RelationKey relationKey, final boolean asynchronous)
+      throws DbException {
+    Objects.requireNonNull(jdbcConnection, "jdbcConnection");
+    if (!jdbcInfo.getDbms().equals(MyriaConstants.STORAGE_SYSTEM_POSTGRESQL)) {
+      return super.openBatchInserter(relationKey, asynchronous);
+    }
+    return new PostgresCopyInserter(jdbcConnection, copyStatement(relationKey), asynchronous);
+  }
+
+  /**
+   * @param relationKey the destination relation.
+   * @return the PostgreSQL command that copies binary data from the client into the relation.
+   */
+  private String copyStatement(final RelationKey relationKey) {
+    return new StringBuilder()
+        .append("COPY ")
+        .append(quote(relationKey))
+        .append(" FROM STDIN WITH BINARY")
+        .toString();
+  }
+
   @Override
   public void tupleBatchInsert(final RelationKey relationKey, final TupleBatch tupleBatch)
       throws DbException {
@@ -224,6 +253,10 @@ public final class JdbcAccessMethod extends AccessMethod {
     try {
       PreparedStatement statement;
       if (jdbcInfo.getDbms().equals(MyriaConstants.STORAGE_SYSTEM_POSTGRESQL)) {
+        if (matchesBinaryTypes(queryString, schema)) {
+          return new PostgresCopyTupleBatchIterator(
+              jdbcConnection, copyOutStatement(queryString), schema);
+        }
         /*
          * Special handling for PostgreSQL comes from here:
          * http://jdbc.postgresql.org/documentation/head/query.html#query-with-cursor
@@ -255,6 +288,98 @@ public final class JdbcAccessMethod extends AccessMethod {
     }
   }
 
+  /**
+   * Splits PostgreSQL tables by the page of their rows' <code>ctid</code>. Other DBMSs are not split.
+   */
+  @Override
+  public List<String> scanRanges(final RelationKey relationKey, final int numRanges)
+      throws DbException {
+    Objects.requireNonNull(jdbcConnection, "jdbcConnection");
+    if (!jdbcInfo.getDbms().equals(MyriaConstants.STORAGE_SYSTEM_POSTGRESQL)) {
+      return super.scanRanges(relationKey, numRanges);
+    }
+    final long numPages;
+    try (PreparedStatement statement =
+        jdbcConnection.prepareStatement(
+            "SELECT pg_relation_size(CAST(? AS regclass)) / current_setting('block_size')::bigint")) {
+      statement.setString(1, quote(relationKey));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        numPages = resultSet.getLong(1);
+      }
+    } catch (SQLException e) {
+      throw ErrorUtils.mergeSQLException(e);
+    }
+    return rangeConditions("ctid", 0, numPages, numRanges, page -> "'(" + page + ",0)'::tid");
+  }
+
+  /**
+   * Whether the PostgreSQL types of the columns of the query result are the ones that {@link PostgresBinaryTupleReader}
+   * decodes into the types of the schema. The query is only described, not run.
+   *
+   * @param queryString the query.
+   * @param schema the expected schema of the query result.
+   * @return true if the result can be read with a binary COPY.
+   * @throws SQLException if the query cannot be described.
+   */
+  private boolean matchesBinaryTypes(final String queryString, final Schema schema)
+      throws SQLException {
+    try (PreparedStatement statement = jdbcConnection.prepareStatement(queryString)) {
+      final ResultSetMetaData metaData = statement.getMetaData();
+      if (metaData == null || metaData.getColumnCount() != schema.numColumns()) {
+        return false;
+      }
+      for (int i = 0; i < schema.numColumns(); ++i) {
+        /* Warning: JDBC is 1-indexed */
+        if (!binaryTypeNames(schema.getColumnType(i)).contains(metaData.getColumnTypeName(i + 1))) {
+          LOGGER.debug(
+              "Column {} has PostgreSQL type {}, reading the query with JDBC",
+              schema.getColumnName(i),
+              metaData.getColumnTypeName(i + 1));
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @param type a Myria type.
+   * @return the names of the PostgreSQL types whose binary representation is decoded into the given type.
+   */
+  private static ImmutableSet<String> binaryTypeNames(final Type type) {
+    switch (type) {
+      case BOOLEAN_TYPE:
+        return ImmutableSet.of("bool");
+      case INT_TYPE:
+        return ImmutableSet.of("int4");
+      case LONG_TYPE:
+        return ImmutableSet.of("int8");
+      case FLOAT_TYPE:
+        return ImmutableSet.of("float4");
+      case DOUBLE_TYPE:
+        return ImmutableSet.of("float8");
+      case STRING_TYPE:
+        return ImmutableSet.of("text", "varchar", "bpchar");
+      case DATETIME_TYPE:
+        return ImmutableSet.of("timestamp");
+      default:
+        return ImmutableSet.of();
+    }
+  }
+
+  /**
+   * @param queryString a query.
+   * @return the PostgreSQL command that copies the result of the query in binary to the client.
+   */
+  private static String copyOutStatement(final String queryString) {
+    return new StringBuilder()
+        .append("COPY (")
+        .append(StringUtils.removeEnd(queryString.trim(), ";"))
+        .append(") TO STDOUT WITH BINARY")
+        .toString();
+  }
+
   @Override
   public void close() throws DbException {
     /* Close the db connection. */
@@ -773,3 +898,149 @@ class JdbcTupleBatchIterator implements Iterator<TupleBatch> {
     throw new UnsupportedOperationException("JdbcTupleBatchIterator.remove()");
   }
 }
+
+/**
+ * Wraps the binary output of a PostgreSQL <code>COPY (query) TO STDOUT WITH BINARY</code> command in an
+ * Iterator<TupleBatch>. The values are decoded by a {@link PostgresBinaryTupleReader} straight into column builders,
+ * instead of one boxed value at a time from a JDBC ResultSet.
+ */
+class PostgresCopyTupleBatchIterator implements Iterator<TupleBatch> {
+  /** Starts a COPY command on a connection. */
+  @FunctionalInterface
+  interface CopyStarter {
+    /**
+     * @param connection the connection.
+     * @return the running COPY command.
+     * @throws SQLException if the COPY command fails to start.
+     */
+    CopyOut start(Connection connection) throws SQLException;
+  }
+
+  /** The connection that runs the COPY command, closed at the end of the data or on an error. */
+  private final Connection connection;
+  /** The output of the COPY command. */
+  private PGCopyInputStream copy;
+  /** Decodes the output. */
+  private final PostgresBinaryTupleReader reader;
+  /** Next TB. */
+  private TupleBatch nextTB = null;
+  /** The COPY command is finished or not. */
+  private boolean copyFinished = false;
+
+  /**
+   * Starts the COPY command.
+   *
+   * @param connection a connection to PostgreSQL.
+   * @param copyCommand the COPY command.
+   * @param schema the Schema of the generated TupleBatch objects.
+   * @throws DbException if the COPY command fails to start.
+   */
+  PostgresCopyTupleBatchIterator(
+      final Connection connection, final String copyCommand, final Schema schema)
+      throws DbException {
+    this(connection, c -> ((PGConnection) c).getCopyAPI().copyOut(copyCommand), schema);
+  }
+
+  /**
+   * Starts the COPY command.
+   *
+   * @param connection a connection.
+   * @param starter starts the COPY command.
+   * @param schema the Schema of the generated TupleBatch objects.
+   * @throws DbException if the COPY command fails to start.
+   */
+  PostgresCopyTupleBatchIterator(
+      final Connection connection, final CopyStarter starter, final Schema schema)
+      throws DbException {
+    this.connection = connection;
+    reader = new PostgresBinaryTupleReader(schema);
+    try {
+      copy = new PGCopyInputStream(starter.start(connection));
+      reader.open(copy);
+    } catch (final SQLException e) {
+      closeOnError(e);
+      throw ErrorUtils.mergeSQLException(e);
+    } catch (final IOException e) {
+      closeOnError(e);
+      throw new DbException(e);
+    } catch (final DbException e) {
+      closeOnError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextTB != null) {
+      return true;
+    } else {
+      try {
+        nextTB = getNextTB();
+        return null != nextTB;
+      } catch (final DbException | IOException | SQLException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * @return next TupleBatch, null if no more
+   * @throws DbException if the data does not match the schema
+   * @throws IOException if there is an error reading the data
+   * @throws SQLException if any DB system errors
+   */
+  private TupleBatch getNextTB() throws DbException, IOException, SQLException {
+    if (copyFinished) {
+      return null;
+    }
+    try {
+      final TupleBatch tb = reader.readTuples();
+      if (tb == null) {
+        /* Consume the end of the COPY command before closing the connection. */
+        while (copy.read() != -1) {}
+        copyFinished = true;
+        reader.close();
+        connection.close();
+      }
+      return tb;
+    } catch (final DbException | IOException | SQLException e) {
+      closeOnError(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Cancels the COPY command if it is still running and closes the connection, so that an error does not leave the
+   * connection in the middle of a COPY. Errors while closing are added to the original error.
+   *
+   * @param cause the original error.
+   */
+  private void closeOnError(final Exception cause) {
+    copyFinished = true;
+    if (copy != null) {
+      try {
+        /* Cancels the COPY command if it is still active. */
+        copy.close();
+      } catch (final IOException e) {
+        cause.addSuppressed(e);
+      }
+    }
+    try {
+      connection.close();
+    } catch (final SQLException e) {
+      cause.addSuppressed(e);
+    }
+  }
+
+  @Override
+  public TupleBatch next() {
+    TupleBatch tmp = nextTB;
+    nextTB = null;
+    return tmp;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("PostgresCopyTupleBatchIterator.remove()");
+  }
+}
@@ -0,0 +1,182 @@
+package edu.washington.escience.myria.accessmethod;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Runs several queries with the same schema concurrently, each on its own thread and database connection, and exposes
+ * their results as a single Iterator<TupleBatch>. The results of different queries are interleaved in the order they
+ * arrive. The queries are usually ranges of a table, see {@link AccessMethod#scanRanges(RelationKey, int)}.
+ *
+ * The threads put their batches in a queue of {@link #BATCHES_PER_QUERY} batches per query, and stop reading from
+ * the database while the queue is full.
+ */
+public final class ParallelScanIterator implements Iterator<TupleBatch>, AutoCloseable {
+  /** The logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelScanIterator.class);
+  /** The number of batches per query that may wait in the queue. */
+  static final int BATCHES_PER_QUERY = 2;
+  /** How long to wait for the queue before checking for errors or closing, in milliseconds. */
+  private static final long POLL_MILLIS = 100;
+  /** Put in the queue by a thread after its last batch. */
+  private static final TupleBatch END = TupleBatch.eoiTupleBatch(Schema.EMPTY_SCHEMA);
+
+  /** The batches read by the threads. */
+  private final BlockingQueue<TupleBatch> queue;
+  /** The threads that run the queries. */
+  private final List<Thread> threads;
+  /** The number of threads that have not finished. */
+  private int running;
+  /** The first error of a thread. */
+  private volatile Throwable error;
+  /** Whether the iterator has been closed. */
+  private volatile boolean closed;
+  /** Next TB. */
+  private TupleBatch nextTB = null;
+
+  /**
+   * Start running the queries.
+   *
+   * @param dbms the DBMS.
+   * @param connectionInfo the connection info.
+   * @param queries the queries.
+   * @param schema the Schema of the results of the queries.
+   */
+  public ParallelScanIterator(
+      final String dbms,
+      final ConnectionInfo connectionInfo,
+      final List<String> queries,
+      final Schema schema) {
+    Preconditions.checkArgument(!queries.isEmpty(), "No queries to run");
+    queue = new ArrayBlockingQueue<>(BATCHES_PER_QUERY * queries.size());
+    threads = new ArrayList<>(queries.size());
+    for (final String query : queries) {
+      final Thread thread =
+          new Thread(() -> runQuery(dbms, connectionInfo, query, schema), "Scan: " + query);
+      thread.setDaemon(true);
+      threads.add(thread);
+    }
+    running = threads.size();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+  }
+
+  /**
+   * Put a batch in the queue, waiting for room unless the iterator is closed.
+   *
+   * @param tb the batch.
+   * @return false if the iterator has been closed.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  private boolean put(final TupleBatch tb) throws InterruptedException {
+    while (!closed) {
+      if (queue.offer(tb, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The loop of a thread.
+   *
+   * @param dbms the DBMS.
+   * @param connectionInfo the connection info.
+   * @param query the query.
+   * @param schema the Schema of the results of the query.
+   */
+  private void runQuery(
+      final String dbms,
+      final ConnectionInfo connectionInfo,
+      final String query,
+      final Schema schema) {
+    AccessMethod accessMethod = null;
+    try {
+      accessMethod = AccessMethod.of(dbms, connectionInfo, true);
+      final Iterator<TupleBatch> tuples = accessMethod.tupleBatchIteratorFromQuery(query, schema);
+      while (tuples.hasNext()) {
+        if (!put(tuples.next())) {
+          return;
+        }
+      }
+      put(END);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      if (!closed) {
+        error = e;
+      }
+    } finally {
+      if (accessMethod != null) {
+        try {
+          accessMethod.close();
+        } catch (DbException e) {
+          LOGGER.debug("Error closing the connection of a parallel scan", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextTB != null) {
+      return true;
+    }
+    try {
+      while (running > 0) {
+        if (error != null) {
+          throw new RuntimeException(new DbException("Error in a parallel scan", error));
+        }
+        final TupleBatch tb = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (tb == END) {
+          --running;
+        } else if (tb != null) {
+          nextTB = tb;
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    return false;
+  }
+
+  @Override
+  public TupleBatch next() {
+    TupleBatch tmp = nextTB;
+    nextTB = null;
+    return tmp;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("ParallelScanIterator.remove()");
+  }
+
+  /**
+   * Stop the threads that are still running. They close their connections when they stop.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+    queue.clear();
+  }
+}
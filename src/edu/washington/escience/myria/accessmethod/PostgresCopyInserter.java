@@ -0,0 +1,304 @@
+package edu.washington.escience.myria.accessmethod;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.PostgresBinaryTupleWriter;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.util.ErrorUtils;
+
+/**
+ * Inserts a stream of TupleBatches into a PostgreSQL table with a single <code>COPY ... FROM STDIN WITH BINARY</code>
+ * command, in a transaction that is committed at the end, instead of one command per batch.
+ *
+ * The encoded tuples are flushed to the server once {@link #FLUSH_BYTES} have been written or {@link #FLUSH_MILLIS}
+ * have passed since the last flush, so that the server makes progress even when batches arrive slowly. In asynchronous
+ * mode, the batches are encoded and written by a separate thread, and {@link #insert(TupleBatch)} only blocks when
+ * {@link #QUEUE_CAPACITY} batches are waiting. That thread also flushes tuples that have waited for
+ * {@link #FLUSH_MILLIS} while no batch arrives. In synchronous mode, the flush only happens when a batch arrives.
+ */
+final class PostgresCopyInserter implements BatchInserter {
+  /** The logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(PostgresCopyInserter.class);
+  /** The number of bytes written since the last flush that triggers a flush. */
+  static final long FLUSH_BYTES = 4 * 1024 * 1024;
+  /** The time since the last flush that triggers a flush. */
+  static final long FLUSH_MILLIS = 1000;
+  /** The number of batches that may wait for the writing thread. */
+  static final int QUEUE_CAPACITY = 4;
+  /** The time that {@link #abort()} waits for the writing thread to stop. */
+  static final long ABORT_JOIN_MILLIS = 10 * FLUSH_MILLIS;
+  /** Put in the queue after the last batch. */
+  private static final TupleBatch END = TupleBatch.eoiTupleBatch(Schema.EMPTY_SCHEMA);
+
+  /** The connection, in a transaction while the COPY is running. */
+  private final Connection connection;
+  /** The previous auto-commit mode of the connection. */
+  private final boolean autoCommit;
+  /** The COPY command. */
+  private final CopyIn copy;
+  /** Counts the bytes sent to the COPY command. */
+  private final CountingOutputStream counter;
+  /** Encodes the tuples. */
+  private final PostgresBinaryTupleWriter writer;
+  /** The number of tuples written. */
+  private long numTuples;
+  /** The value of the byte counter at the last flush. */
+  private long flushedBytes;
+  /** The number of tuples written at the last flush. */
+  private long flushedTuples;
+  /** The time of the last flush, in nanoseconds. */
+  private long flushedNanos;
+  /** The batches waiting for the writing thread, or null if the batches are written by the calling thread. */
+  private final BlockingQueue<TupleBatch> queue;
+  /** The writing thread, or null. */
+  private final Thread writerThread;
+  /** The first error of the writing thread. */
+  private volatile Throwable writerError;
+  /** Whether the inserter has been committed or aborted. */
+  private boolean finished;
+
+  /**
+   * Start the COPY command and its transaction.
+   *
+   * @param connection a connection to PostgreSQL.
+   * @param copyCommand the COPY command.
+   * @param asynchronous whether to write the batches on a separate thread.
+   * @throws DbException if the COPY command fails to start.
+   */
+  PostgresCopyInserter(
+      final Connection connection, final String copyCommand, final boolean asynchronous)
+      throws DbException {
+    this(
+        connection,
+        copyCommand,
+        c -> ((PGConnection) c).getCopyAPI().copyIn(copyCommand),
+        asynchronous);
+  }
+
+  /** Starts a COPY command on a connection. */
+  @FunctionalInterface
+  interface CopyStarter {
+    /**
+     * @param connection the connection, in a transaction.
+     * @return the running COPY command.
+     * @throws SQLException if the COPY command fails to start.
+     */
+    CopyIn start(Connection connection) throws SQLException;
+  }
+
+  /**
+   * Start a COPY command and its transaction.
+   *
+   * @param connection a connection.
+   * @param copyCommand the COPY command, which names the writing thread.
+   * @param starter starts the COPY command.
+   * @param asynchronous whether to write the batches on a separate thread.
+   * @throws DbException if the COPY command fails to start.
+   */
+  PostgresCopyInserter(
+      final Connection connection,
+      final String copyCommand,
+      final CopyStarter starter,
+      final boolean asynchronous)
+      throws DbException {
+    this.connection = connection;
+    try {
+      autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      copy = starter.start(connection);
+    } catch (SQLException e) {
+      throw ErrorUtils.mergeSQLException(e);
+    }
+    /* Closing the stream detaches it from the COPY, so the COPY itself is kept for its row count. */
+    counter = new CountingOutputStream(new PGCopyOutputStream(copy));
+    writer = new PostgresBinaryTupleWriter();
+    try {
+      writer.open(counter);
+    } catch (IOException e) {
+      abort();
+      throw new DbException(e);
+    }
+    flushedNanos = System.nanoTime();
+    if (asynchronous) {
+      queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+      writerThread = new Thread(this::writeQueuedBatches, "COPY writer: " + copyCommand);
+      writerThread.setDaemon(true);
+      writerThread.start();
+    } else {
+      queue = null;
+      writerThread = null;
+    }
+  }
+
+  /**
+   * Encode a batch and flush the COPY if needed.
+   *
+   * @param tupleBatch the batch.
+   * @throws IOException if there is an error sending the tuples.
+   */
+  private void write(final TupleBatch tupleBatch) throws IOException {
+    writer.writeTuples(tupleBatch);
+    numTuples += tupleBatch.numTuples();
+    if (counter.getCount() - flushedBytes >= FLUSH_BYTES
+        || System.nanoTime() - flushedNanos >= TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS)) {
+      flush();
+    }
+  }
+
+  /**
+   * Send the encoded tuples to the server.
+   *
+   * @throws IOException if there is an error sending the tuples.
+   */
+  private void flush() throws IOException {
+    writer.flush();
+    flushedBytes = counter.getCount();
+    flushedTuples = numTuples;
+    flushedNanos = System.nanoTime();
+  }
+
+  /**
+   * The loop of the writing thread. While some tuples are not flushed, it waits for the next batch only until they are
+   * due to be flushed.
+   */
+  private void writeQueuedBatches() {
+    try {
+      while (true) {
+        final TupleBatch tb;
+        if (numTuples == flushedTuples) {
+          tb = queue.take();
+        } else {
+          final long flushNanos = flushedNanos + TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS);
+          tb = queue.poll(flushNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        if (tb == END) {
+          return;
+        } else if (tb == null) {
+          flush();
+        } else {
+          write(tb);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      writerError = e;
+      /* Unblock the operator if it is waiting for room in the queue. */
+      queue.clear();
+    }
+  }
+
+  /**
+   * @throws DbException if the writing thread has failed.
+   */
+  private void checkWriterError() throws DbException {
+    if (writerError != null) {
+      throw new DbException("Error writing to PostgreSQL COPY", writerError);
+    }
+  }
+
+  @Override
+  public void insert(final TupleBatch tupleBatch) throws DbException {
+    Preconditions.checkState(!finished, "The inserter is finished");
+    if (queue == null) {
+      try {
+        write(tupleBatch);
+      } catch (IOException e) {
+        throw new DbException(e);
+      }
+      return;
+    }
+    checkWriterError();
+    try {
+      while (!queue.offer(tupleBatch, FLUSH_MILLIS, TimeUnit.MILLISECONDS)) {
+        checkWriterError();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbException(e);
+    }
+  }
+
+  @Override
+  public void commit() throws DbException {
+    Preconditions.checkState(!finished, "The inserter is finished");
+    if (writerThread != null) {
+      try {
+        while (writerError == null && !queue.offer(END, FLUSH_MILLIS, TimeUnit.MILLISECONDS)) {}
+        writerThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DbException(e);
+      }
+      checkWriterError();
+    }
+    try {
+      writer.done();
+      final long inserted = copy.getHandledRowCount();
+      Preconditions.checkState(
+          inserted == numTuples,
+          "Error: inserted %s tuples but only actually inserted %s rows",
+          numTuples,
+          inserted);
+      connection.commit();
+      connection.setAutoCommit(autoCommit);
+    } catch (SQLException e) {
+      abort();
+      throw ErrorUtils.mergeSQLException(e);
+    } catch (IOException | IllegalStateException e) {
+      abort();
+      throw new DbException(e);
+    }
+    finished = true;
+    LOGGER.debug("Inserted {} tuples with PostgreSQL COPY", numTuples);
+  }
+
+  @Override
+  public void abort() {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    /* Cancel first: a writing thread blocked on the server only returns once the COPY fails. */
+    try {
+      if (copy.isActive()) {
+        copy.cancelCopy();
+      }
+    } catch (SQLException e) {
+      LOGGER.error("Error cancelling PostgreSQL COPY", e);
+    }
+    if (writerThread != null) {
+      writerThread.interrupt();
+      try {
+        writerThread.join(ABORT_JOIN_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (writerThread.isAlive()) {
+        LOGGER.warn("{} did not stop after the COPY was cancelled", writerThread.getName());
+      }
+    }
+    try {
+      connection.rollback();
+      connection.setAutoCommit(autoCommit);
+    } catch (SQLException e) {
+      LOGGER.error("Error aborting PostgreSQL COPY", e);
+    }
+  }
+}
@@ -6,7 +6,10 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -18,6 +21,7 @@ import com.almworks.sqlite4java.SQLiteJob;
 import com.almworks.sqlite4java.SQLiteQueue;
 import com.almworks.sqlite4java.SQLiteStatement;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
@@ -45,6 +49,67 @@ public final class SQLiteAccessMethod extends AccessMethod {
   private SQLiteInfo sqliteInfo;
   /** Flag that identifies the connection type (read-only or not). **/
   private Boolean readOnly;
+  /** The lock of each database file, held while writing to it. */
+  private static final ConcurrentMap<String, ReentrantLock> DATABASE_LOCKS =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param sqliteInfo the connection information of a database.
+   * @return the lock that serializes the writers to the database in this process.
+   */
+  static ReentrantLock databaseLock(final SQLiteInfo sqliteInfo) {
+    final String path =
+        new File(sqliteInfo.getDatabaseFilename()).toPath().toAbsolutePath().normalize().toString();
+    return DATABASE_LOCKS.computeIfAbsent(path, p -> new ReentrantLock());
+  }
+
+  /**
+   * Apply the PRAGMAs of the connection information to a connection.
+   *
+   * @param connection the connection.
+   * @param sqliteInfo the connection information.
+   * @throws SQLiteException if a PRAGMA fails.
+   */
+  private static void applyPragmas(final SQLiteConnection connection, final SQLiteInfo sqliteInfo)
+      throws SQLiteException {
+    connection.setBusyTimeout(SQLiteAccessMethod.DEFAULT_BUSY_TIMEOUT);
+    if (sqliteInfo.getSynchronous() != null) {
+      /* Check again, since Java deserialization does not go through the constructor. */
+      connection.exec(
+          "PRAGMA synchronous = " + SQLiteInfo.checkSynchronous(sqliteInfo.getSynchronous()));
+    }
+    if (sqliteInfo.getCacheSize() != null) {
+      connection.exec("PRAGMA cache_size = " + sqliteInfo.getCacheSize());
+    }
+    if (sqliteInfo.getMmapSize() != null) {
+      connection.exec("PRAGMA mmap_size = " + sqliteInfo.getMmapSize());
+    }
+  }
+
+  /**
+   * Put a database in WAL mode, which persists in the database file. Changing the journal mode needs the database to
+   * itself, so this holds the lock of the database and waits while other processes use it.
+   *
+   * @param sqliteInfo the connection information of the database, which is created if it does not exist.
+   * @throws DbException if the journal mode cannot be set.
+   */
+  public static void setJournalModeWal(final SQLiteInfo sqliteInfo) throws DbException {
+    final SQLiteConnection connection =
+        new SQLiteConnection(new File(sqliteInfo.getDatabaseFilename()));
+    final ReentrantLock databaseLock = databaseLock(sqliteInfo);
+    databaseLock.lock();
+    try {
+      connection.open(true);
+      connection.setBusyTimeout(DEFAULT_BUSY_TIMEOUT);
+      connection.exec("PRAGMA journal_mode=WAL;");
+    } catch (final SQLiteException e) {
+      throw new DbException(
+          "Could not set WAL mode in database " + sqliteInfo.getDatabaseFilename(), e);
+    } finally {
+      connection.dispose();
+      databaseLock.unlock();
+    }
+  }
 
   /**
    * The constructor. Creates an object and connects with the database
@@ -95,9 +160,17 @@ public final class SQLiteAccessMethod extends AccessMethod {
       if (readOnly) {
         sqliteConnection = new SQLiteConnection(new File(sqliteInfo.getDatabaseFilename()));
         sqliteConnection.openReadonly();
-        sqliteConnection.setBusyTimeout(SQLiteAccessMethod.DEFAULT_BUSY_TIMEOUT);
+        applyPragmas(sqliteConnection, sqliteInfo);
       } else {
-        sqliteQueue = new SQLiteQueue(new File(sqliteInfo.getDatabaseFilename())).start();
+        final SQLiteInfo info = sqliteInfo;
+        sqliteQueue =
+            new SQLiteQueue(new File(sqliteInfo.getDatabaseFilename())) {
+              @Override
+              protected void initConnection(final SQLiteConnection connection)
+                  throws SQLiteException {
+                applyPragmas(connection, info);
+              }
+            }.start();
       }
     } catch (final SQLiteException e) {
       LOGGER.error(e.getMessage(), e);
@@ -116,10 +189,17 @@ public final class SQLiteAccessMethod extends AccessMethod {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The batch is inserted in one transaction, holding the lock of the database, with a statement from the cache of the
+   * connection.
+   */
   @Override
   public void tupleBatchInsert(final RelationKey relationKey, final TupleBatch tupleBatch)
       throws DbException {
     Objects.requireNonNull(sqliteQueue);
+    final ReentrantLock databaseLock = databaseLock(sqliteInfo);
 
     try {
       sqliteQueue
@@ -129,57 +209,33 @@ public final class SQLiteAccessMethod extends AccessMethod {
                 protected Object job(final SQLiteConnection sqliteConnection) throws DbException {
                   SQLiteStatement statement = null;
                   Schema schema = tupleBatch.getSchema();
+                  databaseLock.lock();
                   try {
                     /* BEGIN TRANSACTION */
                     sqliteConnection.exec("BEGIN TRANSACTION");
                     /* Set up and execute the query */
                     statement =
-                        sqliteConnection.prepare(insertStatementFromSchema(schema, relationKey));
-                    for (int row = 0; row < tupleBatch.numTuples(); ++row) {
-                      for (int col = 0; col < tupleBatch.numColumns(); ++col) {
-                        switch (schema.getColumnType(col)) {
-                          case BOOLEAN_TYPE:
-                            /* In SQLite, booleans are integers represented as 0 (false) or 1 (true). */
-                            int colVal = 0;
-                            if (tupleBatch.getBoolean(col, row)) {
-                              colVal = 1;
-                            }
-                            statement.bind(col + 1, colVal);
-                            break;
-                          case DATETIME_TYPE:
-                            statement.bind(
-                                col + 1,
-                                tupleBatch.getDateTime(col, row).getMillis()); // SQLite long
-                            break;
-                          case DOUBLE_TYPE:
-                            statement.bind(col + 1, tupleBatch.getDouble(col, row));
-                            break;
-                          case FLOAT_TYPE:
-                            statement.bind(col + 1, tupleBatch.getFloat(col, row));
-                            break;
-                          case INT_TYPE:
-                            statement.bind(col + 1, tupleBatch.getInt(col, row));
-                            break;
-                          case LONG_TYPE:
-                            statement.bind(col + 1, tupleBatch.getLong(col, row));
-                            break;
-                          case STRING_TYPE:
-                            statement.bind(col + 1, tupleBatch.getString(col, row));
-                            break;
-                        }
-                      }
-                      statement.step();
-                      statement.reset();
-                    }
+                        sqliteConnection.prepare(
+                            insertStatementFromSchema(schema, relationKey), true);
+                    insertRows(statement, tupleBatch);
                     /* COMMIT TRANSACTION */
                     sqliteConnection.exec("COMMIT TRANSACTION");
                   } catch (final SQLiteException e) {
                     LOGGER.error(e.getMessage());
+                    try {
+                      if (!sqliteConnection.getAutoCommit()) {
+                        sqliteConnection.exec("ROLLBACK TRANSACTION");
+                      }
+                    } catch (final SQLiteException e1) {
+                      e.addSuppressed(e1);
+                    }
                     throw new DbException(e);
                   } finally {
+                    /* Returns a cached statement to the cache of the connection. */
                     if (statement != null && !statement.isDisposed()) {
                       statement.dispose();
                     }
+                    databaseLock.unlock();
                   }
                   return null;
                 }
@@ -190,6 +246,70 @@ public final class SQLiteAccessMethod extends AccessMethod {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The batches are inserted by one statement, prepared for the first batch, in transactions of
+   * {@link SQLiteInfo#getBatchesPerTransaction()} batches, see {@link SQLiteBatchInserter}.
+   */
+  @Override
+  public BatchInserter openBatchInserter(final RelationKey relationKey, final boolean asynchronous)
+      throws DbException {
+    Objects.requireNonNull(sqliteQueue);
+    return new SQLiteBatchInserter(
+        sqliteQueue,
+        schema -> insertStatementFromSchema(schema, relationKey),
+        databaseLock(sqliteInfo),
+        sqliteInfo.getBatchesPerTransaction(),
+        asynchronous);
+  }
+
+  /**
+   * Bind the tuples of a batch to an INSERT statement and execute it for each tuple.
+   *
+   * @param statement the INSERT statement.
+   * @param tupleBatch the tuples.
+   * @throws SQLiteException if there is an error inserting a tuple.
+   */
+  static void insertRows(final SQLiteStatement statement, final TupleBatch tupleBatch)
+      throws SQLiteException {
+    final Schema schema = tupleBatch.getSchema();
+    for (int row = 0; row < tupleBatch.numTuples(); ++row) {
+      for (int col = 0; col < tupleBatch.numColumns(); ++col) {
+        switch (schema.getColumnType(col)) {
+          case BOOLEAN_TYPE:
+            /* In SQLite, booleans are integers represented as 0 (false) or 1 (true). */
+            int colVal = 0;
+            if (tupleBatch.getBoolean(col, row)) {
+              colVal = 1;
+            }
+            statement.bind(col + 1, colVal);
+            break;
+          case DATETIME_TYPE:
+            statement.bind(col + 1, tupleBatch.getDateTime(col, row).getMillis()); // SQLite long
+            break;
+          case DOUBLE_TYPE:
+            statement.bind(col + 1, tupleBatch.getDouble(col, row));
+            break;
+          case FLOAT_TYPE:
+            statement.bind(col + 1, tupleBatch.getFloat(col, row));
+            break;
+          case INT_TYPE:
+            statement.bind(col + 1, tupleBatch.getInt(col, row));
+            break;
+          case LONG_TYPE:
+            statement.bind(col + 1, tupleBatch.getLong(col, row));
+            break;
+          case STRING_TYPE:
+            statement.bind(col + 1, tupleBatch.getString(col, row));
+            break;
+        }
+      }
+      statement.step();
+      statement.reset();
+    }
+  }
+
   /** How many times to try to open a database before we give up. Normal is 2-3, outside is 10 to 20. */
   private static final int MAX_RETRY_ATTEMPTS = 1000;
 
@@ -240,9 +360,37 @@ public final class SQLiteAccessMethod extends AccessMethod {
     return new SQLiteTupleBatchIterator(statement, sqliteConnection, schema);
   }
 
+  /**
+   * Splits tables by <code>rowid</code>.
+   */
+  @Override
+  public List<String> scanRanges(final RelationKey relationKey, final int numRanges)
+      throws DbException {
+    Objects.requireNonNull(sqliteConnection);
+    SQLiteStatement statement = null;
+    try {
+      statement =
+          sqliteConnection.prepare(
+              "SELECT min(rowid), max(rowid) FROM "
+                  + relationKey.toString(MyriaConstants.STORAGE_SYSTEM_SQLITE));
+      if (!statement.step() || statement.columnNull(0)) {
+        return ImmutableList.of();
+      }
+      return rangeConditions(
+          "rowid", statement.columnLong(0), statement.columnLong(1) + 1, numRanges, Long::toString);
+    } catch (final SQLiteException e) {
+      throw new DbException(e);
+    } finally {
+      if (statement != null) {
+        statement.dispose();
+      }
+    }
+  }
+
   @Override
   public void execute(final String ddlCommand) throws DbException {
     Objects.requireNonNull(sqliteQueue);
+    final ReentrantLock databaseLock = databaseLock(sqliteInfo);
 
     try {
       sqliteQueue
@@ -250,11 +398,14 @@ public final class SQLiteAccessMethod extends AccessMethod {
               new SQLiteJob<Object>() {
                 @Override
                 protected Object job(final SQLiteConnection sqliteConnection) throws DbException {
+                  databaseLock.lock();
                   try {
                     sqliteConnection.exec(ddlCommand);
                   } catch (final SQLiteException e) {
                     LOGGER.error(e.getMessage(), e);
                     throw new DbException(e);
+                  } finally {
+                    databaseLock.unlock();
                   }
                   return null;
                 }
@@ -282,14 +433,15 @@ public final class SQLiteAccessMethod extends AccessMethod {
   }
 
   /**
-   * Inserts a TupleBatch into the SQLite database.
+   * Inserts a TupleBatch into the SQLite database. Insertions into the same database are serialized by the lock of the
+   * database, see {@link #tupleBatchInsert(RelationKey, TupleBatch)}; insertions into different databases are not.
    *
    * @param sqliteInfo SQLite connection information
    * @param relationKey the table to insert into.
    * @param tupleBatch TupleBatch that contains the data to be inserted.
    * @throws DbException if there is an error in the database.
    */
-  public static synchronized void tupleBatchInsert(
+  public static void tupleBatchInsert(
       final SQLiteInfo sqliteInfo, final RelationKey relationKey, final TupleBatch tupleBatch)
       throws DbException {
 
@@ -0,0 +1,206 @@
+package edu.washington.escience.myria.accessmethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteJob;
+import com.almworks.sqlite4java.SQLiteQueue;
+import com.almworks.sqlite4java.SQLiteStatement;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Inserts a stream of TupleBatches into a SQLite table through the queue of a {@link SQLiteAccessMethod}. The INSERT
+ * statement is prepared once and reused for all batches, and the batches are gathered so that each transaction inserts
+ * several of them. Each transaction holds the lock of the database, so that other writers in this process wait for it
+ * rather than fail because the database is busy; the lock is not held between transactions.
+ *
+ * Transactions are committed as they fill up, so aborting the inserter only discards the batches that have not been
+ * inserted yet.
+ */
+final class SQLiteBatchInserter implements BatchInserter {
+  /** The logger for this class. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SQLiteBatchInserter.class);
+
+  /** The queue whose thread owns the connection. */
+  private final SQLiteQueue queue;
+  /** Builds the INSERT statement for the schema of the batches. */
+  private final Function<Schema, String> insertStatement;
+  /** The lock of the database. */
+  private final Lock databaseLock;
+  /** The number of batches inserted by each transaction. */
+  private final int batchesPerTransaction;
+  /** Whether the next batches may be passed while the queue's thread inserts the previous ones. */
+  private final boolean asynchronous;
+  /** The batches of the next transaction. */
+  private final List<TupleBatch> batches;
+
+  /** The prepared INSERT statement. Only used by the queue's thread. */
+  private SQLiteStatement statement;
+  /** The transaction that may still be running. */
+  private SQLiteJob<Void> pending;
+  /** Whether the inserter has been committed or aborted. */
+  private boolean finished;
+
+  /**
+   * @param queue the queue whose thread owns the connection.
+   * @param insertStatement builds the INSERT statement for the schema of the batches.
+   * @param databaseLock the lock of the database.
+   * @param batchesPerTransaction the number of batches inserted by each transaction.
+   * @param asynchronous whether the next batches may be passed while the queue's thread inserts the previous ones.
+   */
+  SQLiteBatchInserter(
+      final SQLiteQueue queue,
+      final Function<Schema, String> insertStatement,
+      final Lock databaseLock,
+      final int batchesPerTransaction,
+      final boolean asynchronous) {
+    Preconditions.checkArgument(
+        batchesPerTransaction > 0, "batchesPerTransaction must be positive");
+    this.queue = queue;
+    this.insertStatement = insertStatement;
+    this.databaseLock = databaseLock;
+    this.batchesPerTransaction = batchesPerTransaction;
+    this.asynchronous = asynchronous;
+    batches = new ArrayList<>(batchesPerTransaction);
+  }
+
+  /**
+   * Wait for the pending transaction.
+   *
+   * @throws DbException if the transaction failed.
+   */
+  private void waitForPending() throws DbException {
+    if (pending == null) {
+      return;
+    }
+    try {
+      pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbException(e);
+    } catch (ExecutionException e) {
+      throw new DbException("Error inserting into SQLite", e.getCause());
+    } finally {
+      pending = null;
+    }
+  }
+
+  @Override
+  public void insert(final TupleBatch tupleBatch) throws DbException {
+    Preconditions.checkState(!finished, "The inserter is finished");
+    batches.add(tupleBatch);
+    if (batches.size() == batchesPerTransaction) {
+      flush();
+    }
+  }
+
+  /**
+   * Insert the gathered batches in one transaction.
+   *
+   * @throws DbException if there is an error inserting these or the previous batches.
+   */
+  private void flush() throws DbException {
+    waitForPending();
+    final List<TupleBatch> transaction = ImmutableList.copyOf(batches);
+    batches.clear();
+    pending =
+        queue.execute(
+            new SQLiteJob<Void>() {
+              @Override
+              protected Void job(final SQLiteConnection connection) throws SQLiteException {
+                if (statement == null) {
+                  statement =
+                      connection.prepare(insertStatement.apply(transaction.get(0).getSchema()));
+                }
+                databaseLock.lock();
+                try {
+                  connection.exec("BEGIN TRANSACTION");
+                  for (TupleBatch tb : transaction) {
+                    SQLiteAccessMethod.insertRows(statement, tb);
+                  }
+                  connection.exec("COMMIT TRANSACTION");
+                } catch (SQLiteException e) {
+                  statement.reset();
+                  if (!connection.getAutoCommit()) {
+                    connection.exec("ROLLBACK TRANSACTION");
+                  }
+                  throw e;
+                } finally {
+                  databaseLock.unlock();
+                }
+                return null;
+              }
+            });
+    if (!asynchronous) {
+      waitForPending();
+    }
+  }
+
+  /**
+   * Dispose of the statement, on the queue's thread.
+   *
+   * @throws DbException if the queue fails.
+   */
+  private void finish() throws DbException {
+    finished = true;
+    batches.clear();
+    pending =
+        queue.execute(
+            new SQLiteJob<Void>() {
+              @Override
+              protected Void job(final SQLiteConnection connection) {
+                if (statement != null) {
+                  statement.dispose();
+                  statement = null;
+                }
+                return null;
+              }
+            });
+    waitForPending();
+  }
+
+  @Override
+  public void commit() throws DbException {
+    Preconditions.checkState(!finished, "The inserter is finished");
+    try {
+      if (!batches.isEmpty()) {
+        flush();
+      }
+      waitForPending();
+    } catch (DbException e) {
+      abort();
+      throw e;
+    }
+    finish();
+  }
+
+  @Override
+  public void abort() {
+    if (finished) {
+      return;
+    }
+    try {
+      waitForPending();
+    } catch (DbException e) {
+      LOGGER.debug("Ignoring the error of an aborted insertion", e);
+    }
+    try {
+      finish();
+    } catch (DbException e) {
+      LOGGER.error("Error finishing an insertion into SQLite", e);
+    }
+  }
+}
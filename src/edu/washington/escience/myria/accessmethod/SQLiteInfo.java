@@ -2,8 +2,10 @@ package edu.washington.escience.myria.accessmethod;
 
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 
 import edu.washington.escience.myria.MyriaConstants;
 
@@ -17,21 +19,67 @@ public final class SQLiteInfo extends ConnectionInfo implements Serializable {
   private static final long serialVersionUID = 1L;
   /** The database to connect to. */
   @JsonProperty private final String databaseFilename;
+  /** The <code>synchronous</code> PRAGMA of the connections, or null for SQLite's default. */
+  @JsonProperty private final String synchronous;
+  /** The <code>cache_size</code> PRAGMA of the connections, or null for SQLite's default. */
+  @JsonProperty private final Integer cacheSize;
+  /** The <code>mmap_size</code> PRAGMA of the connections, or null for SQLite's default. */
+  @JsonProperty private final Long mmapSize;
+  /** The number of batches inserted by each transaction of a stream of insertions, or null for one. */
+  @JsonProperty private final Integer batchesPerTransaction;
 
-  /**
-   * This is not really unused, it's used automagically by Jackson deserialization.
-   */
-  private SQLiteInfo() {
-    databaseFilename = null;
-  }
+  /** The <code>synchronous</code> PRAGMA of worker databases, which are in WAL mode. */
+  public static final String WORKER_SYNCHRONOUS = "NORMAL";
+  /** The <code>cache_size</code> PRAGMA of worker databases: 64 MiB. */
+  public static final int WORKER_CACHE_SIZE = -64 * 1024;
+  /** The <code>mmap_size</code> PRAGMA of worker databases: 256 MiB. */
+  public static final long WORKER_MMAP_SIZE = 256L * 1024 * 1024;
+  /** The number of batches inserted by each transaction in worker databases. */
+  public static final int WORKER_BATCHES_PER_TRANSACTION = 16;
+
+  /** The values of the <code>synchronous</code> PRAGMA. */
+  private static final ImmutableSet<String> SYNCHRONOUS_MODES =
+      ImmutableSet.of("OFF", "NORMAL", "FULL", "EXTRA", "0", "1", "2", "3");
 
   /**
-   * Private constructor.
+   * Private constructor, which Jackson deserialization also uses so that it checks the PRAGMAs.
    *
    * @param databaseFilename the file containing the database.
+   * @param synchronous the <code>synchronous</code> PRAGMA, or null for SQLite's default.
+   * @param cacheSize the <code>cache_size</code> PRAGMA, or null for SQLite's default.
+   * @param mmapSize the <code>mmap_size</code> PRAGMA, or null for SQLite's default.
+   * @param batchesPerTransaction the number of batches inserted by each transaction, or null for one.
    */
-  private SQLiteInfo(final String databaseFilename) {
+  @JsonCreator
+  private SQLiteInfo(
+      @JsonProperty("databaseFilename") final String databaseFilename,
+      @JsonProperty("synchronous") final String synchronous,
+      @JsonProperty("cacheSize") final Integer cacheSize,
+      @JsonProperty("mmapSize") final Long mmapSize,
+      @JsonProperty("batchesPerTransaction") final Integer batchesPerTransaction) {
+    checkSynchronous(synchronous);
+    Preconditions.checkArgument(mmapSize == null || mmapSize >= 0, "mmapSize must not be negative");
+    Preconditions.checkArgument(
+        batchesPerTransaction == null || batchesPerTransaction > 0,
+        "batchesPerTransaction must be positive");
     this.databaseFilename = databaseFilename;
+    this.synchronous = synchronous;
+    this.cacheSize = cacheSize;
+    this.mmapSize = mmapSize;
+    this.batchesPerTransaction = batchesPerTransaction;
+  }
+
+  /**
+   * @param synchronous a value of the <code>synchronous</code> PRAGMA, or null.
+   * @return the value, which can be written into the PRAGMA.
+   * @throws IllegalArgumentException if the value is not a mode of the PRAGMA.
+   */
+  static String checkSynchronous(final String synchronous) {
+    Preconditions.checkArgument(
+        synchronous == null || SYNCHRONOUS_MODES.contains(synchronous.toUpperCase()),
+        "synchronous must be one of %s",
+        SYNCHRONOUS_MODES);
+    return synchronous;
   }
 
   /**
@@ -45,7 +93,7 @@ public final class SQLiteInfo extends ConnectionInfo implements Serializable {
     Preconditions.checkArgument(
         dbms.equals(MyriaConstants.STORAGE_SYSTEM_SQLITE),
         "The dbms parameter must equal " + MyriaConstants.STORAGE_SYSTEM_SQLITE);
-    return new SQLiteInfo(databaseFilename);
+    return of(databaseFilename);
   }
 
   /**
@@ -55,7 +103,29 @@ public final class SQLiteInfo extends ConnectionInfo implements Serializable {
    * @return a new SQLiteInfo containing this information.
    */
   public static SQLiteInfo of(final String databaseFilename) {
-    return new SQLiteInfo(databaseFilename);
+    return new SQLiteInfo(databaseFilename, null, null, null, null);
+  }
+
+  /**
+   * Creates a new SQLiteInfo object that tunes the connections to the database.
+   *
+   * @param databaseFilename the file containing the database.
+   * @param synchronous the <code>synchronous</code> PRAGMA, e.g., <code>NORMAL</code>, or null for SQLite's default.
+   * @param cacheSize the <code>cache_size</code> PRAGMA, in pages or, if negative, in KiB, or null for SQLite's
+   *          default.
+   * @param mmapSize the <code>mmap_size</code> PRAGMA, in bytes, or null for SQLite's default.
+   * @param batchesPerTransaction the number of batches inserted by each transaction of a stream of insertions, or null
+   *          for one.
+   * @return a new SQLiteInfo containing this information.
+   */
+  public static SQLiteInfo of(
+      final String databaseFilename,
+      final String synchronous,
+      final Integer cacheSize,
+      final Long mmapSize,
+      final Integer batchesPerTransaction) {
+    return new SQLiteInfo(
+        databaseFilename, synchronous, cacheSize, mmapSize, batchesPerTransaction);
   }
 
   /**
@@ -65,6 +135,34 @@ public final class SQLiteInfo extends ConnectionInfo implements Serializable {
     return databaseFilename;
   }
 
+  /**
+   * @return the <code>synchronous</code> PRAGMA of the connections, or null for SQLite's default.
+   */
+  public String getSynchronous() {
+    return synchronous;
+  }
+
+  /**
+   * @return the <code>cache_size</code> PRAGMA of the connections, or null for SQLite's default.
+   */
+  public Integer getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * @return the <code>mmap_size</code> PRAGMA of the connections, or null for SQLite's default.
+   */
+  public Long getMmapSize() {
+    return mmapSize;
+  }
+
+  /**
+   * @return the number of batches inserted by each transaction of a stream of insertions.
+   */
+  public int getBatchesPerTransaction() {
+    return batchesPerTransaction == null ? 1 : batchesPerTransaction;
+  }
+
   @Override
   public String getDbms() {
     return MyriaConstants.STORAGE_SYSTEM_SQLITE;
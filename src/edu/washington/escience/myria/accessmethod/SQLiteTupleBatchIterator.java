@@ -14,9 +14,12 @@ import org.slf4j.LoggerFactory;
 import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
 import com.almworks.sqlite4java.SQLiteStatement;
+import com.google.common.collect.ImmutableList;
 
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.IntArrayColumn;
+import edu.washington.escience.myria.column.LongColumn;
 import edu.washington.escience.myria.column.builder.ColumnBuilder;
 import edu.washington.escience.myria.column.builder.ColumnFactory;
 import edu.washington.escience.myria.storage.TupleBatch;
@@ -24,6 +27,8 @@ import edu.washington.escience.myria.storage.TupleBatch;
 /**
  * Wraps a SQLiteStatement result set in a Iterator<TupleBatch>.
  *
+ * Results with a single INT or LONG column are read in chunks with sqlite4java's bulk loaders. Other results are read
+ * one row at a time.
  */
 public class SQLiteTupleBatchIterator implements Iterator<TupleBatch> {
   /** The logger for this class. Uses SQLiteAccessMethod settings. */
@@ -73,6 +78,76 @@ public class SQLiteTupleBatchIterator implements Iterator<TupleBatch> {
       throw new NoSuchElementException();
     }
 
+    try {
+      if (schema.numColumns() == 1) {
+        switch (schema.getColumnType(0)) {
+          case INT_TYPE:
+            return loadInts();
+          case LONG_TYPE:
+            return loadLongs();
+          default:
+            break;
+        }
+      }
+      return loadRows();
+    } catch (final SQLiteException e) {
+      LOGGER.error("Got SQLiteException:" + e + "in TupleBatchIterator.next()");
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Load the next batch of a result that has a single INT column with sqlite4java's bulk loader, which reads a chunk of
+   * values in one native call. The bulk loader steps the statement before reading each value, so the current row is
+   * read first.
+   *
+   * @return the next batch.
+   * @throws SQLiteException if there is an error reading the results.
+   */
+  private TupleBatch loadInts() throws SQLiteException {
+    final int[] data = new int[TupleBatch.BATCH_SIZE];
+    data[0] = statement.columnInt(0);
+    final int numTuples = 1 + statement.loadInts(0, data, 1, data.length - 1);
+    stepPastChunk(numTuples);
+    return new TupleBatch(schema, ImmutableList.of(new IntArrayColumn(data, numTuples)), numTuples);
+  }
+
+  /**
+   * Load the next batch of a result that has a single LONG column with sqlite4java's bulk loader.
+   *
+   * @return the next batch.
+   * @throws SQLiteException if there is an error reading the results.
+   * @see #loadInts()
+   */
+  private TupleBatch loadLongs() throws SQLiteException {
+    final long[] data = new long[TupleBatch.BATCH_SIZE];
+    data[0] = statement.columnLong(0);
+    final int numTuples = 1 + statement.loadLongs(0, data, 1, data.length - 1);
+    stepPastChunk(numTuples);
+    return new TupleBatch(schema, ImmutableList.of(new LongColumn(data, numTuples)), numTuples);
+  }
+
+  /**
+   * After a bulk load, the statement is still on the last loaded row unless the results are exhausted. Step past it so
+   * that the statement is on the first row of the next batch, if any.
+   *
+   * @param numTuples the number of tuples of the batch that was loaded.
+   * @throws SQLiteException if there is an error reading the results.
+   */
+  private void stepPastChunk(final int numTuples) throws SQLiteException {
+    if (numTuples == TupleBatch.BATCH_SIZE) {
+      statement.step();
+    }
+  }
+
+  /**
+   * Load the next batch one row at a time, into column builders. The bulk loaders cannot read several columns because
+   * they step the statement.
+   *
+   * @return the next batch.
+   * @throws SQLiteException if there is an error reading the results.
+   */
+  private TupleBatch loadRows() throws SQLiteException {
     /* Allocate TupleBatch parameters */
     final int numFields = schema.numColumns();
     final List<ColumnBuilder<?>> columnBuilders = ColumnFactory.allocateColumns(schema);
@@ -82,16 +157,11 @@ public class SQLiteTupleBatchIterator implements Iterator<TupleBatch> {
      * results.
      */
     int numTuples;
-    try {
-      for (numTuples = 0; numTuples < TupleBatch.BATCH_SIZE && statement.hasRow(); ++numTuples) {
-        for (int column = 0; column < numFields; ++column) {
-          columnBuilders.get(column).appendFromSQLite(statement, column);
-        }
-        statement.step();
+    for (numTuples = 0; numTuples < TupleBatch.BATCH_SIZE && statement.hasRow(); ++numTuples) {
+      for (int column = 0; column < numFields; ++column) {
+        columnBuilders.get(column).appendFromSQLite(statement, column);
       }
-    } catch (final SQLiteException e) {
-      LOGGER.error("Got SQLiteException:" + e + "in TupleBatchIterator.next()");
-      throw new RuntimeException(e);
+      statement.step();
     }
 
     List<Column<?>> columns = new ArrayList<Column<?>>(columnBuilders.size());
@@ -0,0 +1,273 @@
+package edu.washington.escience.myria.accessmethod;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * The number of tuples of a segment of a relation in columnar storage, and the smallest and largest value of each of
+ * its columns. A scan can skip the segments whose zone map shows that none of their tuples match a predicate.
+ *
+ * The bounds of a column are unknown, i.e., null, if it has NaN values or strings longer than
+ * {@link #MAX_STRING_LENGTH} characters.
+ */
+public final class ZoneMap {
+  /** Strings longer than this are not kept as bounds. */
+  static final int MAX_STRING_LENGTH = 256;
+
+  /** The number of tuples of the segment. */
+  private final int numTuples;
+  /** The smallest value of each column, or null if unknown. */
+  private final Comparable<?>[] min;
+  /** The largest value of each column, or null if unknown. */
+  private final Comparable<?>[] max;
+
+  /**
+   * @param numTuples the number of tuples of the segment.
+   * @param min the smallest value of each column, or null if unknown.
+   * @param max the largest value of each column, or null if unknown.
+   */
+  private ZoneMap(final int numTuples, final Comparable<?>[] min, final Comparable<?>[] max) {
+    this.numTuples = numTuples;
+    this.min = min;
+    this.max = max;
+  }
+
+  /**
+   * @return the number of tuples of the segment.
+   */
+  public int numTuples() {
+    return numTuples;
+  }
+
+  /**
+   * @param column a column.
+   * @return the smallest value of the column, or null if unknown.
+   */
+  public Comparable<?> getMin(final int column) {
+    return min[column];
+  }
+
+  /**
+   * @param column a column.
+   * @return the largest value of the column, or null if unknown.
+   */
+  public Comparable<?> getMax(final int column) {
+    return max[column];
+  }
+
+  /**
+   * Compute the zone map of a batch.
+   *
+   * @param tb a batch without a selection vector.
+   * @return the zone map of the batch.
+   */
+  static ZoneMap of(final TupleBatch tb) {
+    final int numColumns = tb.numColumns();
+    final int n = tb.numTuples();
+    final Comparable<?>[] min = new Comparable<?>[numColumns];
+    final Comparable<?>[] max = new Comparable<?>[numColumns];
+    if (n == 0) {
+      return new ZoneMap(n, min, max);
+    }
+    for (int c = 0; c < numColumns; ++c) {
+      final Column<?> column = tb.getDataColumns().get(c);
+      switch (column.getType()) {
+        case BOOLEAN_TYPE:
+          {
+            boolean lo = true;
+            boolean hi = false;
+            for (int i = 0; i < n; ++i) {
+              lo &= column.getBoolean(i);
+              hi |= column.getBoolean(i);
+            }
+            min[c] = lo;
+            max[c] = hi;
+            break;
+          }
+        case INT_TYPE:
+          {
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (int i = 0; i < n; ++i) {
+              lo = Math.min(lo, column.getInt(i));
+              hi = Math.max(hi, column.getInt(i));
+            }
+            min[c] = lo;
+            max[c] = hi;
+            break;
+          }
+        case LONG_TYPE:
+          {
+            long lo = Long.MAX_VALUE;
+            long hi = Long.MIN_VALUE;
+            for (int i = 0; i < n; ++i) {
+              lo = Math.min(lo, column.getLong(i));
+              hi = Math.max(hi, column.getLong(i));
+            }
+            min[c] = lo;
+            max[c] = hi;
+            break;
+          }
+        case FLOAT_TYPE:
+        case DOUBLE_TYPE:
+          {
+            final boolean isFloat = column.getType() == Type.FLOAT_TYPE;
+            double lo = Double.POSITIVE_INFINITY;
+            double hi = Double.NEGATIVE_INFINITY;
+            boolean nan = false;
+            for (int i = 0; i < n; ++i) {
+              final double value = isFloat ? column.getFloat(i) : column.getDouble(i);
+              nan |= Double.isNaN(value);
+              lo = Math.min(lo, value);
+              hi = Math.max(hi, value);
+            }
+            if (!nan) {
+              min[c] = isFloat ? (Comparable<?>) (float) lo : (Comparable<?>) lo;
+              max[c] = isFloat ? (Comparable<?>) (float) hi : (Comparable<?>) hi;
+            }
+            break;
+          }
+        case DATETIME_TYPE:
+          {
+            long lo = Long.MAX_VALUE;
+            long hi = Long.MIN_VALUE;
+            for (int i = 0; i < n; ++i) {
+              final long millis = column.getDateTime(i).getMillis();
+              lo = Math.min(lo, millis);
+              hi = Math.max(hi, millis);
+            }
+            min[c] = new DateTime(lo);
+            max[c] = new DateTime(hi);
+            break;
+          }
+        case STRING_TYPE:
+          {
+            String lo = column.getString(0);
+            String hi = lo;
+            boolean tooLong = false;
+            for (int i = 0; i < n && !tooLong; ++i) {
+              final String value = column.getString(i);
+              tooLong = value.length() > MAX_STRING_LENGTH;
+              if (value.compareTo(lo) < 0) {
+                lo = value;
+              } else if (value.compareTo(hi) > 0) {
+                hi = value;
+              }
+            }
+            if (!tooLong) {
+              min[c] = lo;
+              max[c] = hi;
+            }
+            break;
+          }
+      }
+    }
+    return new ZoneMap(n, min, max);
+  }
+
+  /**
+   * @param out where to write the zone map.
+   * @param schema the schema of the segment.
+   * @throws IOException if there is an error writing.
+   */
+  void write(final DataOutput out, final Schema schema) throws IOException {
+    out.writeInt(numTuples);
+    for (int c = 0; c < min.length; ++c) {
+      out.writeBoolean(min[c] != null);
+      if (min[c] != null) {
+        writeValue(out, schema.getColumnType(c), min[c]);
+        writeValue(out, schema.getColumnType(c), max[c]);
+      }
+    }
+  }
+
+  /**
+   * @param out where to write the value.
+   * @param type the type of the value.
+   * @param value the value.
+   * @throws IOException if there is an error writing.
+   */
+  private static void writeValue(final DataOutput out, final Type type, final Comparable<?> value)
+      throws IOException {
+    switch (type) {
+      case BOOLEAN_TYPE:
+        out.writeBoolean((Boolean) value);
+        break;
+      case INT_TYPE:
+        out.writeInt((Integer) value);
+        break;
+      case LONG_TYPE:
+        out.writeLong((Long) value);
+        break;
+      case FLOAT_TYPE:
+        out.writeFloat((Float) value);
+        break;
+      case DOUBLE_TYPE:
+        out.writeDouble((Double) value);
+        break;
+      case DATETIME_TYPE:
+        out.writeLong(((DateTime) value).getMillis());
+        break;
+      case STRING_TYPE:
+        out.writeUTF((String) value);
+        break;
+    }
+  }
+
+  /**
+   * @param in where to read the zone map.
+   * @param schema the schema of the segment.
+   * @return the zone map.
+   * @throws IOException if there is an error reading.
+   */
+  static ZoneMap read(final DataInput in, final Schema schema) throws IOException {
+    final int numTuples = in.readInt();
+    Preconditions.checkState(numTuples >= 0, "Corrupt zone map");
+    final Comparable<?>[] min = new Comparable<?>[schema.numColumns()];
+    final Comparable<?>[] max = new Comparable<?>[schema.numColumns()];
+    for (int c = 0; c < min.length; ++c) {
+      if (in.readBoolean()) {
+        min[c] = readValue(in, schema.getColumnType(c));
+        max[c] = readValue(in, schema.getColumnType(c));
+      }
+    }
+    return new ZoneMap(numTuples, min, max);
+  }
+
+  /**
+   * @param in where to read the value.
+   * @param type the type of the value.
+   * @return the value.
+   * @throws IOException if there is an error reading.
+   */
+  private static Comparable<?> readValue(final DataInput in, final Type type) throws IOException {
+    switch (type) {
+      case BOOLEAN_TYPE:
+        return in.readBoolean();
+      case INT_TYPE:
+        return in.readInt();
+      case LONG_TYPE:
+        return in.readLong();
+      case FLOAT_TYPE:
+        return in.readFloat();
+      case DOUBLE_TYPE:
+        return in.readDouble();
+      case DATETIME_TYPE:
+        return new DateTime(in.readLong());
+      case STRING_TYPE:
+        return in.readUTF();
+      default:
+        throw new IOException("Unknown type " + type);
+    }
+  }
+}
@@ -13,6 +13,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
@@ -41,6 +42,9 @@ import edu.washington.escience.myria.parallel.SubQueryId;
 @Produces(MyriaApiConstants.JSON_UTF_8)
 @Path("/query")
 public final class QueryResource {
+  /** How long a client whose query was refused because the server is saturated should wait to retry. */
+  private static final int RETRY_AFTER_SECONDS = 10;
+
   /** The Myria server running on the master. */
   @Context private Server server;
 
@@ -100,10 +104,12 @@ public final class QueryResource {
       throw new MyriaApiException(Status.BAD_REQUEST, e);
     }
 
-    /* Check to see if the query was submitted successfully. */
+    /* Check to see if the query was submitted successfully. If not, too many queries of its priority are waiting. */
     if (qf == null) {
-      throw new MyriaApiException(
-          Status.SERVICE_UNAVAILABLE, "The server cannot accept new queries right now.");
+      return Response.status(Status.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+          .entity("The server cannot accept new queries right now.")
+          .build();
     }
 
     long queryId = qf.getQueryId();
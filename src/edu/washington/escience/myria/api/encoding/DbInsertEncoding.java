@@ -24,6 +24,8 @@ public class DbInsertEncoding extends UnaryOperatorEncoding<DbInsert> {
   public List<List<IndexRef>> indexes;
   /** The PartitionFunction used to partition this relation. */
   public PartitionFunction partitionFunction;
+  /** Whether the tuples may be written to the database by a separate thread. */
+  public Boolean argAsynchronous;
 
   /**
    * The ConnectionInfo struct determines what database the data will be written to. If null, the worker's default
@@ -35,7 +37,10 @@ public class DbInsertEncoding extends UnaryOperatorEncoding<DbInsert> {
   public DbInsert construct(final ConstructArgs args) {
     /* default overwrite to {@code false}, so we append. */
     argOverwriteTable = MoreObjects.firstNonNull(argOverwriteTable, Boolean.FALSE);
-    return new DbInsert(
-        null, relationKey, connectionInfo, argOverwriteTable, indexes, partitionFunction);
+    DbInsert insert =
+        new DbInsert(
+            null, relationKey, connectionInfo, argOverwriteTable, indexes, partitionFunction);
+    insert.setAsynchronous(MoreObjects.firstNonNull(argAsynchronous, Boolean.FALSE));
+    return insert;
   }
 }
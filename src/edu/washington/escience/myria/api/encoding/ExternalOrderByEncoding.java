@@ -0,0 +1,33 @@
+package edu.washington.escience.myria.api.encoding;
+
+import javax.ws.rs.core.Response.Status;
+
+import edu.washington.escience.myria.api.MyriaApiException;
+import edu.washington.escience.myria.api.encoding.QueryConstruct.ConstructArgs;
+import edu.washington.escience.myria.operator.ExternalOrderBy;
+
+public class ExternalOrderByEncoding extends UnaryOperatorEncoding<ExternalOrderBy> {
+
+  @Required public int[] argSortColumns;
+  @Required public boolean[] argAscending;
+  public long argMemoryLimit = ExternalOrderBy.DEFAULT_MEMORY_LIMIT;
+  public boolean argNormalizedKeys = false;
+
+  @Override
+  public ExternalOrderBy construct(final ConstructArgs args) throws MyriaApiException {
+    ExternalOrderBy order = new ExternalOrderBy(null, argSortColumns, argAscending, argMemoryLimit);
+    order.setNormalizedKeys(argNormalizedKeys);
+    return order;
+  }
+
+  @Override
+  protected void validateExtra() {
+    if (argSortColumns.length != argAscending.length) {
+      throw new MyriaApiException(
+          Status.BAD_REQUEST, "sort columns number should be equal to ascending orders number!");
+    }
+    if (argMemoryLimit <= 0) {
+      throw new MyriaApiException(Status.BAD_REQUEST, "memory limit must be positive!");
+    }
+  }
+}
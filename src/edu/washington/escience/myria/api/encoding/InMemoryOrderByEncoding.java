@@ -10,10 +10,13 @@ public class InMemoryOrderByEncoding extends UnaryOperatorEncoding<InMemoryOrder
 
   @Required public int[] argSortColumns;
   @Required public boolean[] argAscending;
+  public boolean argNormalizedKeys = false;
 
   @Override
   public InMemoryOrderBy construct(final ConstructArgs args) throws MyriaApiException {
-    return new InMemoryOrderBy(null, argSortColumns, argAscending);
+    InMemoryOrderBy order = new InMemoryOrderBy(null, argSortColumns, argAscending);
+    order.setNormalizedKeys(argNormalizedKeys);
+    return order;
   }
 
   @Override
@@ -8,9 +8,12 @@ public class MultiGroupByAggregateEncoding extends UnaryOperatorEncoding<MultiGr
 
   @Required public int[] argGroupFields;
   @Required public AggregatorFactory[] aggregators;
+  public long argMemoryBudget = 0;
 
   @Override
   public MultiGroupByAggregate construct(ConstructArgs args) {
-    return new MultiGroupByAggregate(null, argGroupFields, aggregators);
+    MultiGroupByAggregate agg = new MultiGroupByAggregate(null, argGroupFields, aggregators);
+    agg.setMemoryBudget(argMemoryBudget);
+    return agg;
   }
 }
@@ -41,6 +41,7 @@ import edu.washington.escience.myria.operator.Operator;
   @Type(name = "Empty", value = EmptyRelationEncoding.class),
   @Type(name = "EmptySink", value = EmptySinkEncoding.class),
   @Type(name = "EOSController", value = EOSControllerEncoding.class),
+  @Type(name = "ExternalOrderBy", value = ExternalOrderByEncoding.class),
   @Type(name = "Filter", value = FilterEncoding.class),
   @Type(name = "HyperShuffleProducer", value = HyperShuffleProducerEncoding.class),
   @Type(name = "HyperShuffleConsumer", value = HyperShuffleConsumerEncoding.class),
@@ -54,6 +55,7 @@ import edu.washington.escience.myria.operator.Operator;
   @Type(name = "MergeJoin", value = MergeJoinEncoding.class),
   @Type(name = "MultiGroupByAggregate", value = MultiGroupByAggregateEncoding.class),
   @Type(name = "NChiladaFileScan", value = NChiladaFileScanEncoding.class),
+  @Type(name = "PartialGroupByAggregate", value = PartialGroupByAggregateEncoding.class),
   @Type(name = "RightHashCountingJoin", value = RightHashCountingJoinEncoding.class),
   @Type(name = "RightHashJoin", value = RightHashJoinEncoding.class),
   @Type(name = "SampledDbInsertTemp", value = SampledDbInsertTempEncoding.class),
@@ -0,0 +1,35 @@
+package edu.washington.escience.myria.api.encoding;
+
+import javax.ws.rs.core.Response.Status;
+
+import edu.washington.escience.myria.api.MyriaApiException;
+import edu.washington.escience.myria.api.encoding.QueryConstruct.ConstructArgs;
+import edu.washington.escience.myria.operator.agg.AggregatorFactory;
+import edu.washington.escience.myria.operator.agg.PartialGroupByAggregate;
+
+public class PartialGroupByAggregateEncoding
+    extends UnaryOperatorEncoding<PartialGroupByAggregate> {
+
+  @Required public int[] argGroupFields;
+  @Required public AggregatorFactory[] aggregators;
+  public int argMaxGroups = PartialGroupByAggregate.DEFAULT_MAX_GROUPS;
+  public double argMinReduction = PartialGroupByAggregate.DEFAULT_MIN_REDUCTION;
+
+  @Override
+  public PartialGroupByAggregate construct(ConstructArgs args) {
+    PartialGroupByAggregate agg = new PartialGroupByAggregate(null, argGroupFields, aggregators);
+    agg.setMaxGroups(argMaxGroups);
+    agg.setMinReduction(argMinReduction);
+    return agg;
+  }
+
+  @Override
+  protected void validateExtra() {
+    if (argMaxGroups <= 0) {
+      throw new MyriaApiException(Status.BAD_REQUEST, "maxGroups must be positive!");
+    }
+    if (argMinReduction < 0 || argMinReduction > 1) {
+      throw new MyriaApiException(Status.BAD_REQUEST, "minReduction must be between 0 and 1!");
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.ws.rs.core.Response.Status;
@@ -25,14 +26,19 @@ import edu.washington.escience.myria.MyriaConstants.FTMode;
 import edu.washington.escience.myria.MyriaConstants.ProfilingMode;
 import edu.washington.escience.myria.RelationKey;
 import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.SimplePredicate;
 import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.api.MyriaApiException;
 import edu.washington.escience.myria.coordinator.CatalogException;
+import edu.washington.escience.myria.expression.AndExpression;
+import edu.washington.escience.myria.expression.ComparisonExpression;
 import edu.washington.escience.myria.expression.ConstantExpression;
 import edu.washington.escience.myria.expression.Expression;
+import edu.washington.escience.myria.expression.ExpressionOperator;
 import edu.washington.escience.myria.expression.VariableExpression;
 import edu.washington.escience.myria.operator.Apply;
 import edu.washington.escience.myria.operator.DbQueryScan;
+import edu.washington.escience.myria.operator.Filter;
 import edu.washington.escience.myria.operator.IDBController;
 import edu.washington.escience.myria.operator.Operator;
 import edu.washington.escience.myria.operator.RootOperator;
@@ -56,6 +62,9 @@ public class QueryConstruct {
   private static final org.slf4j.Logger LOGGER =
       org.slf4j.LoggerFactory.getLogger(QueryConstruct.class);
 
+  /** A plain decimal integer literal, with an optional long suffix and no leading zeros. */
+  private static final Pattern DECIMAL_LITERAL = Pattern.compile("-?(0|[1-9][0-9]*)[lL]?");
+
   /**
    * Instantiate the server's desired physical plan from a list of JSON encodings of fragments. This list must contain a
    * self-consistent, complete query. All fragments will be executed in parallel.
@@ -516,7 +525,7 @@ public class QueryConstruct {
    * @param args args
    * @param allOperators a map to keep instantiated operators.
    */
-  private static void instantiateFragmentOperators(
+  static void instantiateFragmentOperators(
       final PlanFragmentEncoding planFragment,
       final ConstructArgs args,
       final Map<Integer, Operator> allOperators) {
@@ -537,12 +546,248 @@ public class QueryConstruct {
       op.setFragmentId(planFragment.fragmentIndex);
       allOperators.put(encoding.opId, op);
     }
+    Set<Integer> pushedDown = pushDownIntoScans(planFragment, allOperators);
     for (OperatorEncoding<?> encoding : planFragment.operators) {
+      if (pushedDown.contains(encoding.opId)) {
+        continue;
+      }
       Operator op = allOperators.get(encoding.opId);
       encoding.connect(op, allOperators);
     }
   }
 
+  /**
+   * Push the filters and projections that are directly above scans of relations into the scans, so that the storage
+   * only returns the tuples and columns that are used. The conjuncts of a filter that compare a column with a constant,
+   * see {@link #toSimplePredicate(ExpressionOperator, Schema)}, are pushed into the scan, and the rest of the filter
+   * stays above it. An apply that only emits columns is replaced by the scan of these columns.
+   *
+   * The operators are rewritten before they are connected: the scan replaces the pushed-down operator in
+   * <code>allOperators</code>, both under the id of the operator and under the id of the original scan.
+   *
+   * @param planFragment the encoded plan fragment.
+   * @param allOperators the instantiated operators, which are replaced by the rewritten ones.
+   * @return the ids of the operators that were replaced by scans, and so must not be connected.
+   */
+  private static Set<Integer> pushDownIntoScans(
+      final PlanFragmentEncoding planFragment, final Map<Integer, Operator> allOperators) {
+    Set<Integer> rewritten = Sets.newHashSet();
+    Set<Integer> pushedDown = Sets.newHashSet();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (OperatorEncoding<?> encoding : planFragment.operators) {
+        if (rewritten.contains(encoding.opId)
+            || !(encoding instanceof FilterEncoding || encoding instanceof ApplyEncoding)) {
+          continue;
+        }
+        Integer childId = ((UnaryOperatorEncoding<?>) encoding).argChild;
+        if (!(allOperators.get(childId) instanceof DbQueryScan)) {
+          continue;
+        }
+        DbQueryScan scan = (DbQueryScan) allOperators.get(childId);
+        Operator op = allOperators.get(encoding.opId);
+        Operator replacement;
+        DbQueryScan newScan;
+        if (encoding instanceof FilterEncoding) {
+          Expression predicate = ((FilterEncoding) encoding).argPredicate;
+          List<ExpressionOperator> remaining = Lists.newArrayList();
+          newScan = pushDownFilter(predicate, scan, remaining);
+          if (newScan == null || remaining.isEmpty()) {
+            replacement = newScan;
+          } else {
+            ExpressionOperator root = remaining.get(0);
+            for (ExpressionOperator conjunct : remaining.subList(1, remaining.size())) {
+              root = new AndExpression(root, conjunct);
+            }
+            /* Connected to the new scan, like the original filter. */
+            replacement = new Filter(new Expression(predicate.getOutputName(), root), null);
+            replacement.setOpName(op.getOpName());
+            replacement.setOpId(op.getOpId());
+            replacement.setFragmentId(op.getFragmentId());
+          }
+        } else {
+          newScan = pushDownApply(((ApplyEncoding) encoding).emitExpressions, scan);
+          replacement = newScan;
+        }
+        if (replacement == null) {
+          continue;
+        }
+        newScan.setOpName(scan.getOpName());
+        newScan.setOpId(scan.getOpId());
+        newScan.setFragmentId(scan.getFragmentId());
+        allOperators.put(childId, newScan);
+        allOperators.put(encoding.opId, replacement);
+        rewritten.add(encoding.opId);
+        if (replacement == newScan) {
+          pushedDown.add(encoding.opId);
+        }
+        changed = true;
+      }
+    }
+    return pushedDown;
+  }
+
+  /**
+   * @param predicate the predicate of a filter.
+   * @param scan the scan below the filter.
+   * @param remaining filled with the conjuncts of the predicate that cannot be pushed down.
+   * @return the scan with the other conjuncts of the predicate pushed down, or null if there are none.
+   */
+  private static DbQueryScan pushDownFilter(
+      final Expression predicate,
+      final DbQueryScan scan,
+      final List<ExpressionOperator> remaining) {
+    if (!scan.isRelationScan()) {
+      return null;
+    }
+    List<SimplePredicate> pushed = Lists.newArrayList();
+    for (ExpressionOperator conjunct : conjuncts(predicate.getRootExpressionOperator())) {
+      SimplePredicate simple = toSimplePredicate(conjunct, scan.getSchema());
+      if (simple != null) {
+        pushed.add(simple);
+      } else {
+        remaining.add(conjunct);
+      }
+    }
+    if (pushed.isEmpty()) {
+      return null;
+    }
+    return scan.select(pushed);
+  }
+
+  /**
+   * @param emitExpressions the expressions of an apply.
+   * @param scan the scan below the apply.
+   * @return the scan of the emitted columns, or null if the apply emits anything else.
+   */
+  private static DbQueryScan pushDownApply(
+      final List<Expression> emitExpressions, final DbQueryScan scan) {
+    if (!scan.isUnsortedRelationScan()) {
+      return null;
+    }
+    int[] columns = new int[emitExpressions.size()];
+    List<String> names = Lists.newArrayListWithCapacity(emitExpressions.size());
+    for (int i = 0; i < columns.length; ++i) {
+      Expression expression = emitExpressions.get(i);
+      if (!(expression.getRootExpressionOperator() instanceof VariableExpression)) {
+        return null;
+      }
+      columns[i] = ((VariableExpression) expression.getRootExpressionOperator()).getColumnIdx();
+      names.add(expression.getOutputName());
+    }
+    return scan.project(columns, names);
+  }
+
+  /**
+   * @param expression a boolean expression.
+   * @return the conjuncts of the expression.
+   */
+  private static List<ExpressionOperator> conjuncts(final ExpressionOperator expression) {
+    if (!(expression instanceof AndExpression)) {
+      return ImmutableList.of(expression);
+    }
+    AndExpression and = (AndExpression) expression;
+    return ImmutableList.<ExpressionOperator>builder()
+        .addAll(conjuncts(and.getLeft()))
+        .addAll(conjuncts(and.getRight()))
+        .build();
+  }
+
+  /**
+   * Translate a comparison of a column with a constant into a predicate that the storage evaluates. Integral columns
+   * support all comparisons with integral constants, and string columns only support (in)equality, since the order of
+   * strings in the storage may differ from Java's.
+   *
+   * @param expression a conjunct of a filter.
+   * @param schema the schema of the input of the filter.
+   * @return the predicate, or null if the conjunct cannot be pushed down.
+   */
+  private static SimplePredicate toSimplePredicate(
+      final ExpressionOperator expression, final Schema schema) {
+    if (!(expression instanceof ComparisonExpression)) {
+      return null;
+    }
+    ComparisonExpression comparison = (ComparisonExpression) expression;
+    SimplePredicate.Op op = comparison.getOperation();
+    ExpressionOperator left = comparison.getLeft();
+    ExpressionOperator right = comparison.getRight();
+    if (left instanceof ConstantExpression && right instanceof VariableExpression) {
+      left = comparison.getRight();
+      right = comparison.getLeft();
+      op = flip(op);
+    }
+    if (!(left instanceof VariableExpression) || !(right instanceof ConstantExpression)) {
+      return null;
+    }
+    int column = ((VariableExpression) left).getColumnIdx();
+    ConstantExpression constant = (ConstantExpression) right;
+    Type columnType = schema.getColumnType(column);
+    Type constantType = constant.getOutputType(null);
+    String operand = constant.getValue();
+    if ((columnType == Type.INT_TYPE || columnType == Type.LONG_TYPE)
+        && (constantType == Type.INT_TYPE || constantType == Type.LONG_TYPE)) {
+      Long value = parseDecimal(operand, constantType);
+      if (value == null) {
+        return null;
+      }
+      operand = value.toString();
+    } else if (columnType != Type.STRING_TYPE
+        || constantType != Type.STRING_TYPE
+        || !(op == SimplePredicate.Op.EQUALS || op == SimplePredicate.Op.NOT_EQUALS)) {
+      return null;
+    }
+    return new SimplePredicate(column, op, operand);
+  }
+
+  /**
+   * Parse the value of an integral constant, if it is a plain decimal literal. Other Java literals, e.g., octal
+   * <code>010</code>, hexadecimal <code>0x10</code>, or <code>1_000</code>, mean something else in SQL, so they are not
+   * pushed down.
+   *
+   * @param literal the text of the constant.
+   * @param type the type of the constant, INT or LONG.
+   * @return the value of the constant, or null if it is not a plain decimal literal of its type.
+   */
+  private static Long parseDecimal(final String literal, final Type type) {
+    if (!DECIMAL_LITERAL.matcher(literal).matches()) {
+      return null;
+    }
+    final String digits =
+        literal.endsWith("L") || literal.endsWith("l")
+            ? literal.substring(0, literal.length() - 1)
+            : literal;
+    final long value;
+    try {
+      value = Long.parseLong(digits);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (type == Type.INT_TYPE && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * @param op a comparison.
+   * @return the comparison with its operands swapped, e.g., <code>&gt;</code> for <code>&lt;</code>.
+   */
+  private static SimplePredicate.Op flip(final SimplePredicate.Op op) {
+    switch (op) {
+      case LESS_THAN:
+        return SimplePredicate.Op.GREATER_THAN;
+      case LESS_THAN_OR_EQ:
+        return SimplePredicate.Op.GREATER_THAN_OR_EQ;
+      case GREATER_THAN:
+        return SimplePredicate.Op.LESS_THAN;
+      case GREATER_THAN_OR_EQ:
+        return SimplePredicate.Op.LESS_THAN_OR_EQ;
+      default:
+        return op;
+    }
+  }
+
   /**
    * Given an encoding of a plan fragment, i.e., a connected list of operators, instantiate the actual plan fragment.
    * This includes instantiating the operators and connecting them together. The constraint on the plan fragments is
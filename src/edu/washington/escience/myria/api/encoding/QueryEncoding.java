@@ -9,6 +9,7 @@ import com.google.common.collect.ImmutableList;
 
 import edu.washington.escience.myria.MyriaConstants.FTMode;
 import edu.washington.escience.myria.MyriaConstants.ProfilingMode;
+import edu.washington.escience.myria.MyriaConstants.QueryPriority;
 import edu.washington.escience.myria.api.MyriaApiException;
 import edu.washington.escience.myria.api.encoding.plan.SubPlanEncoding;
 import edu.washington.escience.myria.api.encoding.plan.SubQueryEncoding;
@@ -29,6 +30,8 @@ public class QueryEncoding extends MyriaApiEncoding {
   public List<ProfilingMode> profilingMode = ImmutableList.of();
   /** The fault-tolerance mode used in this query, default: none. */
   public FTMode ftMode = FTMode.NONE;
+  /** The priority class of this query, default: normal. */
+  public QueryPriority priority = QueryPriority.NORMAL;
 
   /** The old physical query plan encoding. */
   public List<PlanFragmentEncoding> fragments;
@@ -39,6 +42,7 @@ public class QueryEncoding extends MyriaApiEncoding {
   protected void validateExtra() throws MyriaApiException {
     Preconditions.checkArgument(
         (fragments == null) ^ (plan == null), "exactly one of fragments or plan must be specified");
+    Preconditions.checkArgument(priority != null, "priority must not be null");
     /* If they gave us an old plan type, convert it to a new plan type. */
     if (fragments != null) {
       plan = new SubQueryEncoding(fragments);
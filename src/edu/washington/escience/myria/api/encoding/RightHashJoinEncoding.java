@@ -16,10 +16,16 @@ public class RightHashJoinEncoding extends BinaryOperatorEncoding<RightHashJoin>
   @Required public int[] argColumns2;
   @Required public int[] argSelect1;
   @Required public int[] argSelect2;
+  public boolean argBatchProbe = false;
+  public long argMemoryBudget = 0;
 
   @Override
   public RightHashJoin construct(ConstructArgs args) {
-    return new RightHashJoin(
-        argColumnNames, null, null, argColumns1, argColumns2, argSelect1, argSelect2);
+    RightHashJoin join =
+        new RightHashJoin(
+            argColumnNames, null, null, argColumns1, argColumns2, argSelect1, argSelect2);
+    join.setBatchProbe(argBatchProbe);
+    join.setMemoryBudget(argMemoryBudget);
+    return join;
   }
 }
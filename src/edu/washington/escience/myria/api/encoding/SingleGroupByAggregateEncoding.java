@@ -8,9 +8,12 @@ public class SingleGroupByAggregateEncoding extends UnaryOperatorEncoding<Single
 
   @Required public AggregatorFactory[] aggregators;
   @Required public int argGroupField;
+  public long argMemoryBudget = 0;
 
   @Override
   public SingleGroupByAggregate construct(ConstructArgs args) {
-    return new SingleGroupByAggregate(null, argGroupField, aggregators);
+    SingleGroupByAggregate agg = new SingleGroupByAggregate(null, argGroupField, aggregators);
+    agg.setMemoryBudget(argMemoryBudget);
+    return agg;
   }
 }
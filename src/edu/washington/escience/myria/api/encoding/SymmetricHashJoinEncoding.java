@@ -16,6 +16,8 @@ public class SymmetricHashJoinEncoding extends BinaryOperatorEncoding<SymmetricH
   public boolean argSetSemanticsLeft = false;
   public boolean argSetSemanticsRight = false;
   public JoinPullOrder argOrder = JoinPullOrder.ALTER;
+  public boolean argBatchProbe = false;
+  public long argMemoryBudget = 0;
 
   @Override
   public SymmetricHashJoin construct(final ConstructArgs args) {
@@ -31,6 +33,8 @@ public class SymmetricHashJoinEncoding extends BinaryOperatorEncoding<SymmetricH
             argSetSemanticsLeft,
             argSetSemanticsRight);
     join.setPullOrder(argOrder);
+    join.setBatchProbe(argBatchProbe);
+    join.setMemoryBudget(argMemoryBudget);
     return join;
   }
 }
@@ -16,6 +16,8 @@ public class TableScanEncoding extends LeafOperatorEncoding<DbQueryScan> {
   /** The name of the relation to be scanned. */
   @Required public RelationKey relationKey;
   public Integer storedRelationId;
+  /** The number of concurrent sub-scans of the relation on each worker. */
+  public Integer parallelism;
 
   @Override
   public DbQueryScan construct(ConstructArgs args) {
@@ -28,6 +30,10 @@ public class TableScanEncoding extends LeafOperatorEncoding<DbQueryScan> {
     }
     Preconditions.checkArgument(
         schema != null, "Specified relation %s does not exist.", relationKey);
-    return new DbQueryScan(relationKey, schema);
+    DbQueryScan scan = new DbQueryScan(relationKey, schema);
+    if (parallelism != null) {
+      scan.setParallelism(parallelism);
+    }
+    return scan;
   }
 }
@@ -96,6 +96,59 @@ public abstract class Column<T extends Comparable<?>> implements ReadableColumn,
   @Override
   public abstract int size();
 
+  /**
+   * Returns the values of this column as an array, so that a whole column can be processed in a tight loop. The array
+   * may be the internal storage of this column, so it must not be modified, and it may be longer than {@link #size()}.
+   *
+   * @return the values of this column.
+   */
+  public int[] getIntArray() {
+    final int[] ret = new int[size()];
+    for (int i = 0; i < ret.length; ++i) {
+      ret[i] = getInt(i);
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the values of this column as an array, see {@link #getIntArray()}.
+   *
+   * @return the values of this column.
+   */
+  public long[] getLongArray() {
+    final long[] ret = new long[size()];
+    for (int i = 0; i < ret.length; ++i) {
+      ret[i] = getLong(i);
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the values of this column as an array, see {@link #getIntArray()}.
+   *
+   * @return the values of this column.
+   */
+  public float[] getFloatArray() {
+    final float[] ret = new float[size()];
+    for (int i = 0; i < ret.length; ++i) {
+      ret[i] = getFloat(i);
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the values of this column as an array, see {@link #getIntArray()}.
+   *
+   * @return the values of this column.
+   */
+  public double[] getDoubleArray() {
+    final double[] ret = new double[size()];
+    for (int i = 0; i < ret.length; ++i) {
+      ret[i] = getDouble(i);
+    }
+    return ret;
+  }
+
   /**
    * Creates a new Column containing the contents of this column including only the specified rows.
    *
@@ -106,6 +159,72 @@ public abstract class Column<T extends Comparable<?>> implements ReadableColumn,
     return new FilteredColumn<T>(this, filter);
   }
 
+  /**
+   * Creates a view of the specified rows of this column. The rows are not copied.
+   *
+   * @param rows the rows to be kept, in the order they appear in the view. The array is not copied and must not be
+   *          modified afterwards.
+   * @return a view of the specified rows of this column.
+   */
+  public Column<T> filter(final int[] rows) {
+    return new FilteredColumn<T>(this, rows);
+  }
+
+  /**
+   * Copies the specified rows of this column into a new column that does not reference this one.
+   *
+   * @param rows the rows to be copied, in the order they appear in the result.
+   * @return a new column containing the specified rows of this column.
+   */
+  public Column<?> copyRows(final int[] rows) {
+    final int numRows = rows.length;
+    switch (getType()) {
+      case BOOLEAN_TYPE:
+        final BitSet booleans = new BitSet(numRows);
+        for (int i = 0; i < numRows; ++i) {
+          booleans.set(i, getBoolean(rows[i]));
+        }
+        return new BooleanColumn(booleans, numRows);
+      case DATETIME_TYPE:
+        final DateTime[] dates = new DateTime[numRows];
+        for (int i = 0; i < numRows; ++i) {
+          dates[i] = getDateTime(rows[i]);
+        }
+        return new DateTimeColumn(dates, numRows);
+      case DOUBLE_TYPE:
+        final double[] doubles = new double[numRows];
+        for (int i = 0; i < numRows; ++i) {
+          doubles[i] = getDouble(rows[i]);
+        }
+        return new DoubleColumn(doubles, numRows);
+      case FLOAT_TYPE:
+        final float[] floats = new float[numRows];
+        for (int i = 0; i < numRows; ++i) {
+          floats[i] = getFloat(rows[i]);
+        }
+        return new FloatColumn(floats, numRows);
+      case INT_TYPE:
+        final int[] ints = new int[numRows];
+        for (int i = 0; i < numRows; ++i) {
+          ints[i] = getInt(rows[i]);
+        }
+        return new IntArrayColumn(ints, numRows);
+      case LONG_TYPE:
+        final long[] longs = new long[numRows];
+        for (int i = 0; i < numRows; ++i) {
+          longs[i] = getLong(rows[i]);
+        }
+        return new LongColumn(longs, numRows);
+      case STRING_TYPE:
+        final String[] strings = new String[numRows];
+        for (int i = 0; i < numRows; ++i) {
+          strings[i] = getString(rows[i]);
+        }
+        return new StringArrayColumn(strings, numRows);
+    }
+    throw new UnsupportedOperationException("Copying a column of type " + getType());
+  }
+
   /**
    * @param type the type of the column to be returned.
    * @return a new empty column of the specified type.
@@ -151,6 +270,9 @@ public abstract class Column<T extends Comparable<?>> implements ReadableColumn,
         b = 0;
       }
     }
+    if (bitCnt > 0) {
+      bytes.write(b);
+    }
     /* Note that we do *not* build the inner class. We pass its builder instead. */
     final BooleanColumnMessage.Builder inner =
         BooleanColumnMessage.newBuilder().setData(bytes.toByteString());
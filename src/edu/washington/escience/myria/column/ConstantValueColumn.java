@@ -76,6 +76,16 @@ public class ConstantValueColumn extends Column<Comparable<?>> {
     return new ConstantValueColumn(value, type, filter.cardinality());
   }
 
+  @Override
+  public Column<Comparable<?>> filter(final int[] rows) {
+    return new ConstantValueColumn(value, type, rows.length);
+  }
+
+  @Override
+  public Column<?> copyRows(final int[] rows) {
+    return new ConstantValueColumn(value, type, rows.length);
+  }
+
   @Override
   public boolean getBoolean(final int row) {
     if (type == Type.BOOLEAN_TYPE) {
@@ -0,0 +1,166 @@
+package edu.washington.escience.myria.column;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+
+import edu.washington.escience.myria.proto.DataProto.ColumnMessage;
+import edu.washington.escience.myria.proto.DataProto.DictionaryStringColumnMessage;
+
+/**
+ * A column of String values with few distinct values, stored as a dictionary of the distinct values and the code of
+ * each row, i.e., the index of its value in the dictionary. Rows with the same code have equal values, so operators
+ * can group, hash and compare rows by their codes instead of their strings, as long as the rows share the dictionary.
+ *
+ * Filtering and copying rows keeps the dictionary, and the column is serialized with the dictionary once followed by
+ * the codes.
+ */
+public final class DictionaryStringColumn extends StringColumn {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+  /** The distinct values. Must not be modified. */
+  private final String[] dictionary;
+  /** The code of each row. */
+  private final int[] codes;
+  /** Number of elements in this column. */
+  private final int numTuples;
+
+  /**
+   * Constructs a new column.
+   *
+   * @param dictionary the distinct values, which must not be modified afterwards.
+   * @param codes the index in the dictionary of the value of each row.
+   * @param numTuples number of tuples.
+   */
+  public DictionaryStringColumn(final String[] dictionary, final int[] codes, final int numTuples) {
+    this.dictionary = dictionary;
+    this.codes = codes;
+    this.numTuples = numTuples;
+  }
+
+  @Override
+  public String getString(final int row) {
+    return dictionary[codes[Preconditions.checkElementIndex(row, numTuples)]];
+  }
+
+  /**
+   * @param row the row.
+   * @return the index in the dictionary of the value of the specified row.
+   */
+  public int getCode(final int row) {
+    return codes[Preconditions.checkElementIndex(row, numTuples)];
+  }
+
+  /**
+   * @return the distinct values of this column, indexed by code. The array must not be modified.
+   */
+  public String[] getDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public int size() {
+    return numTuples;
+  }
+
+  /**
+   * Returns a column of the specified rows that shares the dictionary of this column. Only the codes are copied.
+   */
+  @Override
+  public DictionaryStringColumn filter(final int[] rows) {
+    final int[] selected = new int[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = getCode(rows[i]);
+    }
+    return new DictionaryStringColumn(dictionary, selected, selected.length);
+  }
+
+  @Override
+  public DictionaryStringColumn copyRows(final int[] rows) {
+    return filter(rows);
+  }
+
+  @Override
+  public ColumnMessage serializeToProto() {
+    final DictionaryStringColumnMessage.Builder inner = DictionaryStringColumnMessage.newBuilder();
+    final ByteString.Output entries = ByteString.newOutput();
+    int end = 0;
+    for (String entry : dictionary) {
+      final byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+      entries.write(bytes, 0, bytes.length);
+      end += bytes.length;
+      inner.addDictionaryEndIndices(end);
+    }
+    inner.setDictionary(entries.toByteString());
+
+    final int width = codeWidth(dictionary.length);
+    final ByteBuffer bytes = ByteBuffer.allocate(numTuples * width);
+    for (int i = 0; i < numTuples; ++i) {
+      if (width == Byte.BYTES) {
+        bytes.put((byte) codes[i]);
+      } else if (width == Short.BYTES) {
+        bytes.putShort((short) codes[i]);
+      } else {
+        bytes.putInt(codes[i]);
+      }
+    }
+    inner.setCodes(ByteString.copyFrom(bytes.array()));
+    return ColumnMessage.newBuilder()
+        .setType(ColumnMessage.Type.STRING)
+        .setDictionaryStringColumn(inner)
+        .build();
+  }
+
+  /**
+   * @param dictionarySize the number of entries of a dictionary.
+   * @return the number of bytes of a serialized code.
+   */
+  public static int codeWidth(final int dictionarySize) {
+    if (dictionarySize <= 1 << Byte.SIZE) {
+      return Byte.BYTES;
+    } else if (dictionarySize <= 1 << Short.SIZE) {
+      return Short.BYTES;
+    }
+    return Integer.BYTES;
+  }
+
+  /**
+   * Constructs a column by deserializing the given message.
+   *
+   * @param message the message.
+   * @param numTuples number of tuples.
+   * @return the column.
+   */
+  public static DictionaryStringColumn fromProto(
+      final DictionaryStringColumnMessage message, final int numTuples) {
+    final byte[] entries = message.getDictionary().toByteArray();
+    final String[] dictionary = new String[message.getDictionaryEndIndicesCount()];
+    int start = 0;
+    for (int i = 0; i < dictionary.length; ++i) {
+      final int end = message.getDictionaryEndIndices(i);
+      dictionary[i] = new String(entries, start, end - start, StandardCharsets.UTF_8);
+      start = end;
+    }
+
+    final int width = codeWidth(dictionary.length);
+    Preconditions.checkArgument(
+        message.getCodes().size() == numTuples * width,
+        "Dictionary column of %s tuples has %s bytes of codes",
+        numTuples,
+        message.getCodes().size());
+    final ByteBuffer bytes = message.getCodes().asReadOnlyByteBuffer();
+    final int[] codes = new int[numTuples];
+    for (int i = 0; i < numTuples; ++i) {
+      if (width == Byte.BYTES) {
+        codes[i] = bytes.get() & 0xff;
+      } else if (width == Short.BYTES) {
+        codes[i] = bytes.getShort() & 0xffff;
+      } else {
+        codes[i] = bytes.getInt();
+      }
+    }
+    return new DictionaryStringColumn(dictionary, codes, numTuples);
+  }
+}
@@ -0,0 +1,65 @@
+package edu.washington.escience.myria.column;
+
+import java.nio.DoubleBuffer;
+
+import edu.washington.escience.myria.Type;
+
+/**
+ * A column of Double values that reads them from a DoubleBuffer it does not own, e.g., a view of a received network frame.
+ */
+public final class DoubleBufferColumn extends Column<Double> {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+  /** The values of this column, from index 0 to the limit. Must not be modified. */
+  private final DoubleBuffer data;
+
+  /**
+   * Constructs a new column over the remaining values of a buffer.
+   *
+   * @param data the values of this column.
+   */
+  public DoubleBufferColumn(final DoubleBuffer data) {
+    this.data = data.slice();
+  }
+
+  @Override
+  public Double getObject(final int row) {
+    return Double.valueOf(getDouble(row));
+  }
+
+  @Override
+  public double getDouble(final int row) {
+    return data.get(row);
+  }
+
+  @Override
+  public double[] getDoubleArray() {
+    final double[] ret = new double[size()];
+    data.duplicate().get(ret);
+    return ret;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.DOUBLE_TYPE;
+  }
+
+  @Override
+  public int size() {
+    return data.limit();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(size()).append(" elements: [");
+    for (int i = 0; i < size(); ++i) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(data.get(i));
+    }
+    sb.append(']');
+    return sb.toString();
+  }
+}
@@ -48,6 +48,11 @@ public final class DoubleColumn extends Column<Double> {
     return data[row];
   }
 
+  @Override
+  public double[] getDoubleArray() {
+    return data;
+  }
+
   @Override
   public Type getType() {
     return Type.DOUBLE_TYPE;
@@ -0,0 +1,44 @@
+package edu.washington.escience.myria.column;
+
+import java.nio.IntBuffer;
+
+/**
+ * An IntColumn that reads its values from an IntBuffer it does not own, e.g., a view of a received network frame.
+ */
+public final class IntBufferColumn extends IntColumn {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+  /** The values of this column, from index 0 to the limit. Must not be modified. */
+  private final IntBuffer data;
+
+  /**
+   * Constructs a new column over the remaining values of a buffer.
+   *
+   * @param data the values of this column.
+   */
+  public IntBufferColumn(final IntBuffer data) {
+    this.data = data.slice();
+  }
+
+  @Override
+  public Integer getObject(final int row) {
+    return Integer.valueOf(getInt(row));
+  }
+
+  @Override
+  public int getInt(final int row) {
+    return data.get(row);
+  }
+
+  @Override
+  public int[] getIntArray() {
+    final int[] ret = new int[size()];
+    data.duplicate().get(ret);
+    return ret;
+  }
+
+  @Override
+  public int size() {
+    return data.limit();
+  }
+}
@@ -0,0 +1,65 @@
+package edu.washington.escience.myria.column;
+
+import java.nio.LongBuffer;
+
+import edu.washington.escience.myria.Type;
+
+/**
+ * A column of Long values that reads them from a LongBuffer it does not own, e.g., a view of a received network frame.
+ */
+public final class LongBufferColumn extends Column<Long> {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+  /** The values of this column, from index 0 to the limit. Must not be modified. */
+  private final LongBuffer data;
+
+  /**
+   * Constructs a new column over the remaining values of a buffer.
+   *
+   * @param data the values of this column.
+   */
+  public LongBufferColumn(final LongBuffer data) {
+    this.data = data.slice();
+  }
+
+  @Override
+  public Long getObject(final int row) {
+    return Long.valueOf(getLong(row));
+  }
+
+  @Override
+  public long getLong(final int row) {
+    return data.get(row);
+  }
+
+  @Override
+  public long[] getLongArray() {
+    final long[] ret = new long[size()];
+    data.duplicate().get(ret);
+    return ret;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.LONG_TYPE;
+  }
+
+  @Override
+  public int size() {
+    return data.limit();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(size()).append(" elements: [");
+    for (int i = 0; i < size(); ++i) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(data.get(i));
+    }
+    sb.append(']');
+    return sb.toString();
+  }
+}
@@ -3,6 +3,8 @@ package edu.washington.escience.myria.column.builder;
 import java.nio.BufferOverflowException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 
@@ -11,6 +13,7 @@ import com.almworks.sqlite4java.SQLiteStatement;
 import com.google.common.base.Preconditions;
 
 import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.DictionaryStringColumn;
 import edu.washington.escience.myria.column.StringArrayColumn;
 import edu.washington.escience.myria.column.StringColumn;
 import edu.washington.escience.myria.column.mutable.StringMutableColumn;
@@ -22,8 +25,12 @@ import edu.washington.escience.myria.util.MyriaUtils;
 /**
  * A column of String values.
  *
+ * While the column has few distinct values, the builder also collects them in a dictionary, and builds a
+ * {@link DictionaryStringColumn} if it has at most half as many distinct values as rows.
  */
 public final class StringColumnBuilder extends ColumnBuilder<String> {
+  /** The largest number of distinct values for which the builder keeps a dictionary. */
+  private static final int MAX_DICTIONARY_SIZE = TupleBatch.BATCH_SIZE / 8;
 
   /**
    * The internal representation of the data.
@@ -31,6 +38,12 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
   private final String[] data;
   /** Number of elements in this column. */
   private int numStrings;
+  /** The code of each distinct value appended so far, or null if there are too many or rows have been changed. */
+  private HashMap<String, Integer> dictionary;
+  /** The distinct values appended so far, indexed by code. */
+  private List<String> entries;
+  /** The code of each row. */
+  private int[] codes;
 
   /**
    * If the builder has built the column.
@@ -41,6 +54,9 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
   public StringColumnBuilder() {
     numStrings = 0;
     data = new String[TupleBatch.BATCH_SIZE];
+    dictionary = new HashMap<>();
+    entries = new ArrayList<>();
+    codes = new int[TupleBatch.BATCH_SIZE];
   }
 
   /**
@@ -66,6 +82,9 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
         message.getType().ordinal() == ColumnMessage.Type.STRING_VALUE,
         "Trying to construct StringColumn from non-STRING ColumnMessage %s",
         message.getType());
+    if (message.hasDictionaryStringColumn()) {
+      return DictionaryStringColumn.fromProto(message.getDictionaryStringColumn(), numTuples);
+    }
     Preconditions.checkArgument(
         message.hasStringColumn(), "ColumnMessage has type STRING but no StringColumn");
     final StringColumnMessage stringColumn = message.getStringColumn();
@@ -87,10 +106,32 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
     if (numStrings >= TupleBatch.BATCH_SIZE) {
       throw new BufferOverflowException();
     }
+    if (dictionary != null) {
+      Integer code = dictionary.get(value);
+      if (code == null) {
+        if (entries.size() == MAX_DICTIONARY_SIZE) {
+          dropDictionary();
+        } else {
+          code = entries.size();
+          dictionary.put(value, code);
+          entries.add(value);
+        }
+      }
+      if (code != null) {
+        codes[numStrings] = code;
+      }
+    }
     data[numStrings++] = value;
     return this;
   }
 
+  /** Stop collecting distinct values, and build a {@link StringArrayColumn}. */
+  private void dropDictionary() {
+    dictionary = null;
+    entries = null;
+    codes = null;
+  }
+
   @Override
   public Type getType() {
     return Type.STRING_TYPE;
@@ -120,6 +161,10 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
   @Override
   public StringColumn build() {
     built = true;
+    if (dictionary != null && numStrings > 0 && entries.size() <= numStrings / 2) {
+      return new DictionaryStringColumn(
+          entries.toArray(new String[entries.size()]), codes, numStrings);
+    }
     return new StringArrayColumn(data, numStrings);
   }
 
@@ -135,6 +180,7 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
         !built, "No further changes are allowed after the builder has built the column.");
     Preconditions.checkElementIndex(row, numStrings);
     Objects.requireNonNull(value, "value");
+    dropDictionary();
     data[row] = value;
   }
 
@@ -146,6 +192,7 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
     if (numStrings + size > data.length) {
       throw new BufferOverflowException();
     }
+    dropDictionary();
     numStrings += size;
     return this;
   }
@@ -154,6 +201,7 @@ public final class StringColumnBuilder extends ColumnBuilder<String> {
   public StringColumnBuilder expandAll() {
     Preconditions.checkState(
         !built, "No further changes are allowed after the builder has built the column.");
+    dropDictionary();
     numStrings = data.length;
     return this;
   }
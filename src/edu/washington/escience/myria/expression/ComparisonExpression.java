@@ -24,7 +24,7 @@ public abstract class ComparisonExpression extends BinaryExpression {
    *
    * @return the operation for this comparison expression
    */
-  private SimplePredicate.Op getOperation() {
+  public SimplePredicate.Op getOperation() {
     Preconditions.checkNotNull(operation);
     return operation;
   }
@@ -53,6 +53,18 @@ public class Expression implements Serializable {
    * Variable name of state.
    */
   public static final String STATE = "state";
+  /**
+   * Variable name of the selected rows of the input tuple batch.
+   */
+  public static final String ROWS = "rows";
+  /**
+   * Variable name of the number of selected rows.
+   */
+  public static final String NUM_ROWS = "numRows";
+  /**
+   * Prefix of the variable names of input column arrays, followed by the column index.
+   */
+  public static final String COLUMN = "col";
 
   /**
    * This is not really unused, it's used automagically by Jackson deserialization.
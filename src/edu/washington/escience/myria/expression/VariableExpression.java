@@ -41,6 +41,15 @@ public class VariableExpression extends ZeroaryExpression {
 
   @Override
   public String getJavaString(final ExpressionOperatorParameter parameters) {
+    if (parameters.useColumnArrays() && hasColumnArray(getOutputType(parameters))) {
+      // We generate an access into the array of the column, declared before the loop over all rows.
+      return new StringBuilder(Expression.COLUMN)
+          .append(columnIdx)
+          .append("[")
+          .append(Expression.ROW)
+          .append("]")
+          .toString();
+    }
     // We generate a variable access into the tuple buffer.
     return new StringBuilder(Expression.TB)
         .append(".get")
@@ -53,6 +62,23 @@ public class VariableExpression extends ZeroaryExpression {
         .toString();
   }
 
+  /**
+   * @param type the type of a column
+   * @return true if columns of the given type can be read as a primitive array, see
+   *         {@link edu.washington.escience.myria.column.Column#getIntArray()}.
+   */
+  public static boolean hasColumnArray(final Type type) {
+    switch (type) {
+      case INT_TYPE:
+      case LONG_TYPE:
+      case FLOAT_TYPE:
+      case DOUBLE_TYPE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * @return the column index of this variable.
    */
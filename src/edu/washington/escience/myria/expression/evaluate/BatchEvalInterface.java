@@ -0,0 +1,21 @@
+package edu.washington.escience.myria.expression.evaluate;
+
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Interface for evaluating a single-valued {@link edu.washington.escience.myria.expression.Expression} on every row of a
+ * tuple batch at once.
+ */
+public interface BatchEvalInterface {
+  /**
+   * The interface evaluating a single-valued {@link edu.washington.escience.myria.expression.Expression} on some rows
+   * of a tuple batch in one loop.
+   *
+   * @param tb a tuple batch
+   * @param rows the rows to evaluate, or null for all rows
+   * @param numRows the number of rows to evaluate if rows is not null
+   * @return a column as long as the tuple batch, holding the result of each evaluated row at the index of the row
+   */
+  Column<?> evaluate(final TupleBatch tb, final int[] rows, final int numRows);
+}
@@ -0,0 +1,20 @@
+package edu.washington.escience.myria.expression.evaluate;
+
+import java.util.BitSet;
+
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Interface for evaluating janino expressions that return bools on every row of a tuple batch at once.
+ */
+public interface BooleanBatchEvalInterface {
+  /**
+   * The interface for applying predicates to some rows of a tuple batch in one loop.
+   *
+   * @param tb a tuple batch
+   * @param rows the rows to evaluate, or null for all rows
+   * @param numRows the number of rows to evaluate if rows is not null
+   * @return the evaluated rows of the tuple batch for which the expression is true
+   */
+  BitSet evaluate(final TupleBatch tb, final int[] rows, final int numRows);
+}
@@ -1,14 +1,11 @@
 package edu.washington.escience.myria.expression.evaluate;
 
 import java.lang.reflect.InvocationTargetException;
-
-import org.codehaus.commons.compiler.CompilerFactoryFactory;
-import org.codehaus.commons.compiler.IExpressionEvaluator;
+import java.util.BitSet;
 
 import com.google.common.base.Preconditions;
 
 import edu.washington.escience.myria.DbException;
-import edu.washington.escience.myria.MyriaConstants;
 import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.expression.Expression;
 import edu.washington.escience.myria.storage.TupleBatch;
@@ -22,6 +19,11 @@ public class BooleanEvaluator extends Evaluator {
    */
   private BooleanEvalInterface evaluator;
 
+  /**
+   * Evaluator of the whole batch, see {@link #compileBatch()}.
+   */
+  private BooleanBatchEvalInterface batchEvaluator;
+
   /**
    * Default constructor.
    *
@@ -41,21 +43,63 @@ public class BooleanEvaluator extends Evaluator {
    */
   @Override
   public void compile() throws DbException {
-    try {
-      IExpressionEvaluator se =
-          CompilerFactoryFactory.getDefaultCompilerFactory().newExpressionEvaluator();
+    evaluator =
+        CompiledExpressionCache.getExpressionEvaluator(
+            getJavaExpressionWithAppend(),
+            BooleanEvalInterface.class,
+            new String[] {Expression.TB, Expression.ROW},
+            getInputSchema());
+  }
+
+  /**
+   * Compiles the predicate into a single loop over the rows of a tuple batch, see
+   * {@link #evalBatch(TupleBatch, int[], int)}. The loop reads the numeric input columns as primitive arrays and sets the bits of the result without branching.
+   *
+   * @throws DbException compilation failed
+   */
+  public void compileBatch() throws DbException {
+    final String script =
+        getJavaBatchScript(
+            "final long[] result = new long[(numTuples + 63) >>> 6];",
+            "result[" + Expression.ROW + " >>> 6] |= ((",
+            ") ? 1L : 0L) << " + Expression.ROW + ";",
+            "return java.util.BitSet.valueOf(result);");
+    batchEvaluator =
+        CompiledExpressionCache.getScriptEvaluator(
+            script,
+            BooleanBatchEvalInterface.class,
+            new String[] {Expression.TB, Expression.ROWS, Expression.NUM_ROWS},
+            getInputSchema());
+  }
+
+  /**
+   * @return true if {@link #compileBatch()} has been called.
+   */
+  public boolean isBatchCompiled() {
+    return batchEvaluator != null;
+  }
 
-      se.setDefaultImports(MyriaConstants.DEFAULT_JANINO_IMPORTS);
+  /**
+   * Evaluates the predicate on all rows of a tuple batch using the {@link #batchEvaluator}.
+   *
+   * @param tb a tuple batch
+   * @return the rows of the tuple batch that satisfy the predicate
+   */
+  public BitSet evalBatch(final TupleBatch tb) {
+    return evalBatch(tb, null, 0);
+  }
 
-      evaluator =
-          (BooleanEvalInterface)
-              se.createFastEvaluator(
-                  getJavaExpressionWithAppend(),
-                  BooleanEvalInterface.class,
-                  new String[] {Expression.TB, Expression.ROW});
-    } catch (Exception e) {
-      throw new DbException("Error when compiling expression " + this, e);
-    }
+  /**
+   * Evaluates the predicate on some rows of a tuple batch using the {@link #batchEvaluator}.
+   *
+   * @param tb a tuple batch
+   * @param rows the rows to evaluate, or null for all rows
+   * @param numRows the number of rows to evaluate if rows is not null
+   * @return the evaluated rows of the tuple batch that satisfy the predicate
+   */
+  public BitSet evalBatch(final TupleBatch tb, final int[] rows, final int numRows) {
+    Preconditions.checkArgument(batchEvaluator != null, "Call compileBatch first.");
+    return batchEvaluator.evaluate(tb, rows, numRows);
   }
 
   /**
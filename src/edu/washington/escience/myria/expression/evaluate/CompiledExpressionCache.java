@@ -0,0 +1,227 @@
+package edu.washington.escience.myria.expression.evaluate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.codehaus.commons.compiler.CompilerFactoryFactory;
+import org.codehaus.commons.compiler.IExpressionEvaluator;
+import org.codehaus.commons.compiler.IScriptEvaluator;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+
+/**
+ * Compiles expressions with Janino and keeps the compiled evaluators in a cache shared by all fragments and queries of
+ * this process, so that queries that are run repeatedly, and iterations of a
+ * {@link edu.washington.escience.myria.operator.DoWhile}, do not compile the same code again.
+ *
+ * Evaluators are keyed by their Java source, their interface and the column types of their input. The compiled
+ * evaluators hold no state, so one instance may be used by several threads. The least recently used evaluators are
+ * evicted once there are more than {@link MyriaConstants#COMPILED_EXPRESSION_CACHE_SIZE}.
+ */
+public final class CompiledExpressionCache {
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      org.slf4j.LoggerFactory.getLogger(CompiledExpressionCache.class);
+
+  /** The compiled evaluators. */
+  private static final Cache<Key, Object> CACHE =
+      CacheBuilder.newBuilder()
+          .maximumSize(MyriaConstants.COMPILED_EXPRESSION_CACHE_SIZE)
+          .recordStats()
+          .build();
+
+  /** Utility class cannot be constructed. */
+  private CompiledExpressionCache() {}
+
+  /**
+   * Returns an evaluator running a script, compiling it if it is not in the cache.
+   *
+   * @param <T> the interface of the evaluator
+   * @param script the Java source of the body of the evaluator method
+   * @param evalInterface the interface of the evaluator, which has a single method
+   * @param parameterNames the names of the parameters of the method
+   * @param inputSchema the schema of the input of the expression, or null
+   * @return the evaluator
+   * @throws DbException if the script cannot be compiled
+   */
+  public static <T> T getScriptEvaluator(
+      final String script,
+      final Class<T> evalInterface,
+      final String[] parameterNames,
+      @Nullable final Schema inputSchema)
+      throws DbException {
+    return get(new Key(true, script, evalInterface, parameterNames, inputSchema));
+  }
+
+  /**
+   * Returns an evaluator computing an expression, compiling it if it is not in the cache.
+   *
+   * @param <T> the interface of the evaluator
+   * @param expression the Java source of the expression returned by the evaluator method
+   * @param evalInterface the interface of the evaluator, which has a single method
+   * @param parameterNames the names of the parameters of the method
+   * @param inputSchema the schema of the input of the expression, or null
+   * @return the evaluator
+   * @throws DbException if the expression cannot be compiled
+   */
+  public static <T> T getExpressionEvaluator(
+      final String expression,
+      final Class<T> evalInterface,
+      final String[] parameterNames,
+      @Nullable final Schema inputSchema)
+      throws DbException {
+    return get(new Key(false, expression, evalInterface, parameterNames, inputSchema));
+  }
+
+  /**
+   * @param <T> the interface of the evaluator
+   * @param key the key of the evaluator
+   * @return the cached or newly compiled evaluator
+   * @throws DbException if the evaluator cannot be compiled
+   */
+  private static <T> T get(final Key key) throws DbException {
+    try {
+      @SuppressWarnings("unchecked")
+      final Class<T> evalInterface = (Class<T>) key.evalInterface;
+      return evalInterface.cast(
+          CACHE.get(
+              key,
+              new Callable<Object>() {
+                @Override
+                public Object call() throws DbException {
+                  return compile(key);
+                }
+              }));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), DbException.class);
+      throw new DbException("Error when compiling expression: " + key.source, e.getCause());
+    }
+  }
+
+  /**
+   * @param key the key of the evaluator
+   * @return the compiled evaluator
+   * @throws DbException if the evaluator cannot be compiled
+   */
+  private static Object compile(final Key key) throws DbException {
+    final long start = System.nanoTime();
+    final Object evaluator;
+    try {
+      if (key.script) {
+        final IScriptEvaluator se =
+            CompilerFactoryFactory.getDefaultCompilerFactory().newScriptEvaluator();
+        se.setDefaultImports(MyriaConstants.DEFAULT_JANINO_IMPORTS);
+        evaluator = se.createFastEvaluator(key.source, key.evalInterface, key.parameterNames);
+      } else {
+        final IExpressionEvaluator ee =
+            CompilerFactoryFactory.getDefaultCompilerFactory().newExpressionEvaluator();
+        ee.setDefaultImports(MyriaConstants.DEFAULT_JANINO_IMPORTS);
+        evaluator = ee.createFastEvaluator(key.source, key.evalInterface, key.parameterNames);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error when compiling expression {}: {}", key.source, e);
+      throw new DbException("Error when compiling expression: " + key.source, e);
+    }
+    if (LOGGER.isDebugEnabled()) {
+      final CacheStats stats = CACHE.stats();
+      LOGGER.debug(
+          "compiled expression in {} us ({} hits and {} misses of the cache so far): {}",
+          (System.nanoTime() - start) / 1000,
+          stats.hitCount(),
+          stats.missCount(),
+          key.source);
+    }
+    return evaluator;
+  }
+
+  /**
+   * @return the number of hits, misses and evictions of the cache since this process started. Each compilation also
+   *         logs the hits and misses at debug level.
+   */
+  public static CacheStats getStats() {
+    return CACHE.stats();
+  }
+
+  /**
+   * @return the number of compiled evaluators in the cache.
+   */
+  public static long size() {
+    return CACHE.size();
+  }
+
+  /**
+   * Remove all compiled evaluators from the cache.
+   */
+  public static void clear() {
+    CACHE.invalidateAll();
+  }
+
+  /**
+   * The key of a compiled evaluator.
+   */
+  private static final class Key {
+    /** True for a script, false for an expression. */
+    private final boolean script;
+    /** The Java source. */
+    private final String source;
+    /** The interface of the evaluator. */
+    private final Class<?> evalInterface;
+    /** The names of the parameters of the evaluator method. */
+    private final String[] parameterNames;
+    /** The column types of the input, or null. */
+    private final List<Type> inputTypes;
+
+    /**
+     * @param script true for a script, false for an expression
+     * @param source the Java source
+     * @param evalInterface the interface of the evaluator
+     * @param parameterNames the names of the parameters of the evaluator method
+     * @param inputSchema the schema of the input, or null
+     */
+    Key(
+        final boolean script,
+        final String source,
+        final Class<?> evalInterface,
+        final String[] parameterNames,
+        @Nullable final Schema inputSchema) {
+      this.script = script;
+      this.source = Objects.requireNonNull(source, "source");
+      this.evalInterface = Objects.requireNonNull(evalInterface, "evalInterface");
+      this.parameterNames = parameterNames.clone();
+      inputTypes = inputSchema == null ? null : inputSchema.getColumnTypes();
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          script, source, evalInterface, Arrays.hashCode(parameterNames), inputTypes);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      final Key o = (Key) other;
+      return script == o.script
+          && source.equals(o.source)
+          && evalInterface.equals(o.evalInterface)
+          && Arrays.equals(parameterNames, o.parameterNames)
+          && Objects.equals(inputTypes, o.inputTypes);
+    }
+  }
+}
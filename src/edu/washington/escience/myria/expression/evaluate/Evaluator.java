@@ -1,6 +1,11 @@
 package edu.washington.escience.myria.expression.evaluate;
 
+import java.util.LinkedList;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
@@ -96,6 +101,94 @@ public abstract class Evaluator {
     return getExpression().getJavaExpression(parameters);
   }
 
+  /**
+   * @return true if the expression can be compiled into a loop over an entire batch, see
+   *         {@link #getJavaBatchScript(String, String, String, String)}.
+   */
+  public boolean canEvaluateBatch() {
+    return !needsState() && !getExpression().isMultivalued();
+  }
+
+  /**
+   * Generates a script that evaluates the expression on the rows of the tuple batch {@link Expression#TB} that are
+   * selected by the first {@link Expression#NUM_ROWS} entries of {@link Expression#ROWS}, or on every row if
+   * {@link Expression#ROWS} is null. The numeric input columns that the expression references are fetched as primitive
+   * arrays before the loop, so that the body of the loop only reads arrays and the JIT compiler can unroll and vectorize
+   * it. The body of the loop refers to the current row as {@link Expression#ROW}, and to the number of rows of the tuple
+   * batch as {@code numTuples}.
+   *
+   * @param init statements executed before the loop
+   * @param before code inserted before the expression in the body of the loop
+   * @param after code inserted after the expression in the body of the loop
+   * @param finish statements executed after the loop
+   * @return the Java form of the script.
+   */
+  protected String getJavaBatchScript(
+      final String init, final String before, final String after, final String finish) {
+    Preconditions.checkState(canEvaluateBatch(), "This expression cannot be evaluated in batch.");
+    final StringBuilder sb = new StringBuilder("final int numTuples = ");
+    sb.append(Expression.TB).append(".numTuples();\n");
+    for (final int column : getColumnArrays()) {
+      final Type type = getInputSchema().getColumnType(column);
+      sb.append("final ")
+          .append(type.toJavaType().getSimpleName())
+          .append("[] ")
+          .append(Expression.COLUMN)
+          .append(column)
+          .append(" = ((edu.washington.escience.myria.column.Column) ")
+          .append(Expression.TB)
+          .append(".getDataColumns().get(")
+          .append(column)
+          .append(")).get")
+          .append(type.getName())
+          .append("Array();\n");
+    }
+    final String body =
+        before + getExpression().getJavaExpression(parameters.withColumnArrays()) + after;
+    sb.append(init)
+        .append("\nif (")
+        .append(Expression.ROWS)
+        .append(" == null) {\nfor (int ")
+        .append(Expression.ROW)
+        .append(" = 0; ")
+        .append(Expression.ROW)
+        .append(" < numTuples; ++")
+        .append(Expression.ROW)
+        .append(") {\n")
+        .append(body)
+        .append("\n}\n} else {\nfor (int rowIdx = 0; rowIdx < ")
+        .append(Expression.NUM_ROWS)
+        .append("; ++rowIdx) {\nfinal int ")
+        .append(Expression.ROW)
+        .append(" = ")
+        .append(Expression.ROWS)
+        .append("[rowIdx];\n")
+        .append(body)
+        .append("\n}\n}\n")
+        .append(finish);
+    return sb.toString();
+  }
+
+  /**
+   * @return the input columns that the expression reads as primitive arrays, in increasing order.
+   */
+  private SortedSet<Integer> getColumnArrays() {
+    final SortedSet<Integer> columns = new TreeSet<>();
+    final LinkedList<ExpressionOperator> ops = Lists.newLinkedList();
+    ops.add(getExpression().getRootExpressionOperator());
+    while (!ops.isEmpty()) {
+      final ExpressionOperator op = ops.pop();
+      if (op instanceof VariableExpression) {
+        final int column = ((VariableExpression) op).getColumnIdx();
+        if (VariableExpression.hasColumnArray(getInputSchema().getColumnType(column))) {
+          columns.add(column);
+        }
+      }
+      ops.addAll(op.getChildren());
+    }
+    return columns;
+  }
+
   /**
    * @return the output name
    */
@@ -12,6 +12,8 @@ public class ExpressionOperatorParameter {
   private final Schema stateSchema;
   /** The id of the worker that is running the expression. */
   private final Integer workerID;
+  /** True if numeric input columns are read from the arrays declared by {@link Evaluator#getJavaBatchScript}. */
+  private final boolean columnArrays;
 
   /**
    * Simple constructor.
@@ -20,6 +22,7 @@ public class ExpressionOperatorParameter {
     schema = null;
     stateSchema = null;
     workerID = null;
+    columnArrays = false;
   }
 
   /**
@@ -29,6 +32,7 @@ public class ExpressionOperatorParameter {
     this.schema = schema;
     stateSchema = null;
     workerID = null;
+    columnArrays = false;
   }
 
   /**
@@ -39,6 +43,7 @@ public class ExpressionOperatorParameter {
     this.schema = schema;
     this.stateSchema = stateSchema;
     workerID = null;
+    columnArrays = false;
   }
 
   /**
@@ -49,6 +54,7 @@ public class ExpressionOperatorParameter {
     this.schema = schema;
     stateSchema = null;
     this.workerID = workerID;
+    columnArrays = false;
   }
 
   /**
@@ -61,6 +67,31 @@ public class ExpressionOperatorParameter {
     this.schema = schema;
     this.stateSchema = stateSchema;
     this.workerID = workerID;
+    columnArrays = false;
+  }
+
+  /**
+   * @param schema the input schema
+   * @param stateSchema the schema of the state
+   * @param workerID id of the worker that is running the expression
+   * @param columnArrays true if numeric input columns are read from arrays
+   */
+  private ExpressionOperatorParameter(
+      final Schema schema,
+      final Schema stateSchema,
+      final Integer workerID,
+      final boolean columnArrays) {
+    this.schema = schema;
+    this.stateSchema = stateSchema;
+    this.workerID = workerID;
+    this.columnArrays = columnArrays;
+  }
+
+  /**
+   * @return a copy of these parameters for generating code that reads numeric input columns from arrays
+   */
+  public ExpressionOperatorParameter withColumnArrays() {
+    return new ExpressionOperatorParameter(schema, stateSchema, workerID, true);
   }
 
   /**
@@ -83,4 +114,11 @@ public class ExpressionOperatorParameter {
   public int getWorkerId() {
     return workerID;
   }
+
+  /**
+   * @return true if numeric input columns are read from arrays rather than from the tuple batch
+   */
+  public boolean useColumnArrays() {
+    return columnArrays;
+  }
 }
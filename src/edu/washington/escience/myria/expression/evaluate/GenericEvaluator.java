@@ -6,15 +6,10 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import org.codehaus.commons.compiler.CompileException;
-import org.codehaus.commons.compiler.CompilerFactoryFactory;
-import org.codehaus.commons.compiler.IScriptEvaluator;
-
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import edu.washington.escience.myria.DbException;
-import edu.washington.escience.myria.MyriaConstants;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.column.Column;
@@ -45,6 +40,11 @@ public class GenericEvaluator extends Evaluator {
    */
   private ExpressionEvalInterface evaluator;
 
+  /**
+   * Evaluator of the whole batch, see {@link #compileBatch()}.
+   */
+  private BatchEvalInterface batchEvaluator;
+
   /**
    * Default constructor.
    *
@@ -67,36 +67,102 @@ public class GenericEvaluator extends Evaluator {
         needsCompiling() || (getStateSchema() != null),
         "This expression does not need to be compiled.");
 
-    String javaExpression = getJavaExpressionWithAppend();
-    IScriptEvaluator se;
-    try {
-      se = CompilerFactoryFactory.getDefaultCompilerFactory().newScriptEvaluator();
-    } catch (Exception e) {
-      LOGGER.error("Could not create expression evaluator", e);
-      throw new DbException("Could not create expression evaluator", e);
+    evaluator =
+        CompiledExpressionCache.getScriptEvaluator(
+            getJavaExpressionWithAppend(),
+            ExpressionEvalInterface.class,
+            new String[] {
+              Expression.TB, Expression.ROW, Expression.COUNT, Expression.RESULT, Expression.STATE
+            },
+            getInputSchema());
+  }
+
+  /**
+   * Compiles the expression into a single loop over the rows of a tuple batch, see
+   * {@link #evaluateBatch(TupleBatch, int[], int)}, that {@link #evaluateColumn(TupleBatch)} uses instead of evaluating
+   * one row at a time. The loop reads the numeric input columns as primitive arrays and writes into an array.
+   *
+   * @throws DbException compilation failed
+   */
+  public void compileBatch() throws DbException {
+    Preconditions.checkArgument(needsCompiling(), "This expression does not need to be compiled.");
+    Preconditions.checkArgument(
+        canEvaluateBatch(), "This expression cannot be evaluated in batch.");
+
+    final Type type = getOutputType();
+    final String script;
+    switch (type) {
+      case BOOLEAN_TYPE:
+        script =
+            getJavaBatchScript(
+                "final long[] result = new long[(numTuples + 63) >>> 6];",
+                "result[" + Expression.ROW + " >>> 6] |= ((",
+                ") ? 1L : 0L) << " + Expression.ROW + ";",
+                "return new edu.washington.escience.myria.column.BooleanColumn("
+                    + "java.util.BitSet.valueOf(result), numTuples);");
+        break;
+      case INT_TYPE:
+        script = getJavaArrayBatchScript("int", "IntArrayColumn");
+        break;
+      case LONG_TYPE:
+        script = getJavaArrayBatchScript("long", "LongColumn");
+        break;
+      case FLOAT_TYPE:
+        script = getJavaArrayBatchScript("float", "FloatColumn");
+        break;
+      case DOUBLE_TYPE:
+        script = getJavaArrayBatchScript("double", "DoubleColumn");
+        break;
+      case STRING_TYPE:
+        script = getJavaArrayBatchScript("String", "StringArrayColumn");
+        break;
+      case DATETIME_TYPE:
+        script = getJavaArrayBatchScript("org.joda.time.DateTime", "DateTimeColumn");
+        break;
+      default:
+        throw new IllegalArgumentException("Cannot evaluate expressions of type " + type);
     }
 
-    se.setDefaultImports(MyriaConstants.DEFAULT_JANINO_IMPORTS);
+    batchEvaluator =
+        CompiledExpressionCache.getScriptEvaluator(
+            script,
+            BatchEvalInterface.class,
+            new String[] {Expression.TB, Expression.ROWS, Expression.NUM_ROWS},
+            getInputSchema());
+  }
 
+  /**
+   * Evaluates the expression on some rows of a tuple batch using the {@link #batchEvaluator}.
+   *
+   * @param tb the tuples to be input to this expression
+   * @param rows the rows to evaluate, or null for all rows
+   * @param numRows the number of rows to evaluate if rows is not null
+   * @return a column as long as the tuple batch, holding the result of each evaluated row at the index of the row. The
+   *         other rows hold default values.
+   */
+  public Column<?> evaluateBatch(final TupleBatch tb, final int[] rows, final int numRows) {
+    Preconditions.checkArgument(batchEvaluator != null, "Call compileBatch first.");
     try {
-      evaluator =
-          (ExpressionEvalInterface)
-              se.createFastEvaluator(
-                  javaExpression,
-                  ExpressionEvalInterface.class,
-                  new String[] {
-                    Expression.TB,
-                    Expression.ROW,
-                    Expression.COUNT,
-                    Expression.RESULT,
-                    Expression.STATE
-                  });
-    } catch (CompileException e) {
-      LOGGER.error("Error when compiling expression {}: {}", javaExpression, e);
-      throw new DbException("Error when compiling expression: " + javaExpression, e);
+      return batchEvaluator.evaluate(tb, rows, numRows);
+    } catch (Exception e) {
+      LOGGER.error(getJavaExpressionWithAppend(), e);
+      throw e;
     }
   }
 
+  /**
+   * @param arrayType the Java type of the elements of the result array
+   * @param columnClass the simple name of the column class wrapping the result array
+   * @return a script that stores the result of each row into a primitive array.
+   */
+  private String getJavaArrayBatchScript(final String arrayType, final String columnClass) {
+    return getJavaBatchScript(
+        "final " + arrayType + "[] result = new " + arrayType + "[numTuples];",
+        "result[" + Expression.ROW + "] = ",
+        ";",
+        "return new edu.washington.escience.myria.column." + columnClass + "(result, numTuples);");
+  }
+
   /**
    * Evaluates the {@link #getJavaExpressionWithAppend()} using the {@link #evaluator}. Prefer to use
    * {@link #evaluateColumn(TupleBatch)} since it can evaluate an entire TupleBatch at a time for better locality.
@@ -209,6 +275,9 @@ public class GenericEvaluator extends Evaluator {
       return new EvaluatorResult(
           tb.getDataColumns().get(((VariableExpression) op).getColumnIdx()), constCounts);
     }
+    if (batchEvaluator != null) {
+      return new EvaluatorResult(evaluateBatch(tb, null, 0), constCounts);
+    }
     // For multivalued expressions, we may get more than `TupleBatch.BATCH_SIZE` results,
     // so we need to pass in a `TupleBuffer` rather than a `ColumnBuilder` to `eval()`,
     // and return a `List<Column>` rather than a `Column` of results.
@@ -47,6 +47,12 @@ public class Apply extends UnaryOperator {
    */
   private TupleBatchBuffer outputBuffer;
 
+  /**
+   * True if single-valued expressions are compiled into one loop over each input batch rather than evaluated row by
+   * row.
+   */
+  private boolean batchEvaluation = true;
+
   /**
    * @return the {@link #emitExpressions}
    */
@@ -68,6 +74,14 @@ public class Apply extends UnaryOperator {
     emitEvaluators = ImmutableList.copyOf(evaluators);
   }
 
+  /**
+   * @param batchEvaluation true if single-valued expressions should be compiled into one loop over each input batch,
+   *          false to evaluate them row by row.
+   */
+  public void setBatchEvaluation(final boolean batchEvaluation) {
+    this.batchEvaluation = batchEvaluation;
+  }
+
   /**
    * @return if there are no multivalued emit expressions
    */
@@ -226,7 +240,11 @@ public class Apply extends UnaryOperator {
         evaluator = new GenericEvaluator(expr, parameters);
       }
       if (evaluator.needsCompiling()) {
-        evaluator.compile();
+        if (batchEvaluation && evaluator.canEvaluateBatch()) {
+          evaluator.compileBatch();
+        } else {
+          evaluator.compile();
+        }
       }
       Preconditions.checkArgument(!evaluator.needsState());
       evals.add(evaluator);
@@ -0,0 +1,115 @@
+package edu.washington.escience.myria.operator;
+
+import java.util.Arrays;
+
+import edu.washington.escience.myria.storage.JoinHashTable;
+import edu.washington.escience.myria.storage.MutableTupleBuffer;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
+import edu.washington.escience.myria.util.HashUtils;
+
+/**
+ * Probes a {@link JoinHashTable} with a whole {@link TupleBatch} at a time, instead of one row at a time. A probe has
+ * four steps:
+ * <ol>
+ * <li>hash the key columns of all the rows of the batch into an <code>int[]</code>;</li>
+ * <li>look up the candidate build rows of all the hash codes, producing two selection vectors of (probe row, build
+ * row) pairs;</li>
+ * <li>compare the keys one column at a time, with a loop specialized to the type of the column, dropping the pairs
+ * that do not match;</li>
+ * <li>gather the output columns of the remaining pairs in bulk.</li>
+ * </ol>
+ * The arrays are reused across batches, so a probe does not allocate once they are large enough.
+ */
+final class BatchHashJoinProbe {
+  /** The hash codes of the rows of the last batch passed to {@link #hashKeys}. */
+  private int[] hashes = new int[TupleBatch.BATCH_SIZE];
+  /** The probe side row of each candidate pair. */
+  private int[] probeRows = new int[TupleBatch.BATCH_SIZE];
+  /** The build side row of each candidate pair. */
+  private int[] buildRows = new int[TupleBatch.BATCH_SIZE];
+
+  /**
+   * Hash the key columns of every row of a batch.
+   *
+   * @param tb the batch.
+   * @param keyColumns the key columns of the batch.
+   * @return the hash codes, indexed by row. Only valid until the next call.
+   */
+  int[] hashKeys(final TupleBatch tb, final int[] keyColumns) {
+    final int numTuples = tb.numTuples();
+    if (hashes.length < numTuples) {
+      hashes = new int[numTuples];
+    }
+    if (keyColumns.length == 1) {
+      HashUtils.hashValues(tb, keyColumns[0], 0, hashes);
+      return hashes;
+    }
+    HashUtils.hashSubRows(tb, keyColumns, true, hashes);
+    return hashes;
+  }
+
+  /**
+   * Join a batch against a hash table and append the results to the answer buffer. {@link #hashKeys} must have been
+   * called on the same batch and key columns first.
+   *
+   * @param tb the probe batch.
+   * @param probeKeys the key columns of the probe batch.
+   * @param hashTable the hash table of the build side.
+   * @param buildKeys the key columns of the hash table.
+   * @param probeIsLeft whether the probe batch comes from the left child.
+   * @param leftAnswerColumns the columns of the left child to output.
+   * @param rightAnswerColumns the columns of the right child to output.
+   * @param ans the answer buffer.
+   */
+  void probe(
+      final TupleBatch tb,
+      final int[] probeKeys,
+      final JoinHashTable hashTable,
+      final int[] buildKeys,
+      final boolean probeIsLeft,
+      final int[] leftAnswerColumns,
+      final int[] rightAnswerColumns,
+      final TupleBatchBuffer ans) {
+    /* Look up the candidates of all rows. */
+    int numCandidates = 0;
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      for (int index = hashTable.getFirst(hashes[row]);
+          index >= 0;
+          index = hashTable.getNext(index)) {
+        if (numCandidates == probeRows.length) {
+          probeRows = Arrays.copyOf(probeRows, numCandidates * 2);
+          buildRows = Arrays.copyOf(buildRows, numCandidates * 2);
+        }
+        probeRows[numCandidates] = row;
+        buildRows[numCandidates] = index;
+        ++numCandidates;
+      }
+    }
+
+    /* Compare the keys column by column. */
+    final MutableTupleBuffer data = hashTable.getData();
+    for (int i = 0; i < probeKeys.length && numCandidates > 0; ++i) {
+      numCandidates =
+          TupleUtils.retainEqualPairs(
+              tb.asColumn(probeKeys[i]),
+              probeRows,
+              data.asColumn(buildKeys[i]),
+              buildRows,
+              numCandidates);
+    }
+    if (numCandidates == 0) {
+      return;
+    }
+
+    /* Gather the output. */
+    if (probeIsLeft) {
+      ans.appendGathered(
+          tb, leftAnswerColumns, probeRows, data, rightAnswerColumns, buildRows, numCandidates);
+    } else {
+      ans.appendGathered(
+          data, leftAnswerColumns, buildRows, tb, rightAnswerColumns, probeRows, numCandidates);
+    }
+  }
+}
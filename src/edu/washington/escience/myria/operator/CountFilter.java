@@ -86,9 +86,11 @@ public final class CountFilter extends StreamingState {
     doCount.inputTB = tb;
     final List<? extends Column<?>> columns = tb.getDataColumns();
     final BitSet toRemove = new BitSet(numTuples);
+    final int[] hashes = new int[numTuples];
+    HashUtils.hashSubRows(tb, keyColIndices, true, hashes);
     for (int i = 0; i < numTuples; ++i) {
       final int nextIndex = uniqueTuples.numTuples();
-      final int cntHashCode = HashUtils.hashSubRow(tb, keyColIndices, i);
+      final int cntHashCode = hashes[i];
       IntArrayList tupleIndexList = uniqueTupleIndices.get(cntHashCode);
       if (tupleIndexList == null) {
         tupleIndexList = new IntArrayList();
@@ -3,13 +3,10 @@
  */
 package edu.washington.escience.myria.operator;
 
-import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-import com.almworks.sqlite4java.SQLiteConnection;
-import com.almworks.sqlite4java.SQLiteException;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -20,7 +17,9 @@ import edu.washington.escience.myria.MyriaConstants;
 import edu.washington.escience.myria.RelationKey;
 import edu.washington.escience.myria.accessmethod.AccessMethod;
 import edu.washington.escience.myria.accessmethod.AccessMethod.IndexRef;
+import edu.washington.escience.myria.accessmethod.BatchInserter;
 import edu.washington.escience.myria.accessmethod.ConnectionInfo;
+import edu.washington.escience.myria.accessmethod.SQLiteAccessMethod;
 import edu.washington.escience.myria.accessmethod.SQLiteInfo;
 import edu.washington.escience.myria.operator.network.partition.PartitionFunction;
 import edu.washington.escience.myria.parallel.RelationWriteMetadata;
@@ -48,6 +47,10 @@ public class DbInsert extends AbstractDbInsert {
   private final List<List<IndexRef>> indexes;
   /** The PartitionFunction used to partition the table across workers. */
   private final PartitionFunction partitionFunction;
+  /** Whether the tuples may be written to the database by a separate thread. */
+  private boolean asynchronous = false;
+  /** Inserts the tuples. */
+  private transient BatchInserter inserter;
 
   /**
    * Constructs an insertion operator to store the tuples from the specified child into the specified database. If the
@@ -187,8 +190,22 @@ public class DbInsert extends AbstractDbInsert {
     }
   }
 
+  /**
+   * Let a separate thread encode the tuples and write them to the database, if the database supports it, so that this
+   * operator does not wait for the database unless it falls behind.
+   *
+   * @param asynchronous whether the tuples may be written by a separate thread.
+   */
+  public void setAsynchronous(final boolean asynchronous) {
+    this.asynchronous = asynchronous;
+  }
+
   @Override
   public void cleanup() {
+    if (inserter != null) {
+      inserter.abort();
+      inserter = null;
+    }
     try {
       if (accessMethod != null) {
         accessMethod.close();
@@ -207,7 +224,7 @@ public class DbInsert extends AbstractDbInsert {
         "tuple schema %s does not match operator schema %s",
         tupleBatch.getSchema(),
         getSchema());
-    accessMethod.tupleBatchInsert(tempRelationKey, tupleBatch);
+    inserter.insert(tupleBatch);
   }
 
   @Override
@@ -225,15 +242,7 @@ public class DbInsert extends AbstractDbInsert {
 
     if (connectionInfo instanceof SQLiteInfo) {
       /* Set WAL in the beginning. */
-      final File dbFile = new File(((SQLiteInfo) connectionInfo).getDatabaseFilename());
-      SQLiteConnection conn = new SQLiteConnection(dbFile);
-      try {
-        conn.open(true);
-        conn.exec("PRAGMA journal_mode=WAL;");
-      } catch (SQLiteException e) {
-        e.printStackTrace();
-      }
-      conn.dispose();
+      SQLiteAccessMethod.setJournalModeWal((SQLiteInfo) connectionInfo);
     }
 
     /* open the database connection */
@@ -254,11 +263,15 @@ public class DbInsert extends AbstractDbInsert {
     accessMethod.createTableIfNotExists(tempRelationKey, getSchema());
     /* Create indexes. */
     accessMethod.createIndexes(tempRelationKey, getSchema(), indexes);
+    /* Insert all tuples in one stream, e.g., one PostgreSQL COPY. */
+    inserter = accessMethod.openBatchInserter(tempRelationKey, asynchronous);
   }
 
   @Override
   protected void childEOS() throws DbException {
     /* If the child finished, we're done too. If in overwrite mode, drop the existing table and rename. */
+    inserter.commit();
+    inserter = null;
     if (overwriteTable) {
       accessMethod.dropAndRenameTables(relationKey, tempRelationKey);
     }
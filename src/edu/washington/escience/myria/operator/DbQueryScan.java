@@ -1,10 +1,13 @@
 package edu.washington.escience.myria.operator;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
@@ -12,8 +15,12 @@ import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
 import edu.washington.escience.myria.RelationKey;
 import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.SimplePredicate;
+import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.accessmethod.AccessMethod;
+import edu.washington.escience.myria.accessmethod.ColumnarAccessMethod;
 import edu.washington.escience.myria.accessmethod.ConnectionInfo;
+import edu.washington.escience.myria.accessmethod.ParallelScanIterator;
 import edu.washington.escience.myria.storage.TupleBatch;
 
 /**
@@ -55,6 +62,41 @@ public class DbQueryScan extends LeafOperator implements DbReader {
    */
   private final boolean[] ascending;
 
+  /**
+   * The number of concurrent sub-scans of a relation.
+   */
+  private int parallelism = 1;
+
+  /**
+   * The sub-scans, if the relation is scanned in parallel.
+   */
+  private transient ParallelScanIterator parallelScan;
+
+  /**
+   * The schema of the relation, which differs from {@link #outputSchema} if only some of its columns are scanned.
+   */
+  private Schema relationSchema;
+
+  /**
+   * Predicates on the columns of the relation, pushed down from a filter, that all scanned tuples satisfy.
+   */
+  private List<SimplePredicate> predicates = ImmutableList.of();
+
+  /**
+   * The columns of the relation that are scanned, or null for all of them.
+   */
+  private int[] columns;
+
+  /**
+   * The scan of the native columnar storage, if predicates or columns are pushed down into it.
+   */
+  private transient ColumnarAccessMethod.SegmentIterator columnarScan;
+
+  /**
+   * The number of tuples returned by this scan.
+   */
+  private transient long numTuplesReturned;
+
   /** Required for Java serialization. */
   private static final long serialVersionUID = 1L;
 
@@ -157,22 +199,192 @@ public class DbQueryScan extends LeafOperator implements DbReader {
     this.connectionInfo = connectionInfo;
   }
 
+  /**
+   * Copy a scan of a relation.
+   *
+   * @param scan the scan to copy.
+   * @param outputSchema the Schema of the returned tuples.
+   */
+  private DbQueryScan(final DbQueryScan scan, final Schema outputSchema) {
+    this(scan.relationKey, outputSchema, scan.sortedColumns, scan.ascending);
+    connectionInfo = scan.connectionInfo;
+    parallelism = scan.parallelism;
+    relationSchema = scan.getRelationSchema();
+    predicates = scan.predicates;
+    columns = scan.columns;
+  }
+
+  /**
+   * @return true if this scans a relation rather than running a SQL query, so that predicates can be pushed down into
+   *         it.
+   */
+  public boolean isRelationScan() {
+    return relationKey != null;
+  }
+
+  /**
+   * @return true if this scans a relation without an order, so that its columns can be projected.
+   */
+  public boolean isUnsortedRelationScan() {
+    return isRelationScan() && (sortedColumns == null || sortedColumns.length == 0);
+  }
+
+  /**
+   * Push predicates down into this scan, e.g., into the <code>WHERE</code> clause of its SQL query.
+   *
+   * @param newPredicates predicates on the returned columns, whose operands are plain values, e.g., <code>5</code> or
+   *          <code>abc</code>.
+   * @return a scan of the tuples of this scan that satisfy all the predicates.
+   */
+  public DbQueryScan select(final List<SimplePredicate> newPredicates) {
+    Preconditions.checkState(isRelationScan(), "Only scans of relations can be selected");
+    final ImmutableList.Builder<SimplePredicate> all = ImmutableList.builder();
+    all.addAll(predicates);
+    for (SimplePredicate predicate : newPredicates) {
+      all.add(
+          new SimplePredicate(
+              relationColumn(predicate.getField()), predicate.getOp(), predicate.getOperand()));
+    }
+    final DbQueryScan scan = new DbQueryScan(this, outputSchema);
+    scan.predicates = all.build();
+    return scan;
+  }
+
+  /**
+   * Push a projection down into this scan, e.g., into the <code>SELECT</code> list of its SQL query.
+   *
+   * @param newColumns the returned columns to keep.
+   * @param columnNames the names of the kept columns.
+   * @return a scan of the kept columns of this scan.
+   */
+  public DbQueryScan project(final int[] newColumns, final List<String> columnNames) {
+    Preconditions.checkState(
+        isUnsortedRelationScan(), "Only unsorted scans of relations can be projected");
+    final int[] projected = new int[newColumns.length];
+    for (int i = 0; i < newColumns.length; ++i) {
+      projected[i] = relationColumn(newColumns[i]);
+    }
+    final DbQueryScan scan =
+        new DbQueryScan(
+            this, Schema.of(outputSchema.getSubSchema(newColumns).getColumnTypes(), columnNames));
+    scan.columns = projected;
+    return scan;
+  }
+
+  /**
+   * @param column a returned column.
+   * @return the corresponding column of the relation.
+   */
+  private int relationColumn(final int column) {
+    Preconditions.checkElementIndex(column, outputSchema.numColumns());
+    return columns == null ? column : columns[column];
+  }
+
+  /**
+   * @return the schema of the scanned relation.
+   */
+  private Schema getRelationSchema() {
+    return relationSchema == null ? outputSchema : relationSchema;
+  }
+
+  /**
+   * Split the scanned relation into ranges of its physical storage, e.g., pages or row ids, and scan them concurrently
+   * on separate threads and connections. The order of the tuples is not preserved. Only relations scanned without an
+   * order and stored in a DBMS that supports splitting them, see {@link AccessMethod#scanRanges(RelationKey, int)}, are
+   * scanned in parallel.
+   *
+   * @param parallelism the number of concurrent sub-scans.
+   */
+  public void setParallelism(final int parallelism) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    this.parallelism = parallelism;
+  }
+
   @Override
   public final void cleanup() {
+    if (!predicates.isEmpty()) {
+      if (columnarScan != null) {
+        LOGGER.info(
+            "Scan of {} with predicates {} selected {} tuples, read {} of {} tuples",
+            relationKey,
+            predicates,
+            numTuplesReturned,
+            columnarScan.getNumTuplesRead(),
+            columnarScan.getNumTuples());
+      } else {
+        LOGGER.info(
+            "Scan of {} with predicates {} selected {} tuples",
+            relationKey,
+            predicates,
+            numTuplesReturned);
+      }
+    }
+    columnarScan = null;
+    if (parallelScan != null) {
+      parallelScan.close();
+      parallelScan = null;
+    }
     tuples = null;
   }
 
+  /**
+   * @return the sub-scans of the ranges of the relation, or null if the relation should be scanned sequentially.
+   * @throws DbException if there is an error splitting the relation.
+   */
+  private ParallelScanIterator startParallelScan() throws DbException {
+    if (parallelism <= 1
+        || relationKey == null
+        || (sortedColumns != null && sortedColumns.length > 0)) {
+      return null;
+    }
+    final String dbms = connectionInfo.getDbms();
+    final AccessMethod accessMethod = AccessMethod.of(dbms, connectionInfo, true);
+    final List<String> ranges;
+    try {
+      ranges = accessMethod.scanRanges(relationKey, parallelism);
+    } finally {
+      accessMethod.close();
+    }
+    if (ranges.size() <= 1) {
+      return null;
+    }
+    LOGGER.debug("Scanning {} in {} ranges", relationKey, ranges.size());
+    final List<String> queries = new ArrayList<>(ranges.size());
+    final List<String> conditions = new ArrayList<>(conditions());
+    for (String range : ranges) {
+      conditions.add(range);
+      queries.add(selectSQL(conditions));
+      conditions.remove(conditions.size() - 1);
+    }
+    return new ParallelScanIterator(dbms, connectionInfo, queries, outputSchema);
+  }
+
   @Override
   protected final TupleBatch fetchNextReady() throws DbException {
     Objects.requireNonNull(connectionInfo);
     if (tuples == null) {
-      tuples =
-          AccessMethod.of(connectionInfo.getDbms(), connectionInfo, true)
-              .tupleBatchIteratorFromQuery(baseSQL, outputSchema);
+      parallelScan = startParallelScan();
+      if (parallelScan != null) {
+        tuples = parallelScan;
+      } else if (connectionInfo.getDbms().equals(MyriaConstants.STORAGE_SYSTEM_COLUMNAR)
+          && (!predicates.isEmpty() || columns != null)) {
+        columnarScan =
+            ((ColumnarAccessMethod) AccessMethod.of(connectionInfo.getDbms(), connectionInfo, true))
+                .scan(relationKey, getRelationSchema(), predicates, columns);
+        tuples = columnarScan;
+      } else {
+        tuples =
+            AccessMethod.of(connectionInfo.getDbms(), connectionInfo, true)
+                .tupleBatchIteratorFromQuery(baseSQL, outputSchema);
+      }
     }
     if (tuples.hasNext()) {
-      final TupleBatch tb = tuples.next();
+      TupleBatch tb = tuples.next();
       LOGGER.trace("Got {} tuples", tb.numTuples());
+      if (columnarScan != null && columns != null) {
+        tb = tb.rename(outputSchema.getColumnNames());
+      }
+      numTuplesReturned += tb.numTuples();
       return tb;
     } else {
       return null;
@@ -204,28 +416,90 @@ public class DbQueryScan extends LeafOperator implements DbReader {
       }
     }
 
+    numTuplesReturned = 0;
     if (relationKey != null) {
-      baseSQL = "SELECT * FROM " + relationKey.toString(connectionInfo.getDbms());
-
-      String prefix = "";
-      if (sortedColumns != null && sortedColumns.length > 0) {
-        Preconditions.checkArgument(sortedColumns.length == ascending.length);
-        StringBuilder orderByClause = new StringBuilder(" ORDER BY");
-
-        for (int columnIdx : sortedColumns) {
-          orderByClause.append(prefix + " " + getSchema().getColumnName(columnIdx));
-          if (ascending[columnIdx]) {
-            orderByClause.append(" ASC");
-          } else {
-            orderByClause.append(" DESC");
-          }
-
-          prefix = ",";
+      baseSQL = selectSQL(conditions());
+    }
+  }
+
+  /**
+   * @param conditions the conditions of the <code>WHERE</code> clause.
+   * @return the query that scans the relation, its pushed down columns, and the tuples that satisfy the conditions.
+   */
+  private String selectSQL(final List<String> conditions) {
+    final String dbms = connectionInfo.getDbms();
+    final StringBuilder sql = new StringBuilder("SELECT ");
+    if (columns == null) {
+      sql.append('*');
+    } else {
+      for (int i = 0; i < columns.length; ++i) {
+        if (i > 0) {
+          sql.append(", ");
         }
+        sql.append(quote(dbms, getRelationSchema().getColumnName(columns[i])));
+      }
+    }
+    sql.append(" FROM ").append(relationKey.toString(dbms));
+    if (!conditions.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+
+    String prefix = "";
+    if (sortedColumns != null && sortedColumns.length > 0) {
+      Preconditions.checkArgument(sortedColumns.length == ascending.length);
+      StringBuilder orderByClause = new StringBuilder(" ORDER BY");
 
-        baseSQL = baseSQL.concat(orderByClause.toString());
+      for (int columnIdx : sortedColumns) {
+        orderByClause.append(prefix + " " + getSchema().getColumnName(columnIdx));
+        if (ascending[columnIdx]) {
+          orderByClause.append(" ASC");
+        } else {
+          orderByClause.append(" DESC");
+        }
+
+        prefix = ",";
       }
+
+      sql.append(orderByClause);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return the pushed down predicates, as SQL conditions.
+   */
+  private List<String> conditions() {
+    final String dbms = connectionInfo.getDbms();
+    final List<String> conditions = new ArrayList<>(predicates.size());
+    for (SimplePredicate predicate : predicates) {
+      String column = quote(dbms, getRelationSchema().getColumnName(predicate.getField()));
+      String operand = predicate.getOperand();
+      final Type type = getRelationSchema().getColumnType(predicate.getField());
+      if (type == Type.INT_TYPE || type == Type.LONG_TYPE) {
+        /* Never write anything but a number into the query. */
+        operand = Long.toString(Long.parseLong(operand));
+      } else if (type == Type.STRING_TYPE) {
+        operand = "'" + operand.replace("'", "''") + "'";
+        if (dbms.equals(MyriaConstants.STORAGE_SYSTEM_MYSQL)) {
+          /* Compare strings exactly, as Java does, rather than by the collation of the column. */
+          column = "BINARY " + column;
+        }
+      }
+      conditions.add(column + " " + predicate.getOp() + " " + operand);
+    }
+    return conditions;
+  }
+
+  /**
+   * @param dbms the DBMS.
+   * @param column the name of a column.
+   * @return the quoted name of the column for use in SQL queries.
+   */
+  private static String quote(final String dbms, final String column) {
+    if (dbms.equals(MyriaConstants.STORAGE_SYSTEM_MYSQL)) {
+      return '`' + column + '`';
     }
+    return '"' + column + '"';
   }
 
   /**
@@ -63,9 +63,12 @@ public final class DupElim extends StreamingState {
     checkUniqueness.inputTB = tb;
     List<? extends Column<?>> columns = tb.getDataColumns();
     final BitSet toRemove = new BitSet(numTuples);
+    /* The hash codes stay in this operator, so they need not match those of HashUtils.hashRow. */
+    final int[] hashes = new int[numTuples];
+    HashUtils.hashRows(tb, false, hashes);
     for (int i = 0; i < numTuples; ++i) {
       final int nextIndex = uniqueTuples.numTuples();
-      final int cntHashCode = HashUtils.hashRow(tb, i);
+      final int cntHashCode = hashes[i];
       IntArrayList tupleIndexList = uniqueTupleIndices.get(cntHashCode);
       checkUniqueness.row = i;
       checkUniqueness.unique = true;
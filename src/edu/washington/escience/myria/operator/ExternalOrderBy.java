@@ -0,0 +1,418 @@
+package edu.washington.escience.myria.operator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
+import edu.washington.escience.myria.util.FSUtils;
+import edu.washington.escience.myria.util.IPCUtils;
+
+/**
+ * Orders tuples using an external merge sort, so the input does not have to fit in memory.
+ *
+ * Incoming batches are buffered until their estimated size reaches the memory limit. The buffered rows are then sorted
+ * by a {@link RowSorter}, which sorts primitive row indices with comparators specialized to the sort column types, and
+ * written to a sorted run on local disk. Once the child is EOS, the runs are merged with a {@link LoserTree}. If the
+ * whole input fits within the memory limit, it is sorted and output without touching disk.
+ *
+ * Runs are sequences of length-delimited {@link TransportMessage}s, the same encoding that is used to send tuples over
+ * the network.
+ */
+public final class ExternalOrderBy extends UnaryOperator {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      org.slf4j.LoggerFactory.getLogger(ExternalOrderBy.class);
+
+  /** The default memory limit, in bytes. */
+  public static final long DEFAULT_MEMORY_LIMIT = 256L * 1024 * 1024;
+
+  /** Which columns to sort the tuples by. */
+  private final int[] sortColumns;
+  /** True for each column that should be sorted ascending. */
+  private final boolean[] ascending;
+  /** The estimated size of the tuples buffered in memory above which they are written to a sorted run, in bytes. */
+  private final long memoryLimit;
+  /** Whether the runs are sorted by normalized keys. */
+  private boolean normalizedKeys = false;
+
+  /** Sorts and compares rows. */
+  private transient RowSorter sorter;
+  /** Buffers tuples until they are returned. */
+  private transient TupleBatchBuffer ans;
+  /** The input batches buffered in memory. */
+  private transient List<TupleBatch> buffered;
+  /** The number of tuples in {@link #buffered}. */
+  private transient int numBuffered;
+  /** The estimated size of the tuples in {@link #buffered}, in bytes. */
+  private transient long bufferedBytes;
+  /** The directory holding the sorted runs, created when the first run is written. */
+  private transient File directory;
+  /** The files of the sorted runs. */
+  private transient List<File> runFiles;
+  /** The total number of bytes written to disk. */
+  private transient long bytesSpilled;
+
+  /** Whether the child is EOS and all of its tuples have been sorted. */
+  private transient boolean sorted;
+  /** If all tuples fit in memory, the row numbers of {@link #buffered} in sorted order. */
+  private transient int[] sortedRows;
+  /** For each row number of {@link #buffered}, its batch. */
+  private transient int[] batchOfRow;
+  /** For each batch of {@link #buffered}, the row number of its first row. */
+  private transient int[] batchStarts;
+  /** The next position in {@link #sortedRows} to output. */
+  private transient int nextSortedRow;
+  /** If the tuples were written to runs, the runs being merged. */
+  private transient Run[] runs;
+  /** If the tuples were written to runs, the tree merging them. */
+  private transient LoserTree merger;
+
+  /**
+   * @param child the source of the tuples.
+   * @param sortColumns the columns that should be ordered by.
+   * @param ascending true for each column that should be sorted ascending.
+   */
+  public ExternalOrderBy(final Operator child, final int[] sortColumns, final boolean[] ascending) {
+    this(child, sortColumns, ascending, DEFAULT_MEMORY_LIMIT);
+  }
+
+  /**
+   * @param child the source of the tuples.
+   * @param sortColumns the columns that should be ordered by.
+   * @param ascending true for each column that should be sorted ascending.
+   * @param memoryLimit the estimated size of the tuples buffered in memory above which they are sorted and written to
+   *          disk, in bytes.
+   */
+  public ExternalOrderBy(
+      final Operator child,
+      final int[] sortColumns,
+      final boolean[] ascending,
+      final long memoryLimit) {
+    super(child);
+    Preconditions.checkArgument(
+        sortColumns.length == ascending.length,
+        "sort columns number should be equal to ascending orders number");
+    Preconditions.checkArgument(memoryLimit > 0, "memory limit must be positive");
+    this.sortColumns = sortColumns;
+    this.ascending = ascending;
+    this.memoryLimit = memoryLimit;
+  }
+
+  @Override
+  protected void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
+    sorter = new RowSorter(getSchema(), sortColumns, ascending, normalizedKeys);
+    ans = new TupleBatchBuffer(getSchema());
+    buffered = new ArrayList<>();
+    numBuffered = 0;
+    bufferedBytes = 0;
+    runFiles = new ArrayList<>();
+    bytesSpilled = 0;
+    sorted = false;
+  }
+
+  @Override
+  protected TupleBatch fetchNextReady() throws DbException {
+    if (!sorted) {
+      final Operator child = getChild();
+      while (!child.eos()) {
+        final TupleBatch tb = child.nextReady();
+        if (tb == null) {
+          if (child.eos()) {
+            break;
+          }
+          return null;
+        }
+        if (tb.numTuples() == 0) {
+          continue;
+        }
+        buffered.add(tb);
+        numBuffered += tb.numTuples();
+        bufferedBytes += TupleUtils.estimateBytes(tb);
+        if (bufferedBytes >= memoryLimit
+            || numBuffered > Integer.MAX_VALUE - TupleBatch.BATCH_SIZE) {
+          writeRun();
+        }
+      }
+      finishInput();
+      sorted = true;
+    }
+
+    if (merger != null) {
+      mergeRuns();
+    } else {
+      outputSortedRows();
+    }
+    final TupleBatch nexttb = ans.popFilled();
+    if (nexttb != null) {
+      return nexttb;
+    }
+    return ans.popAny();
+  }
+
+  /**
+   * Sort the buffered tuples in memory and index their rows by batch.
+   */
+  private void sortBuffered() {
+    sortedRows = sorter.sort(buffered, numBuffered);
+    batchOfRow = new int[numBuffered];
+    batchStarts = new int[buffered.size()];
+    int row = 0;
+    for (int batch = 0; batch < buffered.size(); ++batch) {
+      batchStarts[batch] = row;
+      final int numTuples = buffered.get(batch).numTuples();
+      for (int i = 0; i < numTuples; ++i) {
+        batchOfRow[row++] = batch;
+      }
+    }
+    nextSortedRow = 0;
+  }
+
+  /**
+   * Append the next sorted row of {@link #buffered} to a buffer.
+   *
+   * @param out the buffer.
+   */
+  private void appendNextSortedRow(final TupleBatchBuffer out) {
+    final int row = sortedRows[nextSortedRow++];
+    final int batch = batchOfRow[row];
+    out.append(buffered.get(batch), row - batchStarts[batch]);
+  }
+
+  /**
+   * Output sorted rows of {@link #buffered} until the answer buffer holds a full batch or all rows are output.
+   */
+  private void outputSortedRows() {
+    while (nextSortedRow < numBuffered && !ans.hasFilledTB()) {
+      appendNextSortedRow(ans);
+    }
+  }
+
+  /**
+   * Sort the buffered tuples and write them to a new run.
+   *
+   * @throws DbException if the run cannot be written.
+   */
+  private void writeRun() throws DbException {
+    sortBuffered();
+    try {
+      if (directory == null) {
+        directory = Files.createTempDirectory("myria-sort").toFile();
+      }
+      final File file = new File(directory, "run" + runFiles.size());
+      runFiles.add(file);
+      final TupleBatchBuffer out = new TupleBatchBuffer(getSchema());
+      try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+        while (nextSortedRow < numBuffered) {
+          appendNextSortedRow(out);
+          final TupleBatch tb = out.popFilled();
+          if (tb != null) {
+            writeBatch(tb, os);
+          }
+        }
+        final TupleBatch tb = out.popAny();
+        if (tb != null) {
+          writeBatch(tb, os);
+        }
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+    LOGGER.debug("wrote sorted run {} of {} tuples", runFiles.size(), numBuffered);
+    buffered.clear();
+    numBuffered = 0;
+    bufferedBytes = 0;
+    sortedRows = null;
+    batchOfRow = null;
+    batchStarts = null;
+  }
+
+  /**
+   * @param tb a batch.
+   * @param os the output stream of a run.
+   * @throws IOException if the batch cannot be written.
+   */
+  private void writeBatch(final TupleBatch tb, final OutputStream os) throws IOException {
+    final TransportMessage tm = tb.toTransportMessage();
+    tm.writeDelimitedTo(os);
+    bytesSpilled += tm.getSerializedSize();
+  }
+
+  /**
+   * Called once the child is EOS. Sort the remaining tuples in memory if no run was written, otherwise write them to a
+   * last run and start merging.
+   *
+   * @throws DbException if the runs cannot be written or read.
+   */
+  private void finishInput() throws DbException {
+    if (runFiles.isEmpty()) {
+      sortBuffered();
+      return;
+    }
+    if (numBuffered > 0) {
+      writeRun();
+    }
+    runs = new Run[runFiles.size()];
+    try {
+      for (int i = 0; i < runs.length; ++i) {
+        runs[i] = new Run(runFiles.get(i));
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+    merger =
+        new LoserTree(
+            runs.length,
+            (i, j) -> {
+              final Run a = runs[i];
+              final Run b = runs[j];
+              if (a.batch == null || b.batch == null) {
+                /* Exhausted runs come last. */
+                return Boolean.compare(a.batch == null, b.batch == null);
+              }
+              return sorter.compare(a.batch, a.row, b.batch, b.row);
+            });
+  }
+
+  /**
+   * Merge the runs until the answer buffer holds a full batch or all runs are exhausted.
+   *
+   * @throws DbException if a run cannot be read.
+   */
+  private void mergeRuns() throws DbException {
+    try {
+      while (!ans.hasFilledTB()) {
+        final Run run = runs[merger.winner()];
+        if (run.batch == null) {
+          return;
+        }
+        ans.append(run.batch, run.row);
+        run.advance();
+        merger.update();
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  @Override
+  protected void cleanup() throws DbException {
+    if (runs != null) {
+      for (Run run : runs) {
+        try {
+          run.close();
+        } catch (IOException e) {
+          LOGGER.warn("failed to close sorted run", e);
+        }
+      }
+    }
+    if (directory != null) {
+      try {
+        FSUtils.deleteFileFolder(directory);
+      } catch (IOException e) {
+        LOGGER.warn("failed to delete sort directory {}", directory, e);
+      }
+    }
+    directory = null;
+    runs = null;
+    merger = null;
+    buffered = null;
+    sortedRows = null;
+    batchOfRow = null;
+    batchStarts = null;
+    ans = null;
+  }
+
+  /**
+   * Set whether the rows buffered in memory are sorted by order-preserving binary keys built from the sort columns,
+   * using a radix sort and comparing the rows only when their keys are equal.
+   *
+   * @param normalizedKeys whether to sort by normalized keys.
+   */
+  public void setNormalizedKeys(final boolean normalizedKeys) {
+    this.normalizedKeys = normalizedKeys;
+  }
+
+  /**
+   * @return the number of bytes written to disk so far.
+   */
+  public long getBytesSpilled() {
+    return bytesSpilled;
+  }
+
+  @Override
+  protected Schema generateSchema() {
+    Operator child = getChild();
+    if (child == null) {
+      return null;
+    }
+    return child.getSchema();
+  }
+
+  /**
+   * A sorted run being read back for merging.
+   */
+  private final class Run {
+    /** The input stream of the run. */
+    private final InputStream in;
+    /** The current batch, or null if the run is exhausted. */
+    private TupleBatch batch;
+    /** The current row of {@link #batch}. */
+    private int row;
+
+    /**
+     * @param file the file of the run.
+     * @throws IOException if the run cannot be read.
+     */
+    Run(final File file) throws IOException {
+      in = new BufferedInputStream(new FileInputStream(file));
+      row = -1;
+      advance();
+    }
+
+    /**
+     * Move to the next row of the run.
+     *
+     * @throws IOException if the run cannot be read.
+     */
+    void advance() throws IOException {
+      ++row;
+      while (batch == null || row == batch.numTuples()) {
+        final TransportMessage tm = TransportMessage.parseDelimitedFrom(in);
+        if (tm == null) {
+          batch = null;
+          in.close();
+          return;
+        }
+        batch = IPCUtils.tmToTupleBatch(tm.getDataMessage(), getSchema());
+        row = 0;
+      }
+    }
+
+    /**
+     * @throws IOException if the run cannot be closed.
+     */
+    void close() throws IOException {
+      in.close();
+    }
+  }
+}
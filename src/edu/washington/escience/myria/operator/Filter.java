@@ -30,6 +30,11 @@ public final class Filter extends UnaryOperator {
    */
   private BooleanEvaluator evaluator;
 
+  /**
+   * True if the predicate is compiled into one loop over each input batch rather than evaluated row by row.
+   */
+  private boolean batchEvaluation = true;
+
   /**
    * Constructor accepts a predicate to apply and a child operator to read tuples to filter from.
    *
@@ -41,20 +46,40 @@ public final class Filter extends UnaryOperator {
     this.predicate = predicate;
   }
 
+  /**
+   * @return the predicate by which tuples are filtered.
+   */
+  Expression getPredicate() {
+    return predicate;
+  }
+
+  /**
+   * @param batchEvaluation true if the predicate should be compiled into one loop over each input batch, false to
+   *          evaluate it row by row.
+   */
+  public void setBatchEvaluation(final boolean batchEvaluation) {
+    this.batchEvaluation = batchEvaluation;
+  }
+
   @Override
   protected TupleBatch fetchNextReady() throws DbException {
     Operator child = getChild();
     for (TupleBatch tb = child.nextReady(); tb != null; tb = child.nextReady()) {
-      BitSet bits = new BitSet(tb.numTuples());
-      for (int rowIdx = 0; rowIdx < tb.numTuples(); rowIdx++) {
-        Boolean valid;
-        try {
-          valid = evaluator.eval(tb, rowIdx);
-        } catch (InvocationTargetException e) {
-          throw new DbException(e);
-        }
-        if (valid) {
-          bits.set(rowIdx);
+      BitSet bits;
+      if (evaluator.isBatchCompiled()) {
+        bits = evaluator.evalBatch(tb);
+      } else {
+        bits = new BitSet(tb.numTuples());
+        for (int rowIdx = 0; rowIdx < tb.numTuples(); rowIdx++) {
+          Boolean valid;
+          try {
+            valid = evaluator.eval(tb, rowIdx);
+          } catch (InvocationTargetException e) {
+            throw new DbException(e);
+          }
+          if (valid) {
+            bits.set(rowIdx);
+          }
         }
       }
 
@@ -78,7 +103,11 @@ public final class Filter extends UnaryOperator {
 
     evaluator = new BooleanEvaluator(predicate, parameters);
     if (evaluator.needsCompiling()) {
-      evaluator.compile();
+      if (batchEvaluation && evaluator.canEvaluateBatch()) {
+        evaluator.compileBatch();
+      } else {
+        evaluator.compile();
+      }
     }
   }
 
@@ -0,0 +1,212 @@
+package edu.washington.escience.myria.operator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.expression.Expression;
+import edu.washington.escience.myria.expression.StateExpression;
+import edu.washington.escience.myria.expression.evaluate.BooleanEvaluator;
+import edu.washington.escience.myria.expression.evaluate.ConstantEvaluator;
+import edu.washington.escience.myria.expression.evaluate.ExpressionOperatorParameter;
+import edu.washington.escience.myria.expression.evaluate.GenericEvaluator;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * A chain of {@link Filter}s and single-valued {@link Apply}s executed as one operator.
+ *
+ * Instead of materializing a new batch after every step, each input batch is carried through the chain together with a
+ * selection vector of the rows that passed the filters so far. Filters only narrow the selection, and expressions are
+ * only evaluated on the selected rows, by the loops compiled with {@link GenericEvaluator#compileBatch()}. The output
+ * batch carries the selection vector, see {@link TupleBatch#selectRows(int[])}.
+ */
+public final class FusedPipeline extends UnaryOperator {
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The fused operators, from the one closest to the input to the one closest to the output. */
+  private final ImmutableList<UnaryOperator> stages;
+  /** For each stage, the evaluator of the predicate of a {@link Filter}, or null. */
+  private transient BooleanEvaluator[] predicates;
+  /** For each stage, the evaluators of the expressions of an {@link Apply}, or null. */
+  private transient GenericEvaluator[][] projections;
+
+  /**
+   * @param child the child of the first stage.
+   * @param stages the fused operators, from the one closest to the input to the one closest to the output. The
+   *          operators must be {@link Filter}s or {@link Apply}s accepted by {@link #canFuse(Operator)}, each the child
+   *          of the next one.
+   */
+  public FusedPipeline(final Operator child, final List<UnaryOperator> stages) {
+    super(child);
+    Preconditions.checkArgument(!stages.isEmpty(), "no stage to fuse");
+    for (int i = 0; i < stages.size(); ++i) {
+      Preconditions.checkArgument(canFuse(stages.get(i)), "cannot fuse %s", stages.get(i));
+      Preconditions.checkArgument(
+          i == 0 || stages.get(i).getChild() == stages.get(i - 1),
+          "stages must be a chain of operators");
+    }
+    this.stages = ImmutableList.copyOf(stages);
+  }
+
+  /**
+   * @param op an operator
+   * @return true if the operator is a {@link Filter}, or an {@link Apply} of single-valued expressions without state.
+   */
+  public static boolean canFuse(final Operator op) {
+    if (op == null) {
+      return false;
+    }
+    if (op.getClass() == Filter.class) {
+      return true;
+    }
+    if (op.getClass() != Apply.class) {
+      return false;
+    }
+    for (Expression expr : ((Apply) op).getEmitExpressions()) {
+      if (expr.isMultivalued() || expr.hasOperator(StateExpression.class)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replace the chain of operators accepted by {@link #canFuse(Operator)} directly below a root operator with a
+   * {@link FusedPipeline}, if the chain has at least two operators.
+   *
+   * @param root the root of a fragment that has not been opened yet.
+   * @return the fused operator, or null if the plan has not changed.
+   */
+  public static FusedPipeline fuse(final RootOperator root) {
+    final List<UnaryOperator> chain = new ArrayList<>();
+    Operator op = root.getChild();
+    while (canFuse(op)) {
+      chain.add((UnaryOperator) op);
+      op = ((UnaryOperator) op).getChild();
+    }
+    if (chain.size() < 2) {
+      return null;
+    }
+    final UnaryOperator top = chain.get(0);
+    Collections.reverse(chain);
+    final FusedPipeline fused = new FusedPipeline(op, chain);
+    if (top.getOpId() != null) {
+      fused.setOpId(top.getOpId());
+    }
+    fused.setOpName(top.getOpName());
+    root.setChildren(new Operator[] {fused});
+    return fused;
+  }
+
+  /**
+   * @return the fused operators, from the one closest to the input to the one closest to the output.
+   */
+  public List<UnaryOperator> getStages() {
+    return stages;
+  }
+
+  @Override
+  protected TupleBatch fetchNextReady() throws Exception {
+    final Operator child = getChild();
+    for (TupleBatch tb = child.nextReady(); tb != null; tb = child.nextReady()) {
+      final TupleBatch result = process(tb);
+      if (result != null) {
+        return result;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Run a batch through all stages.
+   *
+   * @param tb the input batch.
+   * @return the output batch, or null if no row passed the filters.
+   * @throws Exception if an expression fails.
+   */
+  private TupleBatch process(final TupleBatch tb) throws Exception {
+    TupleBatch current = tb;
+    /* The rows of current that are still selected, or null if all are. */
+    int[] rows = null;
+    int numRows = tb.numTuples();
+    for (int s = 0; s < stages.size(); ++s) {
+      if (predicates[s] != null) {
+        final BitSet selected = predicates[s].evalBatch(current, rows, numRows);
+        numRows = selected.cardinality();
+        if (numRows == 0) {
+          return null;
+        }
+        if (numRows == current.numTuples()) {
+          rows = null;
+        } else {
+          rows = new int[numRows];
+          for (int i = 0, row = selected.nextSetBit(0);
+              row >= 0;
+              row = selected.nextSetBit(row + 1)) {
+            rows[i++] = row;
+          }
+        }
+      } else {
+        final GenericEvaluator[] evals = projections[s];
+        final List<Column<?>> columns = new ArrayList<>(evals.length);
+        for (GenericEvaluator eval : evals) {
+          if (eval.needsCompiling()) {
+            columns.add(eval.evaluateBatch(current, rows, numRows));
+          } else {
+            columns.add(eval.evaluateColumn(current).getResultColumns().get(0));
+          }
+        }
+        current = new TupleBatch(stages.get(s).getSchema(), columns, current.numTuples());
+      }
+    }
+    if (rows == null) {
+      return current;
+    }
+    return current.selectRows(rows);
+  }
+
+  @Override
+  protected void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
+    predicates = new BooleanEvaluator[stages.size()];
+    projections = new GenericEvaluator[stages.size()][];
+    for (int s = 0; s < stages.size(); ++s) {
+      final UnaryOperator stage = stages.get(s);
+      final ExpressionOperatorParameter parameters =
+          new ExpressionOperatorParameter(stage.getChild().getSchema(), getNodeID());
+      if (stage instanceof Filter) {
+        predicates[s] = new BooleanEvaluator(((Filter) stage).getPredicate(), parameters);
+        predicates[s].compileBatch();
+      } else {
+        final List<Expression> expressions = ((Apply) stage).getEmitExpressions();
+        projections[s] = new GenericEvaluator[expressions.size()];
+        for (int i = 0; i < expressions.size(); ++i) {
+          final Expression expr = expressions.get(i);
+          GenericEvaluator evaluator;
+          if (expr.isConstant()) {
+            evaluator = new ConstantEvaluator(expr, parameters);
+          } else {
+            evaluator = new GenericEvaluator(expr, parameters);
+          }
+          if (evaluator.needsCompiling()) {
+            evaluator.compileBatch();
+          }
+          projections[s][i] = evaluator;
+        }
+      }
+    }
+  }
+
+  @Override
+  public Schema generateSchema() {
+    return stages.get(stages.size() - 1).getSchema();
+  }
+}
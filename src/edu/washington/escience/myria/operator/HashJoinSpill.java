@@ -0,0 +1,523 @@
+package edu.washington.escience.myria.operator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.storage.JoinHashTable;
+import edu.washington.escience.myria.storage.MutableTupleBuffer;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
+import edu.washington.escience.myria.util.HashUtils;
+
+/**
+ * The on-disk (grace hash) part of {@link SymmetricHashJoin} and {@link RightHashJoin}, used once their hash tables
+ * exceed the memory budget of the operator.
+ *
+ * When the join spills, the tuples in its hash tables have already been joined with each other. They are written out
+ * as the "old" runs of their hash partitions, and every tuple that arrives afterwards is written to the "new" run of its
+ * partition. Once both children are done, each partition is joined on its own: the smaller side is loaded into a
+ * {@link JoinHashTable}, old rows first, and the other side is probed against it. A new probe tuple joins with every
+ * build row, while an old probe tuple only joins with the new build rows, so that no pair is output twice. A partition
+ * whose build side still does not fit the budget is partitioned again on the next bits of the hash code.
+ *
+ * The runs are kept in a {@link SpillDirectory}.
+ */
+final class HashJoinSpill {
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      org.slf4j.LoggerFactory.getLogger(HashJoinSpill.class);
+
+  /**
+   * The deepest level of partitioning. A partition at this level is joined in memory regardless of its size. Partitions
+   * use the high bits of the hash code, leaving the low bits to the {@link JoinHashTable}.
+   */
+  private static final int MAX_LEVEL = 3;
+
+  /** The run of left tuples that were in memory when the join spilled. */
+  private static final int LEFT_OLD = 0;
+  /** The run of left tuples that arrived after the join spilled. */
+  private static final int LEFT_NEW = 1;
+  /** The run of right tuples that were in memory when the join spilled. */
+  private static final int RIGHT_OLD = 2;
+  /** The run of right tuples that arrived after the join spilled. */
+  private static final int RIGHT_NEW = 3;
+  /** The number of runs of a partition. */
+  private static final int NUM_RUNS = 4;
+
+  /** The schema of the left child. */
+  private final Schema leftSchema;
+  /** The schema of the right child. */
+  private final Schema rightSchema;
+  /** The key columns of the left child. */
+  private final int[] leftCompareIndx;
+  /** The key columns of the right child. */
+  private final int[] rightCompareIndx;
+  /** Which columns in the left child are to be output. */
+  private final int[] leftAnswerColumns;
+  /** Which columns in the right child are to be output. */
+  private final int[] rightAnswerColumns;
+  /** The memory budget of the join, in bytes. */
+  private final long memoryBudget;
+  /** The directory holding the runs. */
+  private final SpillDirectory spillDirectory;
+
+  /** The top level partitions, while the children of the join are still producing tuples. */
+  private Partition[] inputPartitions;
+  /** The partitions waiting to be joined. */
+  private final Deque<Partition> pending = new ArrayDeque<>();
+
+  /** The partition being joined, or null. */
+  private Partition current;
+  /** The hash table built from the current partition. */
+  private JoinHashTable buildTable;
+  /** Whether the build side of the current partition is the right child. */
+  private boolean buildIsRight;
+  /** The number of old rows at the beginning of {@link #buildTable}. */
+  private int numOldBuildRows;
+  /** The probe runs of the current partition, in the order they are read. */
+  private int[] probeRuns;
+  /** The index in {@link #probeRuns} of the run being probed. */
+  private int probeRunIndex;
+  /** The input stream of the run being probed, or null. */
+  private InputStream probeInput;
+
+  /**
+   * Start spilling a join. The tuples in the given hash tables are written out as old tuples.
+   *
+   * @param leftSchema the schema of the left child.
+   * @param rightSchema the schema of the right child.
+   * @param leftCompareIndx the key columns of the left child.
+   * @param rightCompareIndx the key columns of the right child.
+   * @param leftAnswerColumns which columns in the left child are to be output.
+   * @param rightAnswerColumns which columns in the right child are to be output.
+   * @param memoryBudget the memory budget of the join, in bytes.
+   * @param leftHashTable the in-memory hash table of the left child, or null.
+   * @param rightHashTable the in-memory hash table of the right child, or null.
+   * @throws DbException if the tuples cannot be written.
+   */
+  HashJoinSpill(
+      final Schema leftSchema,
+      final Schema rightSchema,
+      final int[] leftCompareIndx,
+      final int[] rightCompareIndx,
+      final int[] leftAnswerColumns,
+      final int[] rightAnswerColumns,
+      final long memoryBudget,
+      final JoinHashTable leftHashTable,
+      final JoinHashTable rightHashTable)
+      throws DbException {
+    this.leftSchema = leftSchema;
+    this.rightSchema = rightSchema;
+    this.leftCompareIndx = leftCompareIndx;
+    this.rightCompareIndx = rightCompareIndx;
+    this.leftAnswerColumns = leftAnswerColumns;
+    this.rightAnswerColumns = rightAnswerColumns;
+    this.memoryBudget = memoryBudget;
+    try {
+      spillDirectory = new SpillDirectory("myria-join-spill");
+      inputPartitions = newPartitions(0);
+      if (leftHashTable != null) {
+        for (TupleBatch tb : leftHashTable.getData().getAll()) {
+          partition(tb, leftCompareIndx, LEFT_OLD, inputPartitions);
+        }
+      }
+      if (rightHashTable != null) {
+        for (TupleBatch tb : rightHashTable.getData().getAll()) {
+          partition(tb, rightCompareIndx, RIGHT_OLD, inputPartitions);
+        }
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @param tb a TupleBatch from a child of the join.
+   * @param fromLeft whether the batch comes from the left child.
+   * @throws DbException if the tuples cannot be written.
+   */
+  void add(final TupleBatch tb, final boolean fromLeft) throws DbException {
+    try {
+      if (fromLeft) {
+        partition(tb, leftCompareIndx, LEFT_NEW, inputPartitions);
+      } else {
+        partition(tb, rightCompareIndx, RIGHT_NEW, inputPartitions);
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Join the partitions until the answer buffer holds a full batch or all partitions are done. Must only be called once
+   * both children are done.
+   *
+   * @param ans the answer buffer.
+   * @throws DbException if the runs cannot be read.
+   */
+  void joinNext(final TupleBatchBuffer ans) throws DbException {
+    try {
+      if (inputPartitions != null) {
+        finishPartitions(inputPartitions);
+        inputPartitions = null;
+      }
+      while (!ans.hasFilledTB()) {
+        if (current == null) {
+          final Partition p = pending.poll();
+          if (p == null) {
+            return;
+          }
+          if (!buildSmallerSide(p)) {
+            repartition(p);
+            continue;
+          }
+        }
+        final TupleBatch tb = nextProbeBatch();
+        if (tb == null) {
+          current.delete();
+          current = null;
+          buildTable = null;
+          continue;
+        }
+        final int run = probeRuns[probeRunIndex];
+        probe(tb, run == LEFT_OLD || run == RIGHT_OLD ? numOldBuildRows : 0, ans);
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @return whether all partitions have been joined.
+   */
+  boolean isDone() {
+    return inputPartitions == null && current == null && pending.isEmpty();
+  }
+
+  /**
+   * @return the number of bytes written to disk so far.
+   */
+  long getBytesSpilled() {
+    return spillDirectory.getBytesSpilled();
+  }
+
+  /**
+   * Close any open files and delete all runs.
+   */
+  void close() {
+    try {
+      if (probeInput != null) {
+        probeInput.close();
+        probeInput = null;
+      }
+      if (inputPartitions != null) {
+        finishPartitions(inputPartitions);
+        inputPartitions = null;
+      }
+    } catch (IOException e) {
+      LOGGER.warn("failed to close the join spill runs", e);
+    }
+    pending.clear();
+    current = null;
+    buildTable = null;
+    spillDirectory.delete();
+  }
+
+  /**
+   * @param level the level of the partitions.
+   * @return new, empty partitions.
+   */
+  private Partition[] newPartitions(final int level) {
+    final Partition[] partitions = new Partition[SpillDirectory.NUM_PARTITIONS];
+    for (int i = 0; i < partitions.length; ++i) {
+      partitions[i] = new Partition(level);
+    }
+    return partitions;
+  }
+
+  /**
+   * Close the partitions and queue the non-empty ones to be joined.
+   *
+   * @param partitions the partitions.
+   * @throws IOException if the runs cannot be closed.
+   */
+  private void finishPartitions(final Partition[] partitions) throws IOException {
+    for (Partition p : partitions) {
+      p.finishWriting();
+      if (p.hasData()) {
+        pending.push(p);
+      }
+    }
+  }
+
+  /**
+   * Write the rows of a batch to a run of the partitions chosen by their hash codes.
+   *
+   * @param tb the batch.
+   * @param keyColumns the key columns of the batch.
+   * @param run the run to write to.
+   * @param partitions the partitions, all at the same level.
+   * @throws IOException if the tuples cannot be written.
+   */
+  private void partition(
+      final TupleBatch tb, final int[] keyColumns, final int run, final Partition[] partitions)
+      throws IOException {
+    if (tb.numTuples() == 0) {
+      return;
+    }
+    final BitSet[] rows = SpillDirectory.partitionRows(tb, keyColumns, null, partitions[0].level);
+    for (int p = 0; p < rows.length; ++p) {
+      if (rows[p] != null) {
+        partitions[p].write(run, tb.filter(rows[p]));
+      }
+    }
+  }
+
+  /**
+   * Partition the runs of a partition one level deeper and queue the results to be joined.
+   *
+   * @param p the partition.
+   * @throws IOException if the runs cannot be read or written.
+   */
+  private void repartition(final Partition p) throws IOException {
+    final Partition[] children = newPartitions(p.level + 1);
+    for (int run = 0; run < NUM_RUNS; ++run) {
+      final boolean left = run == LEFT_OLD || run == LEFT_NEW;
+      final Schema schema = left ? leftSchema : rightSchema;
+      final int[] keyColumns = left ? leftCompareIndx : rightCompareIndx;
+      try (InputStream in = p.open(run)) {
+        if (in == null) {
+          continue;
+        }
+        for (TupleBatch tb = SpillDirectory.readBatch(in, schema);
+            tb != null;
+            tb = SpillDirectory.readBatch(in, schema)) {
+          partition(tb, keyColumns, run, children);
+        }
+      }
+    }
+    p.delete();
+    finishPartitions(children);
+  }
+
+  /**
+   * Load the smaller side of a partition into a hash table, unless it does not fit the memory budget and the partition
+   * can be partitioned further.
+   *
+   * @param p the partition.
+   * @return whether the hash table was built.
+   * @throws IOException if the runs cannot be read.
+   */
+  private boolean buildSmallerSide(final Partition p) throws IOException {
+    final long leftBytes = p.estimatedBytes[LEFT_OLD] + p.estimatedBytes[LEFT_NEW];
+    final long rightBytes = p.estimatedBytes[RIGHT_OLD] + p.estimatedBytes[RIGHT_NEW];
+    buildIsRight = rightBytes <= leftBytes;
+    if (Math.min(leftBytes, rightBytes) > memoryBudget) {
+      if (p.level < MAX_LEVEL) {
+        return false;
+      }
+      LOGGER.warn(
+          "joining a partition of {} bytes in memory, above the budget of {} bytes",
+          Math.min(leftBytes, rightBytes),
+          memoryBudget);
+    }
+
+    final int oldRun;
+    final int newRun;
+    final Schema schema;
+    final int[] keyColumns;
+    if (buildIsRight) {
+      oldRun = RIGHT_OLD;
+      newRun = RIGHT_NEW;
+      schema = rightSchema;
+      keyColumns = rightCompareIndx;
+      probeRuns = new int[] {LEFT_NEW, LEFT_OLD};
+    } else {
+      oldRun = LEFT_OLD;
+      newRun = LEFT_NEW;
+      schema = leftSchema;
+      keyColumns = leftCompareIndx;
+      probeRuns = new int[] {RIGHT_NEW, RIGHT_OLD};
+    }
+    buildTable = new JoinHashTable(schema);
+    load(p, oldRun, schema, keyColumns);
+    numOldBuildRows = buildTable.numTuples();
+    load(p, newRun, schema, keyColumns);
+    current = p;
+    probeRunIndex = -1;
+    return true;
+  }
+
+  /**
+   * Add all the tuples of a run to {@link #buildTable}.
+   *
+   * @param p the partition.
+   * @param run the run.
+   * @param schema the schema of the run.
+   * @param keyColumns the key columns of the run.
+   * @throws IOException if the run cannot be read.
+   */
+  private void load(final Partition p, final int run, final Schema schema, final int[] keyColumns)
+      throws IOException {
+    try (InputStream in = p.open(run)) {
+      if (in == null) {
+        return;
+      }
+      for (TupleBatch tb = SpillDirectory.readBatch(in, schema);
+          tb != null;
+          tb = SpillDirectory.readBatch(in, schema)) {
+        final int[] hashes = new int[tb.numTuples()];
+        HashUtils.hashSubRows(tb, keyColumns, true, hashes);
+        for (int row = 0; row < tb.numTuples(); ++row) {
+          buildTable.add(hashes[row], tb, row);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the next batch of the probe runs of the current partition, or null if they are exhausted.
+   * @throws IOException if the runs cannot be read.
+   */
+  private TupleBatch nextProbeBatch() throws IOException {
+    final Schema schema = buildIsRight ? leftSchema : rightSchema;
+    while (true) {
+      if (probeInput != null) {
+        final TupleBatch tb = SpillDirectory.readBatch(probeInput, schema);
+        if (tb != null) {
+          return tb;
+        }
+        probeInput.close();
+        probeInput = null;
+      }
+      if (probeRunIndex + 1 == probeRuns.length) {
+        return null;
+      }
+      ++probeRunIndex;
+      probeInput = current.open(probeRuns[probeRunIndex]);
+    }
+  }
+
+  /**
+   * Join a probe batch with the rows of {@link #buildTable} from the given row on.
+   *
+   * @param tb the probe batch.
+   * @param minBuildRow the first row of the hash table that the probe batch joins with.
+   * @param ans the answer buffer.
+   */
+  private void probe(final TupleBatch tb, final int minBuildRow, final TupleBatchBuffer ans) {
+    final int[] probeKeys = buildIsRight ? leftCompareIndx : rightCompareIndx;
+    final int[] buildKeys = buildIsRight ? rightCompareIndx : leftCompareIndx;
+    final MutableTupleBuffer data = buildTable.getData();
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, probeKeys, true, hashes);
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      final int hashCode = hashes[row];
+      for (int index = buildTable.getFirst(hashCode);
+          index >= 0;
+          index = buildTable.getNext(index)) {
+        if (index < minBuildRow
+            || !TupleUtils.tupleEquals(tb, probeKeys, row, data, buildKeys, index)) {
+          continue;
+        }
+        if (buildIsRight) {
+          for (int column : leftAnswerColumns) {
+            ans.append(tb, column, row);
+          }
+          for (int column : rightAnswerColumns) {
+            ans.append(data, column, index);
+          }
+        } else {
+          for (int column : leftAnswerColumns) {
+            ans.append(data, column, index);
+          }
+          for (int column : rightAnswerColumns) {
+            ans.append(tb, column, row);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A hash partition of the tuples of both children, made of the four runs {@link #LEFT_OLD}, {@link #LEFT_NEW},
+   * {@link #RIGHT_OLD} and {@link #RIGHT_NEW}.
+   */
+  private final class Partition {
+    /** The partitioning level, i.e., which bits of the hash code were used to choose this partition. */
+    private final int level;
+    /** The runs. */
+    private final SpillDirectory.Run[] runs = new SpillDirectory.Run[NUM_RUNS];
+    /** The estimated heap size of the tuples of each run. */
+    private final long[] estimatedBytes = new long[NUM_RUNS];
+
+    /**
+     * @param level the partitioning level.
+     */
+    Partition(final int level) {
+      this.level = level;
+      for (int run = 0; run < NUM_RUNS; ++run) {
+        runs[run] = spillDirectory.newRun();
+      }
+    }
+
+    /**
+     * @param run the run.
+     * @param tb the tuples to append to the run.
+     * @throws IOException if the tuples cannot be written.
+     */
+    void write(final int run, final TupleBatch tb) throws IOException {
+      runs[run].write(tb);
+      estimatedBytes[run] += TupleUtils.estimateBytes(tb);
+    }
+
+    /**
+     * Close the runs for writing.
+     *
+     * @throws IOException if a run cannot be closed.
+     */
+    void finishWriting() throws IOException {
+      for (SpillDirectory.Run run : runs) {
+        run.finishWriting();
+      }
+    }
+
+    /**
+     * @return whether any tuple has been written to this partition.
+     */
+    boolean hasData() {
+      for (SpillDirectory.Run run : runs) {
+        if (!run.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @param run the run.
+     * @return an input stream over the run, or null if the run is empty.
+     * @throws IOException if the run cannot be opened.
+     */
+    InputStream open(final int run) throws IOException {
+      return runs[run].open();
+    }
+
+    /**
+     * Delete the runs of this partition.
+     *
+     * @throws IOException if a run cannot be deleted.
+     */
+    void delete() throws IOException {
+      for (SpillDirectory.Run run : runs) {
+        run.delete();
+      }
+    }
+  }
+}
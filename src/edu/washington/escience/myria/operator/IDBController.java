@@ -1,13 +1,10 @@
 package edu.washington.escience.myria.operator;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import com.almworks.sqlite4java.SQLiteConnection;
-import com.almworks.sqlite4java.SQLiteException;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -19,6 +16,7 @@ import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.accessmethod.AccessMethod;
 import edu.washington.escience.myria.accessmethod.ConnectionInfo;
+import edu.washington.escience.myria.accessmethod.SQLiteAccessMethod;
 import edu.washington.escience.myria.accessmethod.SQLiteInfo;
 import edu.washington.escience.myria.operator.network.Consumer;
 import edu.washington.escience.myria.parallel.ExchangePairID;
@@ -368,15 +366,7 @@ public class IDBController extends Operator implements StreamingStateful, DbWrit
       }
       if (connectionInfo instanceof SQLiteInfo) {
         /* Set WAL in the beginning. */
-        final File dbFile = new File(((SQLiteInfo) connectionInfo).getDatabaseFilename());
-        SQLiteConnection conn = new SQLiteConnection(dbFile);
-        try {
-          conn.open(true);
-          conn.exec("PRAGMA journal_mode=WAL;");
-        } catch (SQLiteException e) {
-          e.printStackTrace();
-        }
-        conn.dispose();
+        SQLiteAccessMethod.setJournalModeWal((SQLiteInfo) connectionInfo);
       }
       /* open the database connection */
       accessMethod = AccessMethod.of(connectionInfo.getDbms(), connectionInfo, false);
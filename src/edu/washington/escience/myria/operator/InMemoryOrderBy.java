@@ -45,6 +45,11 @@ public final class InMemoryOrderBy extends UnaryOperator {
    */
   private MutableTupleBuffer table;
 
+  /**
+   * Whether to sort by normalized keys instead of comparing tuples with a {@link TupleComparator}.
+   */
+  private boolean normalizedKeys = false;
+
   /**
    * @param child the source of the tuples.
    */
@@ -179,6 +184,13 @@ public final class InMemoryOrderBy extends UnaryOperator {
    */
   public void sort() {
     final int numTuples = table.numTuples();
+    if (normalizedKeys) {
+      final RowSorter sorter = new RowSorter(getSchema(), sortColumns, ascending, true);
+      for (int row : sorter.sort(table.getAll(), numTuples)) {
+        ans.append(table, row);
+      }
+      return;
+    }
     indexes = new ArrayList<>();
     indexes.ensureCapacity(numTuples);
     for (int i = 0; i < numTuples; i++) {
@@ -193,6 +205,16 @@ public final class InMemoryOrderBy extends UnaryOperator {
     }
   }
 
+  /**
+   * Set whether to sort by order-preserving binary keys built from the sort columns, using a radix sort and comparing
+   * the tuples only when their keys are equal, instead of comparing the tuples with a {@link TupleComparator}.
+   *
+   * @param normalizedKeys whether to sort by normalized keys.
+   */
+  public void setNormalizedKeys(final boolean normalizedKeys) {
+    this.normalizedKeys = normalizedKeys;
+  }
+
   @Override
   protected Schema generateSchema() {
     Operator child = getChild();
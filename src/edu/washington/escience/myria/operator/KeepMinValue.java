@@ -153,9 +153,12 @@ public final class KeepMinValue extends StreamingState {
     doReplace.inputTB = tb;
     final List<? extends Column<?>> columns = tb.getDataColumns();
     final BitSet toRemove = new BitSet(numTuples);
+    /* Only the hash table of this operator uses these hash codes, so the cheaper hash function will do. */
+    final int[] hashes = new int[numTuples];
+    HashUtils.hashSubRows(tb, keyColIndices, false, hashes);
     for (int i = 0; i < numTuples; ++i) {
       final int nextIndex = uniqueTuples.numTuples();
-      final int cntHashCode = HashUtils.hashSubRow(tb, keyColIndices, i);
+      final int cntHashCode = hashes[i];
       IntArrayList tupleIndexList = uniqueTupleIndices.get(cntHashCode);
       doReplace.unique = true;
       if (tupleIndexList == null) {
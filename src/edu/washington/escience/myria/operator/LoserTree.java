@@ -0,0 +1,84 @@
+package edu.washington.escience.myria.operator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A tournament tree of losers for merging k sorted sources. Each internal node remembers the source that lost the
+ * match played there, and the overall winner is kept apart. After the head of the winning source advances, only the
+ * matches on the path from its leaf to the root are replayed, which costs log2(k) comparisons, where a binary heap
+ * needs up to twice as many.
+ *
+ * Sources are identified by their index in [0, k). The comparator compares the current heads of two sources; an
+ * exhausted source must compare greater than any other source. Ties are broken by source index, so merging runs in the
+ * order they were produced is stable.
+ */
+final class LoserTree {
+  /** The number of sources. */
+  private final int k;
+  /** tree[0] is the winner, and tree[1..k-1] are the losers of the internal nodes. */
+  private final int[] tree;
+  /** Compares the heads of two sources. */
+  private final RowSorter.IndexComparator cmp;
+
+  /**
+   * Build the tree by playing all matches.
+   *
+   * @param k the number of sources.
+   * @param cmp compares the heads of two sources.
+   */
+  LoserTree(final int k, final RowSorter.IndexComparator cmp) {
+    Preconditions.checkArgument(k > 0, "a loser tree needs at least one source");
+    this.k = k;
+    this.cmp = cmp;
+    tree = new int[k];
+    /* Leaf i is node k + i. The winner of each node is only needed while building. */
+    final int[] winners = new int[2 * k];
+    for (int i = 0; i < k; ++i) {
+      winners[k + i] = i;
+    }
+    for (int node = k - 1; node > 0; --node) {
+      final int a = winners[2 * node];
+      final int b = winners[2 * node + 1];
+      if (beats(a, b)) {
+        winners[node] = a;
+        tree[node] = b;
+      } else {
+        winners[node] = b;
+        tree[node] = a;
+      }
+    }
+    tree[0] = winners[1];
+  }
+
+  /**
+   * @return the source whose head is the smallest.
+   */
+  int winner() {
+    return tree[0];
+  }
+
+  /**
+   * Replay the matches of the winner after its head has changed.
+   */
+  void update() {
+    int winner = tree[0];
+    for (int node = (winner + k) >>> 1; node > 0; node >>>= 1) {
+      final int loser = tree[node];
+      if (beats(loser, winner)) {
+        tree[node] = winner;
+        winner = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+
+  /**
+   * @param a a source.
+   * @param b another source.
+   * @return whether the head of a comes before the head of b.
+   */
+  private boolean beats(final int a, final int b) {
+    final int compared = cmp.compare(a, b);
+    return compared < 0 || (compared == 0 && a < b);
+  }
+}
@@ -0,0 +1,238 @@
+package edu.washington.escience.myria.operator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Order-preserving binary keys for sorting rows by several columns. The sort columns of each row are encoded, one after
+ * the other from the most significant bit, into a single <code>long</code> such that comparing two keys as unsigned
+ * numbers gives the same result as comparing the rows column by column:
+ * <ul>
+ * <li>INT and LONG values have their sign bit flipped.</li>
+ * <li>FLOAT and DOUBLE values use their IEEE bits, with the sign bit flipped for positive numbers and all bits flipped
+ * for negative numbers, which matches {@link Double#compare} and {@link Float#compare}.</li>
+ * <li>DATETIME values are encoded like LONG milliseconds.</li>
+ * <li>BOOLEAN values use one bit.</li>
+ * <li>STRING values contribute as many leading UTF-16 chars as fit, padded with zeros.</li>
+ * <li>Descending columns have their bits flipped.</li>
+ * </ul>
+ * A column that does not fit in the bits left contributes its most significant bits only, and the remaining columns
+ * are left out. The key is then only a prefix, and rows with equal keys must still be compared in full.
+ */
+final class NormalizedKeys {
+  /** The number of bits of a radix sort digit. */
+  private static final int RADIX_BITS = 8;
+  /** The number of buckets of a radix sort digit. */
+  private static final int RADIX = 1 << RADIX_BITS;
+
+  /** Utility class cannot be instantiated. */
+  private NormalizedKeys() {}
+
+  /**
+   * @param schema the schema of the rows.
+   * @param sortColumns the sort columns.
+   * @return whether the keys encode the sort columns completely, so that rows with equal keys are equal.
+   */
+  static boolean isComplete(final Schema schema, final int[] sortColumns) {
+    int free = Long.SIZE;
+    for (int column : sortColumns) {
+      final Type type = schema.getColumnType(column);
+      if (type == Type.STRING_TYPE) {
+        return false;
+      }
+      free -= width(type);
+      if (free < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param type a fixed-width type.
+   * @return the number of bits of the encoding of the type.
+   */
+  private static int width(final Type type) {
+    switch (type) {
+      case BOOLEAN_TYPE:
+        return 1;
+      case FLOAT_TYPE:
+      case INT_TYPE:
+        return Integer.SIZE;
+      case DATETIME_TYPE:
+      case DOUBLE_TYPE:
+      case LONG_TYPE:
+        return Long.SIZE;
+      default:
+        throw new IllegalArgumentException("type " + type + " does not have a fixed width");
+    }
+  }
+
+  /**
+   * Build the keys of the rows of a list of batches, numbered consecutively across the batches. The type of a column is
+   * looked at once per column, not once per row.
+   *
+   * @param batches the batches.
+   * @param numTuples the total number of rows in the batches.
+   * @param sortColumns the sort columns.
+   * @param ascending true for each sort column that is sorted ascending.
+   * @return the key of each row.
+   */
+  static long[] build(
+      final List<TupleBatch> batches,
+      final int numTuples,
+      final int[] sortColumns,
+      final boolean[] ascending) {
+    final long[] keys = new long[numTuples];
+    if (batches.isEmpty()) {
+      return keys;
+    }
+    final Schema schema = batches.get(0).getSchema();
+    /* The number of low bits of the keys that are still free. */
+    int free = Long.SIZE;
+    for (int i = 0; i < sortColumns.length && free > 0; ++i) {
+      final int column = sortColumns[i];
+      final Type type = schema.getColumnType(column);
+      final boolean desc = !ascending[i];
+      if (type == Type.STRING_TYPE) {
+        final int numChars = free / Character.SIZE;
+        int row = 0;
+        for (TupleBatch tb : batches) {
+          for (int r = 0; r < tb.numTuples(); ++r) {
+            final String s = tb.getString(column, r);
+            long v = 0;
+            for (int c = 0; c < numChars; ++c) {
+              long ch = c < s.length() ? s.charAt(c) : 0;
+              if (desc) {
+                ch ^= 0xFFFF;
+              }
+              v |= ch << (free - Character.SIZE * (c + 1));
+            }
+            keys[row++] |= v;
+          }
+        }
+        /* The rest of a longer string is not encoded, so nothing after it is either. */
+        return keys;
+      }
+      final int width = width(type);
+      /* Keep the high bits of the encoded value that fit. */
+      final int shiftLeft = Math.max(free - width, 0);
+      final int shiftRight = Math.max(width - free, 0);
+      final long flip = desc ? (width == Long.SIZE ? -1L : (1L << width) - 1) : 0;
+      int row = 0;
+      for (TupleBatch tb : batches) {
+        final int n = tb.numTuples();
+        switch (type) {
+          case BOOLEAN_TYPE:
+            for (int r = 0; r < n; ++r) {
+              final long v = tb.getBoolean(column, r) ? 1 : 0;
+              keys[row++] |= ((v ^ flip) >>> shiftRight) << shiftLeft;
+            }
+            break;
+          case INT_TYPE:
+            for (int r = 0; r < n; ++r) {
+              final long v = (tb.getInt(column, r) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+              keys[row++] |= ((v ^ flip) >>> shiftRight) << shiftLeft;
+            }
+            break;
+          case FLOAT_TYPE:
+            for (int r = 0; r < n; ++r) {
+              final long v = encodeFloat(tb.getFloat(column, r)) & 0xFFFFFFFFL;
+              keys[row++] |= ((v ^ flip) >>> shiftRight) << shiftLeft;
+            }
+            break;
+          case LONG_TYPE:
+            for (int r = 0; r < n; ++r) {
+              final long v = tb.getLong(column, r) ^ Long.MIN_VALUE;
+              keys[row++] |= ((v ^ flip) >>> shiftRight) << shiftLeft;
+            }
+            break;
+          case DOUBLE_TYPE:
+            for (int r = 0; r < n; ++r) {
+              final long v = encodeDouble(tb.getDouble(column, r));
+              keys[row++] |= ((v ^ flip) >>> shiftRight) << shiftLeft;
+            }
+            break;
+          case DATETIME_TYPE:
+            for (int r = 0; r < n; ++r) {
+              final long v = tb.getDateTime(column, r).getMillis() ^ Long.MIN_VALUE;
+              keys[row++] |= ((v ^ flip) >>> shiftRight) << shiftLeft;
+            }
+            break;
+          default:
+            throw new IllegalArgumentException("unsupported sort column type " + type);
+        }
+      }
+      free -= width;
+    }
+    return keys;
+  }
+
+  /**
+   * @param x a float.
+   * @return bits that compare as unsigned integers like {@link Float#compare} compares floats.
+   */
+  private static int encodeFloat(final float x) {
+    final int bits = Float.floatToIntBits(x);
+    return bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * @param x a double.
+   * @return bits that compare as unsigned longs like {@link Double#compare} compares doubles.
+   */
+  private static long encodeDouble(final double x) {
+    final long bits = Double.doubleToLongBits(x);
+    return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+  }
+
+  /**
+   * Stable least-significant-digit radix sort of row indices by their keys, as unsigned numbers. Digits on which all
+   * keys agree are skipped.
+   *
+   * @param rows the row indices, sorted in place.
+   * @param keys the keys, indexed by position in rows, sorted in place along with them.
+   */
+  static void radixSort(final int[] rows, final long[] keys) {
+    final int n = rows.length;
+    int[] srcRows = rows;
+    long[] srcKeys = keys;
+    int[] dstRows = new int[n];
+    long[] dstKeys = new long[n];
+    final int[] counts = new int[RADIX];
+    for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < n; ++i) {
+        ++counts[(int) (srcKeys[i] >>> shift) & (RADIX - 1)];
+      }
+      if (n == 0 || counts[(int) (srcKeys[0] >>> shift) & (RADIX - 1)] == n) {
+        continue;
+      }
+      int total = 0;
+      for (int b = 0; b < RADIX; ++b) {
+        final int c = counts[b];
+        counts[b] = total;
+        total += c;
+      }
+      for (int i = 0; i < n; ++i) {
+        final int pos = counts[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+        dstRows[pos] = srcRows[i];
+        dstKeys[pos] = srcKeys[i];
+      }
+      final int[] tmpRows = srcRows;
+      srcRows = dstRows;
+      dstRows = tmpRows;
+      final long[] tmpKeys = srcKeys;
+      srcKeys = dstKeys;
+      dstKeys = tmpKeys;
+    }
+    if (srcRows != rows) {
+      System.arraycopy(srcRows, 0, rows, 0, n);
+      System.arraycopy(srcKeys, 0, keys, 0, n);
+    }
+  }
+}
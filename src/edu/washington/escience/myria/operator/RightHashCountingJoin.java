@@ -1,20 +1,17 @@
 package edu.washington.escience.myria.operator;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.gs.collections.api.block.procedure.primitive.IntProcedure;
 import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
-import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
-import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.storage.JoinHashTable;
 import edu.washington.escience.myria.storage.MutableTupleBuffer;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
@@ -42,14 +39,9 @@ public class RightHashCountingJoin extends BinaryOperator {
   private final int[] rightCompareIndx;
 
   /**
-   * A hash table for tuples from child 2. {Hashcode -> List of tuple indices with the same hash code}
+   * A hash table holding the distinct join keys from child 2.
    */
-  private transient IntObjectHashMap<IntArrayList> hashTableIndices;
-
-  /**
-   * The buffer holding the valid tuples from right.
-   */
-  private transient MutableTupleBuffer hashTable;
+  private transient JoinHashTable hashTable;
   /**
    * How many times each key occurred from right.
    */
@@ -70,51 +62,6 @@ public class RightHashCountingJoin extends BinaryOperator {
    * */
   private boolean hasReturnedAnswer = false;
 
-  /**
-   * Traverse through the list of tuples.
-   * */
-  private transient CountingJoinProcedure doCountingJoin;
-
-  /**
-   * Traverse through the list of tuples with the same hash code.
-   * */
-  private final class CountingJoinProcedure implements IntProcedure {
-
-    /** serial version id. */
-    private static final long serialVersionUID = 1L;
-
-    /**
-     * Hash table.
-     * */
-    private MutableTupleBuffer joinAgainstHashTable;
-
-    /**
-     * times of occure of a key.
-     * */
-    private IntArrayList occuredTimesOnJoinAgainstChild;
-    /**
-     *
-     * */
-    private int[] inputCmpColumns;
-
-    /**
-     * row index of the tuple.
-     * */
-    private int row;
-
-    /**
-     * input TupleBatch.
-     * */
-    private TupleBatch inputTB;
-
-    @Override
-    public void value(final int index) {
-      if (TupleUtils.tupleEquals(inputTB, inputCmpColumns, row, joinAgainstHashTable, index)) {
-        ans += occuredTimesOnJoinAgainstChild.get(index);
-      }
-    }
-  };
-
   /**
    * Note: If this operator is ready for EOS, this function will return true since EOS is a special EOI.
    *
@@ -171,7 +118,6 @@ public class RightHashCountingJoin extends BinaryOperator {
   @Override
   protected void cleanup() throws DbException {
     hashTable = null;
-    hashTableIndices = null;
     occurredTimes = null;
     ansTBB = null;
     ans = 0;
@@ -256,10 +202,8 @@ public class RightHashCountingJoin extends BinaryOperator {
   @Override
   public void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
     final Operator right = getRight();
-    hashTableIndices = new IntObjectHashMap<>();
-    hashTable = new MutableTupleBuffer(right.getSchema().getSubSchema(rightCompareIndx));
+    hashTable = new JoinHashTable(right.getSchema().getSubSchema(rightCompareIndx));
     occurredTimes = new IntArrayList();
-    doCountingJoin = new CountingJoinProcedure();
     ans = 0;
     ansTBB = new TupleBatchBuffer(getSchema());
   }
@@ -270,11 +214,13 @@ public class RightHashCountingJoin extends BinaryOperator {
    * @param tb the incoming TupleBatch.
    */
   protected void processRightChildTB(final TupleBatch tb) {
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, rightCompareIndx, true, hashes);
     for (int row = 0; row < tb.numTuples(); ++row) {
-      final int cntHashCode = HashUtils.hashSubRow(tb, rightCompareIndx, row);
+      final int cntHashCode = hashes[row];
       // only build hash table on two sides if none of the children is EOS
       updateHashTableAndOccureTimes(
-          tb, row, cntHashCode, hashTable, hashTableIndices, rightCompareIndx, occurredTimes);
+          tb, row, cntHashCode, hashTable, rightCompareIndx, occurredTimes);
     }
   }
 
@@ -284,21 +230,21 @@ public class RightHashCountingJoin extends BinaryOperator {
    * @param tb the incoming TupleBatch for processing join.
    */
   protected void processLeftChildTB(final TupleBatch tb) {
-
-    doCountingJoin.inputCmpColumns = leftCompareIndx;
-    doCountingJoin.inputTB = tb;
-    doCountingJoin.occuredTimesOnJoinAgainstChild = occurredTimes;
-    doCountingJoin.joinAgainstHashTable = hashTable;
+    final MutableTupleBuffer data = hashTable.getData();
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, leftCompareIndx, true, hashes);
     for (int row = 0; row < tb.numTuples(); ++row) {
 
       /*
        * update number of count of probing the other child's hash table.
        */
-      final int cntHashCode = HashUtils.hashSubRow(tb, doCountingJoin.inputCmpColumns, row);
-      IntArrayList tuplesWithHashCode = hashTableIndices.get(cntHashCode);
-      if (tuplesWithHashCode != null) {
-        doCountingJoin.row = row;
-        tuplesWithHashCode.forEach(doCountingJoin);
+      final int cntHashCode = hashes[row];
+      for (int index = hashTable.getFirst(cntHashCode);
+          index >= 0;
+          index = hashTable.getNext(index)) {
+        if (TupleUtils.tupleEquals(tb, leftCompareIndx, row, data, index)) {
+          ans += occurredTimes.get(index);
+        }
       }
     }
   }
@@ -308,7 +254,6 @@ public class RightHashCountingJoin extends BinaryOperator {
    * @param row the row number of the to be processed tuple in the source TupleBatch
    * @param hashCode the hashCode of the to be processed tuple
    * @param hashTable the hash table to be updated
-   * @param hashTableIndices the hash indices to be updated
    * @param compareColumns compareColumns of input tuple
    * @param occuredTimes occuredTimes array to be updated
    * */
@@ -316,42 +261,22 @@ public class RightHashCountingJoin extends BinaryOperator {
       final TupleBatch tb,
       final int row,
       final int hashCode,
-      final MutableTupleBuffer hashTable,
-      final IntObjectHashMap<IntArrayList> hashTableIndices,
+      final JoinHashTable hashTable,
       final int[] compareColumns,
       final IntArrayList occuredTimes) {
-
-    /* get the index of the tuple's hash code corresponding to */
-    final int nextIndex = hashTable.numTuples();
-    IntArrayList tupleIndicesList = hashTableIndices.get(hashCode);
-
-    /* create one is there is no such a index yet (there is no tuple with the same hash code has been processed ) */
-    if (tupleIndicesList == null) {
-      tupleIndicesList = new IntArrayList(1);
-      hashTableIndices.put(hashCode, tupleIndicesList);
-    }
-
-    Preconditions.checkArgument(hashTable.numColumns() == compareColumns.length);
-    List<? extends Column<?>> inputColumns = tb.getDataColumns();
+    Preconditions.checkArgument(hashTable.getData().numColumns() == compareColumns.length);
 
     /* find whether this tuple's comparing key has occurred before. If it is, only update occurred times */
-    boolean found = false;
-    for (int i = 0; i < tupleIndicesList.size(); ++i) {
-      int index = tupleIndicesList.get(i);
-      if (TupleUtils.tupleEquals(tb, compareColumns, row, hashTable, index)) {
+    final MutableTupleBuffer data = hashTable.getData();
+    for (int index = hashTable.getFirst(hashCode); index >= 0; index = hashTable.getNext(index)) {
+      if (TupleUtils.tupleEquals(tb, compareColumns, row, data, index)) {
         occuredTimes.set(index, occuredTimes.get(index) + 1);
-        found = true;
-        break;
+        return;
       }
     }
 
-    if (!found) {
-      tupleIndicesList.add(nextIndex);
-      for (int column = 0; column < hashTable.numColumns(); ++column) {
-        hashTable.put(column, inputColumns.get(compareColumns[column]), row);
-      }
-      occuredTimes.add(1);
-    }
+    hashTable.add(hashCode, tb, compareColumns, row);
+    occuredTimes.add(1);
   }
 
   @Override
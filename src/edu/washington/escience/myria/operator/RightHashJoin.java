@@ -7,14 +7,11 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.gs.collections.api.block.procedure.primitive.IntProcedure;
-import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
-import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
-import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.storage.JoinHashTable;
 import edu.washington.escience.myria.storage.MutableTupleBuffer;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
@@ -46,14 +43,9 @@ public final class RightHashJoin extends BinaryOperator {
   private final int[] rightCompareIndx;
 
   /**
-   * A hash table for tuples from child 2. {Hashcode -> List of tuple indices with the same hash code}
+   * A hash table for tuples from child 2.
    */
-  private transient IntObjectHashMap<IntArrayList> rightHashTableIndices;
-
-  /**
-   * The buffer holding the valid tuples from right.
-   */
-  private transient MutableTupleBuffer rightHashTable;
+  private transient JoinHashTable rightHashTable;
   /**
    * The buffer holding the results.
    */
@@ -62,52 +54,16 @@ public final class RightHashJoin extends BinaryOperator {
   private final int[] leftAnswerColumns;
   /** Which columns in the right child are to be output. */
   private final int[] rightAnswerColumns;
-
-  /**
-   * Traverse through the list of tuples with the same hash code.
-   */
-  private final class JoinProcedure implements IntProcedure {
-
-    /** serial version id. */
-    private static final long serialVersionUID = 1L;
-
-    /**
-     * Hash table.
-     */
-    private MutableTupleBuffer joinAgainstHashTable;
-
-    /**
-     *
-     * */
-    private int[] inputCmpColumns;
-
-    /**
-     * the columns to compare against.
-     */
-    private int[] joinAgainstCmpColumns;
-    /**
-     * row index of the tuple.
-     */
-    private int row;
-
-    /**
-     * input TupleBatch.
-     */
-    private TupleBatch inputTB;
-
-    @Override
-    public void value(final int index) {
-      if (TupleUtils.tupleEquals(
-          inputTB, inputCmpColumns, row, joinAgainstHashTable, joinAgainstCmpColumns, index)) {
-        addToAns(inputTB, row, joinAgainstHashTable, index);
-      }
-    }
-  };
-
-  /**
-   * Traverse through the list of tuples.
-   */
-  private transient JoinProcedure doJoin;
+  /** if TupleBatches from the left child should be probed a whole batch at a time. */
+  private boolean batchProbe = false;
+  /** The state of the batch probe, if it is used. */
+  private transient BatchHashJoinProbe probe;
+  /** The memory budget of the hash table, in bytes. 0 means unlimited. */
+  private long memoryBudget = 0;
+  /** The estimated heap memory used by the tuples in the hash table, in bytes. */
+  private transient long tupleBytes;
+  /** The partitions on disk, once the hash table has exceeded the memory budget. */
+  private transient HashJoinSpill spill;
 
   /**
    * Construct an EquiJoin operator. It returns all columns from both children when the corresponding columns in
@@ -294,8 +250,11 @@ public final class RightHashJoin extends BinaryOperator {
   @Override
   protected void cleanup() throws DbException {
     rightHashTable = null;
-    rightHashTableIndices = null;
     ans = null;
+    if (spill != null) {
+      spill.close();
+      spill = null;
+    }
   }
 
   @Override
@@ -303,6 +262,10 @@ public final class RightHashJoin extends BinaryOperator {
     final Operator left = getLeft();
     final Operator right = getRight();
 
+    if (spill != null && left.eos() && right.eos() && !spill.isDone()) {
+      /* the spilled partitions have not been joined yet. */
+      return;
+    }
     if (left.eos() && right.eos() && ans.numTuples() == 0) {
       setEOS();
       return;
@@ -385,6 +348,9 @@ public final class RightHashJoin extends BinaryOperator {
     }
 
     if (isEOIReady()) {
+      if (spill != null && left.eos()) {
+        spill.joinNext(ans);
+      }
       nexttb = ans.popAny();
     }
 
@@ -395,30 +361,50 @@ public final class RightHashJoin extends BinaryOperator {
   public void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
     final Operator right = getRight();
 
-    rightHashTableIndices = new IntObjectHashMap<>();
-    rightHashTable = new MutableTupleBuffer(right.getSchema());
+    rightHashTable = new JoinHashTable(right.getSchema());
+    if (batchProbe) {
+      probe = new BatchHashJoinProbe();
+    }
 
     ans = new TupleBatchBuffer(getSchema());
-    doJoin = new JoinProcedure();
+    tupleBytes = 0;
   }
 
   /**
    * Process the tuples from left child.
    *
    * @param tb TupleBatch to be processed.
+   * @throws DbException if the join has spilled and the tuples cannot be written.
    */
-  protected void processLeftChildTB(final TupleBatch tb) {
-    doJoin.joinAgainstHashTable = rightHashTable;
-    doJoin.inputCmpColumns = leftCompareIndx;
-    doJoin.joinAgainstCmpColumns = rightCompareIndx;
-    doJoin.inputTB = tb;
-
+  protected void processLeftChildTB(final TupleBatch tb) throws DbException {
+    if (spill != null) {
+      spill.add(tb, true);
+      return;
+    }
+    if (batchProbe) {
+      probe.hashKeys(tb, leftCompareIndx);
+      probe.probe(
+          tb,
+          leftCompareIndx,
+          rightHashTable,
+          rightCompareIndx,
+          true,
+          leftAnswerColumns,
+          rightAnswerColumns,
+          ans);
+      return;
+    }
+    final MutableTupleBuffer rightData = rightHashTable.getData();
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, leftCompareIndx, true, hashes);
     for (int row = 0; row < tb.numTuples(); ++row) {
-      final int cntHashCode = HashUtils.hashSubRow(tb, doJoin.inputCmpColumns, row);
-      IntArrayList tuplesWithHashCode = rightHashTableIndices.get(cntHashCode);
-      if (tuplesWithHashCode != null) {
-        doJoin.row = row;
-        tuplesWithHashCode.forEach(doJoin);
+      final int cntHashCode = hashes[row];
+      for (int index = rightHashTable.getFirst(cntHashCode);
+          index >= 0;
+          index = rightHashTable.getNext(index)) {
+        if (TupleUtils.tupleEquals(tb, leftCompareIndx, row, rightData, rightCompareIndx, index)) {
+          addToAns(tb, row, rightData, index);
+        }
       }
     }
   }
@@ -427,39 +413,67 @@ public final class RightHashJoin extends BinaryOperator {
    * Process the tuples from right child.
    *
    * @param tb TupleBatch to be processed.
+   * @throws DbException if the join spills and the tuples cannot be written.
    */
-  protected void processRightChildTB(final TupleBatch tb) {
-
+  protected void processRightChildTB(final TupleBatch tb) throws DbException {
+    if (spill != null) {
+      spill.add(tb, false);
+      return;
+    }
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, rightCompareIndx, true, hashes);
     for (int row = 0; row < tb.numTuples(); ++row) {
-      final int cntHashCode = HashUtils.hashSubRow(tb, rightCompareIndx, row);
-      // only build hash table on two sides if none of the children is EOS
-      addToHashTable(tb, row, rightHashTable, rightHashTableIndices, cntHashCode);
+      rightHashTable.add(hashes[row], tb, row);
+    }
+    if (memoryBudget <= 0) {
+      return;
+    }
+    tupleBytes += TupleUtils.estimateBytes(tb);
+    if (tupleBytes + rightHashTable.indexSizeInBytes() > memoryBudget) {
+      spill =
+          new HashJoinSpill(
+              getLeft().getSchema(),
+              getRight().getSchema(),
+              leftCompareIndx,
+              rightCompareIndx,
+              leftAnswerColumns,
+              rightAnswerColumns,
+              memoryBudget,
+              null,
+              rightHashTable);
+      rightHashTable = null;
     }
   }
 
   /**
-   * @param tb the source TupleBatch
-   * @param row the row number to get added to hash table
-   * @param hashTable the target hash table
-   * @param hashTable1IndicesLocal hash table 1 indices local
-   * @param hashCode the hashCode of the tb.
+   * @return the number of bytes spilled to disk.
    */
-  private void addToHashTable(
-      final TupleBatch tb,
-      final int row,
-      final MutableTupleBuffer hashTable,
-      final IntObjectHashMap<IntArrayList> hashTable1IndicesLocal,
-      final int hashCode) {
-    final int nextIndex = hashTable.numTuples();
-    IntArrayList tupleIndicesList = hashTable1IndicesLocal.get(hashCode);
-    if (tupleIndicesList == null) {
-      tupleIndicesList = new IntArrayList(1);
-      hashTable1IndicesLocal.put(hashCode, tupleIndicesList);
-    }
-    tupleIndicesList.add(nextIndex);
-    List<? extends Column<?>> inputColumns = tb.getDataColumns();
-    for (int column = 0; column < tb.numColumns(); column++) {
-      hashTable.put(column, inputColumns.get(column), row);
+  public long getBytesSpilled() {
+    if (spill == null) {
+      return 0;
     }
+    return spill.getBytesSpilled();
+  }
+
+  /**
+   * Set whether TupleBatches from the left child are probed against the hash table a whole batch at a time, using
+   * type-specialized column-wise key comparisons and a bulk copy of the output, instead of one tuple at a time.
+   *
+   * @param batchProbe whether to use the batch probe.
+   */
+  public void setBatchProbe(final boolean batchProbe) {
+    this.batchProbe = batchProbe;
+  }
+
+  /**
+   * Set the memory budget of the hash table. Once the tuples from the right child exceed it, the hash table is
+   * partitioned to disk together with all tuples that arrive afterwards, and the partitions are joined one at a time
+   * once both children are EOS.
+   *
+   * @param memoryBudget the memory budget in bytes, or 0 for no limit.
+   */
+  public void setMemoryBudget(final long memoryBudget) {
+    Preconditions.checkArgument(memoryBudget >= 0, "memory budget must be non-negative");
+    this.memoryBudget = memoryBudget;
   }
 }
@@ -0,0 +1,427 @@
+package edu.washington.escience.myria.operator;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * Sorts rows by a list of columns, each either ascending or descending, without boxing row indices. The type of each
+ * sort column is looked at once, when the comparators are built, instead of once per comparison:
+ * <ul>
+ * <li>{@link #sort} copies the sort columns into primitive arrays and sorts an <code>int[]</code> of row indices with a
+ * comparator specialized to the types of these arrays.</li>
+ * <li>{@link #compare} compares rows of two different {@link TupleBatch}es, e.g. the heads of two sorted runs being
+ * merged, with per-column comparators specialized the same way.</li>
+ * </ul>
+ * Optionally, {@link #sort} first radix sorts the rows by their {@link NormalizedKeys}, and only compares the columns of
+ * rows whose keys are equal, if the keys do not encode the sort columns completely.
+ */
+final class RowSorter {
+  /** Ranges of at most this many rows are sorted with insertion sort before being merged. */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  /** Compares two items identified by their indices. */
+  interface IndexComparator {
+    /**
+     * @param i the index of the first item.
+     * @param j the index of the second item.
+     * @return a negative value, zero, or a positive value if the first item is less than, equal to, or greater than
+     *         the second.
+     */
+    int compare(int i, int j);
+  }
+
+  /** Compares a row of a {@link TupleBatch} with a row of another. */
+  private interface BatchRowComparator {
+    /**
+     * @param left the first batch.
+     * @param leftRow the row of the first batch.
+     * @param right the second batch.
+     * @param rightRow the row of the second batch.
+     * @return a negative value, zero, or a positive value if the first row is less than, equal to, or greater than the
+     *         second.
+     */
+    int compare(TupleBatch left, int leftRow, TupleBatch right, int rightRow);
+  }
+
+  /** The schema of the rows. */
+  private final Schema schema;
+  /** Which columns to sort the rows by. */
+  private final int[] sortColumns;
+  /** True for each column that should be sorted ascending. */
+  private final boolean[] ascending;
+  /** The comparator of each sort column, for rows of two batches. */
+  private final BatchRowComparator[] batchComparators;
+  /** Whether {@link #sort} sorts by normalized keys. */
+  private final boolean normalizedKeys;
+  /** Whether the normalized keys encode the sort columns completely. */
+  private final boolean completeKeys;
+
+  /**
+   * @param schema the schema of the rows.
+   * @param sortColumns which columns to sort the rows by.
+   * @param ascending true for each column that should be sorted ascending.
+   */
+  RowSorter(final Schema schema, final int[] sortColumns, final boolean[] ascending) {
+    this(schema, sortColumns, ascending, false);
+  }
+
+  /**
+   * @param schema the schema of the rows.
+   * @param sortColumns which columns to sort the rows by.
+   * @param ascending true for each column that should be sorted ascending.
+   * @param normalizedKeys whether {@link #sort} sorts by normalized keys.
+   */
+  RowSorter(
+      final Schema schema,
+      final int[] sortColumns,
+      final boolean[] ascending,
+      final boolean normalizedKeys) {
+    Preconditions.checkArgument(
+        sortColumns.length == ascending.length,
+        "sort columns number should be equal to ascending orders number");
+    this.schema = schema;
+    this.sortColumns = sortColumns;
+    this.ascending = ascending;
+    batchComparators = new BatchRowComparator[sortColumns.length];
+    for (int i = 0; i < sortColumns.length; ++i) {
+      batchComparators[i] = batchComparator(sortColumns[i], ascending[i]);
+    }
+    this.normalizedKeys = normalizedKeys;
+    completeKeys = NormalizedKeys.isComplete(schema, sortColumns);
+  }
+
+  /**
+   * @param column the column.
+   * @param asc whether the column is sorted ascending.
+   * @return a comparator of the given column of rows of two batches.
+   */
+  private BatchRowComparator batchComparator(final int column, final boolean asc) {
+    final BatchRowComparator cmp;
+    switch (schema.getColumnType(column)) {
+      case BOOLEAN_TYPE:
+        cmp = (l, lr, r, rr) -> Boolean.compare(l.getBoolean(column, lr), r.getBoolean(column, rr));
+        break;
+      case DATETIME_TYPE:
+        cmp = (l, lr, r, rr) -> l.getDateTime(column, lr).compareTo(r.getDateTime(column, rr));
+        break;
+      case DOUBLE_TYPE:
+        cmp = (l, lr, r, rr) -> Double.compare(l.getDouble(column, lr), r.getDouble(column, rr));
+        break;
+      case FLOAT_TYPE:
+        cmp = (l, lr, r, rr) -> Float.compare(l.getFloat(column, lr), r.getFloat(column, rr));
+        break;
+      case INT_TYPE:
+        cmp = (l, lr, r, rr) -> Integer.compare(l.getInt(column, lr), r.getInt(column, rr));
+        break;
+      case LONG_TYPE:
+        cmp = (l, lr, r, rr) -> Long.compare(l.getLong(column, lr), r.getLong(column, rr));
+        break;
+      case STRING_TYPE:
+        cmp = (l, lr, r, rr) -> l.getString(column, lr).compareTo(r.getString(column, rr));
+        break;
+      default:
+        throw new IllegalArgumentException(
+            "unsupported sort column type " + schema.getColumnType(column));
+    }
+    if (asc) {
+      return cmp;
+    }
+    return (l, lr, r, rr) -> cmp.compare(r, rr, l, lr);
+  }
+
+  /**
+   * @param left the first batch.
+   * @param leftRow the row of the first batch.
+   * @param right the second batch.
+   * @param rightRow the row of the second batch.
+   * @return a negative value, zero, or a positive value if the first row sorts before, together with, or after the
+   *         second.
+   */
+  int compare(
+      final TupleBatch left, final int leftRow, final TupleBatch right, final int rightRow) {
+    for (BatchRowComparator cmp : batchComparators) {
+      final int compared = cmp.compare(left, leftRow, right, rightRow);
+      if (compared != 0) {
+        return compared;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Sort the rows of a list of batches. Rows are numbered consecutively across the batches, in order. The sort is
+   * stable.
+   *
+   * @param batches the batches.
+   * @param numTuples the total number of rows in the batches.
+   * @return the row numbers in sorted order.
+   */
+  int[] sort(final List<TupleBatch> batches, final int numTuples) {
+    final int[] rows = new int[numTuples];
+    for (int i = 0; i < numTuples; ++i) {
+      rows[i] = i;
+    }
+    if (!normalizedKeys) {
+      sort(rows, 0, numTuples, rowComparator(batches, numTuples));
+      return rows;
+    }
+
+    final long[] keys = NormalizedKeys.build(batches, numTuples, sortColumns, ascending);
+    NormalizedKeys.radixSort(rows, keys);
+    if (completeKeys) {
+      return rows;
+    }
+    /* Sort the ranges of equal keys by comparing the columns. */
+    IndexComparator cmp = null;
+    int start = 0;
+    while (start < numTuples) {
+      int end = start + 1;
+      while (end < numTuples && keys[end] == keys[start]) {
+        ++end;
+      }
+      if (end - start > 1) {
+        if (cmp == null) {
+          cmp = rowComparator(batches, numTuples);
+        }
+        sort(rows, start, end, cmp);
+      }
+      start = end;
+    }
+    return rows;
+  }
+
+  /**
+   * @param batches the batches.
+   * @param numTuples the total number of rows in the batches.
+   * @return a comparator of the row numbers of the batches, on copies of the sort columns.
+   */
+  private IndexComparator rowComparator(final List<TupleBatch> batches, final int numTuples) {
+    final IndexComparator[] comparators = new IndexComparator[sortColumns.length];
+    for (int i = 0; i < sortColumns.length; ++i) {
+      comparators[i] = extractKeys(batches, numTuples, sortColumns[i], ascending[i]);
+    }
+    if (comparators.length == 1) {
+      return comparators[0];
+    }
+    return (i, j) -> {
+      for (IndexComparator c : comparators) {
+        final int compared = c.compare(i, j);
+        if (compared != 0) {
+          return compared;
+        }
+      }
+      return 0;
+    };
+  }
+
+  /**
+   * Copy a column of a list of batches into a primitive array.
+   *
+   * @param batches the batches.
+   * @param numTuples the total number of rows in the batches.
+   * @param column the column.
+   * @param asc whether the column is sorted ascending.
+   * @return a comparator of row numbers on the copied column.
+   */
+  private IndexComparator extractKeys(
+      final List<TupleBatch> batches, final int numTuples, final int column, final boolean asc) {
+    int row = 0;
+    switch (schema.getColumnType(column)) {
+      case BOOLEAN_TYPE:
+        {
+          final boolean[] keys = new boolean[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getBoolean(column, i);
+            }
+          }
+          if (asc) {
+            return (i, j) -> Boolean.compare(keys[i], keys[j]);
+          }
+          return (i, j) -> Boolean.compare(keys[j], keys[i]);
+        }
+      case DATETIME_TYPE:
+        {
+          /* DateTime instances compare by their milliseconds. */
+          final long[] keys = new long[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getDateTime(column, i).getMillis();
+            }
+          }
+          return longComparator(keys, asc);
+        }
+      case DOUBLE_TYPE:
+        {
+          final double[] keys = new double[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getDouble(column, i);
+            }
+          }
+          if (asc) {
+            return (i, j) -> Double.compare(keys[i], keys[j]);
+          }
+          return (i, j) -> Double.compare(keys[j], keys[i]);
+        }
+      case FLOAT_TYPE:
+        {
+          final float[] keys = new float[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getFloat(column, i);
+            }
+          }
+          if (asc) {
+            return (i, j) -> Float.compare(keys[i], keys[j]);
+          }
+          return (i, j) -> Float.compare(keys[j], keys[i]);
+        }
+      case INT_TYPE:
+        {
+          final int[] keys = new int[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getInt(column, i);
+            }
+          }
+          if (asc) {
+            return (i, j) -> Integer.compare(keys[i], keys[j]);
+          }
+          return (i, j) -> Integer.compare(keys[j], keys[i]);
+        }
+      case LONG_TYPE:
+        {
+          final long[] keys = new long[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getLong(column, i);
+            }
+          }
+          return longComparator(keys, asc);
+        }
+      case STRING_TYPE:
+        {
+          final String[] keys = new String[numTuples];
+          for (TupleBatch tb : batches) {
+            for (int i = 0; i < tb.numTuples(); ++i) {
+              keys[row++] = tb.getString(column, i);
+            }
+          }
+          if (asc) {
+            return (i, j) -> keys[i].compareTo(keys[j]);
+          }
+          return (i, j) -> keys[j].compareTo(keys[i]);
+        }
+      default:
+        throw new IllegalArgumentException(
+            "unsupported sort column type " + schema.getColumnType(column));
+    }
+  }
+
+  /**
+   * @param keys the keys.
+   * @param asc whether the keys are sorted ascending.
+   * @return a comparator of indices into the keys.
+   */
+  private static IndexComparator longComparator(final long[] keys, final boolean asc) {
+    if (asc) {
+      return (i, j) -> Long.compare(keys[i], keys[j]);
+    }
+    return (i, j) -> Long.compare(keys[j], keys[i]);
+  }
+
+  /**
+   * Stable sort of a range of an array of indices: a bottom-up merge sort over ranges that are first sorted with
+   * insertion sort.
+   *
+   * @param indices the indices.
+   * @param from the first index of the range, inclusive.
+   * @param to the last index of the range, exclusive.
+   * @param cmp the comparator of the indices.
+   */
+  static void sort(final int[] indices, final int from, final int to, final IndexComparator cmp) {
+    for (int start = from; start < to; start += INSERTION_SORT_THRESHOLD) {
+      insertionSort(indices, start, Math.min(start + INSERTION_SORT_THRESHOLD, to), cmp);
+    }
+    final int length = to - from;
+    if (length <= INSERTION_SORT_THRESHOLD) {
+      return;
+    }
+    /* src and dst hold the range at [0, length). */
+    int[] src = new int[length];
+    System.arraycopy(indices, from, src, 0, length);
+    int[] dst = new int[length];
+    for (long width = INSERTION_SORT_THRESHOLD; width < length; width *= 2) {
+      for (long lo = 0; lo < length; lo += 2 * width) {
+        final int mid = (int) Math.min(lo + width, length);
+        final int hi = (int) Math.min(lo + 2 * width, length);
+        merge(src, dst, (int) lo, mid, hi, cmp);
+      }
+      final int[] tmp = src;
+      src = dst;
+      dst = tmp;
+    }
+    System.arraycopy(src, 0, indices, from, length);
+  }
+
+  /**
+   * @param indices the indices.
+   * @param from the first index of the range, inclusive.
+   * @param to the last index of the range, exclusive.
+   * @param cmp the comparator of the indices.
+   */
+  private static void insertionSort(
+      final int[] indices, final int from, final int to, final IndexComparator cmp) {
+    for (int i = from + 1; i < to; ++i) {
+      final int current = indices[i];
+      int j = i - 1;
+      while (j >= from && cmp.compare(indices[j], current) > 0) {
+        indices[j + 1] = indices[j];
+        --j;
+      }
+      indices[j + 1] = current;
+    }
+  }
+
+  /**
+   * Merge the sorted ranges [lo, mid) and [mid, hi) of src into the same range of dst.
+   *
+   * @param src the source array.
+   * @param dst the destination array.
+   * @param lo the start of the first range.
+   * @param mid the end of the first range and start of the second.
+   * @param hi the end of the second range.
+   * @param cmp the comparator of the indices.
+   */
+  private static void merge(
+      final int[] src,
+      final int[] dst,
+      final int lo,
+      final int mid,
+      final int hi,
+      final IndexComparator cmp) {
+    if (mid == hi || cmp.compare(src[mid - 1], src[mid]) <= 0) {
+      /* Already in order. */
+      System.arraycopy(src, lo, dst, lo, hi - lo);
+      return;
+    }
+    int i = lo;
+    int j = mid;
+    int k = lo;
+    while (i < mid && j < hi) {
+      if (cmp.compare(src[j], src[i]) < 0) {
+        dst[k++] = src[j++];
+      } else {
+        dst[k++] = src[i++];
+      }
+    }
+    System.arraycopy(src, i, dst, k, mid - i);
+    k += mid - i;
+    System.arraycopy(src, j, dst, k, hi - j);
+  }
+}
@@ -0,0 +1,194 @@
+package edu.washington.escience.myria.operator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+import com.google.protobuf.CodedOutputStream;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.util.FSUtils;
+import edu.washington.escience.myria.util.HashUtils;
+import edu.washington.escience.myria.util.IPCUtils;
+
+/**
+ * A temporary directory holding the runs of an operator that spills hash partitions of its input to disk, such as
+ * {@link HashJoinSpill} and the aggregate spill.
+ *
+ * A run is a sequence of length-delimited {@link TransportMessage}s, the same encoding that is used to send tuples over
+ * the network. Partitions are chosen by the high bits of the hash code of the key of each row, {@link #PARTITION_BITS}
+ * more bits at each level, so that a partition can be partitioned again if it is still too large.
+ */
+public final class SpillDirectory {
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      org.slf4j.LoggerFactory.getLogger(SpillDirectory.class);
+
+  /** The number of bits of the hash code used to choose a partition at each level. */
+  public static final int PARTITION_BITS = 4;
+  /** The number of partitions at each level. */
+  public static final int NUM_PARTITIONS = 1 << PARTITION_BITS;
+
+  /** The directory. */
+  private final File directory;
+  /** The number of run files created so far, used to name them. */
+  private int numFiles = 0;
+  /** The total number of bytes written to disk. */
+  private long bytesSpilled = 0;
+
+  /**
+   * @param prefix the prefix of the name of the directory.
+   * @throws IOException if the directory cannot be created.
+   */
+  public SpillDirectory(final String prefix) throws IOException {
+    directory = Files.createTempDirectory(prefix).toFile();
+  }
+
+  /**
+   * @return a new, empty run. Its file is only created when the first tuple is written to it.
+   */
+  public Run newRun() {
+    return new Run();
+  }
+
+  /**
+   * @return the number of bytes written to disk so far.
+   */
+  public long getBytesSpilled() {
+    return bytesSpilled;
+  }
+
+  /**
+   * Delete the directory and all its runs. Runs being read or written must be closed first.
+   */
+  public void delete() {
+    try {
+      FSUtils.deleteFileFolder(directory);
+    } catch (IOException e) {
+      LOGGER.warn("failed to delete spill directory {}", directory, e);
+    }
+  }
+
+  /**
+   * Split the rows of a batch into the partitions chosen by the hash codes of their keys.
+   *
+   * @param tb the batch.
+   * @param keyColumns the key columns of the batch.
+   * @param rows the rows to split, or null for all the rows of the batch.
+   * @param level the partitioning level, i.e., which bits of the hash code choose the partition.
+   * @return the rows of each partition, or null for a partition without rows.
+   */
+  public static BitSet[] partitionRows(
+      final TupleBatch tb, final int[] keyColumns, final BitSet rows, final int level) {
+    final int shift = Integer.SIZE - PARTITION_BITS * (level + 1);
+    final BitSet[] partitionRows = new BitSet[NUM_PARTITIONS];
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, keyColumns, true, hashes);
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      if (rows != null && !rows.get(row)) {
+        continue;
+      }
+      final int p = (hashes[row] >>> shift) & (NUM_PARTITIONS - 1);
+      if (partitionRows[p] == null) {
+        partitionRows[p] = new BitSet(tb.numTuples());
+      }
+      partitionRows[p].set(row);
+    }
+    return partitionRows;
+  }
+
+  /**
+   * @param in an input stream of a run.
+   * @param schema the schema of the run.
+   * @return the next batch of the run, or null at the end of the run.
+   * @throws IOException if the run cannot be read.
+   */
+  public static TupleBatch readBatch(final InputStream in, final Schema schema) throws IOException {
+    final TransportMessage tm = TransportMessage.parseDelimitedFrom(in);
+    if (tm == null) {
+      return null;
+    }
+    return IPCUtils.tmToTupleBatch(tm.getDataMessage(), schema);
+  }
+
+  /**
+   * A file of tuples in the directory, written once and then read any number of times.
+   */
+  public final class Run {
+    /** The file of this run, or null if it is empty. */
+    private File file;
+    /** The output stream of this run while it is being written. */
+    private OutputStream output;
+
+    /**
+     * Only {@link SpillDirectory#newRun()} creates runs.
+     */
+    private Run() {}
+
+    /**
+     * @param tb the tuples to append to this run.
+     * @throws IOException if the tuples cannot be written.
+     */
+    public void write(final TupleBatch tb) throws IOException {
+      if (output == null) {
+        file = new File(directory, "run" + numFiles++);
+        output = new BufferedOutputStream(new FileOutputStream(file));
+      }
+      final TransportMessage tm = tb.toTransportMessage();
+      final int size = tm.getSerializedSize();
+      tm.writeDelimitedTo(output);
+      bytesSpilled += CodedOutputStream.computeRawVarint32Size(size) + size;
+    }
+
+    /**
+     * Close this run for writing.
+     *
+     * @throws IOException if the run cannot be closed.
+     */
+    public void finishWriting() throws IOException {
+      if (output != null) {
+        output.close();
+        output = null;
+      }
+    }
+
+    /**
+     * @return whether no tuple has been written to this run.
+     */
+    public boolean isEmpty() {
+      return file == null;
+    }
+
+    /**
+     * @return an input stream over this run, or null if it is empty.
+     * @throws IOException if the run cannot be opened.
+     */
+    public InputStream open() throws IOException {
+      if (file == null) {
+        return null;
+      }
+      return new BufferedInputStream(new FileInputStream(file));
+    }
+
+    /**
+     * Delete the file of this run.
+     *
+     * @throws IOException if the run cannot be deleted.
+     */
+    public void delete() throws IOException {
+      if (file != null) {
+        FSUtils.deleteFileFolder(file);
+        file = null;
+      }
+    }
+  }
+}
@@ -1,20 +1,17 @@
 package edu.washington.escience.myria.operator;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.gs.collections.api.block.procedure.primitive.IntProcedure;
 import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
-import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
-import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.storage.JoinHashTable;
 import edu.washington.escience.myria.storage.MutableTupleBuffer;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
@@ -33,14 +30,10 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
   private final int[] leftCompareIndx;
   /** The column indices for comparing of right child. */
   private final int[] rightCompareIndx;
-  /** A hash table for tuples from left child. {Hashcode -> List of tuple indices with the same hash code} */
-  private transient IntObjectHashMap<IntArrayList> leftHashTableIndices;
-  /** A hash table for tuples from right child. {Hashcode -> List of tuple indices with the same hash code} */
-  private transient IntObjectHashMap<IntArrayList> rightHashTableIndices;
-  /** The buffer holding the valid tuples from left. */
-  private transient MutableTupleBuffer leftHashTable;
-  /** The buffer holding the valid tuples from right. */
-  private transient MutableTupleBuffer rightHashTable;
+  /** A hash table holding the distinct join keys from left child. */
+  private transient JoinHashTable leftHashTable;
+  /** A hash table holding the distinct join keys from right child. */
+  private transient JoinHashTable rightHashTable;
   /** How many times each key occurred from left. */
   private transient IntArrayList occuredTimesOnLeft;
   /** How many times each key occurred from right. */
@@ -51,62 +44,11 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
   private transient TupleBatchBuffer ansTBB;
   /** The name of the single column output from this operator. */
   private final String columnName;
-  /**
-   * Traverse through the list of tuples.
-   */
-  private transient CountingJoinProcedure doCountingJoin;
-
   /**
    * Whether this operator has returned answer or not.
    */
   private boolean hasReturnedAnswer = false;
 
-  /**
-   * Traverse through the list of tuples with the same hash code.
-   */
-  private final class CountingJoinProcedure implements IntProcedure {
-
-    /** serial version id. */
-    private static final long serialVersionUID = 1L;
-
-    /**
-     * Hash table.
-     */
-    private MutableTupleBuffer joinAgainstHashTable;
-
-    /**
-     * times of occure of a key.
-     */
-    private IntArrayList occuredTimesOnJoinAgainstChild;
-    /**
-     * Join columns in the input.
-     */
-    private int[] inputCmpColumns;
-
-    /**
-     * Join columns in the other table.
-     */
-    private int[] otherCmpColumns;
-
-    /**
-     * row index of the tuple.
-     */
-    private int row;
-
-    /**
-     * input TupleBatch.
-     */
-    private TupleBatch inputTB;
-
-    @Override
-    public void value(final int index) {
-      if (TupleUtils.tupleEquals(
-          inputTB, inputCmpColumns, row, joinAgainstHashTable, otherCmpColumns, index)) {
-        ans += occuredTimesOnJoinAgainstChild.get(index);
-      }
-    }
-  };
-
   /**
    * Construct a {@link SymmetricHashCountingJoin}.
    *
@@ -184,8 +126,6 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
     rightHashTable = null;
     occuredTimesOnLeft = null;
     occuredTimesOnRight = null;
-    leftHashTableIndices = null;
-    rightHashTableIndices = null;
     ansTBB = null;
     ans = 0;
   }
@@ -293,15 +233,12 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
 
   @Override
   public void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
-    leftHashTableIndices = new IntObjectHashMap<>();
-    rightHashTableIndices = new IntObjectHashMap<>();
     occuredTimesOnLeft = new IntArrayList();
     occuredTimesOnRight = new IntArrayList();
-    leftHashTable = new MutableTupleBuffer(getLeft().getSchema().getSubSchema(leftCompareIndx));
-    rightHashTable = new MutableTupleBuffer(getRight().getSchema().getSubSchema(rightCompareIndx));
+    leftHashTable = new JoinHashTable(getLeft().getSchema().getSubSchema(leftCompareIndx));
+    rightHashTable = new JoinHashTable(getRight().getSchema().getSubSchema(rightCompareIndx));
     ans = 0;
     ansTBB = new TupleBatchBuffer(getSchema());
-    doCountingJoin = new CountingJoinProcedure();
   }
 
   /**
@@ -313,69 +250,58 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
     final Operator left = getLeft();
     final Operator right = getRight();
 
-    MutableTupleBuffer hashTable1Local = null;
-    IntObjectHashMap<IntArrayList> hashTable1IndicesLocal = null;
-    IntObjectHashMap<IntArrayList> hashTable2IndicesLocal = null;
-    IntArrayList ownOccuredTimes = null;
+    final JoinHashTable joinAgainstHashTable;
+    final int[] inputCmpColumns;
+    final IntArrayList ownOccuredTimes;
+    final IntArrayList occuredTimesOnJoinAgainstChild;
     if (fromLeft) {
-      hashTable1Local = leftHashTable;
-      doCountingJoin.joinAgainstHashTable = rightHashTable;
-      hashTable1IndicesLocal = leftHashTableIndices;
-      hashTable2IndicesLocal = rightHashTableIndices;
-      doCountingJoin.inputCmpColumns = leftCompareIndx;
-      doCountingJoin.otherCmpColumns = rightCompareIndx;
-      doCountingJoin.occuredTimesOnJoinAgainstChild = occuredTimesOnRight;
+      joinAgainstHashTable = rightHashTable;
+      inputCmpColumns = leftCompareIndx;
       ownOccuredTimes = occuredTimesOnLeft;
+      occuredTimesOnJoinAgainstChild = occuredTimesOnRight;
     } else {
-      hashTable1Local = rightHashTable;
-      doCountingJoin.joinAgainstHashTable = leftHashTable;
-      hashTable1IndicesLocal = rightHashTableIndices;
-      hashTable2IndicesLocal = leftHashTableIndices;
-      doCountingJoin.inputCmpColumns = rightCompareIndx;
-      doCountingJoin.otherCmpColumns = leftCompareIndx;
-      doCountingJoin.occuredTimesOnJoinAgainstChild = occuredTimesOnLeft;
+      joinAgainstHashTable = leftHashTable;
+      inputCmpColumns = rightCompareIndx;
       ownOccuredTimes = occuredTimesOnRight;
+      occuredTimesOnJoinAgainstChild = occuredTimesOnLeft;
     }
-    doCountingJoin.inputTB = tb;
 
     if (left.eos() && !right.eos()) {
       /*
        * delete right child's hash table if the left child is EOS, since there will be no incoming tuples from right as
        * it will never be probed again.
        */
-      rightHashTableIndices = null;
       rightHashTable = null;
     } else if (right.eos() && !left.eos()) {
       /*
        * delete left child's hash table if the right child is EOS, since there will be no incoming tuples from left as
        * it will never be probed again.
        */
-      leftHashTableIndices = null;
       leftHashTable = null;
     }
+    final JoinHashTable ownHashTable = fromLeft ? leftHashTable : rightHashTable;
+    final MutableTupleBuffer joinAgainstData = joinAgainstHashTable.getData();
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, inputCmpColumns, true, hashes);
 
     for (int row = 0; row < tb.numTuples(); ++row) {
 
       /*
        * update number of count of probing the other child's hash table.
        */
-      final int cntHashCode = HashUtils.hashSubRow(tb, doCountingJoin.inputCmpColumns, row);
-      IntArrayList tuplesWithHashCode = hashTable2IndicesLocal.get(cntHashCode);
-      if (tuplesWithHashCode != null) {
-        doCountingJoin.row = row;
-        tuplesWithHashCode.forEach(doCountingJoin);
+      final int cntHashCode = hashes[row];
+      for (int index = joinAgainstHashTable.getFirst(cntHashCode);
+          index >= 0;
+          index = joinAgainstHashTable.getNext(index)) {
+        if (TupleUtils.tupleEquals(tb, inputCmpColumns, row, joinAgainstData, index)) {
+          ans += occuredTimesOnJoinAgainstChild.get(index);
+        }
       }
 
-      if (hashTable1Local != null) {
+      if (ownHashTable != null) {
         // only build hash table on two sides if none of the children is EOS
         updateHashTableAndOccureTimes(
-            tb,
-            row,
-            cntHashCode,
-            hashTable1Local,
-            hashTable1IndicesLocal,
-            doCountingJoin.inputCmpColumns,
-            ownOccuredTimes);
+            tb, row, cntHashCode, ownHashTable, inputCmpColumns, ownOccuredTimes);
       }
     }
   }
@@ -409,7 +335,6 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
    * @param row the row number of the to be processed tuple in the source TupleBatch
    * @param hashCode the hashCode of the to be processed tuple
    * @param hashTable the hash table to be updated
-   * @param hashTableIndices the hash indices to be updated
    * @param compareColumns compareColumns of input tuple
    * @param occuredTimes occuredTimes array to be updated
    */
@@ -417,41 +342,21 @@ public final class SymmetricHashCountingJoin extends BinaryOperator {
       final TupleBatch tb,
       final int row,
       final int hashCode,
-      final MutableTupleBuffer hashTable,
-      final IntObjectHashMap<IntArrayList> hashTableIndices,
+      final JoinHashTable hashTable,
       final int[] compareColumns,
       final IntArrayList occuredTimes) {
-
-    /* get the index of the tuple's hash code corresponding to */
-    final int nextIndex = hashTable.numTuples();
-    IntArrayList tupleIndicesList = hashTableIndices.get(hashCode);
-
-    /* create one is there is no such a index yet (there is no tuple with the same hash code has been processed ) */
-    if (tupleIndicesList == null) {
-      tupleIndicesList = new IntArrayList(1);
-      hashTableIndices.put(hashCode, tupleIndicesList);
-    }
-
-    Preconditions.checkArgument(hashTable.numColumns() == compareColumns.length);
-    List<? extends Column<?>> inputColumns = tb.getDataColumns();
+    Preconditions.checkArgument(hashTable.getData().numColumns() == compareColumns.length);
 
     /* find whether this tuple's comparing key has occured before. If it is, only update occurred times */
-    boolean found = false;
-    for (int i = 0; i < tupleIndicesList.size(); ++i) {
-      int index = tupleIndicesList.get(i);
-      if (TupleUtils.tupleEquals(tb, compareColumns, row, hashTable, index)) {
+    final MutableTupleBuffer data = hashTable.getData();
+    for (int index = hashTable.getFirst(hashCode); index >= 0; index = hashTable.getNext(index)) {
+      if (TupleUtils.tupleEquals(tb, compareColumns, row, data, index)) {
         occuredTimes.set(index, occuredTimes.get(index) + 1);
-        found = true;
-        break;
+        return;
       }
     }
 
-    if (!found) {
-      tupleIndicesList.add(nextIndex);
-      for (int column = 0; column < hashTable.numColumns(); ++column) {
-        hashTable.put(column, inputColumns.get(compareColumns[column]), row);
-      }
-      occuredTimes.add(1);
-    }
+    hashTable.add(hashCode, tb, compareColumns, row);
+    occuredTimes.add(1);
   }
 }
@@ -7,9 +7,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.gs.collections.api.block.procedure.primitive.IntProcedure;
-import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
-import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
@@ -17,6 +14,7 @@ import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.column.Column;
 import edu.washington.escience.myria.parallel.QueryExecutionMode;
+import edu.washington.escience.myria.storage.JoinHashTable;
 import edu.washington.escience.myria.storage.MutableTupleBuffer;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
@@ -46,22 +44,14 @@ public final class SymmetricHashJoin extends BinaryOperator {
    */
   private final int[] rightCompareIndx;
   /**
-   * A hash table for tuples from child 1. {Hashcode -> List of tuple indices with the same hash code}
+   * A hash table for tuples from child 1.
    */
-  private transient IntObjectHashMap<IntArrayList> leftHashTableIndices;
+  private transient JoinHashTable leftHashTable;
   /**
-   * A hash table for tuples from child 2. {Hashcode -> List of tuple indices with the same hash code}
+   * A hash table for tuples from child 2.
    */
-  private transient IntObjectHashMap<IntArrayList> rightHashTableIndices;
+  private transient JoinHashTable rightHashTable;
 
-  /**
-   * The buffer holding the valid tuples from left.
-   */
-  private transient MutableTupleBuffer hashTable1;
-  /**
-   * The buffer holding the valid tuples from right.
-   */
-  private transient MutableTupleBuffer hashTable2;
   /**
    * The buffer holding the results.
    */
@@ -71,103 +61,6 @@ public final class SymmetricHashJoin extends BinaryOperator {
   /** Which columns in the right child are to be output. */
   private final int[] rightAnswerColumns;
 
-  /**
-   * Traverse through the list of tuples with the same hash code.
-   */
-  private final class JoinProcedure implements IntProcedure {
-
-    /** serialization id. */
-    private static final long serialVersionUID = 1L;
-
-    /**
-     * Hash table.
-     */
-    private MutableTupleBuffer joinAgainstHashTable;
-
-    /**
-     *
-     * */
-    private int[] inputCmpColumns;
-
-    /**
-     * the columns to compare against.
-     */
-    private int[] joinAgainstCmpColumns;
-    /**
-     * row index of the tuple.
-     */
-    private int row;
-
-    /**
-     * input TupleBatch.
-     */
-    private TupleBatch inputTB;
-    /**
-     * if the tuple which is comparing against the list of tuples with the same hash code is from left child.
-     */
-    private boolean fromLeft;
-
-    @Override
-    public void value(final int index) {
-      if (TupleUtils.tupleEquals(
-          inputTB, inputCmpColumns, row, joinAgainstHashTable, joinAgainstCmpColumns, index)) {
-        addToAns(inputTB, row, joinAgainstHashTable, index, fromLeft);
-      }
-    }
-  };
-
-  /**
-   * Traverse through the list of tuples with the same hash code.
-   */
-  private final class ReplaceProcedure implements IntProcedure {
-
-    /** serialization id. */
-    private static final long serialVersionUID = 1L;
-
-    /**
-     * Hash table.
-     */
-    private MutableTupleBuffer hashTable;
-
-    /**
-     * the columns to compare against.
-     */
-    private int[] keyColumns;
-    /**
-     * row index of the tuple.
-     */
-    private int row;
-
-    /**
-     * input TupleBatch.
-     */
-    private TupleBatch inputTB;
-
-    /** if found a replacement. */
-    private boolean replaced;
-
-    @Override
-    public void value(final int index) {
-      if (TupleUtils.tupleEquals(inputTB, keyColumns, row, hashTable, keyColumns, index)) {
-        replaced = true;
-        List<? extends Column<?>> columns = inputTB.getDataColumns();
-        for (int j = 0; j < inputTB.numColumns(); ++j) {
-          hashTable.replace(j, index, columns.get(j), row);
-        }
-      }
-    }
-  };
-
-  /**
-   * Traverse through the list of tuples.
-   */
-  private transient JoinProcedure doJoin;
-
-  /**
-   * Traverse through the list of tuples and replace old values.
-   */
-  private transient ReplaceProcedure doReplace;
-
   /** Whether the last child polled was the left child. */
   private boolean pollLeft = false;
 
@@ -179,6 +72,18 @@ public final class SymmetricHashJoin extends BinaryOperator {
   /** if the hash table of the right child should use set semantics. */
   private boolean setSemanticsRight = false;
 
+  /** if incoming TupleBatches should be probed a whole batch at a time. */
+  private boolean batchProbe = false;
+  /** The state of the batch probe, if it is used. */
+  private transient BatchHashJoinProbe probe;
+
+  /** The memory budget of the hash tables, in bytes. 0 means unlimited. */
+  private long memoryBudget = 0;
+  /** The estimated heap memory used by the tuples in both hash tables, in bytes. */
+  private transient long tupleBytes;
+  /** The partitions on disk, once the hash tables have exceeded the memory budget. */
+  private transient HashJoinSpill spill;
+
   /**
    * Construct an EquiJoin operator. It returns all columns from both children when the corresponding columns in
    * compareIndx1 and compareIndx2 match.
@@ -445,9 +350,27 @@ public final class SymmetricHashJoin extends BinaryOperator {
 
   @Override
   protected void cleanup() throws DbException {
-    hashTable1 = null;
-    hashTable2 = null;
+    leftHashTable = null;
+    rightHashTable = null;
     ans = null;
+    if (spill != null) {
+      spill.close();
+      spill = null;
+    }
+  }
+
+  /**
+   * Pop any tuples in the answer buffer. If the join has spilled and both children are EOS, the spilled partitions are
+   * joined first.
+   *
+   * @return the next result TB, or null if there is none.
+   * @throws DbException if any error occurs.
+   */
+  private TupleBatch popAnyResult() throws DbException {
+    if (spill != null && getLeft().eos() && getRight().eos()) {
+      spill.joinNext(ans);
+    }
+    return ans.popAny();
   }
 
   /**
@@ -491,7 +414,7 @@ public final class SymmetricHashJoin extends BinaryOperator {
       }
     }
     if (nexttb == null) {
-      nexttb = ans.popAny();
+      nexttb = popAnyResult();
     }
     return nexttb;
   }
@@ -501,6 +424,10 @@ public final class SymmetricHashJoin extends BinaryOperator {
     final Operator left = getLeft();
     final Operator right = getRight();
 
+    if (spill != null && left.eos() && right.eos() && !spill.isDone()) {
+      /* the spilled partitions have not been joined yet. */
+      return;
+    }
     if (left.eos() && right.eos() && ans.numTuples() == 0) {
       setEOS();
       return;
@@ -572,7 +499,7 @@ public final class SymmetricHashJoin extends BinaryOperator {
      * set EOS or EOI.
      */
     if (isEOIReady()) {
-      nexttb = ans.popAny();
+      nexttb = popAnyResult();
       if (nexttb == null) {
         checkEOSAndEOI();
       }
@@ -633,7 +560,7 @@ public final class SymmetricHashJoin extends BinaryOperator {
      * and/or EOS
      */
     if (isEOIReady()) {
-      nexttb = ans.popAny();
+      nexttb = popAnyResult();
       if (nexttb == null) {
         checkEOSAndEOI();
       }
@@ -645,19 +572,21 @@ public final class SymmetricHashJoin extends BinaryOperator {
   public void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
     final Operator left = getLeft();
     final Operator right = getRight();
-    leftHashTableIndices = new IntObjectHashMap<IntArrayList>();
-    rightHashTableIndices = new IntObjectHashMap<IntArrayList>();
-
-    hashTable1 = new MutableTupleBuffer(left.getSchema());
-    hashTable2 = new MutableTupleBuffer(right.getSchema());
+    leftHashTable = new JoinHashTable(left.getSchema());
+    rightHashTable = new JoinHashTable(right.getSchema());
 
     ans = new TupleBatchBuffer(getSchema());
 
     nonBlocking =
         (QueryExecutionMode) execEnvVars.get(MyriaConstants.EXEC_ENV_VAR_EXECUTION_MODE)
             == QueryExecutionMode.NON_BLOCKING;
-    doJoin = new JoinProcedure();
-    doReplace = new ReplaceProcedure();
+    if (batchProbe) {
+      probe = new BatchHashJoinProbe();
+    }
+    Preconditions.checkState(
+        memoryBudget == 0 || !(setSemanticsLeft || setSemanticsRight),
+        "a memory budget cannot be used with set semantics");
+    tupleBytes = 0;
   }
 
   /**
@@ -668,113 +597,158 @@ public final class SymmetricHashJoin extends BinaryOperator {
   /**
    * @param tb the incoming TupleBatch for processing join.
    * @param fromLeft if the tb is from left.
+   * @throws DbException if the join spills and the spilled tuples cannot be written.
    */
-  protected void processChildTB(final TupleBatch tb, final boolean fromLeft) {
+  protected void processChildTB(final TupleBatch tb, final boolean fromLeft) throws DbException {
+    if (spill != null) {
+      spill.add(tb, fromLeft);
+      return;
+    }
     final Operator left = getLeft();
     final Operator right = getRight();
 
-    if (left.eos() && rightHashTableIndices != null) {
+    if (left.eos() && rightHashTable != null) {
       /*
        * delete right child's hash table if the left child is EOS, since there will be no incoming tuples from right as
        * it will never be probed again.
        */
-      rightHashTableIndices = null;
-      hashTable2 = null;
+      rightHashTable = null;
     }
-    if (right.eos() && leftHashTableIndices != null) {
+    if (right.eos() && leftHashTable != null) {
       /*
        * delete left child's hash table if the right child is EOS, since there will be no incoming tuples from left as
        * it will never be probed again.
        */
-      leftHashTableIndices = null;
-      hashTable1 = null;
+      leftHashTable = null;
     }
 
     final boolean useSetSemantics = fromLeft && setSemanticsLeft || !fromLeft && setSemanticsRight;
-    MutableTupleBuffer hashTable1Local = null;
-    IntObjectHashMap<IntArrayList> hashTable1IndicesLocal = null;
-    IntObjectHashMap<IntArrayList> hashTable2IndicesLocal = null;
+    final JoinHashTable ownHashTable;
+    final JoinHashTable joinAgainstHashTable;
+    final int[] inputCmpColumns;
+    final int[] joinAgainstCmpColumns;
     if (fromLeft) {
-      hashTable1Local = hashTable1;
-      doJoin.joinAgainstHashTable = hashTable2;
-      hashTable1IndicesLocal = leftHashTableIndices;
-      hashTable2IndicesLocal = rightHashTableIndices;
-      doJoin.inputCmpColumns = leftCompareIndx;
-      doJoin.joinAgainstCmpColumns = rightCompareIndx;
-      if (useSetSemantics) {
-        doReplace.hashTable = hashTable1;
-        doReplace.keyColumns = leftCompareIndx;
-      }
+      ownHashTable = leftHashTable;
+      joinAgainstHashTable = rightHashTable;
+      inputCmpColumns = leftCompareIndx;
+      joinAgainstCmpColumns = rightCompareIndx;
     } else {
-      hashTable1Local = hashTable2;
-      doJoin.joinAgainstHashTable = hashTable1;
-      hashTable1IndicesLocal = rightHashTableIndices;
-      hashTable2IndicesLocal = leftHashTableIndices;
-      doJoin.inputCmpColumns = rightCompareIndx;
-      doJoin.joinAgainstCmpColumns = leftCompareIndx;
-      if (useSetSemantics) {
-        doReplace.hashTable = hashTable2;
-        doReplace.keyColumns = rightCompareIndx;
+      ownHashTable = rightHashTable;
+      joinAgainstHashTable = leftHashTable;
+      inputCmpColumns = rightCompareIndx;
+      joinAgainstCmpColumns = leftCompareIndx;
+    }
+    if (batchProbe) {
+      /* The rows of one batch never join each other, so probe them all before adding them to the hash table. */
+      final int[] hashes = probe.hashKeys(tb, inputCmpColumns);
+      probe.probe(
+          tb,
+          inputCmpColumns,
+          joinAgainstHashTable,
+          joinAgainstCmpColumns,
+          fromLeft,
+          leftAnswerColumns,
+          rightAnswerColumns,
+          ans);
+      if (ownHashTable != null) {
+        for (int row = 0; row < tb.numTuples(); ++row) {
+          addToHashTable(tb, row, ownHashTable, inputCmpColumns, hashes[row], useSetSemantics);
+        }
+        spillIfOverBudget(tb);
       }
-    }
-    doJoin.fromLeft = fromLeft;
-    doJoin.inputTB = tb;
-    if (useSetSemantics) {
-      doReplace.inputTB = tb;
+      return;
     }
 
+    final MutableTupleBuffer joinAgainstData = joinAgainstHashTable.getData();
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, inputCmpColumns, true, hashes);
     for (int row = 0; row < tb.numTuples(); ++row) {
-      final int cntHashCode = HashUtils.hashSubRow(tb, doJoin.inputCmpColumns, row);
-      IntArrayList tuplesWithHashCode = hashTable2IndicesLocal.get(cntHashCode);
-      if (tuplesWithHashCode != null) {
-        doJoin.row = row;
-        tuplesWithHashCode.forEach(doJoin);
+      final int cntHashCode = hashes[row];
+      for (int index = joinAgainstHashTable.getFirst(cntHashCode);
+          index >= 0;
+          index = joinAgainstHashTable.getNext(index)) {
+        if (TupleUtils.tupleEquals(
+            tb, inputCmpColumns, row, joinAgainstData, joinAgainstCmpColumns, index)) {
+          addToAns(tb, row, joinAgainstData, index, fromLeft);
+        }
       }
 
-      if (hashTable1Local != null) {
+      if (ownHashTable != null) {
         // only build hash table on two sides if none of the children is EOS
-        addToHashTable(
-            tb, row, hashTable1Local, hashTable1IndicesLocal, cntHashCode, useSetSemantics);
+        addToHashTable(tb, row, ownHashTable, inputCmpColumns, cntHashCode, useSetSemantics);
       }
     }
+    if (ownHashTable != null) {
+      spillIfOverBudget(tb);
+    }
+  }
+
+  /**
+   * Account for a batch that was just added to a hash table, and move both hash tables to disk if they now exceed the
+   * memory budget.
+   *
+   * @param tb the batch.
+   * @throws DbException if the tuples cannot be written.
+   */
+  private void spillIfOverBudget(final TupleBatch tb) throws DbException {
+    if (memoryBudget <= 0) {
+      return;
+    }
+    tupleBytes += TupleUtils.estimateBytes(tb);
+    long bytes = tupleBytes;
+    if (leftHashTable != null) {
+      bytes += leftHashTable.indexSizeInBytes();
+    }
+    if (rightHashTable != null) {
+      bytes += rightHashTable.indexSizeInBytes();
+    }
+    if (bytes <= memoryBudget) {
+      return;
+    }
+    spill =
+        new HashJoinSpill(
+            getLeft().getSchema(),
+            getRight().getSchema(),
+            leftCompareIndx,
+            rightCompareIndx,
+            leftAnswerColumns,
+            rightAnswerColumns,
+            memoryBudget,
+            leftHashTable,
+            rightHashTable);
+    leftHashTable = null;
+    rightHashTable = null;
   }
 
   /**
    * @param tb the source TupleBatch
    * @param row the row number to get added to hash table
    * @param hashTable the target hash table
-   * @param hashTable1IndicesLocal hash table 1 indices local
+   * @param keyColumns the key columns of both the source TupleBatch and the hash table
    * @param hashCode the hashCode of the tb.
    * @param useSetSemantics if need to update the hash table using set semantics.
    */
   private void addToHashTable(
       final TupleBatch tb,
       final int row,
-      final MutableTupleBuffer hashTable,
-      final IntObjectHashMap<IntArrayList> hashTable1IndicesLocal,
+      final JoinHashTable hashTable,
+      final int[] keyColumns,
       final int hashCode,
       final boolean useSetSemantics) {
-
-    final int nextIndex = hashTable.numTuples();
-    IntArrayList tupleIndicesList = hashTable1IndicesLocal.get(hashCode);
-    if (tupleIndicesList == null) {
-      tupleIndicesList = new IntArrayList(1);
-      hashTable1IndicesLocal.put(hashCode, tupleIndicesList);
-    }
-
-    doReplace.replaced = false;
     if (useSetSemantics) {
-      doReplace.row = row;
-      tupleIndicesList.forEach(doReplace);
-    }
-    if (!doReplace.replaced) {
-      /* not using set semantics || using set semantics but found nothing to replace (i.e. new) */
-      tupleIndicesList.add(nextIndex);
-      List<? extends Column<?>> inputColumns = tb.getDataColumns();
-      for (int column = 0; column < tb.numColumns(); column++) {
-        hashTable.put(column, inputColumns.get(column), row);
+      final MutableTupleBuffer data = hashTable.getData();
+      for (int index = hashTable.getFirst(hashCode); index >= 0; index = hashTable.getNext(index)) {
+        if (TupleUtils.tupleEquals(tb, keyColumns, row, data, keyColumns, index)) {
+          List<? extends Column<?>> columns = tb.getDataColumns();
+          for (int j = 0; j < tb.numColumns(); ++j) {
+            data.replace(j, index, columns.get(j), row);
+          }
+          return;
+        }
       }
     }
+    /* not using set semantics || using set semantics but found nothing to replace (i.e. new) */
+    hashTable.add(hashCode, tb, row);
   }
 
   /**
@@ -782,15 +756,25 @@ public final class SymmetricHashJoin extends BinaryOperator {
    */
   public long getNumTuplesInHashTables() {
     long sum = 0;
-    if (hashTable1 != null) {
-      sum += hashTable1.numTuples();
+    if (leftHashTable != null) {
+      sum += leftHashTable.numTuples();
     }
-    if (hashTable2 != null) {
-      sum += hashTable2.numTuples();
+    if (rightHashTable != null) {
+      sum += rightHashTable.numTuples();
     }
     return sum;
   }
 
+  /**
+   * @return the number of bytes spilled to disk.
+   */
+  public long getBytesSpilled() {
+    if (spill == null) {
+      return 0;
+    }
+    return spill.getBytesSpilled();
+  }
+
   /** Join pull order options. */
   public enum JoinPullOrder {
     /** Alternatively. */
@@ -813,4 +797,27 @@ public final class SymmetricHashJoin extends BinaryOperator {
   public void setPullOrder(final JoinPullOrder order) {
     this.order = order;
   }
+
+  /**
+   * Set whether incoming TupleBatches are probed against the other child's hash table a whole batch at a time, using
+   * type-specialized column-wise key comparisons and a bulk copy of the output, instead of one tuple at a time.
+   *
+   * @param batchProbe whether to use the batch probe.
+   */
+  public void setBatchProbe(final boolean batchProbe) {
+    this.batchProbe = batchProbe;
+  }
+
+  /**
+   * Set the memory budget of the hash tables. Once the tuples in the hash tables exceed it, both hash tables are
+   * partitioned to disk, and so are all tuples that arrive afterwards. The partitions are joined one at a time once
+   * both children are EOS, so tuples that arrive after the spill are not output at EOI. A memory budget cannot be used
+   * together with set semantics.
+   *
+   * @param memoryBudget the memory budget in bytes, or 0 for no limit.
+   */
+  public void setMemoryBudget(final long memoryBudget) {
+    Preconditions.checkArgument(memoryBudget >= 0, "memory budget must be non-negative");
+    this.memoryBudget = memoryBudget;
+  }
 }
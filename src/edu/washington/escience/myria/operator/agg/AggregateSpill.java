@@ -0,0 +1,215 @@
+package edu.washington.escience.myria.operator.agg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.operator.SpillDirectory;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * The on-disk part of {@link MultiGroupByAggregate} and {@link SingleGroupByAggregate}, used once their groups exceed
+ * the memory budget of the operator.
+ *
+ * Aggregation states are opaque objects that cannot be merged, so the groups already in memory stay there and keep
+ * being updated until the input ends. Only the rows of groups that are not in memory are written out, to a partition
+ * chosen by the hash code of their grouping key. Every row of a group thus either updates its state in memory or
+ * lands in the same partition. Once the in-memory groups have been output, each partition is aggregated on its own in
+ * the same way, and rows that still do not fit are partitioned again on the next bits of the hash code.
+ *
+ * Each partition is a run of a {@link SpillDirectory}.
+ */
+final class AggregateSpill {
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      org.slf4j.LoggerFactory.getLogger(AggregateSpill.class);
+
+  /** The estimated heap size of the index entry of a group, in bytes. */
+  static final long GROUP_OVERHEAD_BYTES = 64;
+  /** The estimated heap size of the state of one aggregator for one group, in bytes. */
+  static final long AGG_STATE_BYTES = 80;
+
+  /** The deepest level of partitioning. Once all the bits of the hash code are used, rows are no longer spilled. */
+  private static final int MAX_LEVEL = Integer.SIZE / SpillDirectory.PARTITION_BITS - 1;
+
+  /** The schema of the input. */
+  private final Schema schema;
+  /** The grouping columns. */
+  private final int[] keyColumns;
+  /** The directory holding the partitions. */
+  private final SpillDirectory spillDirectory;
+
+  /** The level of the partitions that rows of the current input are written to. */
+  private int level;
+  /** The partitions that rows of the current input are written to, or null if none has been written yet. */
+  private Partition[] outputs;
+  /** The partitions waiting to be aggregated. */
+  private final Deque<Partition> pending = new ArrayDeque<>();
+  /** The partition being aggregated, or null if the current input is the child of the operator. */
+  private Partition current;
+  /** The input stream of the partition being aggregated, or null. */
+  private InputStream input;
+
+  /**
+   * @param schema the schema of the input.
+   * @param keyColumns the grouping columns.
+   * @throws DbException if the directory for the partitions cannot be created.
+   */
+  AggregateSpill(final Schema schema, final int[] keyColumns) throws DbException {
+    this.schema = schema;
+    this.keyColumns = keyColumns;
+    level = 0;
+    try {
+      spillDirectory = new SpillDirectory("myria-agg-spill");
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @return whether rows of the current input can still be spilled. Otherwise they must be aggregated in memory.
+   */
+  boolean canSpill() {
+    return level <= MAX_LEVEL;
+  }
+
+  /**
+   * Write some rows of a batch of the current input to the partitions chosen by the hash codes of their keys.
+   *
+   * @param tb the batch.
+   * @param rows the rows to write.
+   * @throws DbException if the rows cannot be written.
+   */
+  void add(final TupleBatch tb, final BitSet rows) throws DbException {
+    if (outputs == null) {
+      outputs = new Partition[SpillDirectory.NUM_PARTITIONS];
+      for (int i = 0; i < outputs.length; ++i) {
+        outputs[i] = new Partition(level);
+      }
+    }
+    final BitSet[] partitionRows = SpillDirectory.partitionRows(tb, keyColumns, rows, level);
+    try {
+      for (int p = 0; p < partitionRows.length; ++p) {
+        if (partitionRows[p] != null) {
+          outputs[p].run.write(tb.filter(partitionRows[p]));
+        }
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Finish the current input and make the next partition the current input. The partitions written from the finished
+   * input are aggregated before any other pending partition.
+   *
+   * @return false if there is no partition left to aggregate.
+   * @throws DbException if a partition cannot be closed, deleted or opened.
+   */
+  boolean nextPartition() throws DbException {
+    try {
+      if (outputs != null) {
+        for (Partition p : outputs) {
+          p.run.finishWriting();
+          if (!p.run.isEmpty()) {
+            pending.push(p);
+          }
+        }
+        outputs = null;
+      }
+      closeCurrent();
+      current = pending.poll();
+      if (current == null) {
+        return false;
+      }
+      level = current.level + 1;
+      input = current.run.open();
+      return true;
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @return the next batch of the current partition, or null if it has been read entirely.
+   * @throws DbException if the partition cannot be read.
+   */
+  TupleBatch nextBatch() throws DbException {
+    if (input == null) {
+      return null;
+    }
+    try {
+      final TupleBatch tb = SpillDirectory.readBatch(input, schema);
+      if (tb == null) {
+        closeCurrent();
+      }
+      return tb;
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * @return the number of bytes written to disk so far.
+   */
+  long getBytesSpilled() {
+    return spillDirectory.getBytesSpilled();
+  }
+
+  /**
+   * Close any open files and delete all partitions.
+   */
+  void close() {
+    try {
+      if (outputs != null) {
+        for (Partition p : outputs) {
+          p.run.finishWriting();
+        }
+        outputs = null;
+      }
+      closeCurrent();
+    } catch (IOException e) {
+      LOGGER.warn("failed to close the aggregate spill partitions", e);
+    }
+    pending.clear();
+    spillDirectory.delete();
+  }
+
+  /**
+   * Close and delete the partition being aggregated, if any.
+   *
+   * @throws IOException if the partition cannot be closed or deleted.
+   */
+  private void closeCurrent() throws IOException {
+    if (input != null) {
+      input.close();
+      input = null;
+    }
+    if (current != null) {
+      current.run.delete();
+      current = null;
+    }
+  }
+
+  /**
+   * A partition of the rows that did not fit in memory.
+   */
+  private final class Partition {
+    /** The partitioning level, i.e., which bits of the hash code were used to choose this partition. */
+    private final int level;
+    /** The rows of this partition. */
+    private final SpillDirectory.Run run;
+
+    /**
+     * @param level the partitioning level.
+     */
+    Partition(final int level) {
+      this.level = level;
+      run = spillDirectory.newRun();
+    }
+  }
+}
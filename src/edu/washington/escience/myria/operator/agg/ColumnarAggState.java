@@ -0,0 +1,411 @@
+package edu.washington.escience.myria.operator.agg;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.math.LongMath;
+
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.operator.agg.PrimitiveAggregator.AggregationOp;
+import edu.washington.escience.myria.storage.AppendableTable;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * The state of one aggregator for all the groups of a group-by, kept in primitive arrays indexed by group id instead of
+ * one state object per group. Supports {@link CountAllAggregator} and the {@link IntegerAggregator},
+ * {@link LongAggregator} and {@link DoubleAggregator} aggregates, and computes exactly what they compute.
+ *
+ * A batch is added at once: the values of the input column are read into a scratch array, and each statistic is then
+ * updated by its own loop over the batch.
+ */
+final class ColumnarAggState {
+  /** The initial number of groups the arrays can hold. */
+  private static final int INITIAL_GROUPS = 64;
+
+  /** The type of the aggregated column, or null for {@link CountAllAggregator}. */
+  private final Type type;
+  /** The aggregated column. */
+  private final int column;
+  /** The aggregate operations, in output order. */
+  private final AggregationOp[] aggOps;
+  /** Whether the count is needed. */
+  private final boolean needsCount;
+  /** Whether the sum is needed. */
+  private final boolean needsSum;
+  /** Whether the sum of squares is needed. */
+  private final boolean needsSumSq;
+  /** Whether the min is needed. */
+  private final boolean needsMin;
+  /** Whether the max is needed. */
+  private final boolean needsMax;
+  /** Whether any statistic of the values is needed. */
+  private final boolean needsStats;
+
+  /** The number of groups the arrays can hold. */
+  private int capacity;
+  /** The count of each group. */
+  private long[] counts;
+  /** The sum of each group, for INT and LONG columns. */
+  private long[] longSums;
+  /** The sum of squares of each group, for INT and LONG columns. */
+  private long[] longSumSqs;
+  /** The min of each group, for INT and LONG columns. */
+  private long[] longMins;
+  /** The max of each group, for INT and LONG columns. */
+  private long[] longMaxs;
+  /** The sum of each group, for DOUBLE columns. */
+  private double[] doubleSums;
+  /** The sum of squares of each group, for DOUBLE columns. */
+  private double[] doubleSumSqs;
+  /** The min of each group, for DOUBLE columns. */
+  private double[] doubleMins;
+  /** The max of each group, for DOUBLE columns. */
+  private double[] doubleMaxs;
+  /** Scratch space for the values of a batch, for INT and LONG columns. */
+  private long[] longValues;
+  /** Scratch space for the values of a batch, for DOUBLE columns. */
+  private double[] doubleValues;
+
+  /**
+   * @param type the type of the aggregated column, or null to count rows.
+   * @param column the aggregated column.
+   * @param aggOps the aggregate operations, in output order.
+   */
+  private ColumnarAggState(final Type type, final int column, final Set<AggregationOp> aggOps) {
+    this.type = type;
+    this.column = column;
+    this.aggOps = aggOps.toArray(new AggregationOp[aggOps.size()]);
+    needsCount = AggUtils.needsCount(aggOps);
+    needsSum = AggUtils.needsSum(aggOps);
+    needsSumSq = AggUtils.needsSumSq(aggOps);
+    needsMin = AggUtils.needsMin(aggOps);
+    needsMax = AggUtils.needsMax(aggOps);
+    needsStats = AggUtils.needsStats(aggOps);
+    capacity = 0;
+    grow(INITIAL_GROUPS);
+  }
+
+  /**
+   * @param aggregator an aggregator.
+   * @return the columnar state for the aggregator, or null if the aggregator is not supported.
+   */
+  static ColumnarAggState of(final Aggregator aggregator) {
+    if (aggregator instanceof CountAllAggregator) {
+      return new ColumnarAggState(null, -1, ImmutableSet.of(AggregationOp.COUNT));
+    } else if (aggregator instanceof IntegerAggregator) {
+      IntegerAggregator agg = (IntegerAggregator) aggregator;
+      return new ColumnarAggState(Type.INT_TYPE, agg.getColumn(), agg.aggOps);
+    } else if (aggregator instanceof LongAggregator) {
+      LongAggregator agg = (LongAggregator) aggregator;
+      return new ColumnarAggState(Type.LONG_TYPE, agg.getColumn(), agg.aggOps);
+    } else if (aggregator instanceof DoubleAggregator) {
+      DoubleAggregator agg = (DoubleAggregator) aggregator;
+      return new ColumnarAggState(Type.DOUBLE_TYPE, agg.getColumn(), agg.aggOps);
+    }
+    return null;
+  }
+
+  /**
+   * @param aggregators the aggregators.
+   * @return the columnar state for each aggregator, or null if any aggregator is not supported.
+   */
+  static ColumnarAggState[] of(final Aggregator[] aggregators) {
+    final ColumnarAggState[] states = new ColumnarAggState[aggregators.length];
+    for (int i = 0; i < aggregators.length; ++i) {
+      states[i] = of(aggregators[i]);
+      if (states[i] == null) {
+        return null;
+      }
+    }
+    return states;
+  }
+
+  /**
+   * Make room for the given number of groups. New groups start with the initial state of the aggregator.
+   *
+   * @param numGroups the number of groups.
+   */
+  void ensureCapacity(final int numGroups) {
+    if (numGroups > capacity) {
+      grow(Math.max(numGroups, capacity + (capacity >> 1)));
+    }
+  }
+
+  /**
+   * @param newCapacity the new number of groups the arrays can hold.
+   */
+  private void grow(final int newCapacity) {
+    final int oldCapacity = capacity;
+    if (needsCount) {
+      counts = grow(counts, newCapacity);
+    }
+    if (type == Type.DOUBLE_TYPE) {
+      if (needsSum) {
+        doubleSums = grow(doubleSums, newCapacity);
+      }
+      if (needsSumSq) {
+        doubleSumSqs = grow(doubleSumSqs, newCapacity);
+      }
+      if (needsMin) {
+        doubleMins = grow(doubleMins, newCapacity);
+        Arrays.fill(doubleMins, oldCapacity, newCapacity, Double.MAX_VALUE);
+      }
+      if (needsMax) {
+        doubleMaxs = grow(doubleMaxs, newCapacity);
+        /* Matches DoubleAggregator, which starts the max at Double.MIN_VALUE. */
+        Arrays.fill(doubleMaxs, oldCapacity, newCapacity, Double.MIN_VALUE);
+      }
+    } else if (type != null) {
+      if (needsSum) {
+        longSums = grow(longSums, newCapacity);
+      }
+      if (needsSumSq) {
+        longSumSqs = grow(longSumSqs, newCapacity);
+      }
+      if (needsMin) {
+        longMins = grow(longMins, newCapacity);
+        Arrays.fill(
+            longMins,
+            oldCapacity,
+            newCapacity,
+            type == Type.INT_TYPE ? Integer.MAX_VALUE : Long.MAX_VALUE);
+      }
+      if (needsMax) {
+        longMaxs = grow(longMaxs, newCapacity);
+        Arrays.fill(
+            longMaxs,
+            oldCapacity,
+            newCapacity,
+            type == Type.INT_TYPE ? Integer.MIN_VALUE : Long.MIN_VALUE);
+      }
+    }
+    capacity = newCapacity;
+  }
+
+  /**
+   * @param array an array, or null.
+   * @param length the new length.
+   * @return a copy of the array with the new length, padded with zeros.
+   */
+  private static long[] grow(final long[] array, final int length) {
+    return array == null ? new long[length] : Arrays.copyOf(array, length);
+  }
+
+  /**
+   * @param array an array, or null.
+   * @param length the new length.
+   * @return a copy of the array with the new length, padded with zeros.
+   */
+  private static double[] grow(final double[] array, final int length) {
+    return array == null ? new double[length] : Arrays.copyOf(array, length);
+  }
+
+  /**
+   * Add all rows of a batch to their groups. The arrays must already hold all the groups.
+   *
+   * @param tb the batch.
+   * @param groupIds the group of each row of the batch.
+   */
+  void addBatch(final TupleBatch tb, final int[] groupIds) {
+    final int n = tb.numTuples();
+    if (needsCount) {
+      for (int row = 0; row < n; ++row) {
+        ++counts[groupIds[row]];
+      }
+    }
+    if (!needsStats) {
+      return;
+    }
+    final Column<?> values = tb.getDataColumns().get(column);
+    if (type == Type.DOUBLE_TYPE) {
+      addDoubles(values, groupIds, n);
+    } else {
+      addLongs(values, groupIds, n);
+    }
+  }
+
+  /**
+   * Add the values of an INT or LONG column to their groups.
+   *
+   * @param values the column.
+   * @param groupIds the group of each row.
+   * @param n the number of rows.
+   */
+  private void addLongs(final Column<?> values, final int[] groupIds, final int n) {
+    if (longValues == null || longValues.length < n) {
+      longValues = new long[Math.max(n, TupleBatch.BATCH_SIZE)];
+    }
+    final long[] v = longValues;
+    if (type == Type.INT_TYPE) {
+      for (int row = 0; row < n; ++row) {
+        v[row] = values.getInt(row);
+      }
+    } else {
+      for (int row = 0; row < n; ++row) {
+        v[row] = values.getLong(row);
+      }
+    }
+    if (needsSum) {
+      final long[] sums = longSums;
+      for (int row = 0; row < n; ++row) {
+        final int g = groupIds[row];
+        sums[g] = LongMath.checkedAdd(sums[g], v[row]);
+      }
+    }
+    if (needsSumSq) {
+      final long[] sumSqs = longSumSqs;
+      if (type == Type.INT_TYPE) {
+        /* The square of an int always fits in a long. */
+        for (int row = 0; row < n; ++row) {
+          final int g = groupIds[row];
+          sumSqs[g] = LongMath.checkedAdd(sumSqs[g], v[row] * v[row]);
+        }
+      } else {
+        for (int row = 0; row < n; ++row) {
+          final int g = groupIds[row];
+          sumSqs[g] = LongMath.checkedAdd(sumSqs[g], LongMath.checkedMultiply(v[row], v[row]));
+        }
+      }
+    }
+    if (needsMin) {
+      final long[] mins = longMins;
+      for (int row = 0; row < n; ++row) {
+        final int g = groupIds[row];
+        mins[g] = Math.min(mins[g], v[row]);
+      }
+    }
+    if (needsMax) {
+      final long[] maxs = longMaxs;
+      for (int row = 0; row < n; ++row) {
+        final int g = groupIds[row];
+        maxs[g] = Math.max(maxs[g], v[row]);
+      }
+    }
+  }
+
+  /**
+   * Add the values of a DOUBLE column to their groups.
+   *
+   * @param values the column.
+   * @param groupIds the group of each row.
+   * @param n the number of rows.
+   */
+  private void addDoubles(final Column<?> values, final int[] groupIds, final int n) {
+    if (doubleValues == null || doubleValues.length < n) {
+      doubleValues = new double[Math.max(n, TupleBatch.BATCH_SIZE)];
+    }
+    final double[] v = doubleValues;
+    for (int row = 0; row < n; ++row) {
+      v[row] = values.getDouble(row);
+    }
+    if (needsSum) {
+      final double[] sums = doubleSums;
+      for (int row = 0; row < n; ++row) {
+        sums[groupIds[row]] += v[row];
+      }
+    }
+    if (needsSumSq) {
+      final double[] sumSqs = doubleSumSqs;
+      for (int row = 0; row < n; ++row) {
+        sumSqs[groupIds[row]] += v[row] * v[row];
+      }
+    }
+    if (needsMin) {
+      final double[] mins = doubleMins;
+      for (int row = 0; row < n; ++row) {
+        final int g = groupIds[row];
+        mins[g] = Math.min(mins[g], v[row]);
+      }
+    }
+    if (needsMax) {
+      final double[] maxs = doubleMaxs;
+      for (int row = 0; row < n; ++row) {
+        final int g = groupIds[row];
+        maxs[g] = Math.max(maxs[g], v[row]);
+      }
+    }
+  }
+
+  /**
+   * Append the aggregate results of a group to the given table starting from the given column.
+   *
+   * @param dest where to store the aggregate results.
+   * @param destColumn the first column of the results.
+   * @param group the group.
+   */
+  void getResult(final AppendableTable dest, final int destColumn, final int group) {
+    int idx = destColumn;
+    for (AggregationOp op : aggOps) {
+      switch (op) {
+        case AVG:
+          if (type == Type.DOUBLE_TYPE) {
+            dest.putDouble(idx, doubleSums[group] / counts[group]);
+          } else {
+            dest.putDouble(idx, longSums[group] * 1.0 / counts[group]);
+          }
+          break;
+        case COUNT:
+          dest.putLong(idx, counts[group]);
+          break;
+        case MAX:
+          putMinMax(dest, idx, longMaxs, doubleMaxs, group);
+          break;
+        case MIN:
+          putMinMax(dest, idx, longMins, doubleMins, group);
+          break;
+        case STDEV:
+          double first;
+          double second;
+          if (type == Type.DOUBLE_TYPE) {
+            first = doubleSumSqs[group] / counts[group];
+            second = doubleSums[group] / counts[group];
+          } else {
+            first = ((double) longSumSqs[group]) / counts[group];
+            second = ((double) longSums[group]) / counts[group];
+          }
+          dest.putDouble(idx, Math.sqrt(first - second * second));
+          break;
+        case SUM:
+          if (type == Type.DOUBLE_TYPE) {
+            dest.putDouble(idx, doubleSums[group]);
+          } else {
+            dest.putLong(idx, longSums[group]);
+          }
+          break;
+      }
+      idx++;
+    }
+  }
+
+  /**
+   * Append a min or max, which has the type of the aggregated column.
+   *
+   * @param dest where to store the value.
+   * @param destColumn the column of the value.
+   * @param longValues the values of all groups, for INT and LONG columns.
+   * @param doubleValues the values of all groups, for DOUBLE columns.
+   * @param group the group.
+   */
+  private void putMinMax(
+      final AppendableTable dest,
+      final int destColumn,
+      final long[] longValues,
+      final double[] doubleValues,
+      final int group) {
+    switch (type) {
+      case INT_TYPE:
+        dest.putInt(destColumn, (int) longValues[group]);
+        break;
+      case LONG_TYPE:
+        dest.putLong(destColumn, longValues[group]);
+        break;
+      case DOUBLE_TYPE:
+        dest.putDouble(destColumn, doubleValues[group]);
+        break;
+      default:
+        throw new IllegalStateException("unexpected type " + type);
+    }
+  }
+}
@@ -127,6 +127,13 @@ public final class DoubleAggregator extends PrimitiveAggregator {
     }
   }
 
+  /**
+   * @return the column of the input this aggregator operates over.
+   */
+  int getColumn() {
+    return fromColumn;
+  }
+
   @Override
   public Type getType() {
     return Type.DOUBLE_TYPE;
@@ -131,6 +131,13 @@ public final class IntegerAggregator extends PrimitiveAggregator {
     }
   }
 
+  /**
+   * @return the column of the input this aggregator operates over.
+   */
+  int getColumn() {
+    return fromColumn;
+  }
+
   @Override
   public Type getType() {
     return Type.INT_TYPE;
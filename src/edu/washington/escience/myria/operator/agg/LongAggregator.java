@@ -130,6 +130,13 @@ public final class LongAggregator extends PrimitiveAggregator {
     }
   }
 
+  /**
+   * @return the column of the input this aggregator operates over.
+   */
+  int getColumn() {
+    return fromColumn;
+  }
+
   @Override
   public Type getType() {
     return Type.LONG_TYPE;
@@ -1,6 +1,7 @@
 package edu.washington.escience.myria.operator.agg;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
@@ -10,8 +11,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
-import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
@@ -19,9 +18,9 @@ import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.column.Column;
 import edu.washington.escience.myria.operator.Operator;
 import edu.washington.escience.myria.operator.UnaryOperator;
+import edu.washington.escience.myria.storage.JoinHashTable;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
-import edu.washington.escience.myria.storage.TupleBuffer;
 import edu.washington.escience.myria.storage.TupleUtils;
 import edu.washington.escience.myria.util.HashUtils;
 
@@ -29,6 +28,14 @@ import edu.washington.escience.myria.util.HashUtils;
  * The Aggregation operator that computes an aggregate (e.g., sum, avg, max, min). This variant supports aggregates over
  * multiple columns, group by multiple columns.
  *
+ * Each distinct grouping key is given a group id, its index in a {@link JoinHashTable}. When every aggregate is a
+ * COUNT(*) or an aggregate of an INT, LONG or DOUBLE column, the aggregation states are kept in primitive arrays
+ * indexed by group id (see {@link ColumnarAggState}) and updated a whole batch at a time. Otherwise each group has one
+ * state object per aggregator.
+ *
+ * With a memory budget, the rows of new groups are partitioned to disk once the groups in memory exceed the budget, and
+ * the partitions are aggregated one at a time at the end (see {@link AggregateSpill}).
+ *
  * @see Aggregate
  * @see SingleGroupByAggregate
  */
@@ -37,14 +44,28 @@ public final class MultiGroupByAggregate extends UnaryOperator {
   /** Java requires this. **/
   private static final long serialVersionUID = 1L;
 
-  /** Holds the distinct grouping keys. */
-  private transient TupleBuffer groupKeys;
+  /** Holds the distinct grouping keys. The index of a key is its group id. */
+  private transient JoinHashTable groupKeys;
   /** Final group keys. */
   private List<TupleBatch> groupKeyList;
-  /** Holds the corresponding aggregation state for each group key in {@link #groupKeys}. */
+  /** The group id of the first row of the next result batch. */
+  private transient int nextResultGroup;
+  /** Holds the aggregation states of each group, or null if {@link #columnarStates} is used. */
   private transient List<Object[]> aggStates;
-  /** Maps the hash of a grouping key to a list of indices in {@link #groupKeys}. */
-  private transient IntObjectHashMap<IntArrayList> groupKeyMap;
+  /** Holds the aggregation states of all groups for each aggregator, or null if {@link #aggStates} is used. */
+  private transient ColumnarAggState[] columnarStates;
+  /** The group id of each row of the current batch. */
+  private transient int[] groupIds;
+  /** The hash code of the grouping key of each row of the current batch. */
+  private transient int[] rowHashes;
+  /** The memory budget of the groups, in bytes. 0 means unlimited. */
+  private long memoryBudget = 0;
+  /** The estimated heap memory used by the groups in memory, in bytes. */
+  private transient long groupBytes;
+  /** The estimated heap memory used by the aggregation states of one group, in bytes. */
+  private transient long stateBytes;
+  /** The partitions on disk, once the groups have exceeded the memory budget. */
+  private transient AggregateSpill spill;
   /** The schema of the columns indicated by the group keys. */
   private Schema groupSchema;
   /** The schema of the aggregation result. */
@@ -86,8 +107,14 @@ public final class MultiGroupByAggregate extends UnaryOperator {
   protected void cleanup() throws DbException {
     groupKeys = null;
     aggStates = null;
-    groupKeyMap = null;
+    columnarStates = null;
+    groupIds = null;
+    rowHashes = null;
     groupKeyList = null;
+    if (spill != null) {
+      spill.close();
+      spill = null;
+    }
   }
 
   /**
@@ -108,29 +135,7 @@ public final class MultiGroupByAggregate extends UnaryOperator {
 
     TupleBatch tb = child.nextReady();
     while (tb != null) {
-      for (int row = 0; row < tb.numTuples(); ++row) {
-        int rowHash = HashUtils.hashSubRow(tb, gfields, row);
-        IntArrayList hashMatches = groupKeyMap.get(rowHash);
-        if (hashMatches == null) {
-          hashMatches = newKey(rowHash);
-          newGroup(tb, row, hashMatches);
-          continue;
-        }
-        boolean found = false;
-        for (int i = 0; i < hashMatches.size(); i++) {
-          int value = hashMatches.get(i);
-          if (TupleUtils.tupleEquals(tb, gfields, row, groupKeys, grpRange, value)) {
-            updateGroup(tb, row, aggStates.get(value));
-            found = true;
-            break;
-          }
-        }
-
-        if (!found) {
-          newGroup(tb, row, hashMatches);
-        }
-        Preconditions.checkState(groupKeys.numTuples() == aggStates.size());
-      }
+      processBatch(tb);
       tb = child.nextReady();
     }
 
@@ -146,42 +151,87 @@ public final class MultiGroupByAggregate extends UnaryOperator {
   }
 
   /**
-   * Since row <code>row</code> in {@link TupleBatch} <code>tb</code> does not appear in {@link #groupKeys}, create a
-   * new group for it.
+   * Find the group of every row of the batch, creating new groups as needed, then update the aggregation states. Rows
+   * of new groups that do not fit the memory budget are spilled instead.
    *
    * @param tb the source {@link TupleBatch}
-   * @param row the row in <code>tb</code> that contains the new group
-   * @param hashMatches the list of all rows in the output {@link TupleBuffer}s that match this hash.
    * @throws DbException if there is an error.
    */
-  private void newGroup(final TupleBatch tb, final int row, final IntArrayList hashMatches)
-      throws DbException {
-    int newIndex = groupKeys.numTuples();
-    for (int column = 0; column < gfields.length; ++column) {
-      TupleUtils.copyValue(tb, gfields[column], row, groupKeys, column);
+  private void processBatch(final TupleBatch tb) throws DbException {
+    final int numTuples = tb.numTuples();
+    if (groupIds == null || groupIds.length < numTuples) {
+      groupIds = new int[Math.max(numTuples, TupleBatch.BATCH_SIZE)];
+      rowHashes = new int[groupIds.length];
+    }
+    HashUtils.hashSubRows(tb, gfields, true, rowHashes);
+    BitSet spilled = null;
+    int numKept = 0;
+    for (int row = 0; row < numTuples; ++row) {
+      final int group = findOrAddGroup(tb, row, rowHashes[row]);
+      if (group >= 0) {
+        groupIds[numKept++] = group;
+      } else {
+        if (spilled == null) {
+          spilled = new BitSet(numTuples);
+        }
+        spilled.set(row);
+      }
+    }
+    TupleBatch kept = tb;
+    if (spilled != null) {
+      spill.add(tb, spilled);
+      spilled.flip(0, numTuples);
+      kept = tb.filter(spilled);
+    }
+    if (columnarStates != null) {
+      for (ColumnarAggState state : columnarStates) {
+        state.ensureCapacity(groupKeys.numTuples());
+        state.addBatch(kept, groupIds);
+      }
+    } else {
+      for (int row = 0; row < numKept; ++row) {
+        updateGroup(kept, row, aggStates.get(groupIds[row]));
+      }
     }
-    hashMatches.add(newIndex);
-    Object[] curAggStates = AggUtils.allocateAggStates(aggregators);
-    aggStates.add(curAggStates);
-    updateGroup(tb, row, curAggStates);
-    Preconditions.checkState(
-        groupKeys.numTuples() == aggStates.size(),
-        "groupKeys %s != groupAggs %s",
-        groupKeys.numTuples(),
-        aggStates.size());
   }
 
   /**
-   * Called when there is no list yet of which output aggregators match the specified hash. Creates a new int list to
-   * store these matches, and insert it into the {@link #groupKeyMap}.
-   *
-   * @param groupHash the hash of the grouping columns in a tuple
-   * @return the new (empty still) int list storing which output aggregators match the specified hash
+   * @param tb the source {@link TupleBatch}
+   * @param row the row in <code>tb</code>
+   * @param rowHash the hash code of the grouping key of the row
+   * @return the group id of the grouping key of the row. If it does not appear in {@link #groupKeys}, a new group is
+   *         created for it, unless the groups exceed the memory budget, in which case -1 is returned and the row must
+   *         be spilled.
+   * @throws DbException if there is an error.
    */
-  private IntArrayList newKey(final int groupHash) {
-    IntArrayList matches = new IntArrayList(1);
-    groupKeyMap.put(groupHash, matches);
-    return matches;
+  private int findOrAddGroup(final TupleBatch tb, final int row, final int rowHash)
+      throws DbException {
+    for (int group = groupKeys.getFirst(rowHash); group >= 0; group = groupKeys.getNext(group)) {
+      if (TupleUtils.tupleEquals(tb, gfields, row, groupKeys.getData(), grpRange, group)) {
+        return group;
+      }
+    }
+    if (memoryBudget > 0) {
+      if (groupBytes >= memoryBudget) {
+        if (spill == null) {
+          spill = new AggregateSpill(getChild().getSchema(), gfields);
+        }
+        if (spill.canSpill()) {
+          return -1;
+        }
+      }
+      groupBytes += stateBytes + TupleUtils.estimateBytes(tb, gfields, row);
+    }
+    final int group = groupKeys.add(rowHash, tb, gfields, row);
+    if (aggStates != null) {
+      aggStates.add(AggUtils.allocateAggStates(aggregators));
+      Preconditions.checkState(
+          groupKeys.numTuples() == aggStates.size(),
+          "groupKeys %s != groupAggs %s",
+          groupKeys.numTuples(),
+          aggStates.size());
+    }
+    return group;
   }
 
   /**
@@ -206,22 +256,36 @@ public final class MultiGroupByAggregate extends UnaryOperator {
   private TupleBatch getResultBatch() throws DbException {
     Preconditions.checkState(
         getChild().eos(), "cannot extract results from an aggregate until child has reached EOS");
-    if (groupKeyList == null) {
-      groupKeyList = Lists.newLinkedList(groupKeys.finalResult());
-      groupKeys = null;
-    }
-
-    if (groupKeyList.isEmpty()) {
-      return null;
+    while (true) {
+      if (groupKeyList == null) {
+        groupKeyList = Lists.newLinkedList(groupKeys.getData().getAll());
+        groupKeys = null;
+      }
+      if (!groupKeyList.isEmpty()) {
+        break;
+      }
+      if (spill == null || !spill.nextPartition()) {
+        return null;
+      }
+      /* All groups in memory have been output, so aggregate the next partition on disk. */
+      resetGroups();
+      groupKeyList = null;
+      for (TupleBatch tb = spill.nextBatch(); tb != null; tb = spill.nextBatch()) {
+        processBatch(tb);
+      }
     }
 
     TupleBatch curGroupKeys = groupKeyList.remove(0);
     TupleBatchBuffer curGroupAggs = new TupleBatchBuffer(aggSchema);
     for (int row = 0; row < curGroupKeys.numTuples(); ++row) {
-      Object[] rowAggs = aggStates.get(row);
+      final int group = nextResultGroup + row;
       int curCol = 0;
       for (int agg = 0; agg < aggregators.length; ++agg) {
-        aggregators[agg].getResult(curGroupAggs, curCol, rowAggs[agg]);
+        if (columnarStates != null) {
+          columnarStates[agg].getResult(curGroupAggs, curCol, group);
+        } else {
+          aggregators[agg].getResult(curGroupAggs, curCol, aggStates.get(group)[agg]);
+        }
         curCol += aggregators[agg].getResultSchema().numColumns();
       }
     }
@@ -232,8 +296,7 @@ public final class MultiGroupByAggregate extends UnaryOperator {
         curGroupKeys.numTuples(),
         aggResults.numTuples());
 
-    /* Note: as of Java7 sublists of sublists do what we want -- the sublists are at most one deep. */
-    aggStates = aggStates.subList(curGroupKeys.numTuples(), aggStates.size());
+    nextResultGroup += curGroupKeys.numTuples();
     return new TupleBatch(
         getSchema(),
         ImmutableList.<Column<?>>builder()
@@ -281,8 +344,40 @@ public final class MultiGroupByAggregate extends UnaryOperator {
   protected void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
     Preconditions.checkState(getSchema() != null, "unable to determine schema in init");
     aggregators = AggUtils.allocateAggs(factories, getChild().getSchema());
-    groupKeys = new TupleBuffer(groupSchema);
-    aggStates = new ArrayList<>();
-    groupKeyMap = new IntObjectHashMap<>();
+    stateBytes =
+        AggregateSpill.GROUP_OVERHEAD_BYTES + AggregateSpill.AGG_STATE_BYTES * aggregators.length;
+    resetGroups();
+  }
+
+  /**
+   * Start over with no groups in memory.
+   */
+  private void resetGroups() {
+    groupKeys = new JoinHashTable(groupSchema);
+    nextResultGroup = 0;
+    groupBytes = 0;
+    columnarStates = ColumnarAggState.of(aggregators);
+    aggStates = columnarStates == null ? new ArrayList<Object[]>() : null;
+  }
+
+  /**
+   * @return the number of bytes spilled to disk.
+   */
+  public long getBytesSpilled() {
+    if (spill == null) {
+      return 0;
+    }
+    return spill.getBytesSpilled();
+  }
+
+  /**
+   * Bound the estimated heap memory used by the groups. Once the groups in memory exceed the budget, the rows of new
+   * groups are partitioned to disk, and the partitions are aggregated one at a time once the child is EOS.
+   *
+   * @param memoryBudget the memory budget in bytes, or 0 for no limit.
+   */
+  public void setMemoryBudget(final long memoryBudget) {
+    Preconditions.checkArgument(memoryBudget >= 0, "memory budget must be non-negative");
+    this.memoryBudget = memoryBudget;
   }
 };
@@ -0,0 +1,402 @@
+package edu.washington.escience.myria.operator.agg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.ConstantValueColumn;
+import edu.washington.escience.myria.column.builder.DoubleColumnBuilder;
+import edu.washington.escience.myria.column.builder.LongColumnBuilder;
+import edu.washington.escience.myria.operator.Operator;
+import edu.washington.escience.myria.operator.UnaryOperator;
+import edu.washington.escience.myria.operator.agg.PrimitiveAggregator.AggregationOp;
+import edu.washington.escience.myria.storage.JoinHashTable;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
+import edu.washington.escience.myria.util.HashUtils;
+
+/**
+ * Pre-aggregates its input before it is shuffled, to reduce the number of tuples sent over the network. The final
+ * aggregate, after the shuffle, combines the partial aggregates using {@link #getFinalFactories()}.
+ *
+ * The groups are kept in a small hash table, which is output and emptied whenever it holds too many groups, and at the
+ * end of each iteration. Only the aggregates that can be computed in parts are supported: COUNT(*), and COUNT, SUM, MIN
+ * and MAX of a column.
+ *
+ * Pre-aggregation only pays off when the groups repeat. Once enough tuples have been seen, if the partial aggregates do
+ * not eliminate a large enough fraction of them, the operator turns itself off and converts each input tuple directly
+ * into a partial aggregate of one tuple.
+ *
+ * The output has the grouping columns first and then the partial aggregates, like {@link MultiGroupByAggregate}.
+ */
+public final class PartialGroupByAggregate extends UnaryOperator {
+
+  /** Required for Java serialization. */
+  private static final long serialVersionUID = 1L;
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      org.slf4j.LoggerFactory.getLogger(PartialGroupByAggregate.class);
+
+  /** The default maximum number of groups in the hash table. */
+  public static final int DEFAULT_MAX_GROUPS = 16 * 1024;
+  /** The default fraction of the input tuples that pre-aggregation must eliminate to stay on. */
+  public static final double DEFAULT_MIN_REDUCTION = 0.1;
+  /** The number of input tuples after which pre-aggregation is turned off if it does not reduce the input enough. */
+  private static final int SAMPLE_TUPLES = 5 * TupleBatch.BATCH_SIZE;
+  /** The aggregate operations that can be computed in parts. */
+  private static final Set<AggregationOp> PARTIAL_OPS =
+      ImmutableSet.of(AggregationOp.COUNT, AggregationOp.SUM, AggregationOp.MIN, AggregationOp.MAX);
+
+  /** Factories to make the Aggregators. */
+  private final AggregatorFactory[] factories;
+  /** Group fields. */
+  private final int[] gfields;
+  /** An array [0, 1, .., gfields.length-1] used for comparing tuples. */
+  private final int[] grpRange;
+  /** The maximum number of groups in the hash table. */
+  private int maxGroups = DEFAULT_MAX_GROUPS;
+  /** The fraction of the input tuples that pre-aggregation must eliminate to stay on. */
+  private double minReduction = DEFAULT_MIN_REDUCTION;
+  /** The schema of the columns indicated by the group keys. */
+  private Schema groupSchema;
+
+  /** The actual Aggregators. */
+  private transient Aggregator[] aggregators;
+  /** Holds the distinct grouping keys. The index of a key is its group id. */
+  private transient JoinHashTable groupKeys;
+  /** Holds the aggregation states of each group, or null if {@link #columnarStates} is used. */
+  private transient List<Object[]> aggStates;
+  /** Holds the aggregation states of all groups for each aggregator, or null if {@link #aggStates} is used. */
+  private transient ColumnarAggState[] columnarStates;
+  /** The group id of each row of the current batch. */
+  private transient int[] groupIds;
+  /** The hash code of the grouping key of each row of the current batch. */
+  private transient int[] rowHashes;
+  /** The partial aggregates ready to be output. */
+  private transient TupleBatchBuffer outputBuffer;
+  /** The number of tuples read from the child. */
+  private transient long numInputTuples;
+  /** The number of partial aggregates output from the hash table. */
+  private transient long numFlushedGroups;
+  /** Whether pre-aggregation has been turned off. */
+  private transient boolean passThrough;
+
+  /**
+   * @param child the Operator that is feeding us tuples.
+   * @param gfields the columns over which we are grouping the result.
+   * @param factories the factories that will produce the {@link Aggregator}s for each group. Only COUNT(*), and
+   *          COUNT, SUM, MIN and MAX of a column are supported.
+   */
+  public PartialGroupByAggregate(
+      @Nullable final Operator child, final int[] gfields, final AggregatorFactory... factories) {
+    super(child);
+    this.gfields = Objects.requireNonNull(gfields, "gfields");
+    this.factories = Objects.requireNonNull(factories, "factories");
+    Preconditions.checkArgument(gfields.length > 0, "must group over at least one field");
+    Preconditions.checkArgument(factories.length != 0, "must specify some aggregates");
+    for (AggregatorFactory factory : factories) {
+      if (factory instanceof CountAllAggregatorFactory) {
+        continue;
+      }
+      Preconditions.checkArgument(
+          factory instanceof SingleColumnAggregatorFactory,
+          "cannot pre-aggregate with %s",
+          factory.getClass().getSimpleName());
+      for (AggregationOp op : ((SingleColumnAggregatorFactory) factory).getAggOps()) {
+        Preconditions.checkArgument(
+            PARTIAL_OPS.contains(op), "cannot pre-aggregate %s, only %s", op, PARTIAL_OPS);
+      }
+    }
+    grpRange = new int[gfields.length];
+    for (int i = 0; i < gfields.length; ++i) {
+      grpRange[i] = i;
+    }
+  }
+
+  /**
+   * @param maxGroups the maximum number of groups in the hash table before it is output and emptied.
+   */
+  public void setMaxGroups(final int maxGroups) {
+    Preconditions.checkArgument(maxGroups > 0, "maxGroups must be positive");
+    this.maxGroups = maxGroups;
+  }
+
+  /**
+   * @param minReduction the fraction of the input tuples, in [0, 1], that pre-aggregation must eliminate to stay on. 0
+   *          keeps it always on.
+   */
+  public void setMinReduction(final double minReduction) {
+    Preconditions.checkArgument(
+        minReduction >= 0 && minReduction <= 1, "minReduction must be between 0 and 1");
+    this.minReduction = minReduction;
+  }
+
+  /**
+   * @return whether pre-aggregation has been turned off because it did not reduce the input enough.
+   */
+  public boolean isPassThrough() {
+    return passThrough;
+  }
+
+  /**
+   * The final aggregate groups the partial aggregates by their first <code>gfields.length</code> columns. Each COUNT
+   * and COUNT(*) becomes a SUM of the partial counts, and the other aggregates stay the same. Note that the output
+   * columns of the final aggregate are named after the partial aggregates, e.g., <code>sum_count_x</code>.
+   *
+   * @return factories for the aggregators that combine the partial aggregates output by this operator.
+   */
+  public AggregatorFactory[] getFinalFactories() {
+    final List<AggregatorFactory> finalFactories = new ArrayList<>();
+    int column = gfields.length;
+    for (AggregatorFactory factory : factories) {
+      if (factory instanceof CountAllAggregatorFactory) {
+        finalFactories.add(new SingleColumnAggregatorFactory(column++, AggregationOp.SUM));
+        continue;
+      }
+      for (AggregationOp op : getOps((SingleColumnAggregatorFactory) factory)) {
+        AggregationOp finalOp = op == AggregationOp.COUNT ? AggregationOp.SUM : op;
+        finalFactories.add(new SingleColumnAggregatorFactory(column++, finalOp));
+      }
+    }
+    return finalFactories.toArray(new AggregatorFactory[finalFactories.size()]);
+  }
+
+  /**
+   * @param factory a factory.
+   * @return its aggregate operations, without duplicates and in output order, like {@link PrimitiveAggregator}.
+   */
+  private static Set<AggregationOp> getOps(final SingleColumnAggregatorFactory factory) {
+    final Set<AggregationOp> ops = new LinkedHashSet<>();
+    for (AggregationOp op : factory.getAggOps()) {
+      ops.add(op);
+    }
+    return ops;
+  }
+
+  @Override
+  protected TupleBatch fetchNextReady() throws DbException {
+    final Operator child = getChild();
+    if (passThrough && outputBuffer.numTuples() > 0) {
+      return outputBuffer.popAny();
+    }
+
+    TupleBatch tb;
+    while (!outputBuffer.hasFilledTB() && (tb = child.nextReady()) != null) {
+      if (passThrough) {
+        return toPartial(tb);
+      }
+      processBatch(tb);
+      if (groupKeys.numTuples() >= maxGroups) {
+        flush();
+      }
+      if (numInputTuples >= SAMPLE_TUPLES && numInputTuples - tb.numTuples() < SAMPLE_TUPLES) {
+        final double reduction =
+            1 - (double) (numFlushedGroups + groupKeys.numTuples()) / numInputTuples;
+        if (reduction < minReduction) {
+          LOGGER.info(
+              "turning off pre-aggregation after {} tuples, reduction {} < {}",
+              numInputTuples,
+              reduction,
+              minReduction);
+          flush();
+          passThrough = true;
+          return outputBuffer.popAny();
+        }
+      }
+    }
+
+    if (outputBuffer.hasFilledTB()) {
+      return outputBuffer.popFilled();
+    }
+    if (child.eos() || child.eoi()) {
+      flush();
+      return outputBuffer.popAny();
+    }
+    return null;
+  }
+
+  /**
+   * Aggregate a batch into the hash table.
+   *
+   * @param tb the source {@link TupleBatch}
+   * @throws DbException if there is an error.
+   */
+  private void processBatch(final TupleBatch tb) throws DbException {
+    final int numTuples = tb.numTuples();
+    numInputTuples += numTuples;
+    if (groupIds == null || groupIds.length < numTuples) {
+      groupIds = new int[Math.max(numTuples, TupleBatch.BATCH_SIZE)];
+      rowHashes = new int[groupIds.length];
+    }
+    HashUtils.hashSubRows(tb, gfields, true, rowHashes);
+    for (int row = 0; row < numTuples; ++row) {
+      groupIds[row] = findOrAddGroup(tb, row, rowHashes[row]);
+    }
+    if (columnarStates != null) {
+      for (ColumnarAggState state : columnarStates) {
+        state.ensureCapacity(groupKeys.numTuples());
+        state.addBatch(tb, groupIds);
+      }
+    } else {
+      for (int row = 0; row < numTuples; ++row) {
+        final Object[] states = aggStates.get(groupIds[row]);
+        for (int agg = 0; agg < aggregators.length; ++agg) {
+          aggregators[agg].addRow(tb, row, states[agg]);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param tb the source {@link TupleBatch}
+   * @param row the row in <code>tb</code>
+   * @param rowHash the hash code of the grouping key of the row
+   * @return the group id of the grouping key of the row, which is added to the hash table if needed.
+   */
+  private int findOrAddGroup(final TupleBatch tb, final int row, final int rowHash) {
+    for (int group = groupKeys.getFirst(rowHash); group >= 0; group = groupKeys.getNext(group)) {
+      if (TupleUtils.tupleEquals(tb, gfields, row, groupKeys.getData(), grpRange, group)) {
+        return group;
+      }
+    }
+    if (aggStates != null) {
+      aggStates.add(AggUtils.allocateAggStates(aggregators));
+    }
+    return groupKeys.add(rowHash, tb, gfields, row);
+  }
+
+  /**
+   * Output all groups of the hash table to {@link #outputBuffer} and empty it.
+   *
+   * @throws DbException if there is an error.
+   */
+  private void flush() throws DbException {
+    final int numGroups = groupKeys.numTuples();
+    for (int group = 0; group < numGroups; ++group) {
+      for (int column = 0; column < gfields.length; ++column) {
+        TupleUtils.copyValue(groupKeys.getData(), column, group, outputBuffer, column);
+      }
+      int curCol = gfields.length;
+      for (int agg = 0; agg < aggregators.length; ++agg) {
+        if (columnarStates != null) {
+          columnarStates[agg].getResult(outputBuffer, curCol, group);
+        } else {
+          aggregators[agg].getResult(outputBuffer, curCol, aggStates.get(group)[agg]);
+        }
+        curCol += aggregators[agg].getResultSchema().numColumns();
+      }
+    }
+    numFlushedGroups += numGroups;
+    resetGroups();
+  }
+
+  /**
+   * Convert each tuple of a batch into a partial aggregate of one tuple, without aggregating.
+   *
+   * @param tb the source {@link TupleBatch}
+   * @return the partial aggregates.
+   */
+  private TupleBatch toPartial(final TupleBatch tb) {
+    final int numTuples = tb.numTuples();
+    final List<? extends Column<?>> input = tb.getDataColumns();
+    final ImmutableList.Builder<Column<?>> columns = ImmutableList.builder();
+    for (int column : gfields) {
+      columns.add(input.get(column));
+    }
+    final Column<?> one = new ConstantValueColumn(1L, Type.LONG_TYPE, numTuples);
+    for (AggregatorFactory factory : factories) {
+      if (factory instanceof CountAllAggregatorFactory) {
+        columns.add(one);
+        continue;
+      }
+      final Column<?> values = input.get(((SingleColumnAggregatorFactory) factory).getColumn());
+      for (AggregationOp op : getOps((SingleColumnAggregatorFactory) factory)) {
+        if (op == AggregationOp.COUNT) {
+          columns.add(one);
+        } else if (op == AggregationOp.SUM && values.getType() == Type.INT_TYPE) {
+          final LongColumnBuilder sums = new LongColumnBuilder();
+          for (int row = 0; row < numTuples; ++row) {
+            sums.appendLong(values.getInt(row));
+          }
+          columns.add(sums.build());
+        } else if (op == AggregationOp.SUM && values.getType() == Type.FLOAT_TYPE) {
+          final DoubleColumnBuilder sums = new DoubleColumnBuilder();
+          for (int row = 0; row < numTuples; ++row) {
+            sums.appendDouble(values.getFloat(row));
+          }
+          columns.add(sums.build());
+        } else {
+          columns.add(values);
+        }
+      }
+    }
+    return new TupleBatch(getSchema(), columns.build());
+  }
+
+  /**
+   * Start over with an empty hash table.
+   */
+  private void resetGroups() {
+    groupKeys = new JoinHashTable(groupSchema);
+    columnarStates = ColumnarAggState.of(aggregators);
+    aggStates = columnarStates == null ? new ArrayList<Object[]>() : null;
+  }
+
+  @Override
+  protected Schema generateSchema() {
+    Operator child = getChild();
+    if (child == null) {
+      return null;
+    }
+    Schema inputSchema = child.getSchema();
+    if (inputSchema == null) {
+      return null;
+    }
+
+    groupSchema = inputSchema.getSubSchema(gfields);
+    Schema outputSchema = groupSchema;
+    try {
+      for (Aggregator agg : AggUtils.allocateAggs(factories, inputSchema)) {
+        outputSchema = Schema.merge(outputSchema, agg.getResultSchema());
+      }
+    } catch (DbException e) {
+      throw new RuntimeException("unable to allocate aggregators to determine output schema", e);
+    }
+    return outputSchema;
+  }
+
+  @Override
+  protected void init(final ImmutableMap<String, Object> execEnvVars) throws DbException {
+    Preconditions.checkState(getSchema() != null, "unable to determine schema in init");
+    aggregators = AggUtils.allocateAggs(factories, getChild().getSchema());
+    outputBuffer = new TupleBatchBuffer(getSchema());
+    numInputTuples = 0;
+    numFlushedGroups = 0;
+    passThrough = false;
+    resetGroups();
+  }
+
+  @Override
+  protected void cleanup() throws DbException {
+    groupKeys = null;
+    aggStates = null;
+    columnarStates = null;
+    groupIds = null;
+    rowHashes = null;
+    outputBuffer = null;
+  }
+}
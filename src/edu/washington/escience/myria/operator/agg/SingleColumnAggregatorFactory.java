@@ -40,6 +40,20 @@ public class SingleColumnAggregatorFactory implements AggregatorFactory {
     }
   }
 
+  /**
+   * @return which column of the input to aggregate over.
+   */
+  int getColumn() {
+    return column;
+  }
+
+  /**
+   * @return which aggregate operations are requested.
+   */
+  AggregationOp[] getAggOps() {
+    return aggOps;
+  }
+
   @Override
   public Aggregator get(final Schema inputSchema) {
     Objects.requireNonNull(inputSchema, "inputSchema");
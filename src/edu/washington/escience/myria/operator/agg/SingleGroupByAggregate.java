@@ -1,5 +1,6 @@
 package edu.washington.escience.myria.operator.agg;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -18,14 +19,19 @@ import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.DictionaryStringColumn;
 import edu.washington.escience.myria.operator.Operator;
 import edu.washington.escience.myria.operator.UnaryOperator;
 import edu.washington.escience.myria.storage.ReadableTable;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
 
 /**
  * The Aggregation operator that computes an aggregate (e.g., sum, avg, max, min) with a single group by column.
+ *
+ * With a memory budget, the rows of new groups are partitioned to disk once the groups in memory exceed the budget, and
+ * the partitions are aggregated one at a time at the end (see {@link AggregateSpill}).
  */
 public class SingleGroupByAggregate extends UnaryOperator {
 
@@ -97,6 +103,17 @@ public class SingleGroupByAggregate extends UnaryOperator {
    */
   private transient TupleBatchBuffer resultBuffer;
 
+  /** The memory budget of the groups, in bytes. 0 means unlimited. */
+  private long memoryBudget = 0;
+  /** The group by column, as an array of grouping columns. */
+  private transient int[] gColumns;
+  /** The estimated heap memory used by the groups in memory, in bytes. */
+  private transient long groupBytes;
+  /** The estimated heap memory used by the aggregation states of one group, in bytes. */
+  private transient long stateBytes;
+  /** The partitions on disk, once the groups have exceeded the memory budget. */
+  private transient AggregateSpill spill;
+
   /**
    * Constructor.
    *
@@ -121,6 +138,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
     intAggState = null;
     longAggState = null;
     resultBuffer = null;
+    if (spill != null) {
+      spill.close();
+      spill = null;
+    }
   }
 
   /**
@@ -129,7 +150,8 @@ public class SingleGroupByAggregate extends UnaryOperator {
    *
    * @param table the data to be aggregated.
    * @param row which row of the table is to be aggregated.
-   * @return the aggregation state for that row.
+   * @return the aggregation state for that row, or null if the row belongs to a new group that does not fit the memory
+   *         budget and must be spilled.
    * @throws DbException if there is an error.
    */
   private Object[] getAggState(final ReadableTable table, final int row) throws DbException {
@@ -155,7 +177,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
         String groupByString = table.getString(gColumn, row);
         aggState = stringAggState.get(groupByString);
         if (aggState == null) {
-          aggState = AggUtils.allocateAggStates(aggregators);
+          aggState = newAggState(table, row);
+          if (aggState == null) {
+            return null;
+          }
           stringAggState.put(groupByString, aggState);
         }
         break;
@@ -163,7 +188,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
         DateTime groupByDateTime = table.getDateTime(gColumn, row);
         aggState = datetimeAggState.get(groupByDateTime);
         if (aggState == null) {
-          aggState = AggUtils.allocateAggStates(aggregators);
+          aggState = newAggState(table, row);
+          if (aggState == null) {
+            return null;
+          }
           datetimeAggState.put(groupByDateTime, aggState);
         }
         break;
@@ -171,7 +199,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
         int groupByInt = table.getInt(gColumn, row);
         aggState = intAggState.get(groupByInt);
         if (aggState == null) {
-          aggState = AggUtils.allocateAggStates(aggregators);
+          aggState = newAggState(table, row);
+          if (aggState == null) {
+            return null;
+          }
           intAggState.put(groupByInt, aggState);
         }
         break;
@@ -179,7 +210,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
         long groupByLong = table.getLong(gColumn, row);
         aggState = longAggState.get(groupByLong);
         if (aggState == null) {
-          aggState = AggUtils.allocateAggStates(aggregators);
+          aggState = newAggState(table, row);
+          if (aggState == null) {
+            return null;
+          }
           longAggState.put(groupByLong, aggState);
         }
         break;
@@ -187,7 +221,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
         float groupByFloat = table.getFloat(gColumn, row);
         aggState = floatAggState.get(groupByFloat);
         if (aggState == null) {
-          aggState = AggUtils.allocateAggStates(aggregators);
+          aggState = newAggState(table, row);
+          if (aggState == null) {
+            return null;
+          }
           floatAggState.put(groupByFloat, aggState);
         }
         break;
@@ -195,7 +232,10 @@ public class SingleGroupByAggregate extends UnaryOperator {
         double groupByDouble = table.getDouble(gColumn, row);
         aggState = doubleAggState.get(groupByDouble);
         if (aggState == null) {
-          aggState = AggUtils.allocateAggStates(aggregators);
+          aggState = newAggState(table, row);
+          if (aggState == null) {
+            return null;
+          }
           doubleAggState.put(groupByDouble, aggState);
         }
         break;
@@ -206,17 +246,68 @@ public class SingleGroupByAggregate extends UnaryOperator {
     return aggState;
   }
 
+  /**
+   * Allocate the aggregation states of a new group, unless the groups in memory exceed the memory budget.
+   *
+   * @param table the data to be aggregated.
+   * @param row the row of the table that starts the new group.
+   * @return the aggregation states of the new group, or null if the row must be spilled.
+   * @throws DbException if there is an error.
+   */
+  private Object[] newAggState(final ReadableTable table, final int row) throws DbException {
+    if (memoryBudget > 0) {
+      if (groupBytes >= memoryBudget) {
+        if (spill == null) {
+          spill = new AggregateSpill(getChild().getSchema(), gColumns);
+        }
+        if (spill.canSpill()) {
+          return null;
+        }
+      }
+      groupBytes += stateBytes + TupleUtils.estimateBytes(table, gColumns, row);
+    }
+    return AggUtils.allocateAggStates(aggregators);
+  }
+
   /**
    * @param tb the TupleBatch to be processed.
    * @throws DbException if there is an error.
    */
   private void processTupleBatch(final TupleBatch tb) throws DbException {
+    BitSet spilled = null;
+    /* For a dictionary-encoded group column, the groups are looked up once per code. */
+    DictionaryStringColumn dictionaryColumn = null;
+    Object[][] groupsByCode = null;
+    if (gColumnType == Type.STRING_TYPE && tb.asColumn(gColumn) instanceof DictionaryStringColumn) {
+      dictionaryColumn = (DictionaryStringColumn) tb.asColumn(gColumn);
+      groupsByCode = new Object[dictionaryColumn.getDictionary().length][];
+    }
     for (int i = 0; i < tb.numTuples(); ++i) {
-      Object[] groupAgg = getAggState(tb, i);
+      Object[] groupAgg;
+      if (dictionaryColumn != null) {
+        final int code = dictionaryColumn.getCode(i);
+        groupAgg = groupsByCode[code];
+        if (groupAgg == null) {
+          groupAgg = getAggState(tb, i);
+          groupsByCode[code] = groupAgg;
+        }
+      } else {
+        groupAgg = getAggState(tb, i);
+      }
+      if (groupAgg == null) {
+        if (spilled == null) {
+          spilled = new BitSet(tb.numTuples());
+        }
+        spilled.set(i);
+        continue;
+      }
       for (int agg = 0; agg < aggregators.length; ++agg) {
         aggregators[agg].addRow(tb, i, groupAgg[agg]);
       }
     }
+    if (spilled != null) {
+      spill.add(tb, spilled);
+    }
   }
 
   /**
@@ -302,7 +393,7 @@ public class SingleGroupByAggregate extends UnaryOperator {
     }
 
     if (child.eos()) {
-      return null;
+      return popResult();
     }
 
     while ((tb = child.nextReady()) != null) {
@@ -315,6 +406,25 @@ public class SingleGroupByAggregate extends UnaryOperator {
 
     if (child.eos()) {
       generateResult(resultBuffer);
+      return popResult();
+    }
+    return resultBuffer.popAny();
+  }
+
+  /**
+   * Must only be called once the child is EOS and all groups in memory have been added to the result buffer.
+   *
+   * @return the next batch of results, or null if there is none left. Partitions on disk are aggregated until there is
+   *         one.
+   * @throws DbException if there is an error.
+   */
+  private TupleBatch popResult() throws DbException {
+    while (resultBuffer.numTuples() == 0 && spill != null && spill.nextPartition()) {
+      resetGroups();
+      for (TupleBatch tb = spill.nextBatch(); tb != null; tb = spill.nextBatch()) {
+        processTupleBatch(tb);
+      }
+      generateResult(resultBuffer);
     }
     return resultBuffer.popAny();
   }
@@ -332,7 +442,17 @@ public class SingleGroupByAggregate extends UnaryOperator {
 
     aggregators = AggUtils.allocateAggs(factories, getChild().getSchema());
     resultBuffer = new TupleBatchBuffer(getSchema());
+    gColumns = new int[] {gColumn};
+    stateBytes =
+        AggregateSpill.GROUP_OVERHEAD_BYTES + AggregateSpill.AGG_STATE_BYTES * aggregators.length;
+    resetGroups();
+  }
 
+  /**
+   * Start over with no groups in memory.
+   */
+  private void resetGroups() {
+    groupBytes = 0;
     switch (gColumnType) {
       case BOOLEAN_TYPE:
         booleanAggState = new Object[2][];
@@ -358,6 +478,27 @@ public class SingleGroupByAggregate extends UnaryOperator {
     }
   }
 
+  /**
+   * @return the number of bytes spilled to disk.
+   */
+  public long getBytesSpilled() {
+    if (spill == null) {
+      return 0;
+    }
+    return spill.getBytesSpilled();
+  }
+
+  /**
+   * Bound the estimated heap memory used by the groups. Once the groups in memory exceed the budget, the rows of new
+   * groups are partitioned to disk, and the partitions are aggregated one at a time once the child is EOS.
+   *
+   * @param memoryBudget the memory budget in bytes, or 0 for no limit.
+   */
+  public void setMemoryBudget(final long memoryBudget) {
+    Preconditions.checkArgument(memoryBudget >= 0, "memory budget must be non-negative");
+    this.memoryBudget = memoryBudget;
+  }
+
   @Override
   protected Schema generateSchema() {
     Operator child = getChild();
@@ -106,6 +106,7 @@ public final class StringAggregator extends PrimitiveAggregator {
         case SUM:
           throw new UnsupportedOperationException("Aggregate " + op + " on type String");
       }
+      idx++;
     }
   }
 
@@ -70,8 +70,9 @@ public final class SingleFieldHashPartitionFunction extends PartitionFunction {
   @Override
   public int[] partition(final @Nonnull TupleBatch tb) {
     final int[] result = new int[tb.numTuples()];
+    HashUtils.hashValues(tb, index, seedIndex, result);
     for (int i = 0; i < result.length; i++) {
-      int p = HashUtils.hashValue(tb, index, i, seedIndex) % numPartition();
+      int p = result[i] % numPartition();
       if (p < 0) {
         p = p + numPartition();
       }
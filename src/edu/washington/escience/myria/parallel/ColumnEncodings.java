@@ -0,0 +1,531 @@
+package edu.washington.escience.myria.parallel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
+import org.joda.time.DateTime;
+
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.BooleanColumn;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.DateTimeColumn;
+import edu.washington.escience.myria.column.DoubleBufferColumn;
+import edu.washington.escience.myria.column.FloatBufferColumn;
+import edu.washington.escience.myria.column.IntArrayColumn;
+import edu.washington.escience.myria.column.IntBufferColumn;
+import edu.washington.escience.myria.column.LongBufferColumn;
+import edu.washington.escience.myria.column.LongColumn;
+import edu.washington.escience.myria.column.builder.ColumnFactory;
+import edu.washington.escience.myria.proto.DataProto.ColumnMessage;
+
+/**
+ * The encodings of the columns of a {@link ColumnarFrame}. The data of a column starts with one byte naming its
+ * encoding.
+ *
+ * Int, long and datetime columns are handled as 64-bit integers. Frame-of-reference encoding subtracts the minimum from
+ * every value and packs the differences with as many bits as the largest one needs. Delta encoding does the same with
+ * the differences between consecutive values, which suits sorted or sequential columns. Run-length encoding writes
+ * each run of equal values once, with its length.
+ */
+final class ColumnEncodings {
+  /** The values as is, in big-endian order. Datetimes are written as milliseconds. */
+  static final byte PLAIN = 0;
+  /** A serialized {@link ColumnMessage}. */
+  static final byte PROTO = 1;
+  /** The minimum, the number of bits per value, and the bit-packed differences to the minimum. */
+  static final byte FRAME_OF_REFERENCE = 2;
+  /** The first value, the minimum delta, the number of bits per delta, and the bit-packed deltas minus the minimum. */
+  static final byte DELTA = 3;
+  /** The number of runs, then the value and the length of each run. */
+  static final byte RUN_LENGTH = 4;
+  /** Booleans packed in 64-bit words. */
+  static final byte BITS = 5;
+  /** The length of the inflated data, then the deflated data, which is an encoded column itself. */
+  static final byte DEFLATE = 6;
+
+  /** The deflater of each thread. */
+  private static final ThreadLocal<Deflater> DEFLATER =
+      new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+          return new Deflater(Deflater.BEST_SPEED);
+        }
+      };
+  /** The inflater of each thread. */
+  private static final ThreadLocal<Inflater> INFLATER =
+      new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+          return new Inflater();
+        }
+      };
+
+  /** Utility class cannot be instantiated. */
+  private ColumnEncodings() {}
+
+  /**
+   * @param type a type stored as fixed-size values.
+   * @return the size of a value in bytes.
+   */
+  private static int width(final Type type) {
+    switch (type) {
+      case INT_TYPE:
+        return Integer.BYTES;
+      case FLOAT_TYPE:
+        return Float.BYTES;
+      case LONG_TYPE:
+        return Long.BYTES;
+      case DOUBLE_TYPE:
+        return Double.BYTES;
+      case DATETIME_TYPE:
+        return Long.BYTES;
+      default:
+        throw new IllegalArgumentException("No fixed-size values for " + type);
+    }
+  }
+
+  /**
+   * @param length the number of bytes.
+   * @return an empty direct buffer of the specified capacity.
+   */
+  private static ChannelBuffer allocate(final int length) {
+    return DirectChannelBufferFactory.getInstance().getBuffer(length);
+  }
+
+  /**
+   * @param column an int, long, float, double or datetime column.
+   * @param numTuples the number of tuples in the column.
+   * @return the column in {@link #PLAIN} encoding.
+   */
+  static ChannelBuffer plain(final Column<?> column, final int numTuples) {
+    final int length = numTuples * width(column.getType());
+    final ChannelBuffer ret = allocate(1 + length);
+    ret.writeByte(PLAIN);
+    final ByteBuffer view = ret.toByteBuffer(1, length);
+    switch (column.getType()) {
+      case INT_TYPE:
+        view.asIntBuffer().put(column.getIntArray(), 0, numTuples);
+        break;
+      case LONG_TYPE:
+        view.asLongBuffer().put(column.getLongArray(), 0, numTuples);
+        break;
+      case FLOAT_TYPE:
+        view.asFloatBuffer().put(column.getFloatArray(), 0, numTuples);
+        break;
+      case DOUBLE_TYPE:
+        view.asDoubleBuffer().put(column.getDoubleArray(), 0, numTuples);
+        break;
+      default:
+        view.asLongBuffer().put(toLongs(column, numTuples), 0, numTuples);
+    }
+    ret.writerIndex(ret.capacity());
+    return ret;
+  }
+
+  /**
+   * @param column any column.
+   * @return the column in {@link #PROTO} encoding.
+   */
+  static ChannelBuffer proto(final Column<?> column) {
+    return ChannelBuffers.wrappedBuffer(
+        new byte[] {PROTO}, column.serializeToProto().toByteArray());
+  }
+
+  /**
+   * @param column a boolean column.
+   * @param numTuples the number of tuples in the column.
+   * @return the column in {@link #BITS} encoding.
+   */
+  static ChannelBuffer bits(final Column<?> column, final int numTuples) {
+    final long[] words = new long[(numTuples + Long.SIZE - 1) / Long.SIZE];
+    for (int i = 0; i < numTuples; ++i) {
+      if (column.getBoolean(i)) {
+        words[i >>> 6] |= 1L << i;
+      }
+    }
+    final ChannelBuffer ret = allocate(1 + words.length * Long.BYTES);
+    ret.writeByte(BITS);
+    for (long word : words) {
+      ret.writeLong(word);
+    }
+    return ret;
+  }
+
+  /**
+   * @param column an int, long or datetime column.
+   * @param numTuples the number of tuples in the column.
+   * @return the values of the column as longs. The array may be longer than the number of tuples.
+   */
+  private static long[] toLongs(final Column<?> column, final int numTuples) {
+    switch (column.getType()) {
+      case LONG_TYPE:
+        return column.getLongArray();
+      case INT_TYPE:
+        final int[] ints = column.getIntArray();
+        final long[] ret = new long[numTuples];
+        for (int i = 0; i < numTuples; ++i) {
+          ret[i] = ints[i];
+        }
+        return ret;
+      default:
+        final long[] millis = new long[numTuples];
+        for (int i = 0; i < numTuples; ++i) {
+          millis[i] = column.getDateTime(i).getMillis();
+        }
+        return millis;
+    }
+  }
+
+  /**
+   * @param range an unsigned number.
+   * @return the number of bits needed to represent it.
+   */
+  private static int bitWidth(final long range) {
+    return Long.SIZE - Long.numberOfLeadingZeros(range);
+  }
+
+  /**
+   * @param count a number of values.
+   * @param bits the number of bits per value.
+   * @return the number of 64-bit words holding the packed values.
+   */
+  private static int numWords(final int count, final int bits) {
+    return (int) (((long) count * bits + Long.SIZE - 1) / Long.SIZE);
+  }
+
+  /**
+   * Encode an int, long or datetime column with the smallest of the integer encodings, unless it is not smaller than
+   * the plain encoding by the specified ratio.
+   *
+   * @param column an int, long or datetime column.
+   * @param numTuples the number of tuples in the column.
+   * @param maxRatio the largest ratio between the encoded and the plain size for which an encoding is used.
+   * @return the encoded column.
+   */
+  static ChannelBuffer integers(
+      final Column<?> column, final int numTuples, final double maxRatio) {
+    if (numTuples < 2) {
+      return plain(column, numTuples);
+    }
+    final long[] values = toLongs(column, numTuples);
+    long min = values[0];
+    long max = values[0];
+    long minDelta = Long.MAX_VALUE;
+    long maxDelta = Long.MIN_VALUE;
+    int runs = 1;
+    for (int i = 1; i < numTuples; ++i) {
+      final long v = values[i];
+      min = Math.min(min, v);
+      max = Math.max(max, v);
+      final long delta = v - values[i - 1];
+      minDelta = Math.min(minDelta, delta);
+      maxDelta = Math.max(maxDelta, delta);
+      if (delta != 0) {
+        runs++;
+      }
+    }
+    final int width = width(column.getType());
+    final int forBits = bitWidth(max - min);
+    final int deltaBits = bitWidth(maxDelta - minDelta);
+    final long plainSize = (long) numTuples * width;
+    final long forSize = Long.BYTES + 1 + (long) numWords(numTuples, forBits) * Long.BYTES;
+    final long deltaSize =
+        Long.BYTES + Long.BYTES + 1 + (long) numWords(numTuples - 1, deltaBits) * Long.BYTES;
+    final long runLengthSize = Integer.BYTES + (long) runs * (width + Integer.BYTES);
+    final long best = Math.min(forSize, Math.min(deltaSize, runLengthSize));
+    if (best > plainSize * maxRatio) {
+      return plain(column, numTuples);
+    }
+
+    final ChannelBuffer ret = allocate(1 + (int) best);
+    if (best == runLengthSize) {
+      ret.writeByte(RUN_LENGTH);
+      ret.writeInt(runs);
+      int start = 0;
+      for (int i = 1; i <= numTuples; ++i) {
+        if (i == numTuples || values[i] != values[start]) {
+          if (width == Integer.BYTES) {
+            ret.writeInt((int) values[start]);
+          } else {
+            ret.writeLong(values[start]);
+          }
+          ret.writeInt(i - start);
+          start = i;
+        }
+      }
+    } else if (best == forSize) {
+      ret.writeByte(FRAME_OF_REFERENCE);
+      ret.writeLong(min);
+      ret.writeByte(forBits);
+      final long[] words = new long[numWords(numTuples, forBits)];
+      for (int i = 0; i < numTuples; ++i) {
+        pack(words, i, forBits, values[i] - min);
+      }
+      for (long word : words) {
+        ret.writeLong(word);
+      }
+    } else {
+      ret.writeByte(DELTA);
+      ret.writeLong(values[0]);
+      ret.writeLong(minDelta);
+      ret.writeByte(deltaBits);
+      final long[] words = new long[numWords(numTuples - 1, deltaBits)];
+      for (int i = 1; i < numTuples; ++i) {
+        pack(words, i - 1, deltaBits, values[i] - values[i - 1] - minDelta);
+      }
+      for (long word : words) {
+        ret.writeLong(word);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @param words the packed values.
+   * @param index the index of the value to set.
+   * @param bits the number of bits per value.
+   * @param value the value, which must fit in the number of bits.
+   */
+  private static void pack(final long[] words, final int index, final int bits, final long value) {
+    if (bits == 0) {
+      return;
+    }
+    final long bit = (long) index * bits;
+    final int word = (int) (bit >>> 6);
+    final int offset = (int) (bit & (Long.SIZE - 1));
+    words[word] |= value << offset;
+    if (offset + bits > Long.SIZE) {
+      words[word + 1] |= value >>> (Long.SIZE - offset);
+    }
+  }
+
+  /**
+   * @param words the packed values.
+   * @param index the index of the value to get.
+   * @param bits the number of bits per value.
+   * @return the value.
+   */
+  private static long unpack(final long[] words, final int index, final int bits) {
+    if (bits == 0) {
+      return 0;
+    }
+    final long bit = (long) index * bits;
+    final int word = (int) (bit >>> 6);
+    final int offset = (int) (bit & (Long.SIZE - 1));
+    long ret = words[word] >>> offset;
+    if (offset + bits > Long.SIZE) {
+      ret |= words[word + 1] << (Long.SIZE - offset);
+    }
+    if (bits == Long.SIZE) {
+      return ret;
+    }
+    return ret & ((1L << bits) - 1);
+  }
+
+  /**
+   * @param data the source of the words.
+   * @param count the number of words.
+   * @return the words.
+   */
+  private static long[] readWords(final ChannelBuffer data, final int count) {
+    final long[] ret = new long[count];
+    for (int i = 0; i < count; ++i) {
+      ret[i] = data.readLong();
+    }
+    return ret;
+  }
+
+  /**
+   * @param encoded a column in {@link #PLAIN} or another encoding, with the encoding byte.
+   * @return the column in {@link #DEFLATE} encoding.
+   */
+  static ChannelBuffer deflate(final ChannelBuffer encoded) {
+    final int length = encoded.readableBytes();
+    final byte[] input = new byte[length];
+    encoded.getBytes(encoded.readerIndex(), input);
+    final Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+    final ChannelBuffer ret = ChannelBuffers.dynamicBuffer(1 + Integer.BYTES + length / 2);
+    ret.writeByte(DEFLATE);
+    ret.writeInt(length);
+    final byte[] chunk = new byte[Math.max(64, Math.min(length, 64 * 1024))];
+    while (!deflater.finished()) {
+      final int n = deflater.deflate(chunk);
+      ret.writeBytes(chunk, 0, n);
+    }
+    return ret;
+  }
+
+  /**
+   * @param data the data of a {@link #DEFLATE}-encoded column, after the encoding byte.
+   * @return the inflated column, which starts with its own encoding byte.
+   * @throws IOException if the data is corrupt.
+   */
+  private static ChannelBuffer inflate(final ChannelBuffer data) throws IOException {
+    final byte[] output = new byte[data.readInt()];
+    final byte[] input = new byte[data.readableBytes()];
+    data.readBytes(input);
+    final Inflater inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(input);
+    try {
+      int n = 0;
+      while (n < output.length && !inflater.finished()) {
+        final int read = inflater.inflate(output, n, output.length - n);
+        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += read;
+      }
+      if (n != output.length) {
+        throw new IOException("Deflated column has " + n + " bytes instead of " + output.length);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    return ChannelBuffers.wrappedBuffer(output);
+  }
+
+  /**
+   * Decode a column. Columns in {@link #PLAIN} encoding, except datetimes, are views of the data.
+   *
+   * @param data the data of the column, starting with the encoding byte.
+   * @param type the type of the column.
+   * @param numTuples the number of tuples in the column.
+   * @return the column.
+   * @throws IOException if the data is not a column of the specified type.
+   */
+  static Column<?> decode(final ChannelBuffer data, final Type type, final int numTuples)
+      throws IOException {
+    final byte encoding = data.readByte();
+    switch (encoding) {
+      case PLAIN:
+        return decodePlain(data, type, numTuples);
+      case PROTO:
+        return ColumnFactory.columnFromColumnMessage(
+            ColumnMessage.parseFrom(new ChannelBufferInputStream(data)), numTuples);
+      case FRAME_OF_REFERENCE:
+      case DELTA:
+      case RUN_LENGTH:
+        return fromLongs(type, decodeIntegers(data, encoding, type, numTuples));
+      case BITS:
+        return new BooleanColumn(
+            BitSet.valueOf(readWords(data, numWords(numTuples, 1))), numTuples);
+      case DEFLATE:
+        return decode(inflate(data), type, numTuples);
+      default:
+        throw new IOException("Unknown column encoding " + encoding);
+    }
+  }
+
+  /**
+   * @param data the data of a {@link #PLAIN}-encoded column, after the encoding byte.
+   * @param type the type of the column.
+   * @param numTuples the number of tuples in the column.
+   * @return the column.
+   * @throws IOException if the data does not have the expected length.
+   */
+  private static Column<?> decodePlain(
+      final ChannelBuffer data, final Type type, final int numTuples) throws IOException {
+    if (data.readableBytes() != numTuples * width(type)) {
+      throw new IOException(
+          "Column of " + numTuples + " " + type + " values has " + data.readableBytes() + " bytes");
+    }
+    final ByteBuffer view = data.toByteBuffer();
+    switch (type) {
+      case INT_TYPE:
+        return new IntBufferColumn(view.asIntBuffer());
+      case LONG_TYPE:
+        return new LongBufferColumn(view.asLongBuffer());
+      case FLOAT_TYPE:
+        return new FloatBufferColumn(view.asFloatBuffer());
+      case DOUBLE_TYPE:
+        return new DoubleBufferColumn(view.asDoubleBuffer());
+      default:
+        final long[] millis = new long[numTuples];
+        view.asLongBuffer().get(millis);
+        return fromLongs(type, millis);
+    }
+  }
+
+  /**
+   * @param data the data of the column, after the encoding byte.
+   * @param encoding {@link #FRAME_OF_REFERENCE}, {@link #DELTA} or {@link #RUN_LENGTH}.
+   * @param type the type of the column.
+   * @param numTuples the number of tuples in the column.
+   * @return the values.
+   * @throws IOException if the data is corrupt.
+   */
+  private static long[] decodeIntegers(
+      final ChannelBuffer data, final byte encoding, final Type type, final int numTuples)
+      throws IOException {
+    final long[] ret = new long[numTuples];
+    if (encoding == RUN_LENGTH) {
+      final int runs = data.readInt();
+      final boolean isInt = width(type) == Integer.BYTES;
+      int row = 0;
+      for (int r = 0; r < runs; ++r) {
+        final long value = isInt ? data.readInt() : data.readLong();
+        final int length = data.readInt();
+        if (row + length > numTuples) {
+          throw new IOException("Runs have more than " + numTuples + " values");
+        }
+        for (int i = 0; i < length; ++i) {
+          ret[row++] = value;
+        }
+      }
+      return ret;
+    }
+    if (encoding == FRAME_OF_REFERENCE) {
+      final long min = data.readLong();
+      final int bits = data.readUnsignedByte();
+      final long[] words = readWords(data, numWords(numTuples, bits));
+      for (int i = 0; i < numTuples; ++i) {
+        ret[i] = min + unpack(words, i, bits);
+      }
+      return ret;
+    }
+    ret[0] = data.readLong();
+    final long minDelta = data.readLong();
+    final int bits = data.readUnsignedByte();
+    final long[] words = readWords(data, numWords(numTuples - 1, bits));
+    for (int i = 1; i < numTuples; ++i) {
+      ret[i] = ret[i - 1] + minDelta + unpack(words, i - 1, bits);
+    }
+    return ret;
+  }
+
+  /**
+   * @param type int, long or datetime.
+   * @param values the values of the column, with datetimes as milliseconds.
+   * @return the column.
+   */
+  private static Column<?> fromLongs(final Type type, final long[] values) {
+    switch (type) {
+      case INT_TYPE:
+        final int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; ++i) {
+          ints[i] = (int) values[i];
+        }
+        return new IntArrayColumn(ints, ints.length);
+      case LONG_TYPE:
+        return new LongColumn(values, values.length);
+      default:
+        final DateTime[] dates = new DateTime[values.length];
+        for (int i = 0; i < values.length; ++i) {
+          dates[i] = new DateTime(values[i]);
+        }
+        return new DateTimeColumn(dates, dates.length);
+    }
+  }
+}
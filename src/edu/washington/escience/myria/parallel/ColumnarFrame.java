@@ -0,0 +1,252 @@
+package edu.washington.escience.myria.parallel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.storage.TupleBatch;
+
+/**
+ * The columnar encoding of a {@link TupleBatch} sent over the network.
+ *
+ * A frame is a header followed by the data of each column. The header holds {@link #MARKER}, the number of tuples, the
+ * number of columns, and for each column its type and the length in bytes of its data. The data of a column is in one
+ * of the {@link ColumnEncodings}, chosen according to the {@link Compression} of the encoder. Plain values are written
+ * into direct buffers that are sent without being copied again, and the received int, long, float and double columns
+ * are views of the frame.
+ *
+ * An encoder may be shared by the threads sending batches.
+ */
+public final class ColumnarFrame {
+  /** The first byte of a frame. It is never the first byte of a protobuf message, whose first tag cannot be 0xff. */
+  public static final byte MARKER = (byte) 0xff;
+  /** The size of the fixed part of the header: the marker, the number of tuples and the number of columns. */
+  private static final int HEADER_BYTES = 1 + Integer.BYTES + Integer.BYTES;
+  /** The size of the header of each column: the type and the length of the data. */
+  private static final int COLUMN_HEADER_BYTES = 1 + Integer.BYTES;
+
+  /** How the columns of a frame are compressed. */
+  public enum Compression {
+    /** Values are written as is, and the received int, long, float and double columns are views of the frame. */
+    NONE,
+    /**
+     * Boolean columns are bit-packed, and int, long and datetime columns use frame-of-reference, delta or run-length
+     * encoding when it makes them notably smaller.
+     */
+    LIGHTWEIGHT,
+    /**
+     * Like {@link #LIGHTWEIGHT}, and the other columns are deflated, as long as this has made columns of their type
+     * notably smaller recently.
+     */
+    ADAPTIVE;
+
+    /**
+     * @param name the name of a compression, in any case.
+     * @return the compression.
+     */
+    public static Compression of(final String name) {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+  }
+
+  /** The largest ratio between the encoded and the original size of a column for which the encoding is used. */
+  private static final double MAX_RATIO = 0.75;
+  /** Columns smaller than this are not deflated. */
+  private static final int MIN_DEFLATE_BYTES = 512;
+  /** The weight of the last deflated column in the moving average of the ratios. */
+  private static final double RATIO_WEIGHT = 0.25;
+  /** When the moving average is too high, only one in this many columns is deflated to update it. */
+  private static final int PROBE_INTERVAL = 16;
+
+  /** How the columns are compressed. */
+  private final Compression compression;
+  /**
+   * For each type, the bits of the moving average of the ratio between the deflated and the original size of its
+   * columns.
+   */
+  private final AtomicLongArray deflateRatios;
+  /** The number of columns not deflated because of the moving average of their type. */
+  private final AtomicInteger deflateSkips = new AtomicInteger();
+
+  /**
+   * @param compression how the columns are compressed.
+   */
+  public ColumnarFrame(final Compression compression) {
+    this.compression = Objects.requireNonNull(compression, "compression");
+    deflateRatios = new AtomicLongArray(Type.values().length);
+    for (int i = 0; i < deflateRatios.length(); ++i) {
+      deflateRatios.set(i, Double.doubleToLongBits(0));
+    }
+  }
+
+  /**
+   * @return how the columns are compressed.
+   */
+  public Compression getCompression() {
+    return compression;
+  }
+
+  /**
+   * @param buffer a serialized IPC payload.
+   * @return whether the payload is a frame.
+   */
+  public static boolean isFrame(final ChannelBuffer buffer) {
+    return buffer.readable() && buffer.getByte(buffer.readerIndex()) == MARKER;
+  }
+
+  /**
+   * @param tb a batch that is not an EOI.
+   * @return the frame encoding the batch.
+   */
+  public ChannelBuffer encode(final TupleBatch tb) {
+    final List<? extends Column<?>> columns = tb.getDataColumns();
+    final int numTuples = tb.numTuples();
+    final ChannelBuffer[] parts = new ChannelBuffer[columns.size() + 1];
+    final ChannelBuffer header =
+        ChannelBuffers.buffer(HEADER_BYTES + COLUMN_HEADER_BYTES * columns.size());
+    header.writeByte(MARKER);
+    header.writeInt(numTuples);
+    header.writeInt(columns.size());
+    for (int i = 0; i < columns.size(); ++i) {
+      final Column<?> column = columns.get(i);
+      parts[i + 1] = encodeColumn(column, numTuples);
+      header.writeByte(column.getType().ordinal());
+      header.writeInt(parts[i + 1].readableBytes());
+    }
+    parts[0] = header;
+    return ChannelBuffers.wrappedBuffer(parts);
+  }
+
+  /**
+   * Encode a column on its own, as in a frame. Columns are also stored in this form by the columnar access method.
+   *
+   * @param column a column.
+   * @param numTuples the number of tuples in the column.
+   * @return the data of the column in a frame.
+   */
+  public ChannelBuffer encodeColumn(final Column<?> column, final int numTuples) {
+    final Type type = column.getType();
+    if (compression == Compression.NONE) {
+      switch (type) {
+        case INT_TYPE:
+        case LONG_TYPE:
+        case FLOAT_TYPE:
+        case DOUBLE_TYPE:
+          return ColumnEncodings.plain(column, numTuples);
+        default:
+          return ColumnEncodings.proto(column);
+      }
+    }
+    switch (type) {
+      case INT_TYPE:
+      case LONG_TYPE:
+      case DATETIME_TYPE:
+        return ColumnEncodings.integers(column, numTuples, MAX_RATIO);
+      case BOOLEAN_TYPE:
+        return ColumnEncodings.bits(column, numTuples);
+      case FLOAT_TYPE:
+      case DOUBLE_TYPE:
+        return maybeDeflate(type, ColumnEncodings.plain(column, numTuples));
+      default:
+        return maybeDeflate(type, ColumnEncodings.proto(column));
+    }
+  }
+
+  /**
+   * Deflate an encoded column in {@link Compression#ADAPTIVE} mode, if this makes it notably smaller. Columns are not
+   * deflated while the moving average of the ratio for their type is too high, except for one in
+   * {@link #PROBE_INTERVAL} to follow changes in the data.
+   *
+   * @param type the type of the column.
+   * @param encoded the encoded column.
+   * @return the encoded column, or its deflated version.
+   */
+  private ChannelBuffer maybeDeflate(final Type type, final ChannelBuffer encoded) {
+    final int length = encoded.readableBytes();
+    if (compression != Compression.ADAPTIVE || length < MIN_DEFLATE_BYTES) {
+      return encoded;
+    }
+    final double average = Double.longBitsToDouble(deflateRatios.get(type.ordinal()));
+    if (average > MAX_RATIO && deflateSkips.incrementAndGet() % PROBE_INTERVAL != 0) {
+      return encoded;
+    }
+    final ChannelBuffer deflated = ColumnEncodings.deflate(encoded);
+    final double ratio = (double) deflated.readableBytes() / length;
+    /* Concurrent updates may lose one of the ratios, which only delays the adaptation. */
+    deflateRatios.set(
+        type.ordinal(),
+        Double.doubleToLongBits(average * (1 - RATIO_WEIGHT) + ratio * RATIO_WEIGHT));
+    if (ratio > MAX_RATIO) {
+      return encoded;
+    }
+    return deflated;
+  }
+
+  /**
+   * Decode a column encoded by {@link #encodeColumn(Column, int)}. Plain int, long, float and double columns are views
+   * of the data, which must not be modified afterwards.
+   *
+   * @param data the data of the column.
+   * @param type the type of the column.
+   * @param numTuples the number of tuples in the column.
+   * @return the column.
+   * @throws IOException if the data is not a column of the specified type.
+   */
+  public static Column<?> decodeColumn(
+      final ChannelBuffer data, final Type type, final int numTuples) throws IOException {
+    return ColumnEncodings.decode(data, type, numTuples);
+  }
+
+  /**
+   * Decode a frame. The plain int, long, float and double columns of the result are views of the buffer, which must not
+   * be modified afterwards.
+   *
+   * @param buffer the frame, starting at the reader index, which is moved past the frame.
+   * @param schema the schema of the batch.
+   * @return the decoded batch.
+   * @throws IOException if the buffer is not a frame of the schema.
+   */
+  public static TupleBatch decode(final ChannelBuffer buffer, final Schema schema)
+      throws IOException {
+    if (buffer.readableBytes() < HEADER_BYTES || buffer.readByte() != MARKER) {
+      throw new IOException("Not a columnar frame");
+    }
+    final int numTuples = buffer.readInt();
+    final int numColumns = buffer.readInt();
+    if (numColumns != schema.numColumns()) {
+      throw new IOException(
+          "Frame has " + numColumns + " columns, but the schema has " + schema.numColumns());
+    }
+    final Type[] types = new Type[numColumns];
+    final int[] lengths = new int[numColumns];
+    for (int i = 0; i < numColumns; ++i) {
+      types[i] = Type.values()[buffer.readUnsignedByte()];
+      lengths[i] = buffer.readInt();
+      if (types[i] != schema.getColumnType(i)) {
+        throw new IOException(
+            "Column "
+                + i
+                + " of the frame is "
+                + types[i]
+                + " instead of "
+                + schema.getColumnType(i));
+      }
+    }
+
+    final List<Column<?>> columns = new ArrayList<>(numColumns);
+    for (int i = 0; i < numColumns; ++i) {
+      columns.add(ColumnEncodings.decode(buffer.readSlice(lengths[i]), types[i], numTuples));
+    }
+    return new TupleBatch(schema, columns, numTuples);
+  }
+}
@@ -21,11 +21,15 @@ import com.google.common.collect.ImmutableMap;
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
 import edu.washington.escience.myria.MyriaConstants.ProfilingMode;
+import edu.washington.escience.myria.operator.FusedPipeline;
 import edu.washington.escience.myria.operator.IDBController;
 import edu.washington.escience.myria.operator.LeapFrogJoin;
 import edu.washington.escience.myria.operator.Operator;
+import edu.washington.escience.myria.operator.RightHashJoin;
 import edu.washington.escience.myria.operator.RootOperator;
 import edu.washington.escience.myria.operator.SymmetricHashJoin;
+import edu.washington.escience.myria.operator.agg.MultiGroupByAggregate;
+import edu.washington.escience.myria.operator.agg.SingleGroupByAggregate;
 import edu.washington.escience.myria.operator.network.Consumer;
 import edu.washington.escience.myria.operator.network.Producer;
 import edu.washington.escience.myria.parallel.ipc.IPCConnectionPool;
@@ -165,6 +169,13 @@ public final class LocalFragment {
     this.root = root;
     myExecutor = executor;
     this.localSubQuery = localSubQuery;
+    if (localSubQuery.getProfilingMode().isEmpty()) {
+      /* Profiling logs events of every operator, so operators are only fused without it. */
+      FusedPipeline fused = FusedPipeline.fuse(root);
+      if (fused != null) {
+        LOGGER.debug("Fused {} operators below {}", fused.getStages().size(), root);
+      }
+    }
     fragmentExecutionFuture = new LocalFragmentFuture(this, true);
     idbControllerSet = new HashSet<IDBController>();
     HashSet<StreamIOChannelID> outputChannelSet = new HashSet<StreamIOChannelID>();
@@ -865,6 +876,32 @@ public final class LocalFragment {
           "hashTableSize",
           ((SymmetricHashJoin) op).getNumTuplesInHashTables(),
           subQueryId);
+      addResourceReport(
+          stats,
+          timestamp,
+          op,
+          "bytesSpilled",
+          ((SymmetricHashJoin) op).getBytesSpilled(),
+          subQueryId);
+    } else if (op instanceof RightHashJoin) {
+      addResourceReport(
+          stats, timestamp, op, "bytesSpilled", ((RightHashJoin) op).getBytesSpilled(), subQueryId);
+    } else if (op instanceof MultiGroupByAggregate) {
+      addResourceReport(
+          stats,
+          timestamp,
+          op,
+          "bytesSpilled",
+          ((MultiGroupByAggregate) op).getBytesSpilled(),
+          subQueryId);
+    } else if (op instanceof SingleGroupByAggregate) {
+      addResourceReport(
+          stats,
+          timestamp,
+          op,
+          "bytesSpilled",
+          ((SingleGroupByAggregate) op).getBytesSpilled(),
+          subQueryId);
     } else if (op instanceof LeapFrogJoin) {
       addResourceReport(
           stats,
@@ -0,0 +1,367 @@
+package edu.washington.escience.myria.parallel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.MyriaConstants.QueryPriority;
+
+/**
+ * Decides which queued queries the master starts, and when.
+ *
+ * Queries wait in one queue per {@link QueryPriority}. The next query comes from the queue whose virtual time is the
+ * smallest, and starting a query advances the virtual time of its queue by the inverse of the weight of its priority,
+ * so the priorities get started queries in proportion to their weights while they all have queries waiting.
+ *
+ * A query starts only if it fits on every worker that recently reported its resource usage: the load average per core
+ * must be at most a limit, and the memory in use plus the footprint of the query plus the part of the footprints of the
+ * running queries that has not shown up yet must be at most a fraction of the heap. The footprint of a query is the
+ * largest growth of the memory in use on a worker that was seen while the same query text ran before, or a default if
+ * it never ran. When nothing runs, the next query always starts, so that a query larger than the limit still runs.
+ *
+ * The queue of each priority is bounded, which pushes back on clients when the cluster is saturated.
+ */
+final class QueryAdmission {
+  /** The time after which the resource usage that a worker reported is ignored, e.g., because it died. */
+  private static final long STALE_MILLIS = 10 * MyriaConstants.RESOURCE_REPORT_INTERVAL;
+  /** The fraction of a worker's heap that a query which has not run yet is expected to use. */
+  static final double DEFAULT_FOOTPRINT = 0.1;
+  /** The smallest footprint remembered for a query, so that a query that freed memory still reserves some. */
+  private static final double MIN_FOOTPRINT = 0.01;
+  /** The number of query texts whose footprints are remembered. */
+  private static final int MAX_FOOTPRINTS = 1000;
+
+  /** The largest number of running queries. */
+  private final int maxRunning;
+  /** The largest number of queued queries of NORMAL priority. */
+  private final int maxQueued;
+  /** The fraction of a worker's heap that the running queries may use. */
+  private final double memoryFraction;
+  /** The load average per core of a worker above which no query starts. */
+  private final double maxLoad;
+
+  /** The queued queries of each priority, in the order in which they were submitted. */
+  private final Map<QueryPriority, ArrayDeque<Queued>> queues;
+  /** The virtual time of the queue of each priority. */
+  private final Map<QueryPriority, Double> passes;
+  /** The running queries, by id. */
+  private final Map<Long, Running> running;
+  /** The latest resource usage of each worker, by id. */
+  private final Map<Integer, WorkerUsage> workers;
+  /** The footprints of the query texts that ran most recently. */
+  private final LinkedHashMap<String, Double> footprints;
+
+  /**
+   * @param maxRunning the largest number of running queries.
+   * @param maxQueued the largest number of queued queries of NORMAL priority. The other priorities may queue in
+   *          proportion to their weights.
+   * @param memoryFraction the fraction of a worker's heap that the running queries may use.
+   * @param maxLoad the load average per core of a worker above which no query starts.
+   */
+  QueryAdmission(
+      final int maxRunning,
+      final int maxQueued,
+      final double memoryFraction,
+      final double maxLoad) {
+    Preconditions.checkArgument(maxRunning > 0, "maxRunning must be positive");
+    Preconditions.checkArgument(maxQueued > 0, "maxQueued must be positive");
+    Preconditions.checkArgument(
+        memoryFraction > 0 && memoryFraction <= 1, "memoryFraction must be in (0, 1]");
+    Preconditions.checkArgument(maxLoad > 0, "maxLoad must be positive");
+    this.maxRunning = maxRunning;
+    this.maxQueued = maxQueued;
+    this.memoryFraction = memoryFraction;
+    this.maxLoad = maxLoad;
+    queues = new EnumMap<>(QueryPriority.class);
+    passes = new EnumMap<>(QueryPriority.class);
+    for (QueryPriority priority : QueryPriority.values()) {
+      queues.put(priority, new ArrayDeque<Queued>());
+      passes.put(priority, 0.0);
+    }
+    running = new HashMap<>();
+    workers = new HashMap<>();
+    footprints =
+        new LinkedHashMap<String, Double>(16, 0.75f, true) {
+          /** Required for Java serialization. */
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<String, Double> eldest) {
+            return size() > MAX_FOOTPRINTS;
+          }
+        };
+  }
+
+  /**
+   * @param priority a priority.
+   * @return the largest number of queued queries of the priority.
+   */
+  private int maxQueued(final QueryPriority priority) {
+    return Math.max(1, maxQueued * priority.getWeight() / QueryPriority.NORMAL.getWeight());
+  }
+
+  /**
+   * @param priority the priority of a new query.
+   * @return whether the query may be queued, i.e., whether the queue of its priority is not full. Another thread may
+   *         fill the queue before the query is queued, so only {@link #enqueue(long, QueryPriority, String)} decides.
+   */
+  synchronized boolean canEnqueue(final QueryPriority priority) {
+    return queues.get(priority).size() < maxQueued(priority);
+  }
+
+  /**
+   * Queue a query, unless the queue of its priority is full. The caller should then call {@link #admit()}.
+   *
+   * @param queryId the id of the query.
+   * @param priority the priority of the query.
+   * @param text the text of the query, which identifies the earlier runs of the same query.
+   * @return whether the query was queued.
+   */
+  synchronized boolean enqueue(
+      final long queryId, final QueryPriority priority, final String text) {
+    final ArrayDeque<Queued> queue = queues.get(priority);
+    if (queue.size() >= maxQueued(priority)) {
+      return false;
+    }
+    if (queue.isEmpty()) {
+      /* A priority that had nothing queued must not catch up on the queries it did not start meanwhile. */
+      double pass = passes.get(priority);
+      for (QueryPriority other : QueryPriority.values()) {
+        if (!queues.get(other).isEmpty()) {
+          pass = Math.max(pass, passes.get(other));
+        }
+      }
+      passes.put(priority, pass);
+    }
+    final Double footprint = text == null ? null : footprints.get(text);
+    queue.addLast(new Queued(queryId, text, footprint == null ? DEFAULT_FOOTPRINT : footprint));
+    return true;
+  }
+
+  /**
+   * Start as many queued queries as fit, in order.
+   *
+   * @return the ids of the queries that the caller must start.
+   */
+  synchronized List<Long> admit() {
+    final List<Long> admitted = new ArrayList<>();
+    final long now = System.currentTimeMillis();
+    while (true) {
+      QueryPriority next = null;
+      for (QueryPriority priority : QueryPriority.values()) {
+        if (!queues.get(priority).isEmpty()
+            && (next == null || passes.get(priority) < passes.get(next))) {
+          next = priority;
+        }
+      }
+      if (next == null || !fits(queues.get(next).getFirst().footprint, now)) {
+        return admitted;
+      }
+      final Queued query = queues.get(next).removeFirst();
+      passes.put(next, passes.get(next) + 1.0 / next.getWeight());
+      final Running started = new Running(query);
+      for (Map.Entry<Integer, WorkerUsage> worker : workers.entrySet()) {
+        if (worker.getValue().hasHeap()) {
+          started.baselines.put(worker.getKey(), worker.getValue().liveFraction());
+        }
+      }
+      running.put(query.queryId, started);
+      admitted.add(query.queryId);
+    }
+  }
+
+  /**
+   * @param footprint the footprint of a query.
+   * @param now the current time in milliseconds.
+   * @return whether the query can start now.
+   */
+  private boolean fits(final double footprint, final long now) {
+    if (running.isEmpty()) {
+      return true;
+    }
+    if (running.size() >= maxRunning) {
+      return false;
+    }
+    for (Map.Entry<Integer, WorkerUsage> worker : workers.entrySet()) {
+      final WorkerUsage usage = worker.getValue();
+      if (now - usage.updated > STALE_MILLIS) {
+        continue;
+      }
+      if (usage.loadPerCore > maxLoad) {
+        return false;
+      }
+      if (!usage.hasHeap()) {
+        continue;
+      }
+      final double live = usage.liveFraction();
+      double projected = live + footprint;
+      for (Running query : running.values()) {
+        projected += query.unseenFootprint(worker.getKey(), live);
+      }
+      if (projected > memoryFraction) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Forget a running query, and remember its footprint for the next time its text is submitted. The caller should then
+   * call {@link #admit()}.
+   *
+   * @param queryId the id of the query.
+   */
+  synchronized void finish(final long queryId) {
+    final Running query = running.remove(queryId);
+    if (query != null && query.text != null && query.observed) {
+      footprints.put(query.text, Math.max(MIN_FOOTPRINT, query.growth));
+    }
+  }
+
+  /**
+   * Forget all the queued queries.
+   */
+  synchronized void clearQueued() {
+    for (ArrayDeque<Queued> queue : queues.values()) {
+      queue.clear();
+    }
+  }
+
+  /**
+   * Record a measurement of the resources used by a whole worker. The caller should then call {@link #admit()}.
+   *
+   * @param workerId the worker.
+   * @param stats the measurement, one of {@link ResourceStats#HEAP_LIVE}, {@link ResourceStats#HEAP_MAX}, and
+   *          {@link ResourceStats#LOAD_PER_CORE}. Others are ignored.
+   */
+  synchronized void updateWorker(final int workerId, final ResourceStats stats) {
+    WorkerUsage usage = workers.get(workerId);
+    if (usage == null) {
+      usage = new WorkerUsage();
+      workers.put(workerId, usage);
+    }
+    usage.updated = System.currentTimeMillis();
+    switch (stats.getMeasurement()) {
+      case ResourceStats.HEAP_MAX:
+        usage.heapMax = stats.getValue();
+        break;
+      case ResourceStats.LOAD_PER_CORE:
+        usage.loadPerCore = stats.getValue() / 1000.0;
+        break;
+      case ResourceStats.HEAP_LIVE:
+        usage.heapLive = stats.getValue();
+        if (usage.hasHeap()) {
+          final double live = usage.liveFraction();
+          for (Running query : running.values()) {
+            query.observe(workerId, live);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** A queued query. */
+  private static final class Queued {
+    /** The id of the query. */
+    private final long queryId;
+    /** The text of the query. */
+    private final String text;
+    /** The expected fraction of a worker's heap that the query uses. */
+    private final double footprint;
+
+    /**
+     * @param queryId the id of the query.
+     * @param text the text of the query.
+     * @param footprint the expected fraction of a worker's heap that the query uses.
+     */
+    private Queued(final long queryId, final String text, final double footprint) {
+      this.queryId = queryId;
+      this.text = text;
+      this.footprint = footprint;
+    }
+  }
+
+  /** A running query. */
+  private static final class Running {
+    /** The text of the query. */
+    private final String text;
+    /** The expected fraction of a worker's heap that the query uses. */
+    private final double footprint;
+    /** The fraction of the heap in use on each worker when the query started, or when the worker first reported. */
+    private final Map<Integer, Double> baselines = new HashMap<>();
+    /** The largest growth of the fraction of the heap in use on a worker since the query started. */
+    private double growth;
+    /** Whether any worker reported its heap since the query started. */
+    private boolean observed;
+
+    /**
+     * @param query the query, which is starting.
+     */
+    private Running(final Queued query) {
+      text = query.text;
+      footprint = query.footprint;
+    }
+
+    /**
+     * @param workerId a worker.
+     * @param live the fraction of the heap in use on the worker.
+     */
+    private void observe(final int workerId, final double live) {
+      Double baseline = baselines.get(workerId);
+      if (baseline == null) {
+        baseline = live;
+        baselines.put(workerId, baseline);
+      }
+      growth = Math.max(growth, live - baseline);
+      observed = true;
+    }
+
+    /**
+     * @param workerId a worker.
+     * @param live the fraction of the heap in use on the worker.
+     * @return the part of the footprint of the query that is not in use on the worker yet.
+     */
+    private double unseenFootprint(final int workerId, final double live) {
+      final Double baseline = baselines.get(workerId);
+      if (baseline == null) {
+        return footprint;
+      }
+      return Math.max(0, footprint - Math.max(0, live - baseline));
+    }
+  }
+
+  /** The latest resource usage that a worker reported. */
+  private static final class WorkerUsage {
+    /** When the worker last reported, in milliseconds. */
+    private long updated;
+    /** The bytes of heap in use, or -1 if unknown. */
+    private long heapLive = -1;
+    /** The largest number of bytes of heap, or -1 if unknown. */
+    private long heapMax = -1;
+    /** The load average per core, or a negative number if unknown. */
+    private double loadPerCore = -1;
+
+    /**
+     * @return whether both the heap in use and the size of the heap are known.
+     */
+    private boolean hasHeap() {
+      return heapLive >= 0 && heapMax > 0;
+    }
+
+    /**
+     * @return the fraction of the heap in use.
+     */
+    private double liveFraction() {
+      return (double) heapLive / heapMax;
+    }
+  }
+}
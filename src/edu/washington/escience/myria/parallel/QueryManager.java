@@ -1,11 +1,12 @@
 package edu.washington.escience.myria.parallel;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
@@ -17,7 +18,6 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Maps;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.MyriaConstants;
@@ -48,8 +48,11 @@ public class QueryManager {
   private final ConcurrentHashMap<Long, Query> runningQueries;
 
   /** The queries that are queued. */
-  @GuardedBy("queryQueue")
-  private final TreeMap<Long, Query> queryQueue;
+  @GuardedBy("admission")
+  private final Map<Long, Query> queryQueue;
+
+  /** Decides when the queued queries start. */
+  private final QueryAdmission admission;
 
   /**
    * Subqueries currently in execution.
@@ -68,11 +71,14 @@ public class QueryManager {
    *
    * @param catalog the master catalog. Gets updated when queries finish, for example.
    * @param server the server on which the queries are executed.
+   * @param admission decides when the queued queries start.
    */
-  public QueryManager(final MasterCatalog catalog, final Server server) {
+  public QueryManager(
+      final MasterCatalog catalog, final Server server, final QueryAdmission admission) {
     this.catalog = catalog;
     this.server = server;
-    queryQueue = Maps.newTreeMap();
+    this.admission = admission;
+    queryQueue = new HashMap<>();
     runningQueries = new ConcurrentHashMap<>();
     executingSubQueries = new ConcurrentHashMap<>();
   }
@@ -93,19 +99,44 @@ public class QueryManager {
    * @param m the message.
    */
   public void updateResourceStats(final int senderId, final ControlMessage m) {
+    boolean workerStats = false;
     for (ControlProto.ResourceStats stats : m.getResourceStatsList()) {
-      runningQueries
-          .get(stats.getQueryId())
-          .addResourceStats(senderId, ResourceStats.fromProtobuf(stats));
+      if (stats.getQueryId() == MyriaConstants.WORKER_RESOURCE_QUERY_ID) {
+        admission.updateWorker(senderId, ResourceStats.fromProtobuf(stats));
+        workerStats = true;
+        continue;
+      }
+      Query query = runningQueries.get(stats.getQueryId());
+      if (query != null) {
+        query.addResourceStats(senderId, ResourceStats.fromProtobuf(stats));
+      }
+    }
+    if (workerStats) {
+      try {
+        admitQueries();
+      } catch (DbException e) {
+        LOGGER.error("Error starting queued queries", e);
+      }
     }
   }
 
   /**
-   * @return whether this master can handle more queries or not.
+   * Start the queued queries that the admission controller lets through.
+   *
+   * @throws DbException if there is an error starting a query
    */
-  private boolean canSubmitQuery() {
-    synchronized (queryQueue) {
-      return ((runningQueries.size() + queryQueue.size()) < MyriaConstants.MAX_ACTIVE_QUERIES);
+  private void admitQueries() throws DbException {
+    List<Query> admitted = new ArrayList<>();
+    synchronized (admission) {
+      for (long queryId : admission.admit()) {
+        Query q = queryQueue.remove(queryId);
+        runningQueries.put(queryId, q);
+        admitted.add(q);
+      }
+    }
+    for (Query q : admitted) {
+      LOGGER.info("Now advancing to query {}", q.getQueryId());
+      advanceQuery(q);
     }
   }
 
@@ -123,26 +154,13 @@ public class QueryManager {
     } catch (CatalogException e) {
       throw new DbException("Error finishing query " + queryState.getQueryId(), e);
     } finally {
-      runningQueries.remove(queryState.getQueryId());
-
-      /* See if we can submit a new query. */
-      if (!runningQueries.isEmpty()) {
-        /* TODO replace with proper scheduler as opposed to single-query-at-a-time. */
-        return;
+      synchronized (admission) {
+        runningQueries.remove(queryState.getQueryId());
+        admission.finish(queryState.getQueryId());
       }
 
-      /* Now see if the query queue has anything for us. */
-      Map.Entry<Long, Query> qEntry;
-      synchronized (queryQueue) {
-        qEntry = queryQueue.pollFirstEntry();
-      }
-      if (qEntry == null) {
-        return;
-      }
-      Query q = qEntry.getValue();
-      LOGGER.info("Now advancing to query {}", q.getQueryId());
-      runningQueries.put(q.getQueryId(), q);
-      advanceQuery(q);
+      /* See if the freed resources let queued queries start. */
+      admitQueries();
     }
   }
 
@@ -189,7 +207,7 @@ public class QueryManager {
   public Query getQuery(@Nonnull final Long queryId) {
     Long qId = Preconditions.checkNotNull(queryId, "queryId");
     Query query;
-    synchronized (queryQueue) {
+    synchronized (admission) {
       query = runningQueries.get(qId);
       if (query == null) {
         query = queryQueue.get(qId);
@@ -249,18 +267,20 @@ public class QueryManager {
       final long queryId, final QueryEncoding query, final QueryPlan plan)
       throws DbException, CatalogException {
     final Query queryState = new Query(queryId, query, plan, server);
-    boolean canStart = false;
-    synchronized (queryQueue) {
-      if (queryQueue.isEmpty() && runningQueries.isEmpty()) {
-        canStart = true;
-      } else {
+    final boolean queued;
+    synchronized (admission) {
+      queued = admission.enqueue(queryId, query.priority, query.rawQuery);
+      if (queued) {
         queryQueue.put(queryId, queryState);
       }
     }
-    if (canStart) {
-      runningQueries.put(queryId, queryState);
-      advanceQuery(queryState);
+    if (!queued) {
+      /* The queue filled up since the caller checked it, so record the rejection in the Catalog. */
+      queryState.markFailed(new DbException("Too many queries are queued"));
+      catalog.queryFinished(queryState);
+      return null;
     }
+    admitQueries();
     return queryState.getFuture();
   }
 
@@ -500,8 +520,9 @@ public class QueryManager {
    */
   public QueryFuture submitQuery(final QueryEncoding query, final QueryPlan plan)
       throws DbException, CatalogException {
-    if (!canSubmitQuery()) {
-      throw new DbException("Cannot submit query");
+    /* Do not even create the query in the Catalog if it cannot be queued. */
+    if (!admission.canEnqueue(query.priority)) {
+      return null;
     }
     if (!query.profilingMode.isEmpty()) {
       if (!server.getDBMS().equals(MyriaConstants.STORAGE_SYSTEM_POSTGRESQL)) {
@@ -583,18 +604,23 @@ public class QueryManager {
     query.rawQuery = rawQuery;
     query.logicalRa = rawQuery;
     query.fragments = ImmutableList.of();
-    return submitQuery(query, plan);
+    QueryFuture future = submitQuery(query, plan);
+    if (future == null) {
+      throw new DbException("Cannot submit query: too many queries are queued");
+    }
+    return future;
   }
 
   /**
    * Kill all queries currently executing.
    */
   protected void killAll() {
-    synchronized (queryQueue) {
+    synchronized (admission) {
       for (Query q : queryQueue.values()) {
         q.kill();
       }
       queryQueue.clear();
+      admission.clearQueued();
     }
     for (MasterSubQuery p : executingSubQueries.values()) {
       p.kill();
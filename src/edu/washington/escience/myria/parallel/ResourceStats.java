@@ -13,6 +13,13 @@ public final class ResourceStats implements Serializable {
   /** Required for Java serialization. */
   private static final long serialVersionUID = 1L;
 
+  /** The measurement of the bytes of heap that a worker used after its last garbage collection. */
+  public static final String HEAP_LIVE = "heapLive";
+  /** The measurement of the largest number of bytes of heap that a worker may use. */
+  public static final String HEAP_MAX = "heapMax";
+  /** The measurement of the load average of a worker per core, in thousandths. */
+  public static final String LOAD_PER_CORE = "loadPerCore";
+
   /** timestamp of this statistics. */
   private long timestamp;
   /** operator Id. */
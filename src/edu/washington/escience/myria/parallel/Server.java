@@ -126,6 +126,10 @@ import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
 import edu.washington.escience.myria.storage.TupleBuffer;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.AdmissionMaxLoad;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.AdmissionMaxQueuedQueries;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.AdmissionMaxRunningQueries;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.AdmissionMemoryFraction;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.DefaultInstancePath;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.FlowControlWriteBufferHighMarkBytes;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.FlowControlWriteBufferLowMarkBytes;
@@ -133,6 +137,7 @@ import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.Master
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.MasterRpcPort;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.OperatorInputBufferCapacity;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.OperatorInputBufferRecoverTrigger;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.NetworkCompression;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.PersistUri;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.StorageDbms;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.TcpConnectionTimeoutMillis;
@@ -456,7 +461,9 @@ public final class Server implements TaskMessageSource, EventHandler<DriverMessa
   private final int writeBufferLowWaterMark;
   private final int writeBufferHighWaterMark;
   private final int inputBufferCapacity;
+  private final ColumnarFrame.Compression networkCompression;
   private final int inputBufferRecoverTrigger;
+  private final QueryAdmission admission;
   private final Injector injector;
 
   /**
@@ -473,7 +480,12 @@ public final class Server implements TaskMessageSource, EventHandler<DriverMessa
    * @param writeBufferHighWaterMark high watermark for write buffer overflow recovery
    * @param inputBufferCapacity size of the input buffer in bytes
    * @param inputBufferRecoverTrigger number of bytes in the input buffer to trigger recovery after overflow
+   * @param networkCompression how the batches sent to the workers are compressed
    * @param persistURI the storage endpoint URI for persisting partitioned relations
+   * @param maxRunningQueries the largest number of queries that run at the same time
+   * @param maxQueuedQueries the largest number of queued queries of normal priority
+   * @param admissionMemoryFraction the fraction of a worker's heap that the running queries may use
+   * @param admissionMaxLoad the load average per core of a worker above which no query starts
    * @param injector a Tang injector for instantiating objects from configuration
    */
   @Inject
@@ -489,7 +501,12 @@ public final class Server implements TaskMessageSource, EventHandler<DriverMessa
       @Parameter(FlowControlWriteBufferHighMarkBytes.class) final int writeBufferHighWaterMark,
       @Parameter(OperatorInputBufferCapacity.class) final int inputBufferCapacity,
       @Parameter(OperatorInputBufferRecoverTrigger.class) final int inputBufferRecoverTrigger,
+      @Parameter(NetworkCompression.class) final String networkCompression,
       @Parameter(PersistUri.class) final String persistURI,
+      @Parameter(AdmissionMaxRunningQueries.class) final int maxRunningQueries,
+      @Parameter(AdmissionMaxQueuedQueries.class) final int maxQueuedQueries,
+      @Parameter(AdmissionMemoryFraction.class) final float admissionMemoryFraction,
+      @Parameter(AdmissionMaxLoad.class) final float admissionMaxLoad,
       final Injector injector) {
 
     this.connectTimeoutMillis = connectTimeoutMillis;
@@ -498,8 +515,12 @@ public final class Server implements TaskMessageSource, EventHandler<DriverMessa
     this.writeBufferLowWaterMark = writeBufferLowWaterMark;
     this.writeBufferHighWaterMark = writeBufferHighWaterMark;
     this.inputBufferCapacity = inputBufferCapacity;
+    this.networkCompression = ColumnarFrame.Compression.of(networkCompression);
     this.inputBufferRecoverTrigger = inputBufferRecoverTrigger;
     this.persistURI = persistURI;
+    admission =
+        new QueryAdmission(
+            maxRunningQueries, maxQueuedQueries, admissionMemoryFraction, admissionMaxLoad);
     this.injector = injector;
 
     masterSocketInfo = new SocketInfo(masterHost, masterPort);
@@ -635,7 +656,7 @@ public final class Server implements TaskMessageSource, EventHandler<DriverMessa
           e.getMessage());
       catalog = MasterCatalog.create(catalogPath);
     }
-    queryManager = new QueryManager(catalog, this);
+    queryManager = new QueryManager(catalog, this, admission);
 
     connectionPool =
         new IPCConnectionPool(
@@ -653,7 +674,7 @@ public final class Server implements TaskMessageSource, EventHandler<DriverMessa
                 receiveBufferSize,
                 writeBufferLowWaterMark,
                 writeBufferHighWaterMark),
-            new TransportMessageSerializer(),
+            new TransportMessageSerializer(networkCompression),
             new QueueBasedShortMessageProcessor<TransportMessage>(messageQueue),
             inputBufferCapacity,
             inputBufferRecoverTrigger);
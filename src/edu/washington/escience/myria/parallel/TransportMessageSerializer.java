@@ -12,6 +12,7 @@ import com.google.common.base.Preconditions;
 import com.google.protobuf.CodedInputStream;
 
 import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.parallel.ipc.PayloadSerializer;
 import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
 import edu.washington.escience.myria.storage.TupleBatch;
@@ -19,7 +20,8 @@ import edu.washington.escience.myria.util.IPCUtils;
 
 /**
  * This class monitors all the input/output IPC data. It makes sure that all input data are of {@link TransportMessage}
- * type. And it does all IPC exception catching and recording.
+ * type, except {@link TupleBatch}es which are sent as {@link ColumnarFrame}s. And it does all IPC exception catching and
+ * recording.
  * */
 @Sharable
 public class TransportMessageSerializer implements PayloadSerializer {
@@ -27,6 +29,23 @@ public class TransportMessageSerializer implements PayloadSerializer {
   /** The logger for this class. */
   protected static final Logger LOGGER = LoggerFactory.getLogger(TransportMessageSerializer.class);
 
+  /** The encoder of the {@link TupleBatch}es. */
+  private final ColumnarFrame frames;
+
+  /**
+   * Serializer with {@link ColumnarFrame.Compression#ADAPTIVE} compression of the {@link TupleBatch}es.
+   */
+  public TransportMessageSerializer() {
+    this(ColumnarFrame.Compression.ADAPTIVE);
+  }
+
+  /**
+   * @param compression how the columns of the {@link TupleBatch}es are compressed.
+   */
+  public TransportMessageSerializer(final ColumnarFrame.Compression compression) {
+    frames = new ColumnarFrame(compression);
+  }
+
   @Override
   public final ChannelBuffer serialize(final Object m) {
     Preconditions.checkNotNull(m);
@@ -40,7 +59,7 @@ public class TransportMessageSerializer implements PayloadSerializer {
       // case 3: TupleBatch
       TupleBatch tb = (TupleBatch) m;
       if (!tb.isEOI()) {
-        return ChannelBuffers.wrappedBuffer(((TupleBatch) m).toTransportMessage().toByteArray());
+        return frames.encode(tb);
       } else {
         return ChannelBuffers.wrappedBuffer(IPCUtils.EOI.toByteArray());
       }
@@ -79,9 +98,22 @@ public class TransportMessageSerializer implements PayloadSerializer {
     return TransportMessage.parseFrom(cis);
   }
 
+  /**
+   * @return a {@link TupleBatch} if the buffer is a {@link ColumnarFrame}, or a {@link TransportMessage} otherwise.
+   * @param buffer serialized buffer.
+   * @param processor unused.
+   * @param att the {@link Schema} of the stream input channel the buffer was received from, or null.
+   * @throws IOException if any IO errors.
+   */
   @Override
   public final Object deSerialize(
       final ChannelBuffer buffer, final Object processor, final Object att) throws IOException {
+    if (ColumnarFrame.isFrame(buffer)) {
+      if (!(att instanceof Schema)) {
+        throw new IOException("Received a columnar frame without the schema of its channel");
+      }
+      return ColumnarFrame.decode(buffer, (Schema) att);
+    }
     TransportMessage tm = deSerializeTransportMessage(buffer);
     return tm;
   }
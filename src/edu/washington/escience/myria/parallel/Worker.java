@@ -1,10 +1,17 @@
 package edu.washington.escience.myria.parallel;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.Timer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -65,8 +72,11 @@ import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.FlowCo
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.FlowControlWriteBufferLowMarkBytes;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.MasterHost;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.MasterRpcPort;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.NetworkCompression;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.OperatorInputBufferCapacity;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.OperatorInputBufferRecoverTrigger;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.ProfilingBufferCapacity;
+import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.ProfilingOverflow;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.StorageDbms;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.TcpConnectionTimeoutMillis;
 import edu.washington.escience.myria.tools.MyriaGlobalConfigurationModule.TcpReceiveBufferSizeBytes;
@@ -79,6 +89,7 @@ import edu.washington.escience.myria.tools.MyriaWorkerConfigurationModule.Worker
 import edu.washington.escience.myria.tools.MyriaWorkerConfigurationModule.WorkerPort;
 import edu.washington.escience.myria.tools.MyriaWorkerConfigurationModule.WorkerStorageDbName;
 import edu.washington.escience.myria.util.IPCUtils;
+import edu.washington.escience.myria.util.concurrent.ErrorLoggingTimerTask;
 import edu.washington.escience.myria.util.concurrent.RenamingThreadFactory;
 import edu.washington.escience.myria.util.concurrent.ThreadAffinityFixedRoundRobinExecutionPool;
 
@@ -457,6 +468,15 @@ public final class Worker implements Task, TaskMessageSource {
   @GuardedBy("this")
   private ProfilingLogger profilingLogger;
 
+  /** The number of records that the profiling logger buffers for each profiling relation. */
+  private final int profilingBufferCapacity;
+
+  /** What the profiling logger does with a record when its buffer is full. */
+  private final ProfilingLogger.Overflow profilingOverflow;
+
+  /** Sends the resource usage of this worker to the master periodically. */
+  private volatile Timer resourceReportTimer;
+
   /**
    * @return my control message queue.
    */
@@ -538,6 +558,9 @@ public final class Worker implements Task, TaskMessageSource {
       @Parameter(FlowControlWriteBufferHighMarkBytes.class) final int writeBufferHighWaterMark,
       @Parameter(OperatorInputBufferCapacity.class) final int inputBufferCapacity,
       @Parameter(OperatorInputBufferRecoverTrigger.class) final int inputBufferRecoverTrigger,
+      @Parameter(NetworkCompression.class) final String networkCompression,
+      @Parameter(ProfilingBufferCapacity.class) final int profilingBufferCapacity,
+      @Parameter(ProfilingOverflow.class) final String profilingOverflow,
       @Parameter(WorkerConf.class) final Set<String> workerConfs)
       throws Exception {
 
@@ -550,6 +573,8 @@ public final class Worker implements Task, TaskMessageSource {
     activeQueries = new ConcurrentHashMap<>();
     executingSubQueries = new ConcurrentHashMap<>();
     execEnvVars = new ConcurrentHashMap<String, Object>();
+    this.profilingBufferCapacity = profilingBufferCapacity;
+    this.profilingOverflow = ProfilingLogger.Overflow.of(profilingOverflow);
 
     final Map<Integer, SocketInfo> computingUnits =
         getComputingUnits(masterHost, masterPort, workerConfs);
@@ -571,7 +596,7 @@ public final class Worker implements Task, TaskMessageSource {
                 receiveBufferSize,
                 writeBufferLowWaterMark,
                 writeBufferHighWaterMark),
-            new TransportMessageSerializer(),
+            new TransportMessageSerializer(ColumnarFrame.Compression.of(networkCompression)),
             new WorkerShortMessageProcessor(this),
             inputBufferCapacity,
             inputBufferRecoverTrigger);
@@ -710,6 +735,10 @@ public final class Worker implements Task, TaskMessageSource {
       p.kill();
     }
 
+    if (resourceReportTimer != null) {
+      resourceReportTimer.cancel();
+    }
+
     if (!connectionPool.isShutdown()) {
       if (!abruptShutdown) {
         connectionPool.shutdown();
@@ -723,6 +752,13 @@ public final class Worker implements Task, TaskMessageSource {
       pipelineExecutor.shutdown();
     }
 
+    synchronized (this) {
+      if (profilingLogger != null) {
+        profilingLogger.close();
+        profilingLogger = null;
+      }
+    }
+
     if (LOGGER.isInfoEnabled()) {
       LOGGER.info("shutdown IPC completed");
     }
@@ -794,6 +830,60 @@ public final class Worker implements Task, TaskMessageSource {
         Executors.newCachedThreadPool(new RenamingThreadFactory("Control/Query message processor"));
     messageProcessingExecutor.submit(injector.getInstance(QueryMessageProcessor.class));
     messageProcessingExecutor.submit(injector.getInstance(ControlMessageProcessor.class));
+
+    resourceReportTimer = new Timer("Worker resource reporter", true);
+    resourceReportTimer.scheduleAtFixedRate(
+        new ResourceUsageReporter(),
+        MyriaConstants.RESOURCE_REPORT_INTERVAL,
+        MyriaConstants.RESOURCE_REPORT_INTERVAL);
+  }
+
+  /** Send the memory and CPU usage of this worker to the master, which uses them to decide when to start queries. */
+  private class ResourceUsageReporter extends ErrorLoggingTimerTask {
+    @Override
+    public void runInner() {
+      long heapLive = 0;
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() != MemoryType.HEAP) {
+          continue;
+        }
+        /* The usage after the last collection leaves out the garbage, when the pool is collected. */
+        MemoryUsage usage = pool.getCollectionUsage();
+        if (usage == null) {
+          usage = pool.getUsage();
+        }
+        heapLive += usage.getUsed();
+      }
+      List<ResourceStats> stats = new ArrayList<>();
+      long timestamp = System.currentTimeMillis();
+      addWorkerReport(stats, timestamp, ResourceStats.HEAP_MAX, Runtime.getRuntime().maxMemory());
+      addWorkerReport(stats, timestamp, ResourceStats.HEAP_LIVE, heapLive);
+      double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+      if (load >= 0) {
+        addWorkerReport(
+            stats,
+            timestamp,
+            ResourceStats.LOAD_PER_CORE,
+            (long) (1000 * load / Runtime.getRuntime().availableProcessors()));
+      }
+      sendMessageToMaster(IPCUtils.resourceReport(stats));
+    }
+  }
+
+  /**
+   * @param stats the stats to be added into
+   * @param timestamp the time of the measurement
+   * @param measurement which measurement
+   * @param value the value
+   */
+  private static void addWorkerReport(
+      final List<ResourceStats> stats,
+      final long timestamp,
+      final String measurement,
+      final long value) {
+    stats.add(
+        new ResourceStats(
+            timestamp, -1, measurement, value, MyriaConstants.WORKER_RESOURCE_QUERY_ID, -1));
   }
 
   /**
@@ -809,11 +899,15 @@ public final class Worker implements Task, TaskMessageSource {
    */
   public synchronized ProfilingLogger getProfilingLogger() throws DbException {
     if (profilingLogger == null || !profilingLogger.isValid()) {
+      if (profilingLogger != null) {
+        profilingLogger.close();
+      }
       profilingLogger = null;
       ConnectionInfo connectionInfo =
           (ConnectionInfo) execEnvVars.get(MyriaConstants.EXEC_ENV_VAR_DATABASE_CONN_INFO);
       if (connectionInfo.getDbms().equals(MyriaConstants.STORAGE_SYSTEM_POSTGRESQL)) {
-        profilingLogger = new ProfilingLogger(connectionInfo);
+        profilingLogger =
+            new ProfilingLogger(connectionInfo, profilingBufferCapacity, profilingOverflow);
       }
     }
     return profilingLogger;
@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.parallel.ColumnarFrame;
 import edu.washington.escience.myria.parallel.ipc.ChannelContext.RegisteredChannelContext;
 import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
 import edu.washington.escience.myria.util.IPCUtils;
@@ -249,34 +250,49 @@ public final class IPCMessageHandler extends SimpleChannelHandler {
         // user message
         final ChannelContext cc = ChannelContext.getChannelContext(ch);
         final int remoteID = cc.getRegisteredChannelContext().getRemoteID();
+        final StreamInputChannel<?> ic =
+            cc.getRegisteredChannelContext().getIOPair().getInputChannel();
 
-        TransportMessage tm =
-            (TransportMessage)
-                ownerConnectionPool.getPayloadSerializer().deSerialize(cb, null, null);
-        switch (tm.getType()) {
-          case DATA:
-            StreamInputChannel<?> ic =
-                cc.getRegisteredChannelContext().getIOPair().getInputChannel();
-            if (ic != null) {
-              StreamInputBuffer<?> sib = ic.getInputBuffer();
-              msg = IPCUtils.tmToTupleBatch(tm.getDataMessage(), (Schema) sib.getAttachment());
-            } else {
-              // got a message from a physical channel which is not bound to a logical input channel, ignore
-              // the binding may have been cleaned up due to failure
-              LOGGER.warn(
-                  "Unknown data message from {} }, through {}, msg: {}",
-                  remoteID,
-                  ChannelContext.channelToString(ctx.getChannel()),
-                  tm.getDataMessage());
-              return;
-            }
-            break;
-          case QUERY:
-          case CONTROL:
-            msg = tm;
-            break;
-          default:
-            throw new IllegalArgumentException("Unknown message type: " + tm.getType().name());
+        if (ColumnarFrame.isFrame(cb)) {
+          if (ic == null) {
+            // see the DATA case below
+            LOGGER.warn(
+                "Unknown data frame from {} }, through {}",
+                remoteID,
+                ChannelContext.channelToString(ctx.getChannel()));
+            return;
+          }
+          msg =
+              ownerConnectionPool
+                  .getPayloadSerializer()
+                  .deSerialize(cb, null, ic.getInputBuffer().getAttachment());
+        } else {
+          TransportMessage tm =
+              (TransportMessage)
+                  ownerConnectionPool.getPayloadSerializer().deSerialize(cb, null, null);
+          switch (tm.getType()) {
+            case DATA:
+              if (ic != null) {
+                StreamInputBuffer<?> sib = ic.getInputBuffer();
+                msg = IPCUtils.tmToTupleBatch(tm.getDataMessage(), (Schema) sib.getAttachment());
+              } else {
+                // got a message from a physical channel which is not bound to a logical input channel, ignore
+                // the binding may have been cleaned up due to failure
+                LOGGER.warn(
+                    "Unknown data message from {} }, through {}, msg: {}",
+                    remoteID,
+                    ChannelContext.channelToString(ctx.getChannel()),
+                    tm.getDataMessage());
+                return;
+              }
+              break;
+            case QUERY:
+            case CONTROL:
+              msg = tm;
+              break;
+            default:
+              throw new IllegalArgumentException("Unknown message type: " + tm.getType().name());
+          }
         }
       }
     }
@@ -2,7 +2,12 @@ package edu.washington.escience.myria.profiling;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.GuardedBy;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -13,6 +18,7 @@ import edu.washington.escience.myria.RelationKey;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.accessmethod.AccessMethod;
 import edu.washington.escience.myria.accessmethod.AccessMethod.IndexRef;
+import edu.washington.escience.myria.accessmethod.BatchInserter;
 import edu.washington.escience.myria.accessmethod.ConnectionInfo;
 import edu.washington.escience.myria.accessmethod.JdbcAccessMethod;
 import edu.washington.escience.myria.operator.Operator;
@@ -24,35 +30,89 @@ import edu.washington.escience.myria.storage.TupleBatchBuffer;
 
 /**
  * A logger for profiling data.
+ *
+ * The operators append their records to lock-free {@link ProfilingRing}s, one per profiling relation, and return. A
+ * background thread drains the rings and writes the records to long-lived PostgreSQL COPY streams, one per relation on
+ * its own connection. The COPY streams are committed, which makes the records visible, on {@link #flush()} and every
+ * {@link #COMMIT_MILLIS} milliseconds. If the writer falls behind and a ring is full, new records are either dropped or
+ * wait for room, see {@link Overflow}.
  */
 public class ProfilingLogger {
   /** The logger for this class. */
   private static final org.slf4j.Logger LOGGER =
       org.slf4j.LoggerFactory.getLogger(ProfilingLogger.class);
 
-  /** The connection to the database database. */
+  /** What to do with a record when the writer has fallen behind and the buffer of its relation is full. */
+  public enum Overflow {
+    /** Drop the record, and log how many records were dropped. */
+    DROP,
+    /** Wait until the writer makes room for the record. */
+    BLOCK;
+
+    /**
+     * @param name the name of a policy, in any case.
+     * @return the policy.
+     */
+    public static Overflow of(final String name) {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+  }
+
+  /** How long the tuples written to a COPY stream may wait to be committed. */
+  private static final long COMMIT_MILLIS = 5000;
+  /** How long the writer waits when there is nothing to write. */
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  /** How long a record waits for room before trying again, with {@link Overflow#BLOCK}. */
+  private static final long BLOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /** The connection to the database, used to create the relations and check that the database is available. */
   private final JdbcAccessMethod accessMethod;
 
-  /** Buffer for recorded events. */
-  private final TupleBatchBuffer events;
+  /** What to do with a record when the buffer of its relation is full. */
+  private final Overflow overflow;
+
+  /** Recorded events. */
+  private final Stream events;
+
+  /** Tuples sent. */
+  private final Stream sent;
+
+  /** Resource usage. */
+  private final Stream resources;
 
-  /** Buffer for tuples sent. */
-  private final TupleBatchBuffer sent;
+  /** The thread that writes the records. */
+  private final Thread writer;
 
-  /** Buffer for tuples sent. */
-  private final TupleBatchBuffer resources;
+  /** The error that stopped the writer. */
+  private volatile Throwable writerError;
+
+  /** Whether the logger has been closed. */
+  private volatile boolean closed;
+
+  /** The number of calls to {@link #flush()} so far. */
+  @GuardedBy("this")
+  private long numFlushesRequested;
+
+  /** The number of calls to {@link #flush()} that the writer has handled. */
+  @GuardedBy("this")
+  private long numFlushesDone;
 
   /**
    * Default constructor.
    *
    * @param connectionInfo connection information
+   * @param capacity the number of records buffered for each profiling relation
+   * @param overflow what to do with a record when the buffer of its relation is full
    *
    * @throws DbException if any error occurs
    */
-  public ProfilingLogger(final ConnectionInfo connectionInfo) throws DbException {
+  public ProfilingLogger(
+      final ConnectionInfo connectionInfo, final int capacity, final Overflow overflow)
+      throws DbException {
     Preconditions.checkArgument(
         connectionInfo.getDbms().equals(MyriaConstants.STORAGE_SYSTEM_POSTGRESQL),
         "Profiling only supported with Postgres JDBC connection");
+    this.overflow = Objects.requireNonNull(overflow, "overflow");
 
     /* open the database connection */
     accessMethod =
@@ -69,9 +129,28 @@ public class ProfilingLogger {
     createSentIndex();
     createResourceIndex();
 
-    events = new TupleBatchBuffer(MyriaConstants.EVENT_PROFILING_SCHEMA);
-    sent = new TupleBatchBuffer(MyriaConstants.SENT_PROFILING_SCHEMA);
-    resources = new TupleBatchBuffer(MyriaConstants.RESOURCE_PROFILING_SCHEMA);
+    events =
+        new Stream(
+            connectionInfo,
+            MyriaConstants.EVENT_PROFILING_RELATION,
+            MyriaConstants.EVENT_PROFILING_SCHEMA,
+            capacity);
+    sent =
+        new Stream(
+            connectionInfo,
+            MyriaConstants.SENT_PROFILING_RELATION,
+            MyriaConstants.SENT_PROFILING_SCHEMA,
+            capacity);
+    resources =
+        new Stream(
+            connectionInfo,
+            MyriaConstants.RESOURCE_PROFILING_RELATION,
+            MyriaConstants.RESOURCE_PROFILING_SCHEMA,
+            capacity);
+
+    writer = new Thread(this::writeRecords, "Profiling writer");
+    writer.setDaemon(true);
+    writer.start();
   }
 
   /**
@@ -175,115 +254,218 @@ public class ProfilingLogger {
   }
 
   /**
-   * Appends a single event appearing in an operator to a batch that is flushed either after a certain number of events
-   * are in the batch or {@link #flushEventsBatch()} is called.
+   * Appends a single event appearing in an operator to the buffer of events, which the writer drains.
    *
    * @param operator the operator where this record was logged
    * @param numTuples the number of tuples
    * @param startTime the start time of the event in ns
    *
-   * @throws DbException if insertion in the database fails
+   * @throws DbException if the writer has failed
    */
-  public synchronized void recordEvent(
-      final Operator operator, final long numTuples, final long startTime) throws DbException {
-    SubQueryId sq = operator.getSubQueryId();
-    events.putLong(0, sq.getQueryId());
-    events.putInt(1, (int) sq.getSubqueryId());
-    events.putInt(2, operator.getFragmentId());
-    events.putInt(3, Preconditions.checkNotNull(operator.getOpId(), "opId"));
-    events.putLong(4, startTime);
-    events.putLong(5, getTime(operator));
-    events.putLong(6, numTuples);
-
-    flush(MyriaConstants.EVENT_PROFILING_RELATION, events.popFilled());
+  public void recordEvent(final Operator operator, final long numTuples, final long startTime)
+      throws DbException {
+    final SubQueryId sq = operator.getSubQueryId();
+    final int opId = Preconditions.checkNotNull(operator.getOpId(), "opId");
+    final long endTime = getTime(operator);
+
+    final ProfilingRing ring = events.ring;
+    final long pos = claim(ring);
+    if (pos < 0) {
+      return;
+    }
+    ring.putLong(pos, 0, sq.getQueryId());
+    ring.putLong(pos, 1, (int) sq.getSubqueryId());
+    ring.putLong(pos, 2, operator.getFragmentId());
+    ring.putLong(pos, 3, opId);
+    ring.putLong(pos, 4, startTime);
+    ring.putLong(pos, 5, endTime);
+    ring.putLong(pos, 6, numTuples);
+    ring.publish(pos);
   }
 
   /**
-   * Record that data was sent to a worker. The buffer is flushed at a particular number of tuples or on a call to
-   * {@link #flush()}.
+   * Record that data was sent to a worker. The record is written to the database by the writer.
    *
    * @param operator the operator where this record was logged
    * @param numTuples the number of tuples sent.
    * @param destWorkerId the worker if that we send the data to
-   * @throws DbException if insertion in the database fails
+   * @throws DbException if the writer has failed
    */
-  public synchronized void recordSent(
-      final Operator operator, final int numTuples, final int destWorkerId) throws DbException {
-    SubQueryId sq = operator.getSubQueryId();
-    sent.putLong(0, sq.getQueryId());
-    sent.putInt(1, (int) sq.getSubqueryId());
-    sent.putInt(2, operator.getFragmentId());
-    sent.putLong(3, getTime(operator));
-    sent.putLong(4, numTuples);
-    sent.putInt(5, destWorkerId);
-
-    flush(MyriaConstants.SENT_PROFILING_RELATION, sent.popFilled());
+  public void recordSent(final Operator operator, final int numTuples, final int destWorkerId)
+      throws DbException {
+    final SubQueryId sq = operator.getSubQueryId();
+    final long time = getTime(operator);
+
+    final ProfilingRing ring = sent.ring;
+    final long pos = claim(ring);
+    if (pos < 0) {
+      return;
+    }
+    ring.putLong(pos, 0, sq.getQueryId());
+    ring.putLong(pos, 1, (int) sq.getSubqueryId());
+    ring.putLong(pos, 2, operator.getFragmentId());
+    ring.putLong(pos, 3, time);
+    ring.putLong(pos, 4, numTuples);
+    ring.putLong(pos, 5, destWorkerId);
+    ring.publish(pos);
   }
 
   /**
-   * Record a single resource stats. The buffer is flushed at a particular number of tuples or on a call to
-   * {@link #flush()}.
+   * Record a single resource stats. The record is written to the database by the writer.
    *
    * @param stats the resource stats.
-   * @throws DbException if insertion in the database fails
+   * @throws DbException if the writer has failed
    */
-  public synchronized void recordResource(final ResourceStats stats) throws DbException {
-    resources.putLong(0, stats.getTimestamp());
-    resources.putInt(1, stats.getOpId());
-    resources.putString(2, stats.getMeasurement());
-    resources.putLong(3, stats.getValue());
-    resources.putLong(4, stats.getQueryId());
-    resources.putLong(5, stats.getSubqueryId());
-
-    flush(MyriaConstants.RESOURCE_PROFILING_RELATION, resources.popFilled());
+  public void recordResource(final ResourceStats stats) throws DbException {
+    final ProfilingRing ring = resources.ring;
+    final long pos = claim(ring);
+    if (pos < 0) {
+      return;
+    }
+    ring.putLong(pos, 0, stats.getTimestamp());
+    ring.putLong(pos, 1, stats.getOpId());
+    ring.putString(pos, 2, stats.getMeasurement());
+    ring.putLong(pos, 3, stats.getValue());
+    ring.putLong(pos, 4, stats.getQueryId());
+    ring.putLong(pos, 5, stats.getSubqueryId());
+    ring.publish(pos);
   }
 
   /**
-   * Flush the profiling buffers. The buffer is flushed at a particular number of tuples or on a call to
-   * {@link #flush()}.
+   * Claim a slot of a ring for a record, dropping the record or waiting for room if the ring is full.
    *
-   * @throws DbException if insertion in the database fails
+   * @param ring the ring
+   * @return the position of the slot, or -1 if the record is dropped
+   * @throws DbException if the writer has failed
    */
-  public synchronized void flush() throws DbException {
-    flush(MyriaConstants.SENT_PROFILING_RELATION, sent.popAny());
-    flush(MyriaConstants.EVENT_PROFILING_RELATION, events.popAny());
-    flush(MyriaConstants.RESOURCE_PROFILING_RELATION, resources.popAny());
-
-    Preconditions.checkState(sent.numTuples() == 0, "Unwritten sent profiling data.");
-    Preconditions.checkState(events.numTuples() == 0, "Unwritten event profiling data.");
-    Preconditions.checkState(resources.numTuples() == 0, "Unwritten resource profiling data.");
+  private long claim(final ProfilingRing ring) throws DbException {
+    checkWriter();
+    long pos = ring.claim();
+    while (pos < 0) {
+      if (overflow == Overflow.DROP) {
+        ring.drop();
+        return -1;
+      }
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(this, BLOCK_NANOS);
+      checkWriter();
+      pos = ring.claim();
+    }
+    return pos;
   }
 
   /**
-   * Flush the tuple batch and log how long it took.
-   *
-   * @param relationKey the relation to write to
-   * @param tupleBatch the tuples to write
-   *
-   * @throws DbException if insertion in the database fails
+   * @throws DbException if the writer has failed or the logger is closed
    */
-  private void flush(final RelationKey relationKey, final TupleBatch tupleBatch)
-      throws DbException {
-    if (tupleBatch == null) {
-      return;
+  private void checkWriter() throws DbException {
+    if (writerError != null) {
+      throw new DbException("Error writing profiling data", writerError);
+    }
+    if (closed) {
+      throw new DbException("The profiling logger is closed");
     }
+  }
 
-    final long startTime = System.nanoTime();
+  /**
+   * Write and commit the records recorded so far, and wait until they are committed.
+   *
+   * @throws DbException if the writer has failed
+   */
+  public void flush() throws DbException {
+    checkWriter();
+    final long request;
+    synchronized (this) {
+      request = ++numFlushesRequested;
+    }
+    LockSupport.unpark(writer);
+    synchronized (this) {
+      try {
+        while (numFlushesDone < request && writerError == null && !closed) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DbException(e);
+      }
+    }
+    checkWriter();
+  }
 
-    accessMethod.tupleBatchInsert(relationKey, tupleBatch);
+  /** The loop of the writer. */
+  private void writeRecords() {
+    final Stream[] streams = {events, sent, resources};
+    long numFlushesHandled = 0;
+    try {
+      while (!closed) {
+        final long request;
+        synchronized (this) {
+          request = numFlushesRequested;
+        }
+        boolean wrote = false;
+        for (Stream stream : streams) {
+          wrote |= stream.drain();
+        }
+        final long now = System.nanoTime();
+        for (Stream stream : streams) {
+          if (request > numFlushesHandled || stream.isStale(now)) {
+            stream.commit();
+          }
+        }
+        if (request > numFlushesHandled) {
+          numFlushesHandled = request;
+          synchronized (this) {
+            numFlushesDone = request;
+            notifyAll();
+          }
+        }
+        if (!wrote) {
+          LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+      }
+      for (Stream stream : streams) {
+        stream.drain();
+        stream.commit();
+      }
+    } catch (Throwable e) {
+      LOGGER.error("Error writing profiling data", e);
+      writerError = e;
+    } finally {
+      for (Stream stream : streams) {
+        stream.close();
+      }
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
 
-    LOGGER.info(
-        "Writing profiling data to {} took {} milliseconds.",
-        relationKey,
-        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+  /**
+   * Write the remaining records, and stop the writer.
+   */
+  public void close() {
+    closed = true;
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      accessMethod.close();
+    } catch (DbException e) {
+      LOGGER.warn("Error closing the profiling connection", e);
+    }
   }
 
   /**
-   * Returns {@code true} if the current JDBC connection is active.
+   * Returns {@code true} if the writer is running and the current JDBC connection is active.
    *
-   * @return {@code true} if the current JDBC connection is active.
+   * @return {@code true} if the writer is running and the current JDBC connection is active.
    */
   public boolean isValid() {
+    if (writerError != null || closed) {
+      return false;
+    }
     try {
       return accessMethod.getConnection().isValid(1);
     } catch (SQLException e) {
@@ -291,4 +473,132 @@ public class ProfilingLogger {
       return false;
     }
   }
+
+  /**
+   * The records of a profiling relation, on their way to the database. Only the ring is used by the operators; the
+   * rest is only used by the writer.
+   */
+  private static final class Stream {
+    /** The connection information of the database. */
+    private final ConnectionInfo connectionInfo;
+    /** The relation. */
+    private final RelationKey relationKey;
+    /** The records that have not been drained yet. */
+    private final ProfilingRing ring;
+    /** The drained records that have not been written yet. */
+    private final TupleBatchBuffer buffer;
+    /** The connection of the COPY stream, opened on the first write. */
+    private JdbcAccessMethod connection;
+    /** The COPY stream, or null if there are no uncommitted tuples. */
+    private BatchInserter inserter;
+    /** When the COPY stream was opened, in nanoseconds. */
+    private long openedNanos;
+    /** The number of tuples written to the COPY stream. */
+    private long numTuples;
+
+    /**
+     * @param connectionInfo the connection information of the database.
+     * @param relationKey the relation.
+     * @param schema the schema of the relation.
+     * @param capacity the number of records buffered.
+     */
+    Stream(
+        final ConnectionInfo connectionInfo,
+        final RelationKey relationKey,
+        final Schema schema,
+        final int capacity) {
+      this.connectionInfo = connectionInfo;
+      this.relationKey = relationKey;
+      ring = new ProfilingRing(schema, capacity);
+      buffer = new TupleBatchBuffer(schema);
+    }
+
+    /**
+     * Drain the ring, and write the full batches.
+     *
+     * @return whether there were records in the ring.
+     * @throws DbException if there is an error writing
+     */
+    boolean drain() throws DbException {
+      boolean drained = false;
+      while (ring.drainTo(buffer, TupleBatch.BATCH_SIZE) > 0) {
+        drained = true;
+        for (TupleBatch tb = buffer.popFilled(); tb != null; tb = buffer.popFilled()) {
+          write(tb);
+        }
+      }
+      return drained;
+    }
+
+    /**
+     * @param tb tuples to write to the COPY stream, which is opened if needed.
+     * @throws DbException if there is an error writing
+     */
+    private void write(final TupleBatch tb) throws DbException {
+      if (inserter == null) {
+        if (connection == null) {
+          connection =
+              (JdbcAccessMethod) AccessMethod.of(connectionInfo.getDbms(), connectionInfo, false);
+        }
+        inserter = connection.openBatchInserter(relationKey, false);
+        openedNanos = System.nanoTime();
+        numTuples = 0;
+      }
+      inserter.insert(tb);
+      numTuples += tb.numTuples();
+    }
+
+    /**
+     * @param now the current time, in nanoseconds.
+     * @return whether the COPY stream has been open for more than {@link #COMMIT_MILLIS}.
+     */
+    boolean isStale(final long now) {
+      return inserter != null && now - openedNanos >= TimeUnit.MILLISECONDS.toNanos(COMMIT_MILLIS);
+    }
+
+    /**
+     * Write the partial batch, and commit the COPY stream.
+     *
+     * @throws DbException if there is an error writing
+     */
+    void commit() throws DbException {
+      final TupleBatch tb = buffer.popAny();
+      if (tb != null) {
+        write(tb);
+      }
+      if (inserter != null) {
+        final long startTime = System.nanoTime();
+        inserter.commit();
+        inserter = null;
+        LOGGER.info(
+            "Writing {} tuples of profiling data to {} took {} milliseconds to commit.",
+            numTuples,
+            relationKey,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      }
+      final long numDropped = ring.takeNumDropped();
+      if (numDropped > 0) {
+        LOGGER.warn(
+            "Dropped {} profiling records for {} because the writer fell behind.",
+            numDropped,
+            relationKey);
+      }
+    }
+
+    /** Abort the COPY stream, if any, and close the connection. */
+    void close() {
+      if (inserter != null) {
+        inserter.abort();
+        inserter = null;
+      }
+      if (connection != null) {
+        try {
+          connection.close();
+        } catch (DbException e) {
+          LOGGER.warn("Error closing the profiling connection", e);
+        }
+        connection = null;
+      }
+    }
+  }
 }
@@ -0,0 +1,182 @@
+package edu.washington.escience.myria.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+
+/**
+ * A bounded buffer of profiling records, to which many threads append without locking and which a single thread
+ * drains. The fields of the records are stored in a primitive array, so appending a record does not allocate unless it
+ * has a string field.
+ *
+ * This is Dmitry Vyukov's bounded queue: every slot has a sequence number, which tells the producers when the slot is
+ * free and the consumer when its record is complete. To append a record, a producer {@link #claim()}s a slot, sets its
+ * fields, and {@link #publish(long)}es it.
+ */
+final class ProfilingRing {
+  /** The schema of the records. */
+  private final Schema schema;
+  /** The number of fields of a record. */
+  private final int numFields;
+  /** The number of slots minus one. The number of slots is a power of two. */
+  private final int mask;
+  /** The numeric fields of the slots, one record after the other. */
+  private final long[] values;
+  /** The string fields of the slots, laid out as {@link #values}, or null if the schema has no string column. */
+  private final String[] strings;
+  /**
+   * The sequence number of each slot. A slot whose sequence number is its position is free, and one whose sequence
+   * number is its position plus one holds a published record.
+   */
+  private final AtomicLongArray sequences;
+  /** The position of the next slot to claim. */
+  private final AtomicLong tail = new AtomicLong();
+  /** The position of the next record to drain. Only used by the consumer. */
+  private long head;
+  /** The number of records that did not fit. */
+  private final AtomicLong numDropped = new AtomicLong();
+
+  /**
+   * @param schema the schema of the records. Its columns must be of type INT, LONG or STRING.
+   * @param capacity the smallest number of records that the ring must hold. Rounded up to a power of two.
+   */
+  ProfilingRing(final Schema schema, final int capacity) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+    Preconditions.checkArgument(capacity <= 1 << 30, "capacity must be at most %s", 1 << 30);
+    boolean hasStrings = false;
+    for (Type type : schema.getColumnTypes()) {
+      Preconditions.checkArgument(
+          type == Type.INT_TYPE || type == Type.LONG_TYPE || type == Type.STRING_TYPE,
+          "Unsupported profiling field type %s",
+          type);
+      hasStrings |= type == Type.STRING_TYPE;
+    }
+    this.schema = schema;
+    numFields = schema.numColumns();
+    final int numSlots = roundUp(capacity);
+    mask = numSlots - 1;
+    values = new long[numSlots * numFields];
+    strings = hasStrings ? new String[numSlots * numFields] : null;
+    sequences = new AtomicLongArray(numSlots);
+    for (int slot = 0; slot < numSlots; ++slot) {
+      sequences.set(slot, slot);
+    }
+  }
+
+  /**
+   * @param capacity a positive number.
+   * @return the smallest power of two that is at least the number.
+   */
+  private static int roundUp(final int capacity) {
+    final int power = Integer.highestOneBit(capacity);
+    return power == capacity ? power : power << 1;
+  }
+
+  /**
+   * @return the number of records that the ring holds.
+   */
+  int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Claim a slot for a record. The record must then be set and published.
+   *
+   * @return the position of the slot, or -1 if the ring is full.
+   */
+  long claim() {
+    long pos = tail.get();
+    while (true) {
+      final long diff = sequences.get((int) (pos & mask)) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          return pos;
+        }
+      } else if (diff < 0) {
+        return -1;
+      }
+      pos = tail.get();
+    }
+  }
+
+  /**
+   * @param pos the position of a claimed slot.
+   * @param field an INT or LONG field.
+   * @param value the value of the field.
+   */
+  void putLong(final long pos, final int field, final long value) {
+    values[(int) (pos & mask) * numFields + field] = value;
+  }
+
+  /**
+   * @param pos the position of a claimed slot.
+   * @param field a STRING field.
+   * @param value the value of the field.
+   */
+  void putString(final long pos, final int field, final String value) {
+    strings[(int) (pos & mask) * numFields + field] = value;
+  }
+
+  /**
+   * Make the record of a claimed slot visible to the consumer.
+   *
+   * @param pos the position of the slot.
+   */
+  void publish(final long pos) {
+    sequences.lazySet((int) (pos & mask), pos + 1);
+  }
+
+  /** Count a record that did not fit. */
+  void drop() {
+    numDropped.incrementAndGet();
+  }
+
+  /**
+   * @return the number of records that did not fit since the last call.
+   */
+  long takeNumDropped() {
+    return numDropped.getAndSet(0);
+  }
+
+  /**
+   * Move published records to a buffer, in order, stopping at the first record that is not published yet. Must only be
+   * called by one thread at a time.
+   *
+   * @param buffer the buffer, whose schema is the schema of the records.
+   * @param maxRecords the largest number of records to move.
+   * @return the number of records moved.
+   */
+  int drainTo(final TupleBatchBuffer buffer, final int maxRecords) {
+    int numRecords = 0;
+    while (numRecords < maxRecords) {
+      final int slot = (int) (head & mask);
+      if (sequences.get(slot) != head + 1) {
+        break;
+      }
+      final int base = slot * numFields;
+      for (int field = 0; field < numFields; ++field) {
+        switch (schema.getColumnType(field)) {
+          case INT_TYPE:
+            buffer.putInt(field, (int) values[base + field]);
+            break;
+          case LONG_TYPE:
+            buffer.putLong(field, values[base + field]);
+            break;
+          default:
+            buffer.putString(field, strings[base + field]);
+            strings[base + field] = null;
+            break;
+        }
+      }
+      sequences.lazySet(slot, head + mask + 1);
+      ++head;
+      ++numRecords;
+    }
+    return numRecords;
+  }
+}
@@ -0,0 +1,225 @@
+package edu.washington.escience.myria.storage;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.column.Column;
+
+/**
+ * A hash table designed for the build side of hash joins. The tuples are kept in a {@link MutableTupleBuffer} in
+ * insertion order, so a row index is simply a position in {@link #getData()}. The index over the tuples does not use
+ * one boxed list of row indices per hash code. Instead it uses flat primitive arrays:
+ * <ul>
+ * <li>an open-addressing (linear probing) slot array keyed by hash code. Each slot packs the hash code and the first
+ * row of its chain into one <code>long</code>, so a probe touches a single array element.</li>
+ * <li>the last row of the chain of each slot, so that chains are kept in insertion order.</li>
+ * <li>a chain link per row, pointing to the next row with the same hash code.</li>
+ * </ul>
+ *
+ * Iterating over the candidates of a hash code looks like:
+ *
+ * <pre>
+ * for (int index = table.getFirst(hashCode); index &gt;= 0; index = table.getNext(index)) {
+ *   ...
+ * }
+ * </pre>
+ */
+public final class JoinHashTable {
+  /** The initial number of slots. Must be a power of two. */
+  private static final int INITIAL_SLOTS = 64;
+  /** The initial capacity of the chain link array. */
+  private static final int INITIAL_ROWS = 64;
+  /** Marks the end of a chain, or a hash code with no rows. */
+  private static final int NO_ROW = -1;
+  /** The value of an empty slot. Occupied slots always have a non-zero lower half. */
+  private static final long EMPTY_SLOT = 0L;
+
+  /** The tuples in this hash table, in insertion order. */
+  private final MutableTupleBuffer data;
+  /** The slots. The hash code is in the upper 32 bits and the first row of the chain plus one in the lower 32 bits. */
+  private long[] slots;
+  /** The last row of the chain of each slot. */
+  private int[] slotTails;
+  /** slots.length - 1. */
+  private int mask;
+  /** The number of occupied slots, i.e., the number of distinct hash codes. */
+  private int numKeys;
+  /** For each row, the next row with the same hash code, or {@link #NO_ROW}. */
+  private int[] next;
+
+  /**
+   * @param schema the schema of the tuples to be stored in this hash table.
+   */
+  public JoinHashTable(final Schema schema) {
+    data = new MutableTupleBuffer(schema);
+    slots = new long[INITIAL_SLOTS];
+    slotTails = new int[INITIAL_SLOTS];
+    mask = INITIAL_SLOTS - 1;
+    numKeys = 0;
+    next = new int[INITIAL_ROWS];
+  }
+
+  /**
+   * @return the buffer holding the tuples of this hash table. Row indices returned by this hash table index into it.
+   */
+  public MutableTupleBuffer getData() {
+    return data;
+  }
+
+  /**
+   * @return the number of tuples in this hash table.
+   */
+  public int numTuples() {
+    return data.numTuples();
+  }
+
+  /**
+   * @return the number of distinct hash codes in this hash table.
+   */
+  public int numKeys() {
+    return numKeys;
+  }
+
+  /**
+   * @param hashCode the hash code.
+   * @return the index of the first row with the given hash code, or a negative value if there is none.
+   */
+  public int getFirst(final int hashCode) {
+    int slot = hashCode & mask;
+    while (true) {
+      final long entry = slots[slot];
+      if (entry == EMPTY_SLOT) {
+        return NO_ROW;
+      }
+      if ((int) (entry >>> Integer.SIZE) == hashCode) {
+        return (int) entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * @param row the index of a row in this hash table.
+   * @return the index of the next row with the same hash code, or a negative value if there is none.
+   */
+  public int getNext(final int row) {
+    return next[row];
+  }
+
+  /**
+   * Append all the columns of a row to this hash table.
+   *
+   * @param hashCode the hash code of the row.
+   * @param tb the source TupleBatch.
+   * @param row the row in the source TupleBatch.
+   * @return the index of the new row in this hash table.
+   */
+  public int add(final int hashCode, final TupleBatch tb, final int row) {
+    Preconditions.checkArgument(
+        tb.numColumns() == data.numColumns(), "the TupleBatch and the hash table differ in width");
+    final int index = link(hashCode);
+    final List<? extends Column<?>> inputColumns = tb.getDataColumns();
+    for (int column = 0; column < data.numColumns(); ++column) {
+      data.put(column, inputColumns.get(column), row);
+    }
+    return index;
+  }
+
+  /**
+   * Append the specified columns of a row to this hash table.
+   *
+   * @param hashCode the hash code of the row.
+   * @param tb the source TupleBatch.
+   * @param columns the columns of the source TupleBatch to be stored. Order matters.
+   * @param row the row in the source TupleBatch.
+   * @return the index of the new row in this hash table.
+   */
+  public int add(final int hashCode, final TupleBatch tb, final int[] columns, final int row) {
+    Preconditions.checkArgument(
+        columns.length == data.numColumns(), "the columns and the hash table differ in width");
+    final int index = link(hashCode);
+    final List<? extends Column<?>> inputColumns = tb.getDataColumns();
+    for (int column = 0; column < columns.length; ++column) {
+      data.put(column, inputColumns.get(columns[column]), row);
+    }
+    return index;
+  }
+
+  /**
+   * Add the next row to the index under the given hash code. The caller must then append the row to {@link #data}.
+   *
+   * @param hashCode the hash code of the row.
+   * @return the index of the new row.
+   */
+  private int link(final int hashCode) {
+    final int index = data.numTuples();
+    if (index == next.length) {
+      next = Arrays.copyOf(next, next.length + (next.length >> 1));
+    }
+    next[index] = NO_ROW;
+
+    int slot = hashCode & mask;
+    while (true) {
+      final long entry = slots[slot];
+      if (entry == EMPTY_SLOT) {
+        slots[slot] = pack(hashCode, index);
+        slotTails[slot] = index;
+        ++numKeys;
+        if (numKeys * 4L >= slots.length * 3L) {
+          rehash(slots.length * 2);
+        }
+        return index;
+      }
+      if ((int) (entry >>> Integer.SIZE) == hashCode) {
+        next[slotTails[slot]] = index;
+        slotTails[slot] = index;
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * @param hashCode the hash code.
+   * @param firstRow the first row of the chain.
+   * @return the packed slot.
+   */
+  private static long pack(final int hashCode, final int firstRow) {
+    return ((long) hashCode << Integer.SIZE) | ((firstRow + 1) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Move all slots into a new slot array of the given size.
+   *
+   * @param newSize the new number of slots. Must be a power of two.
+   */
+  private void rehash(final int newSize) {
+    final long[] oldSlots = slots;
+    final int[] oldTails = slotTails;
+    slots = new long[newSize];
+    slotTails = new int[newSize];
+    mask = newSize - 1;
+    for (int i = 0; i < oldSlots.length; ++i) {
+      final long entry = oldSlots[i];
+      if (entry == EMPTY_SLOT) {
+        continue;
+      }
+      int slot = (int) (entry >>> Integer.SIZE) & mask;
+      while (slots[slot] != EMPTY_SLOT) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = entry;
+      slotTails[slot] = oldTails[i];
+    }
+  }
+
+  /**
+   * @return an estimate of the heap memory used by the index arrays, in bytes. Excludes the tuples themselves.
+   */
+  public long indexSizeInBytes() {
+    return (long) slots.length * (Long.BYTES + Integer.BYTES) + (long) next.length * Integer.BYTES;
+  }
+}
@@ -6,6 +6,8 @@ import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 
 import com.google.common.base.Preconditions;
@@ -23,6 +25,10 @@ import net.jcip.annotations.ThreadSafe;
 /**
  * Container class for a batch of tuples. The goal is to amortize memory management overhead.
  *
+ * A batch may carry a selection vector, i.e., the rows of its columns that belong to the batch. Filtering and
+ * partitioning a batch only compute a new selection vector over the same columns. All accessors translate row numbers
+ * through the selection vector, and the selected rows are only copied when the batch is serialized or stored, see
+ * {@link #compact()}.
  */
 @ThreadSafe
 public class TupleBatch implements ReadableTable, Serializable {
@@ -36,6 +42,10 @@ public class TupleBatch implements ReadableTable, Serializable {
   private final ImmutableList<? extends Column<?>> columns;
   /** Number of tuples in this TB. */
   private final int numTuples;
+  /** The rows of {@link #columns} that are in this TB, in order, or null if all rows are. */
+  @Nullable private final int[] selection;
+  /** Views of the selected rows of {@link #columns}, created on demand. */
+  private transient volatile ImmutableList<? extends Column<?>> selectedColumns;
   /** Whether this TB is an EOI TB. */
   private final boolean isEOI;
 
@@ -53,6 +63,7 @@ public class TupleBatch implements ReadableTable, Serializable {
       b.add(Column.emptyColumn(type));
     }
     columns = b.build();
+    selection = null;
     isEOI = isEoi;
   }
 
@@ -63,7 +74,7 @@ public class TupleBatch implements ReadableTable, Serializable {
   public TupleBatch rename(final List<String> columnNames) {
     Schema newSchema =
         Schema.of(schema.getColumnTypes(), Objects.requireNonNull(columnNames, "columnNames"));
-    return new TupleBatch(newSchema, columns, numTuples, isEOI);
+    return new TupleBatch(newSchema, columns, numBaseRows(), selection, isEOI);
   }
 
   /**
@@ -101,6 +112,24 @@ public class TupleBatch implements ReadableTable, Serializable {
       final List<? extends Column<?>> columns,
       final int numTuples,
       final boolean isEOI) {
+    this(schema, columns, numTuples, null, isEOI);
+  }
+
+  /**
+   * Construct a TupleBatch from the specified components.
+   *
+   * @param schema schema of the tuples in this batch. Must match columns.
+   * @param columns schema of the tuples in this batch. Must match columns.
+   * @param numTuples the number of rows in the columns.
+   * @param selection the rows of the columns that are in this batch, or null if all rows are.
+   * @param isEOI whether this is an EOI TupleBatch.
+   */
+  private TupleBatch(
+      final Schema schema,
+      final List<? extends Column<?>> columns,
+      final int numTuples,
+      @Nullable final int[] selection,
+      final boolean isEOI) {
     this.schema = Objects.requireNonNull(schema, "schema");
     this.columns = ImmutableList.copyOf(Objects.requireNonNull(columns, "columns"));
     Preconditions.checkArgument(
@@ -115,10 +144,36 @@ public class TupleBatch implements ReadableTable, Serializable {
           numTuples,
           column.size());
     }
-    this.numTuples = numTuples;
+    this.selection = selection;
+    if (selection == null) {
+      this.numTuples = numTuples;
+    } else {
+      this.numTuples = selection.length;
+    }
     this.isEOI = isEOI;
   }
 
+  /**
+   * @param row a row of this batch.
+   * @return the corresponding row of {@link #columns}.
+   */
+  private int baseRow(final int row) {
+    if (selection == null) {
+      return row;
+    }
+    return selection[row];
+  }
+
+  /**
+   * @return the number of rows in {@link #columns}.
+   */
+  private int numBaseRows() {
+    if (columns.isEmpty()) {
+      return selection == null ? numTuples : 0;
+    }
+    return columns.get(0).size();
+  }
+
   /**
    * put the tuple batch into TBB by smashing it into cells and putting them one by one.
    *
@@ -156,11 +211,50 @@ public class TupleBatch implements ReadableTable, Serializable {
       return this;
     }
 
+    final int[] rows = new int[newNumTuples];
+    for (int i = 0, row = filter.nextSetBit(0); row >= 0; row = filter.nextSetBit(row + 1)) {
+      rows[i++] = baseRow(row);
+    }
+    return new TupleBatch(schema, columns, numBaseRows(), rows, isEOI);
+  }
+
+  /**
+   * Return a new TupleBatch that contains the specified rows of this batch. The columns are not copied.
+   *
+   * @param rows the rows to be retained, in the order they appear in the result.
+   * @return a TupleBatch that contains the specified rows of this batch.
+   */
+  public final TupleBatch selectRows(final int[] rows) {
+    final int[] newSelection = new int[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      newSelection[i] = baseRow(Preconditions.checkElementIndex(rows[i], numTuples));
+    }
+    return new TupleBatch(schema, columns, numBaseRows(), newSelection, isEOI);
+  }
+
+  /**
+   * Return a TupleBatch with the same tuples as this batch whose columns hold exactly these tuples, copying the
+   * selected rows if this batch has a selection vector. Batches should be compacted before they are kept for long,
+   * because a selection vector keeps all the rows of the columns alive.
+   *
+   * @return a TupleBatch without a selection vector.
+   */
+  public final TupleBatch compact() {
+    if (selection == null) {
+      return this;
+    }
     ImmutableList.Builder<Column<?>> newColumns = ImmutableList.builder();
     for (Column<?> column : columns) {
-      newColumns.add(column.filter(filter));
+      newColumns.add(column.copyRows(selection));
     }
-    return new TupleBatch(schema, newColumns.build(), newNumTuples, isEOI);
+    return new TupleBatch(schema, newColumns.build(), numTuples, isEOI);
+  }
+
+  /**
+   * @return whether this batch has a selection vector, i.e., whether its tuples are a subset of the rows of its columns.
+   */
+  public final boolean hasSelection() {
+    return selection != null;
   }
 
   /**
@@ -176,6 +270,10 @@ public class TupleBatch implements ReadableTable, Serializable {
         "Error: cannot take a prefix of length %s from a batch of length %s",
         prefix,
         numTuples());
+    if (selection != null) {
+      return new TupleBatch(
+          schema, columns, numBaseRows(), Arrays.copyOf(selection, prefix), isEOI);
+    }
     ImmutableList.Builder<Column<?>> newColumns = ImmutableList.builder();
     for (Column<?> column : columns) {
       newColumns.add(new PrefixColumn(column, prefix));
@@ -185,33 +283,33 @@ public class TupleBatch implements ReadableTable, Serializable {
 
   @Override
   public final boolean getBoolean(final int column, final int row) {
-    return columns.get(column).getBoolean(row);
+    return columns.get(column).getBoolean(baseRow(row));
   }
 
   @Override
   public final double getDouble(final int column, final int row) {
-    return columns.get(column).getDouble(row);
+    return columns.get(column).getDouble(baseRow(row));
   }
 
   @Override
   public final float getFloat(final int column, final int row) {
-    return columns.get(column).getFloat(row);
+    return columns.get(column).getFloat(baseRow(row));
   }
 
   @Override
   public final int getInt(final int column, final int row) {
-    return columns.get(column).getInt(row);
+    return columns.get(column).getInt(baseRow(row));
   }
 
   @Override
   public final long getLong(final int column, final int row) {
-    return columns.get(column).getLong(row);
+    return columns.get(column).getLong(baseRow(row));
   }
 
   @Override
   @Deprecated
   public final Object getObject(final int column, final int row) {
-    return columns.get(column).getObject(row);
+    return columns.get(column).getObject(baseRow(row));
   }
 
   @Override
@@ -221,12 +319,12 @@ public class TupleBatch implements ReadableTable, Serializable {
 
   @Override
   public final String getString(final int column, final int row) {
-    return columns.get(column).getString(row);
+    return columns.get(column).getString(baseRow(row));
   }
 
   @Override
   public final DateTime getDateTime(final int column, final int row) {
-    return columns.get(column).getDateTime(row);
+    return columns.get(column).getDateTime(baseRow(row));
   }
 
   @Override
@@ -240,7 +338,8 @@ public class TupleBatch implements ReadableTable, Serializable {
   }
 
   /**
-   * Partition this TB using the partition function. The method is implemented by shallow copy of TupleBatches.
+   * Partition this TB using the partition function. The partitions share the columns of this batch, each with its own
+   * selection vector.
    *
    * @return an array of TBs. The length of the array is the same as the number of partitions. If no tuple presents in a
    *         partition, say the i'th partition, the i'th element in the result array is null.
@@ -255,19 +354,35 @@ public class TupleBatch implements ReadableTable, Serializable {
 
     final int[] partitions = pf.partition(this);
 
-    BitSet[] resultBitSet = new BitSet[result.length];
-    for (int i = 0; i < partitions.length; i++) {
-      int p = partitions[i];
-      Preconditions.checkElementIndex(p, result.length);
-      if (resultBitSet[p] == null) {
-        resultBitSet[p] = new BitSet(result.length);
+    final int[] sizes = new int[result.length];
+    for (int p : partitions) {
+      sizes[Preconditions.checkElementIndex(p, result.length)]++;
+    }
+    if (numTuples == 0) {
+      return result;
+    }
+    if (sizes[partitions[0]] == numTuples) {
+      /* Shortcut: all tuples are in the same partition. */
+      result[partitions[0]] = this;
+      return result;
+    }
+
+    final int[][] rows = new int[result.length][];
+    for (int p = 0; p < result.length; p++) {
+      if (sizes[p] > 0) {
+        rows[p] = new int[sizes[p]];
+        sizes[p] = 0;
       }
-      resultBitSet[p].set(i);
+    }
+    for (int i = 0; i < partitions.length; i++) {
+      final int p = partitions[i];
+      rows[p][sizes[p]++] = baseRow(i);
     }
 
-    for (int i = 0; i < result.length; i++) {
-      if (resultBitSet[i] != null) {
-        result[i] = filter(resultBitSet[i]);
+    final int numBaseRows = numBaseRows();
+    for (int p = 0; p < result.length; p++) {
+      if (rows[p] != null) {
+        result[p] = new TupleBatch(schema, columns, numBaseRows, rows[p], isEOI);
       }
     }
     return result;
@@ -288,7 +403,11 @@ public class TupleBatch implements ReadableTable, Serializable {
       newColumns.add(columns.get(i));
     }
     return new TupleBatch(
-        getSchema().getSubSchema(remainingColumns), newColumns.build(), numTuples, isEOI);
+        getSchema().getSubSchema(remainingColumns),
+        newColumns.build(),
+        numBaseRows(),
+        selection,
+        isEOI);
   }
 
   /**
@@ -311,7 +430,7 @@ public class TupleBatch implements ReadableTable, Serializable {
     for (int i = 0; i < numTuples; i++) {
       sb.append("|\t");
       for (int j = 0; j < schema.numColumns(); j++) {
-        sb.append(columnTypes.get(j).toString(columns.get(j), i));
+        sb.append(columnTypes.get(j).toString(getDataColumns().get(j), i));
         sb.append("\t|\t");
       }
       sb.append('\n');
@@ -320,17 +439,29 @@ public class TupleBatch implements ReadableTable, Serializable {
   }
 
   /**
-   * @return the data columns.
+   * @return the data columns. If this batch has a selection vector, these are views of the selected rows.
    */
   public final ImmutableList<? extends Column<?>> getDataColumns() {
-    return columns;
+    if (selection == null) {
+      return columns;
+    }
+    ImmutableList<? extends Column<?>> ret = selectedColumns;
+    if (ret == null) {
+      ImmutableList.Builder<Column<?>> views = ImmutableList.builder();
+      for (Column<?> column : columns) {
+        views.add(column.filter(selection));
+      }
+      ret = views.build();
+      selectedColumns = ret;
+    }
+    return ret;
   }
 
   /**
    * @return a TransportMessage encoding the TupleBatch.
    */
   public final TransportMessage toTransportMessage() {
-    return IPCUtils.normalDataMessage(columns, numTuples);
+    return IPCUtils.normalDataMessage(compact().columns, numTuples);
   }
 
   /**
@@ -366,12 +497,12 @@ public class TupleBatch implements ReadableTable, Serializable {
         numTuples());
     Schema newSchema = Schema.appendColumn(schema, column.getType(), columnName);
     List<Column<?>> newColumns =
-        ImmutableList.<Column<?>>builder().addAll(columns).add(column).build();
+        ImmutableList.<Column<?>>builder().addAll(getDataColumns()).add(column).build();
     return new TupleBatch(newSchema, newColumns, numTuples, isEOI);
   }
 
   @Override
   public ReadableColumn asColumn(final int column) {
-    return columns.get(column);
+    return getDataColumns().get(column);
   }
 }
@@ -63,7 +63,7 @@ public class TupleBatchBuffer implements AppendableTable {
   }
 
   /**
-   * Append the tuple batch directly into readyTuples.
+   * Append the tuple batch directly into readyTuples. A batch with a selection vector is compacted first.
    *
    * @param tb the TB.
    */
@@ -75,7 +75,7 @@ public class TupleBatchBuffer implements AppendableTable {
     finishBatch();
 
     readyTuplesNum += tb.numTuples();
-    readyTuples.add(tb);
+    readyTuples.add(tb.compact());
   }
 
   /**
@@ -351,6 +351,55 @@ public class TupleBatchBuffer implements AppendableTable {
     }
   }
 
+  /**
+   * Append joined tuples one column at a time. The i-th appended tuple is the <code>leftRows[i]</code>-th row of
+   * <code>left</code> projected on <code>leftColumns</code>, followed by the <code>rightRows[i]</code>-th row of
+   * <code>right</code> projected on <code>rightColumns</code>. Used by the batch probe of the hash joins.
+   *
+   * @param left the left table
+   * @param leftColumns the columns of the left table to append
+   * @param leftRows the rows of the left table to append
+   * @param right the right table
+   * @param rightColumns the columns of the right table to append
+   * @param rightRows the rows of the right table to append
+   * @param numRows the number of tuples to append
+   */
+  public final void appendGathered(
+      final ReadableTable left,
+      final int[] leftColumns,
+      final int[] leftRows,
+      final ReadableTable right,
+      final int[] rightColumns,
+      final int[] rightRows,
+      final int numRows) {
+    Preconditions.checkState(
+        numColumnsReady == 0, "Cannot append whole tuples with partially-completed tuples");
+    Preconditions.checkArgument(
+        leftColumns.length + rightColumns.length == numColumns,
+        "the number of appended columns does not match the schema");
+    int done = 0;
+    while (done < numRows) {
+      final int length = Math.min(numRows - done, TupleBatch.BATCH_SIZE - currentInProgressTuples);
+      for (int i = 0; i < leftColumns.length; ++i) {
+        TupleUtils.copyValues(
+            left.asColumn(leftColumns[i]), leftRows, done, length, currentBuildingColumns.get(i));
+      }
+      for (int i = 0; i < rightColumns.length; ++i) {
+        TupleUtils.copyValues(
+            right.asColumn(rightColumns[i]),
+            rightRows,
+            done,
+            length,
+            currentBuildingColumns.get(i + leftColumns.length));
+      }
+      done += length;
+      currentInProgressTuples += length;
+      if (currentInProgressTuples == TupleBatch.BATCH_SIZE) {
+        finishBatch();
+      }
+    }
+  }
+
   /**
    * Append the specified value to the specified destination column in this TupleBatchBuffer from the source column.
    *
@@ -9,6 +9,9 @@ import edu.washington.escience.myria.column.builder.ColumnBuilder;
  * Utility functions for dealing with tuples.
  */
 public final class TupleUtils {
+  /** The estimated size of a String or DateTime object, excluding the characters of a String. */
+  private static final int OBJECT_OVERHEAD_BYTES = 40;
+
   /** Utility class cannot be instantiated. */
   private TupleUtils() {}
 
@@ -165,6 +168,142 @@ public final class TupleUtils {
     }
   }
 
+  /**
+   * Copy the values at the specified rows of a {@link ReadableColumn} to a {@link ColumnBuilder}. The type of the
+   * column is only checked once, not once per value.
+   *
+   * @param from the source of the values
+   * @param fromRows the rows of the source values
+   * @param offset the index in <code>fromRows</code> of the first row to copy
+   * @param length the number of values to copy
+   * @param to the destination of the values
+   */
+  public static void copyValues(
+      final ReadableColumn from,
+      final int[] fromRows,
+      final int offset,
+      final int length,
+      final ColumnBuilder<?> to) {
+    final int end = offset + length;
+    switch (from.getType()) {
+      case BOOLEAN_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendBoolean(from.getBoolean(fromRows[i]));
+        }
+        break;
+      case DATETIME_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendDateTime(from.getDateTime(fromRows[i]));
+        }
+        break;
+      case DOUBLE_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendDouble(from.getDouble(fromRows[i]));
+        }
+        break;
+      case FLOAT_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendFloat(from.getFloat(fromRows[i]));
+        }
+        break;
+      case INT_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendInt(from.getInt(fromRows[i]));
+        }
+        break;
+      case LONG_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendLong(from.getLong(fromRows[i]));
+        }
+        break;
+      case STRING_TYPE:
+        for (int i = offset; i < end; ++i) {
+          to.appendString(from.getString(fromRows[i]));
+        }
+        break;
+    }
+  }
+
+  /**
+   * Given pairs of rows <code>(rows1[i], rows2[i])</code>, keep only the pairs whose values in the specified columns
+   * are equal. The kept pairs are moved to the front of the arrays in their original order. The type of the columns is
+   * only checked once, not once per pair.
+   *
+   * @param column1 the column of the first row of each pair
+   * @param rows1 the first row of each pair
+   * @param column2 the column of the second row of each pair
+   * @param rows2 the second row of each pair
+   * @param count the number of pairs
+   * @return the number of pairs kept
+   */
+  public static int retainEqualPairs(
+      final ReadableColumn column1,
+      final int[] rows1,
+      final ReadableColumn column2,
+      final int[] rows2,
+      final int count) {
+    int kept = 0;
+    switch (column1.getType()) {
+      case BOOLEAN_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getBoolean(rows1[i]) == column2.getBoolean(rows2[i])) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+      case DATETIME_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getDateTime(rows1[i]).equals(column2.getDateTime(rows2[i]))) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+      case DOUBLE_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getDouble(rows1[i]) == column2.getDouble(rows2[i])) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+      case FLOAT_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getFloat(rows1[i]) == column2.getFloat(rows2[i])) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+      case INT_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getInt(rows1[i]) == column2.getInt(rows2[i])) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+      case LONG_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getLong(rows1[i]) == column2.getLong(rows2[i])) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+      case STRING_TYPE:
+        for (int i = 0; i < count; ++i) {
+          if (column1.getString(rows1[i]).equals(column2.getString(rows2[i]))) {
+            rows1[kept] = rows1[i];
+            rows2[kept++] = rows2[i];
+          }
+        }
+        break;
+    }
+    return kept;
+  }
+
   /**
    * @param table1 the table that cell 1 is in
    * @param column1 column number of cell 1
@@ -453,4 +592,69 @@ public final class TupleUtils {
     }
     return true;
   }
+
+  /**
+   * @param tb a TupleBatch.
+   * @return an estimate of the heap memory used by the tuples of the batch once they are copied into a buffer.
+   */
+  public static long estimateBytes(final TupleBatch tb) {
+    final int numTuples = tb.numTuples();
+    long bytes = 0;
+    for (int column = 0; column < tb.numColumns(); ++column) {
+      switch (tb.getSchema().getColumnType(column)) {
+        case BOOLEAN_TYPE:
+          bytes += numTuples;
+          break;
+        case INT_TYPE:
+        case FLOAT_TYPE:
+          bytes += (long) numTuples * Integer.BYTES;
+          break;
+        case LONG_TYPE:
+        case DOUBLE_TYPE:
+          bytes += (long) numTuples * Long.BYTES;
+          break;
+        case DATETIME_TYPE:
+          bytes += (long) numTuples * (Long.BYTES + OBJECT_OVERHEAD_BYTES);
+          break;
+        case STRING_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            bytes += Long.BYTES + OBJECT_OVERHEAD_BYTES + 2L * tb.getString(column, row).length();
+          }
+          break;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @param table a table.
+   * @param columns the columns of interest.
+   * @param row the row.
+   * @return an estimate of the heap memory used by the given columns of the row once they are copied into a buffer.
+   */
+  public static long estimateBytes(final ReadableTable table, final int[] columns, final int row) {
+    long bytes = 0;
+    for (int column : columns) {
+      switch (table.getSchema().getColumnType(column)) {
+        case BOOLEAN_TYPE:
+          bytes += 1;
+          break;
+        case INT_TYPE:
+        case FLOAT_TYPE:
+          bytes += Integer.BYTES;
+          break;
+        case LONG_TYPE:
+        case DOUBLE_TYPE:
+          bytes += Long.BYTES;
+          break;
+        case DATETIME_TYPE:
+          bytes += Long.BYTES + OBJECT_OVERHEAD_BYTES;
+          break;
+        case STRING_TYPE:
+          bytes += Long.BYTES + OBJECT_OVERHEAD_BYTES + 2L * table.getString(column, row).length();
+          break;
+      }
+    }
+    return bytes;
+  }
 }
@@ -204,6 +204,41 @@ public final class MyriaConfigurationParser {
             MyriaGlobalConfigurationModule.OPERATOR_INPUT_BUFFER_RECOVER_TRIGGER,
             getOptional(
                 parser, "deployment", MyriaSystemConfigKeys.OPERATOR_INPUT_BUFFER_RECOVER_TRIGGER));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.NETWORK_COMPRESSION,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.NETWORK_COMPRESSION));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.PROFILING_BUFFER_CAPACITY,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.PROFILING_BUFFER_CAPACITY));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.PROFILING_OVERFLOW,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.PROFILING_OVERFLOW));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.ADMISSION_MAX_RUNNING_QUERIES,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.ADMISSION_MAX_RUNNING_QUERIES));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.ADMISSION_MAX_QUEUED_QUERIES,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.ADMISSION_MAX_QUEUED_QUERIES));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.ADMISSION_MEMORY_FRACTION,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.ADMISSION_MEMORY_FRACTION));
+    conf =
+        setOptional(
+            conf,
+            MyriaGlobalConfigurationModule.ADMISSION_MAX_LOAD,
+            getOptional(parser, "deployment", MyriaSystemConfigKeys.ADMISSION_MAX_LOAD));
     conf =
         setOptional(
             conf,
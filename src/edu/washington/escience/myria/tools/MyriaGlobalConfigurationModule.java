@@ -69,6 +69,17 @@ public final class MyriaGlobalConfigurationModule extends ConfigurationModuleBui
       new OptionalParameter<>();
   public static final OptionalParameter<Integer> TCP_SEND_BUFFER_SIZE_BYTES =
       new OptionalParameter<>();
+  public static final OptionalParameter<String> NETWORK_COMPRESSION = new OptionalParameter<>();
+  public static final OptionalParameter<Integer> PROFILING_BUFFER_CAPACITY =
+      new OptionalParameter<>();
+  public static final OptionalParameter<String> PROFILING_OVERFLOW = new OptionalParameter<>();
+  public static final OptionalParameter<Integer> ADMISSION_MAX_RUNNING_QUERIES =
+      new OptionalParameter<>();
+  public static final OptionalParameter<Integer> ADMISSION_MAX_QUEUED_QUERIES =
+      new OptionalParameter<>();
+  public static final OptionalParameter<Float> ADMISSION_MEMORY_FRACTION =
+      new OptionalParameter<>();
+  public static final OptionalParameter<Float> ADMISSION_MAX_LOAD = new OptionalParameter<>();
   public static final OptionalParameter<Integer> LOCAL_FRAGMENT_WORKER_THREADS =
       new OptionalParameter<>();
   public static final RequiredParameter<String> MASTER_HOST = new RequiredParameter<>();
@@ -111,6 +122,13 @@ public final class MyriaGlobalConfigurationModule extends ConfigurationModuleBui
           .bindNamedParameter(TcpConnectionTimeoutMillis.class, TCP_CONNECTION_TIMEOUT_MILLIS)
           .bindNamedParameter(TcpReceiveBufferSizeBytes.class, TCP_RECEIVE_BUFFER_SIZE_BYTES)
           .bindNamedParameter(TcpSendBufferSizeBytes.class, TCP_SEND_BUFFER_SIZE_BYTES)
+          .bindNamedParameter(NetworkCompression.class, NETWORK_COMPRESSION)
+          .bindNamedParameter(ProfilingBufferCapacity.class, PROFILING_BUFFER_CAPACITY)
+          .bindNamedParameter(ProfilingOverflow.class, PROFILING_OVERFLOW)
+          .bindNamedParameter(AdmissionMaxRunningQueries.class, ADMISSION_MAX_RUNNING_QUERIES)
+          .bindNamedParameter(AdmissionMaxQueuedQueries.class, ADMISSION_MAX_QUEUED_QUERIES)
+          .bindNamedParameter(AdmissionMemoryFraction.class, ADMISSION_MEMORY_FRACTION)
+          .bindNamedParameter(AdmissionMaxLoad.class, ADMISSION_MAX_LOAD)
           .bindNamedParameter(LocalFragmentWorkerThreads.class, LOCAL_FRAGMENT_WORKER_THREADS)
           .bindNamedParameter(MasterHost.class, MASTER_HOST)
           .bindNamedParameter(MasterRpcPort.class, MASTER_RPC_PORT)
@@ -210,6 +228,27 @@ public final class MyriaGlobalConfigurationModule extends ConfigurationModuleBui
   @NamedParameter(default_value = (5 * MyriaConstants.MB) + "")
   public class TcpSendBufferSizeBytes implements Name<Integer> {}
 
+  @NamedParameter(default_value = "adaptive")
+  public class NetworkCompression implements Name<String> {}
+
+  @NamedParameter(default_value = MyriaConstants.PROFILING_BUFFER_CAPACITY + "")
+  public class ProfilingBufferCapacity implements Name<Integer> {}
+
+  @NamedParameter(default_value = "drop")
+  public class ProfilingOverflow implements Name<String> {}
+
+  @NamedParameter(default_value = MyriaConstants.MAX_RUNNING_QUERIES + "")
+  public class AdmissionMaxRunningQueries implements Name<Integer> {}
+
+  @NamedParameter(default_value = MyriaConstants.MAX_ACTIVE_QUERIES + "")
+  public class AdmissionMaxQueuedQueries implements Name<Integer> {}
+
+  @NamedParameter(default_value = MyriaConstants.ADMISSION_MEMORY_FRACTION + "")
+  public class AdmissionMemoryFraction implements Name<Float> {}
+
+  @NamedParameter(default_value = MyriaConstants.ADMISSION_MAX_LOAD + "")
+  public class AdmissionMaxLoad implements Name<Float> {}
+
   @NamedParameter(default_value = "4")
   public class LocalFragmentWorkerThreads implements Name<Integer> {}
 
@@ -1,5 +1,6 @@
 package edu.washington.escience.myria.util;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 import com.google.common.base.Preconditions;
@@ -7,6 +8,8 @@ import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.DictionaryStringColumn;
 import edu.washington.escience.myria.storage.ReadableColumn;
 import edu.washington.escience.myria.storage.ReadableTable;
 
@@ -87,6 +90,47 @@ public final class HashUtils {
     return hasher.hash().asInt();
   }
 
+  /**
+   * Compute the hash codes of the values in the specified column of all rows of the given table, with a specific hash
+   * function. The values of a {@link DictionaryStringColumn} are hashed once per dictionary entry. The result is the
+   * same as calling {@link #hashValue(ReadableTable, int, int, int)} on each row, and, for seed 0, as calling
+   * {@link #hashSubRow(ReadableTable, int[], int)} with the column alone.
+   *
+   * @param table the table containing the values to be hashed
+   * @param column the column containing the values to be hashed
+   * @param seedIndex the index of the chosen hash function
+   * @param hashes where the hash codes are stored, indexed by row. Must have at least one element per row.
+   */
+  public static void hashValues(
+      final ReadableTable table, final int column, final int seedIndex, final int[] hashes) {
+    Preconditions.checkPositionIndex(seedIndex, NUM_OF_HASHFUNCTIONS);
+    final ReadableColumn values = table.asColumn(column);
+    final int numTuples = table.numTuples();
+    if (values instanceof DictionaryStringColumn) {
+      final DictionaryStringColumn dictionaryColumn = (DictionaryStringColumn) values;
+      final String[] dictionary = dictionaryColumn.getDictionary();
+      final int[] entryHashes = new int[dictionary.length];
+      for (int code = 0; code < dictionary.length; ++code) {
+        entryHashes[code] =
+            HASH_FUNCTIONS[seedIndex]
+                .newHasher()
+                .putObject(dictionary[code], TypeFunnel.INSTANCE)
+                .hash()
+                .asInt();
+      }
+      for (int row = 0; row < numTuples; ++row) {
+        hashes[row] = entryHashes[dictionaryColumn.getCode(row)];
+      }
+      return;
+    }
+    final Murmur3Hasher hasher = new Murmur3Hasher(SEEDS[seedIndex]);
+    for (int row = 0; row < numTuples; ++row) {
+      hasher.reset();
+      hasher.addValue(values, row);
+      hashes[row] = hasher.hash();
+    }
+  }
+
   /**
    * Compute the hash code of the specified columns in the specified row of the given table.
    *
@@ -105,6 +149,189 @@ public final class HashUtils {
     return hasher.hash().asInt();
   }
 
+  /**
+   * Compute the hash codes of all the values of all rows of the given table, in column order.
+   *
+   * @param table the table containing the values to be hashed
+   * @param compatible whether to compute the same hash codes as {@link #hashRow(ReadableTable, int)}
+   * @param hashes where the hash codes are stored, indexed by row. Must have at least one element per row.
+   * @see #hashSubRows(ReadableTable, int[], boolean, int[])
+   */
+  public static void hashRows(
+      final ReadableTable table, final boolean compatible, final int[] hashes) {
+    final int[] hashColumns = new int[table.numColumns()];
+    for (int i = 0; i < hashColumns.length; ++i) {
+      hashColumns[i] = i;
+    }
+    hashSubRows(table, hashColumns, compatible, hashes);
+  }
+
+  /**
+   * Compute the hash codes of the specified columns of all rows of the given table, without allocating anything per
+   * row. The values of INT and LONG columns are read from the arrays of the columns, the others through their getters.
+   *
+   * If {@code compatible} is true, the hash codes are the same as those of
+   * {@link #hashSubRow(ReadableTable, int[], int)}, so that, e.g., tuples are partitioned the way stored relations were
+   * partitioned. Otherwise, the values are hashed one column at a time with the 32-bit murmur3 mix, which is much
+   * cheaper; these hash codes must only be compared to other hash codes computed by this method with
+   * {@code compatible} false.
+   *
+   * @param table the table containing the values to be hashed
+   * @param hashColumns the columns to be hashed. Order matters
+   * @param compatible whether to compute the same hash codes as {@link #hashSubRow(ReadableTable, int[], int)}
+   * @param hashes where the hash codes are stored, indexed by row. Must have at least one element per row.
+   */
+  public static void hashSubRows(
+      final ReadableTable table,
+      final int[] hashColumns,
+      final boolean compatible,
+      final int[] hashes) {
+    Objects.requireNonNull(table, "table");
+    Objects.requireNonNull(hashColumns, "hashColumns");
+    final int numTuples = table.numTuples();
+    Preconditions.checkArgument(hashes.length >= numTuples, "hashes is too small");
+    final ReadableColumn[] columns = new ReadableColumn[hashColumns.length];
+    /* The values of the INT and LONG columns of a batch, read from their arrays rather than one getter call each. */
+    final int[][] intValues = new int[columns.length][];
+    final long[][] longValues = new long[columns.length][];
+    for (int i = 0; i < columns.length; ++i) {
+      columns[i] = table.asColumn(hashColumns[i]);
+      if (columns[i] instanceof Column) {
+        switch (columns[i].getType()) {
+          case INT_TYPE:
+            intValues[i] = ((Column<?>) columns[i]).getIntArray();
+            break;
+          case LONG_TYPE:
+            longValues[i] = ((Column<?>) columns[i]).getLongArray();
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    if (compatible) {
+      final Murmur3Hasher hasher = new Murmur3Hasher(SEEDS[0]);
+      for (int row = 0; row < numTuples; ++row) {
+        hasher.reset();
+        for (int i = 0; i < columns.length; ++i) {
+          if (intValues[i] != null) {
+            hasher.putInt(intValues[i][row]);
+          } else if (longValues[i] != null) {
+            hasher.putLong(longValues[i][row]);
+          } else {
+            hasher.addValue(columns[i], row);
+          }
+        }
+        hashes[row] = hasher.hash();
+      }
+      return;
+    }
+
+    Arrays.fill(hashes, 0, numTuples, SEEDS[0]);
+    for (int i = 0; i < columns.length; ++i) {
+      final ReadableColumn column = columns[i];
+      if (intValues[i] != null) {
+        final int[] values = intValues[i];
+        for (int row = 0; row < numTuples; ++row) {
+          hashes[row] = mix32(hashes[row], values[row]);
+        }
+        continue;
+      }
+      if (longValues[i] != null) {
+        final long[] values = longValues[i];
+        for (int row = 0; row < numTuples; ++row) {
+          hashes[row] = mix64(hashes[row], values[row]);
+        }
+        continue;
+      }
+      switch (column.getType()) {
+        case BOOLEAN_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix32(hashes[row], column.getBoolean(row) ? 1 : 0);
+          }
+          break;
+        case DATETIME_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix64(hashes[row], column.getDateTime(row).getMillis());
+          }
+          break;
+        case DOUBLE_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix64(hashes[row], Double.doubleToLongBits(column.getDouble(row)));
+          }
+          break;
+        case FLOAT_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix32(hashes[row], Float.floatToIntBits(column.getFloat(row)));
+          }
+          break;
+        case INT_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix32(hashes[row], column.getInt(row));
+          }
+          break;
+        case LONG_TYPE:
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix64(hashes[row], column.getLong(row));
+          }
+          break;
+        case STRING_TYPE:
+          /* String caches its hash code. */
+          for (int row = 0; row < numTuples; ++row) {
+            hashes[row] = mix32(hashes[row], column.getString(row).hashCode());
+          }
+          break;
+        default:
+          throw new UnsupportedOperationException("Hashing a column of type " + column.getType());
+      }
+    }
+    for (int row = 0; row < numTuples; ++row) {
+      hashes[row] = fmix32(hashes[row]);
+    }
+  }
+
+  /**
+   * Mix a 32-bit value into a hash code, as the body of the 32-bit murmur3 hash function does.
+   *
+   * @param hash the hash code
+   * @param value the value
+   * @return the new hash code
+   */
+  private static int mix32(final int hash, final int value) {
+    int k = value * 0xcc9e2d51;
+    k = Integer.rotateLeft(k, 15);
+    k *= 0x1b873593;
+    final int h = Integer.rotateLeft(hash ^ k, 13);
+    return h * 5 + 0xe6546b64;
+  }
+
+  /**
+   * Mix a 64-bit value into a hash code, as two 32-bit values.
+   *
+   * @param hash the hash code
+   * @param value the value
+   * @return the new hash code
+   */
+  private static int mix64(final int hash, final long value) {
+    return mix32(mix32(hash, (int) value), (int) (value >>> 32));
+  }
+
+  /**
+   * The finalization mix of the 32-bit murmur3 hash function, which spreads every bit over the whole hash code.
+   *
+   * @param hash the hash code
+   * @return the final hash code
+   */
+  private static int fmix32(final int hash) {
+    int h = hash;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
   /**
    * Add the value at the specified row and column to the specified hasher.
    *
@@ -146,4 +373,188 @@ public final class HashUtils {
     }
     throw new UnsupportedOperationException("Hashing a column of type " + column.getType());
   }
+
+  /**
+   * The 128-bit murmur3 hash function of Guava, which {@link #HASH_FUNCTIONS} use, without the allocations of a
+   * {@link Hasher} and of its hash code. Values are added as {@link #addValue(Hasher, ReadableColumn, int)} adds them,
+   * so that the hash codes are the same. The hasher is reset to hash another row.
+   */
+  private static final class Murmur3Hasher {
+    /** The first mixing constant. */
+    private static final long C1 = 0x87c37b91114253d5L;
+    /** The second mixing constant. */
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /** The seed. */
+    private final long seed;
+    /** The first half of the state. */
+    private long h1;
+    /** The second half of the state. */
+    private long h2;
+    /** The first 8 bytes of the current 16-byte block, little-endian. */
+    private long k1;
+    /** The last 8 bytes of the current 16-byte block, little-endian. */
+    private long k2;
+    /** The number of bytes of the current block. */
+    private int buffered;
+    /** The number of bytes of the processed blocks. */
+    private long length;
+
+    /**
+     * @param seed the seed.
+     */
+    Murmur3Hasher(final int seed) {
+      this.seed = seed;
+    }
+
+    /** Start hashing another row. */
+    void reset() {
+      h1 = seed;
+      h2 = seed;
+      k1 = 0;
+      k2 = 0;
+      buffered = 0;
+      length = 0;
+    }
+
+    /**
+     * Add the value at the specified row of the specified column.
+     *
+     * @param column the column containing the value
+     * @param row the row containing the value
+     */
+    void addValue(final ReadableColumn column, final int row) {
+      switch (column.getType()) {
+        case BOOLEAN_TYPE:
+          put(column.getBoolean(row) ? 1 : 0, 1);
+          return;
+        case DATETIME_TYPE:
+          /* TypeFunnel adds nothing for a DateTime. */
+          return;
+        case DOUBLE_TYPE:
+          put(Double.doubleToRawLongBits(column.getDouble(row)), 8);
+          return;
+        case FLOAT_TYPE:
+          put(Float.floatToRawIntBits(column.getFloat(row)) & 0xffffffffL, 4);
+          return;
+        case INT_TYPE:
+          putInt(column.getInt(row));
+          return;
+        case LONG_TYPE:
+          putLong(column.getLong(row));
+          return;
+        case STRING_TYPE:
+          final String value = column.getString(row);
+          for (int i = 0; i < value.length(); ++i) {
+            put(value.charAt(i), 2);
+          }
+          return;
+      }
+      throw new UnsupportedOperationException("Hashing a column of type " + column.getType());
+    }
+
+    /**
+     * Add an int value, as {@link Hasher#putInt(int)} does.
+     *
+     * @param value the value
+     */
+    void putInt(final int value) {
+      put(value & 0xffffffffL, 4);
+    }
+
+    /**
+     * Add a long value, as {@link Hasher#putLong(long)} does.
+     *
+     * @param value the value
+     */
+    void putLong(final long value) {
+      put(value, 8);
+    }
+
+    /**
+     * Add the lowest bytes of a value, little-endian.
+     *
+     * @param value the value, whose other bytes are 0.
+     * @param numBytes the number of bytes to add, at most 8.
+     */
+    private void put(final long value, final int numBytes) {
+      final int shift = buffered * 8;
+      if (shift < 64) {
+        k1 |= value << shift;
+        if (shift > 0 && shift + numBytes * 8 > 64) {
+          k2 |= value >>> (64 - shift);
+        }
+      } else {
+        k2 |= value << (shift - 64);
+      }
+      buffered += numBytes;
+      if (buffered >= 16) {
+        processBlock();
+        buffered -= 16;
+        k1 = buffered == 0 ? 0 : value >>> (128 - shift);
+        k2 = 0;
+      }
+    }
+
+    /** Mix the current block into the state. */
+    private void processBlock() {
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+      length += 16;
+    }
+
+    /**
+     * @return the hash code of the row, i.e., the first 4 bytes of its 128-bit hash.
+     */
+    int hash() {
+      if (buffered > 0) {
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+      }
+      long a = h1 ^ (length + buffered);
+      long b = h2 ^ (length + buffered);
+      a += b;
+      b += a;
+      a = fmix64(a);
+      b = fmix64(b);
+      a += b;
+      return (int) a;
+    }
+
+    /**
+     * @param k the first half of a block.
+     * @return the mixed half.
+     */
+    private static long mixK1(final long k) {
+      return Long.rotateLeft(k * C1, 31) * C2;
+    }
+
+    /**
+     * @param k the second half of a block.
+     * @return the mixed half.
+     */
+    private static long mixK2(final long k) {
+      return Long.rotateLeft(k * C2, 33) * C1;
+    }
+
+    /**
+     * @param k a 64-bit value.
+     * @return the value with its bits mixed.
+     */
+    private static long fmix64(final long k) {
+      long h = k;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
 }
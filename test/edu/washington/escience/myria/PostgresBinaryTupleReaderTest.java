@@ -0,0 +1,170 @@
+package edu.washington.escience.myria;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBuffer;
+
+public class PostgresBinaryTupleReaderTest {
+
+  private static final Schema SCHEMA =
+      new Schema(
+          ImmutableList.of(
+              Type.BOOLEAN_TYPE,
+              Type.INT_TYPE,
+              Type.LONG_TYPE,
+              Type.FLOAT_TYPE,
+              Type.DOUBLE_TYPE,
+              Type.STRING_TYPE,
+              Type.DATETIME_TYPE));
+
+  @Test
+  public void testReadPostgresOutput() throws IOException, DbException {
+    /* Written by PostgreSQL, see PostgresBinaryTupleWriterTest. */
+    PostgresBinaryTupleReader reader = new PostgresBinaryTupleReader(SCHEMA);
+    reader.open(new FileInputStream(Paths.get("testdata", "tuplewriter", "pg.bin").toFile()));
+    TupleBatch tb = reader.readTuples();
+    assertNull(reader.readTuples());
+    reader.close();
+
+    assertEquals(3, tb.numTuples());
+    assertEquals(true, tb.getBoolean(0, 0));
+    assertEquals(false, tb.getBoolean(0, 1));
+    assertEquals(2, tb.getInt(1, 1));
+    assertEquals(300L, tb.getLong(2, 2));
+    assertEquals(3.14f, tb.getFloat(3, 0), 0);
+    assertEquals(-3.14, tb.getDouble(4, 1), 0);
+    assertEquals("three", tb.getString(5, 2));
+    assertEquals(new DateTime(1990, 7, 18, 2, 3, 10), tb.getDateTime(6, 0));
+    assertEquals(new DateTime(2013, 9, 30, 3, 1, 10), tb.getDateTime(6, 1));
+    assertEquals(new DateTime(2000, 1, 1, 0, 0, 0), tb.getDateTime(6, 2));
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException, DbException {
+    TupleBuffer tuples = new TupleBuffer(SCHEMA);
+    int numTuples = TupleBatch.BATCH_SIZE + 10;
+    for (int i = 0; i < numTuples; ++i) {
+      tuples.putBoolean(0, i % 3 == 0);
+      tuples.putInt(1, -i);
+      tuples.putLong(2, 1L << (40 + i % 20));
+      tuples.putFloat(3, i / 3f);
+      tuples.putDouble(4, i / 7.0);
+      tuples.putString(5, i % 100 == 0 ? "" : "välue " + i);
+      /* Before and after 2000-01-01, and before the Gregorian calendar. */
+      tuples.putDateTime(
+          6,
+          i == 7
+              ? new DateTime(1000, 3, 4, 5, 6, 7)
+              : new DateTime(1000L * 1000 * 1000 * (i - 2000)));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PostgresBinaryTupleWriter writer = new PostgresBinaryTupleWriter();
+    writer.open(out);
+    writer.writeTuples(tuples);
+    writer.done();
+
+    PostgresBinaryTupleReader reader = new PostgresBinaryTupleReader(SCHEMA);
+    reader.open(new ByteArrayInputStream(out.toByteArray()));
+    TupleBatch first = reader.readTuples();
+    TupleBatch second = reader.readTuples();
+    assertNull(reader.readTuples());
+    assertEquals(TupleBatch.BATCH_SIZE, first.numTuples());
+    assertEquals(10, second.numTuples());
+    for (int i = 0; i < numTuples; ++i) {
+      TupleBatch tb = i < first.numTuples() ? first : second;
+      int row = i < first.numTuples() ? i : i - first.numTuples();
+      assertEquals(tuples.getBoolean(0, i), tb.getBoolean(0, row));
+      assertEquals(tuples.getInt(1, i), tb.getInt(1, row));
+      assertEquals(tuples.getLong(2, i), tb.getLong(2, row));
+      assertEquals(tuples.getFloat(3, i), tb.getFloat(3, row), 0);
+      assertEquals(tuples.getDouble(4, i), tb.getDouble(4, row), 0);
+      assertEquals(tuples.getString(5, i), tb.getString(5, row));
+      assertEquals(tuples.getDateTime(6, i), tb.getDateTime(6, row));
+    }
+  }
+
+  @Test(expected = DbException.class)
+  public void testTypeMismatch() throws IOException, DbException {
+    PostgresBinaryTupleReader reader =
+        new PostgresBinaryTupleReader(SCHEMA.getSubSchema(new int[] {2, 1, 0, 3, 4, 5, 6}));
+    reader.open(new FileInputStream(Paths.get("testdata", "tuplewriter", "pg.bin").toFile()));
+    reader.readTuples();
+  }
+
+  /** Binary COPY data of tuples of an int, a long, a boolean, a double, a float and a string, all NULL but the last. */
+  private static byte[] nullTuples(final int numTuples) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.write("PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1));
+    out.writeInt(0);
+    out.writeInt(0);
+    for (int i = 0; i < numTuples; ++i) {
+      out.writeShort(6);
+      for (int j = 0; j < 5; ++j) {
+        out.writeInt(-1);
+      }
+      out.writeInt(1);
+      out.writeByte('s');
+    }
+    out.writeShort(-1);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testReadNulls() throws IOException, DbException {
+    Schema schema =
+        Schema.ofFields(
+            Type.INT_TYPE,
+            Type.LONG_TYPE,
+            Type.BOOLEAN_TYPE,
+            Type.DOUBLE_TYPE,
+            Type.FLOAT_TYPE,
+            Type.STRING_TYPE);
+    PostgresBinaryTupleReader reader = new PostgresBinaryTupleReader(schema);
+    reader.open(new ByteArrayInputStream(nullTuples(2)));
+    TupleBatch tb = reader.readTuples();
+    assertNull(reader.readTuples());
+
+    assertEquals(2, tb.numTuples());
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      assertEquals(0, tb.getInt(0, row));
+      assertEquals(0L, tb.getLong(1, row));
+      assertEquals(false, tb.getBoolean(2, row));
+      assertEquals(0, tb.getDouble(3, row), 0);
+      assertEquals(0, tb.getFloat(4, row), 0);
+      assertEquals("s", tb.getString(5, row));
+    }
+  }
+
+  @Test(expected = DbException.class)
+  public void testNullString() throws IOException, DbException {
+    PostgresBinaryTupleReader reader =
+        new PostgresBinaryTupleReader(
+            Schema.ofFields(
+                Type.STRING_TYPE,
+                Type.LONG_TYPE,
+                Type.BOOLEAN_TYPE,
+                Type.DOUBLE_TYPE,
+                Type.FLOAT_TYPE,
+                Type.STRING_TYPE));
+    reader.open(new ByteArrayInputStream(nullTuples(1)));
+    reader.readTuples();
+  }
+}
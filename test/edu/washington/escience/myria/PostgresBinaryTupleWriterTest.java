@@ -17,13 +17,7 @@ import edu.washington.escience.myria.storage.TupleBuffer;
 
 public class PostgresBinaryTupleWriterTest {
 
-  @Test
-  public void testBinaryOutput() throws IOException {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-    PostgresBinaryTupleWriter writer = new PostgresBinaryTupleWriter();
-    writer.open(out);
-
+  private static TupleBuffer sampleTuples() {
     TupleBuffer tuples =
         new TupleBuffer(
             new Schema(
@@ -59,8 +53,16 @@ public class PostgresBinaryTupleWriterTest {
     tuples.putDouble(4, 123.456);
     tuples.putString(5, "three");
     tuples.putDateTime(6, new DateTime(2000, 1, 1, 0, 0, 0));
+    return tuples;
+  }
+
+  @Test
+  public void testBinaryOutput() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-    writer.writeTuples(tuples);
+    PostgresBinaryTupleWriter writer = new PostgresBinaryTupleWriter();
+    writer.open(out);
+    writer.writeTuples(sampleTuples());
     writer.done();
 
     byte[] actual = out.toByteArray();
@@ -84,4 +86,31 @@ public class PostgresBinaryTupleWriterTest {
       assertEquals(expected[i], actual[i]);
     }
   }
+
+  @Test
+  public void testSeveralBatches() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PostgresBinaryTupleWriter writer = new PostgresBinaryTupleWriter();
+    writer.open(out);
+    writer.writeTuples(sampleTuples());
+    writer.flush();
+    writer.writeTuples(sampleTuples());
+    writer.done();
+    byte[] actual = out.toByteArray();
+
+    /* One header, the tuples twice, and one trailer. */
+    byte[] single = Files.readAllBytes(Paths.get("testdata", "tuplewriter", "pg.bin"));
+    int header = 19;
+    int trailer = 2;
+    int rows = single.length - header - trailer;
+    assertEquals(single.length + rows, actual.length);
+    for (int i = 0; i < header + rows; i++) {
+      assertEquals(single[i], actual[i]);
+    }
+    for (int i = 0; i < rows; i++) {
+      assertEquals(single[header + i], actual[header + rows + i]);
+    }
+    assertEquals(-1, actual[actual.length - 1]);
+    assertEquals(-1, actual[actual.length - 2]);
+  }
 }
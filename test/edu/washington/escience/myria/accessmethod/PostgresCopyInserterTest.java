@@ -0,0 +1,222 @@
+package edu.washington.escience.myria.accessmethod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.postgresql.copy.CopyIn;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.PostgresBinaryTupleReader;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+
+public class PostgresCopyInserterTest {
+
+  private static final Schema SCHEMA =
+      new Schema(ImmutableList.of(Type.LONG_TYPE, Type.STRING_TYPE), ImmutableList.of("l", "s"));
+
+  /** The transaction calls of a connection. */
+  private static final class FakeConnection implements InvocationHandler {
+    private boolean autoCommit = true;
+    private int commits;
+    private int rollbacks;
+
+    private Connection proxy() {
+      return (Connection)
+          Proxy.newProxyInstance(
+              Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+      switch (method.getName()) {
+        case "getAutoCommit":
+          return autoCommit;
+        case "setAutoCommit":
+          autoCommit = (Boolean) args[0];
+          return null;
+        case "commit":
+          ++commits;
+          return null;
+        case "rollback":
+          ++rollbacks;
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+  }
+
+  /** A COPY that keeps the bytes, and whose writes may block until it is cancelled, like a stalled server. */
+  private static final class FakeCopy implements CopyIn {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final boolean blockWrites;
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final CountDownLatch writeReturned = new CountDownLatch(1);
+    private final CountDownLatch flushed = new CountDownLatch(1);
+    private volatile boolean active = true;
+    private long handledRows;
+
+    private FakeCopy(final boolean blockWrites) {
+      this.blockWrites = blockWrites;
+    }
+
+    @Override
+    public void writeToCopy(final byte[] buf, final int off, final int siz) throws SQLException {
+      if (blockWrites) {
+        writing.countDown();
+        Uninterruptibles.awaitUninterruptibly(cancelled);
+        writeReturned.countDown();
+      }
+      if (!active) {
+        throw new SQLException("COPY cancelled");
+      }
+      bytes.write(buf, off, siz);
+    }
+
+    @Override
+    public void flushCopy() throws SQLException {
+      flushed.countDown();
+    }
+
+    @Override
+    public long endCopy() throws SQLException {
+      active = false;
+      handledRows = 0;
+      try {
+        PostgresBinaryTupleReader reader = new PostgresBinaryTupleReader(SCHEMA);
+        reader.open(new ByteArrayInputStream(bytes.toByteArray()));
+        for (TupleBatch tb = reader.readTuples(); tb != null; tb = reader.readTuples()) {
+          for (int row = 0; row < tb.numTuples(); ++row, ++handledRows) {
+            assertEquals(handledRows, tb.getLong(0, row));
+            assertEquals("value " + handledRows, tb.getString(1, row));
+          }
+        }
+      } catch (IOException | DbException e) {
+        throw new SQLException(e);
+      }
+      return handledRows;
+    }
+
+    @Override
+    public int getFieldCount() {
+      return SCHEMA.numColumns();
+    }
+
+    @Override
+    public int getFormat() {
+      return 1;
+    }
+
+    @Override
+    public int getFieldFormat(final int field) {
+      return 1;
+    }
+
+    @Override
+    public boolean isActive() {
+      return active;
+    }
+
+    @Override
+    public void cancelCopy() {
+      active = false;
+      cancelled.countDown();
+    }
+
+    @Override
+    public long getHandledRowCount() {
+      return handledRows;
+    }
+  }
+
+  private static TupleBatch batch(final long first) {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (long i = first; i < first + TupleBatch.BATCH_SIZE; ++i) {
+      tbb.putLong(0, i);
+      tbb.putString(1, "value " + i);
+    }
+    return tbb.popAny();
+  }
+
+  private static void testCommit(final boolean asynchronous) throws DbException {
+    FakeConnection connection = new FakeConnection();
+    FakeCopy copy = new FakeCopy(false);
+    PostgresCopyInserter inserter =
+        new PostgresCopyInserter(connection.proxy(), "COPY test", c -> copy, asynchronous);
+    assertFalse(connection.autoCommit);
+    for (int i = 0; i < 3; ++i) {
+      inserter.insert(batch(i * TupleBatch.BATCH_SIZE));
+    }
+    inserter.commit();
+
+    assertEquals(3 * TupleBatch.BATCH_SIZE, copy.getHandledRowCount());
+    assertEquals(1, connection.commits);
+    assertEquals(0, connection.rollbacks);
+    assertTrue(connection.autoCommit);
+  }
+
+  @Test
+  public void testCommit() throws DbException {
+    testCommit(false);
+  }
+
+  @Test
+  public void testCommitAsynchronous() throws DbException {
+    testCommit(true);
+  }
+
+  @Test(timeout = 10 * PostgresCopyInserter.FLUSH_MILLIS)
+  public void testFlushWhileProducerIsSlow() throws Exception {
+    FakeConnection connection = new FakeConnection();
+    FakeCopy copy = new FakeCopy(false);
+    PostgresCopyInserter inserter =
+        new PostgresCopyInserter(connection.proxy(), "COPY test", c -> copy, true);
+    inserter.insert(batch(0));
+    /* No other batch arrives, so only the writing thread can flush the first one. */
+    copy.flushed.await();
+    assertTrue(copy.bytes.size() > 0);
+    inserter.insert(batch(TupleBatch.BATCH_SIZE));
+    inserter.commit();
+
+    assertEquals(2 * TupleBatch.BATCH_SIZE, copy.getHandledRowCount());
+    assertEquals(1, connection.commits);
+  }
+
+  @Test(timeout = 5000)
+  public void testAbortWhileWriterBlocked() throws Exception {
+    FakeConnection connection = new FakeConnection();
+    FakeCopy copy = new FakeCopy(true);
+    PostgresCopyInserter inserter =
+        new PostgresCopyInserter(connection.proxy(), "COPY test", c -> copy, true);
+    inserter.insert(batch(0));
+    copy.writing.await();
+    /* The writing thread ignores interrupts, so only cancelling the COPY lets it return. */
+    inserter.abort();
+
+    assertTrue(copy.writeReturned.await(1, TimeUnit.SECONDS));
+    assertFalse(copy.isActive());
+    assertEquals(0, connection.commits);
+    assertEquals(1, connection.rollbacks);
+    assertTrue(connection.autoCommit);
+  }
+}
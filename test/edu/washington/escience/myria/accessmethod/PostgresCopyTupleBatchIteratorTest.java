@@ -0,0 +1,177 @@
+package edu.washington.escience.myria.accessmethod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.postgresql.copy.CopyOut;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.PostgresBinaryTupleWriter;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+
+public class PostgresCopyTupleBatchIteratorTest {
+
+  private static final Schema SCHEMA =
+      new Schema(ImmutableList.of(Type.LONG_TYPE, Type.STRING_TYPE), ImmutableList.of("l", "s"));
+
+  /** A connection that only counts how often it is closed. */
+  private static final class FakeConnection {
+    private int closes;
+
+    private Connection proxy() {
+      return (Connection)
+          Proxy.newProxyInstance(
+              Connection.class.getClassLoader(),
+              new Class<?>[] {Connection.class},
+              (proxy, method, args) -> {
+                if (!method.getName().equals("close")) {
+                  throw new UnsupportedOperationException(method.getName());
+                }
+                ++closes;
+                return null;
+              });
+    }
+  }
+
+  /** A COPY that returns the given bytes in small messages. */
+  private static final class FakeCopy implements CopyOut {
+    private final byte[] bytes;
+    private int offset;
+    private boolean active = true;
+    private boolean cancelled;
+
+    private FakeCopy(final byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public byte[] readFromCopy() throws SQLException {
+      if (offset == bytes.length) {
+        active = false;
+        return null;
+      }
+      int end = Math.min(offset + 1000, bytes.length);
+      byte[] message = Arrays.copyOfRange(bytes, offset, end);
+      offset = end;
+      return message;
+    }
+
+    @Override
+    public int getFieldCount() {
+      return SCHEMA.numColumns();
+    }
+
+    @Override
+    public int getFormat() {
+      return 1;
+    }
+
+    @Override
+    public int getFieldFormat(final int field) {
+      return 1;
+    }
+
+    @Override
+    public boolean isActive() {
+      return active;
+    }
+
+    @Override
+    public void cancelCopy() {
+      active = false;
+      cancelled = true;
+    }
+
+    @Override
+    public long getHandledRowCount() {
+      return 0;
+    }
+  }
+
+  private static byte[] copyData(final int numTuples) throws IOException {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (long i = 0; i < numTuples; ++i) {
+      tbb.putLong(0, i);
+      tbb.putString(1, "value " + i);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PostgresBinaryTupleWriter writer = new PostgresBinaryTupleWriter();
+    writer.open(out);
+    for (TupleBatch tb : tbb.getAll()) {
+      writer.writeTuples(tb);
+    }
+    writer.done();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testReadAll() throws IOException, DbException {
+    FakeConnection connection = new FakeConnection();
+    FakeCopy copy = new FakeCopy(copyData(TupleBatch.BATCH_SIZE + 10));
+    PostgresCopyTupleBatchIterator iterator =
+        new PostgresCopyTupleBatchIterator(connection.proxy(), c -> copy, SCHEMA);
+    long numTuples = 0;
+    while (iterator.hasNext()) {
+      TupleBatch tb = iterator.next();
+      for (int row = 0; row < tb.numTuples(); ++row, ++numTuples) {
+        assertEquals(numTuples, tb.getLong(0, row));
+      }
+    }
+
+    assertEquals(TupleBatch.BATCH_SIZE + 10, numTuples);
+    assertFalse(copy.cancelled);
+    assertEquals(1, connection.closes);
+  }
+
+  @Test
+  public void testCloseOnBadData() throws IOException, DbException {
+    FakeConnection connection = new FakeConnection();
+    byte[] bytes = copyData(TupleBatch.BATCH_SIZE + 10);
+    /* After the 19 byte header and the number of fields, the long of the first tuple claims to have 4 bytes. */
+    bytes[24] = 4;
+    FakeCopy copy = new FakeCopy(bytes);
+    PostgresCopyTupleBatchIterator iterator =
+        new PostgresCopyTupleBatchIterator(connection.proxy(), c -> copy, SCHEMA);
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof DbException);
+    }
+
+    assertTrue(copy.cancelled);
+    assertEquals(1, connection.closes);
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testCloseOnFailedStart() {
+    FakeConnection connection = new FakeConnection();
+    try {
+      new PostgresCopyTupleBatchIterator(
+          connection.proxy(),
+          c -> {
+            throw new SQLException("syntax error");
+          },
+          SCHEMA);
+      fail();
+    } catch (DbException e) {
+      assertEquals(1, connection.closes);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package edu.washington.escience.myria.api.encoding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.RelationKey;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.SQLiteInfo;
+import edu.washington.escience.myria.api.encoding.QueryConstruct.ConstructArgs;
+import edu.washington.escience.myria.expression.AndExpression;
+import edu.washington.escience.myria.expression.ConstantExpression;
+import edu.washington.escience.myria.expression.EqualsExpression;
+import edu.washington.escience.myria.expression.Expression;
+import edu.washington.escience.myria.expression.GreaterThanOrEqualsExpression;
+import edu.washington.escience.myria.expression.VariableExpression;
+import edu.washington.escience.myria.operator.Apply;
+import edu.washington.escience.myria.operator.BatchTupleSource;
+import edu.washington.escience.myria.operator.DbInsert;
+import edu.washington.escience.myria.operator.DbQueryScan;
+import edu.washington.escience.myria.operator.Filter;
+import edu.washington.escience.myria.operator.Operator;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.FSUtils;
+import edu.washington.escience.myria.util.TestEnvVars;
+
+public class ScanPushdownTest {
+
+  private static final int NUM_TUPLES = 2 * TupleBatch.BATCH_SIZE + 3;
+  private static final RelationKey KEY = RelationKey.of("test", "test", "construct");
+  private static final Schema SCHEMA =
+      new Schema(
+          ImmutableList.of(Type.INT_TYPE, Type.LONG_TYPE, Type.STRING_TYPE),
+          ImmutableList.of("i", "l", "s"));
+  private static Path tempDir;
+  private static SQLiteInfo sqliteInfo;
+
+  /** Scans the test relation, without looking it up in a catalog. */
+  private static final class ScanEncoding extends LeafOperatorEncoding<DbQueryScan> {
+    @Override
+    public DbQueryScan construct(final ConstructArgs args) {
+      return new DbQueryScan(sqliteInfo, KEY, SCHEMA);
+    }
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Logger.getLogger("com.almworks.sqlite4java").setLevel(Level.SEVERE);
+    tempDir = Files.createTempDirectory(MyriaConstants.SYSTEM_NAME + "_ScanPushdownTest");
+    sqliteInfo = SQLiteInfo.of(new File(tempDir.toString(), "scan.db").getAbsolutePath());
+    TupleBatchBuffer data = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      data.putInt(0, i);
+      data.putLong(1, 2L * i);
+      data.putString(2, i % 3 == 0 ? "it's" : "other");
+    }
+    DbInsert insert = new DbInsert(new BatchTupleSource(data.getAll()), KEY, sqliteInfo);
+    insert.open(null);
+    while (!insert.eos()) {
+      insert.nextReady();
+    }
+    insert.close();
+  }
+
+  @AfterClass
+  public static void cleanUp() throws Exception {
+    FSUtils.blockingDeleteDirectory(tempDir.toString());
+  }
+
+  /** Instantiate scan (0), filter (1), apply (2) and sink (3), and return the child of the sink. */
+  private static Operator instantiate(
+      final Expression predicate, final List<Expression> emitExpressions) {
+    ScanEncoding scan = new ScanEncoding();
+    scan.opId = 0;
+    FilterEncoding filter = new FilterEncoding();
+    filter.opId = 1;
+    filter.argChild = scan.opId;
+    filter.argPredicate = predicate;
+    ApplyEncoding apply = new ApplyEncoding();
+    apply.opId = 2;
+    apply.argChild = filter.opId;
+    apply.emitExpressions = emitExpressions;
+    EmptySinkEncoding sink = new EmptySinkEncoding();
+    sink.opId = 3;
+    sink.argChild = apply.opId;
+    PlanFragmentEncoding fragment = PlanFragmentEncoding.of(scan, filter, apply, sink);
+    fragment.setFragmentIndex(0);
+
+    Map<Integer, Operator> allOperators = new HashMap<>();
+    QueryConstruct.instantiateFragmentOperators(fragment, null, allOperators);
+    Operator root = allOperators.get(sink.opId);
+    assertEquals(1, root.getChildren().length);
+    return root.getChildren()[0];
+  }
+
+  private static List<TupleBatch> run(final Operator op) throws DbException {
+    op.open(TestEnvVars.get());
+    List<TupleBatch> batches = new ArrayList<>();
+    while (!op.eos()) {
+      TupleBatch tb = op.nextReady();
+      if (tb != null) {
+        batches.add(tb);
+      }
+    }
+    op.close();
+    return batches;
+  }
+
+  @Test
+  public void testFilterAndApplyPushedDown() throws DbException {
+    Operator op =
+        instantiate(
+            new Expression(
+                "pred",
+                new AndExpression(
+                    new GreaterThanOrEqualsExpression(
+                        new VariableExpression(0), new ConstantExpression(100)),
+                    new EqualsExpression(
+                        new ConstantExpression("it's"), new VariableExpression(2)))),
+            ImmutableList.of(
+                new Expression("str", new VariableExpression(2)),
+                new Expression("int", new VariableExpression(0))));
+
+    /* The filter and the apply disappear into the scan, which keeps the id of the original scan. */
+    assertTrue(op instanceof DbQueryScan);
+    assertEquals(0, (int) op.getOpId());
+    assertEquals(0, op.getFragmentId());
+    assertEquals(ImmutableList.of("str", "int"), op.getSchema().getColumnNames());
+
+    int numTuples = 0;
+    for (TupleBatch tb : run(op)) {
+      for (int row = 0; row < tb.numTuples(); ++row, ++numTuples) {
+        assertEquals("it's", tb.getString(0, row));
+        int i = tb.getInt(1, row);
+        assertTrue(i >= 100 && i % 3 == 0);
+      }
+    }
+    int expected = 0;
+    for (int i = 100; i < NUM_TUPLES; ++i) {
+      expected += i % 3 == 0 ? 1 : 0;
+    }
+    assertEquals(expected, numTuples);
+  }
+
+  @Test
+  public void testRemainingConjunctsStayInFilter() throws DbException {
+    /* 010 is octal in Java, so it must not be pushed down into SQL, where it means 10. */
+    Operator op =
+        instantiate(
+            new Expression(
+                "pred",
+                new AndExpression(
+                    new GreaterThanOrEqualsExpression(
+                        new VariableExpression(1), new ConstantExpression(Type.LONG_TYPE, "10")),
+                    new EqualsExpression(
+                        new VariableExpression(0), new ConstantExpression(Type.INT_TYPE, "010")))),
+            ImmutableList.of(new Expression("int", new VariableExpression(0))));
+
+    /* The apply stays above the rebuilt filter, which keeps its id and only the conjunct left. */
+    assertTrue(op instanceof Apply);
+    assertEquals(2, (int) op.getOpId());
+    Operator filter = op.getChildren()[0];
+    assertTrue(filter instanceof Filter);
+    assertEquals(1, (int) filter.getOpId());
+    assertEquals(0, filter.getFragmentId());
+    Operator scan = filter.getChildren()[0];
+    assertTrue(scan instanceof DbQueryScan);
+    assertEquals(0, (int) scan.getOpId());
+    assertEquals(SCHEMA, scan.getSchema());
+
+    List<Integer> values = new ArrayList<>();
+    for (TupleBatch tb : run(op)) {
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        values.add(tb.getInt(0, row));
+      }
+    }
+    assertEquals(ImmutableList.of(8), values);
+  }
+}
@@ -0,0 +1,118 @@
+package edu.washington.escience.myria.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.expression.AndExpression;
+import edu.washington.escience.myria.expression.ConstantExpression;
+import edu.washington.escience.myria.expression.Expression;
+import edu.washington.escience.myria.expression.GreaterThanExpression;
+import edu.washington.escience.myria.expression.LessThanExpression;
+import edu.washington.escience.myria.expression.PlusExpression;
+import edu.washington.escience.myria.expression.TimesExpression;
+import edu.washington.escience.myria.expression.VariableExpression;
+import edu.washington.escience.myria.operator.Apply;
+import edu.washington.escience.myria.operator.BatchTupleSource;
+import edu.washington.escience.myria.operator.Filter;
+import edu.washington.escience.myria.operator.Operator;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.TestEnvVars;
+
+/**
+ * Compares evaluating {@link Apply} and {@link Filter} expressions one row at a time against evaluating them with one
+ * compiled loop over each batch.
+ */
+@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+public class ExpressionBenchmark extends AbstractBenchmark {
+  private static final int NUM_TUPLES = 300 * TupleBatch.BATCH_SIZE;
+
+  private static TupleBatchBuffer input;
+
+  @BeforeClass
+  public static void generateInput() {
+    final Schema schema =
+        Schema.ofFields("a", Type.LONG_TYPE, "b", Type.LONG_TYPE, "c", Type.DOUBLE_TYPE);
+    input = new TupleBatchBuffer(schema);
+    final Random random = new Random(42);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      input.putLong(0, random.nextInt(1000));
+      input.putLong(1, random.nextInt(1000));
+      input.putDouble(2, random.nextDouble() * 1000);
+    }
+  }
+
+  private static int run(final Operator op) throws DbException {
+    op.open(TestEnvVars.get());
+    int numTuples = 0;
+    while (!op.eos()) {
+      TupleBatch tb = op.nextReady();
+      if (tb != null) {
+        numTuples += tb.numTuples();
+      }
+    }
+    op.close();
+    return numTuples;
+  }
+
+  private static void apply(final boolean batchEvaluation) throws DbException {
+    final VariableExpression a = new VariableExpression(0);
+    final VariableExpression b = new VariableExpression(1);
+    final VariableExpression c = new VariableExpression(2);
+    Apply apply =
+        new Apply(
+            new BatchTupleSource(input),
+            ImmutableList.of(
+                new Expression("ab", new PlusExpression(new TimesExpression(a, b), a)),
+                new Expression("bc", new TimesExpression(b, c))));
+    apply.setBatchEvaluation(batchEvaluation);
+    assertEquals(NUM_TUPLES, run(apply));
+  }
+
+  private static void filter(final boolean batchEvaluation) throws DbException {
+    final VariableExpression a = new VariableExpression(0);
+    final VariableExpression b = new VariableExpression(1);
+    final VariableExpression c = new VariableExpression(2);
+    Filter filter =
+        new Filter(
+            new Expression(
+                "predicate",
+                new AndExpression(
+                    new LessThanExpression(new PlusExpression(a, b), c),
+                    new GreaterThanExpression(a, new ConstantExpression(100L)))),
+            new BatchTupleSource(input));
+    filter.setBatchEvaluation(batchEvaluation);
+    run(filter);
+  }
+
+  @Test
+  public void applyPerRow() throws DbException {
+    apply(false);
+  }
+
+  @Test
+  public void applyBatch() throws DbException {
+    apply(true);
+  }
+
+  @Test
+  public void filterPerRow() throws DbException {
+    filter(false);
+  }
+
+  @Test
+  public void filterBatch() throws DbException {
+    filter(true);
+  }
+}
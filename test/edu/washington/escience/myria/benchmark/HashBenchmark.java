@@ -0,0 +1,89 @@
+package edu.washington.escience.myria.benchmark;
+
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.HashUtils;
+
+/**
+ * Compares hashing the key columns of batches one row at a time with {@link HashUtils#hashSubRow} against hashing
+ * whole batches with {@link HashUtils#hashSubRows}, with and without the hash codes of
+ * {@link HashUtils#hashSubRow}. The integral keys are read from the arrays of their columns.
+ */
+@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+public class HashBenchmark extends AbstractBenchmark {
+  private static final int NUM_TUPLES = 200 * TupleBatch.BATCH_SIZE;
+  private static final int[] KEY = {0, 1, 2};
+  private static final int[] INTEGRAL_KEY = {0, 1};
+
+  private static List<TupleBatch> input;
+
+  @BeforeClass
+  public static void generateInput() {
+    final Schema schema =
+        Schema.ofFields("a", Type.INT_TYPE, "b", Type.LONG_TYPE, "c", Type.STRING_TYPE);
+    final TupleBatchBuffer tbb = new TupleBatchBuffer(schema);
+    final Random random = new Random(42);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      tbb.putInt(0, random.nextInt());
+      tbb.putLong(1, random.nextLong());
+      tbb.putString(2, "value " + random.nextInt(1000));
+    }
+    input = tbb.getAll();
+  }
+
+  @Test
+  public void perRow() {
+    final int[] hashes = new int[TupleBatch.BATCH_SIZE];
+    long total = 0;
+    for (TupleBatch tb : input) {
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        hashes[row] = HashUtils.hashSubRow(tb, KEY, row);
+      }
+      total += hashes[0];
+    }
+    assertNotEquals(0, total);
+  }
+
+  private static void batches(final int[] key, final boolean compatible) {
+    final int[] hashes = new int[TupleBatch.BATCH_SIZE];
+    long total = 0;
+    for (TupleBatch tb : input) {
+      HashUtils.hashSubRows(tb, key, compatible, hashes);
+      total += hashes[0];
+    }
+    assertNotEquals(0, total);
+  }
+
+  @Test
+  public void compatibleBatches() {
+    batches(KEY, true);
+  }
+
+  @Test
+  public void fastBatches() {
+    batches(KEY, false);
+  }
+
+  @Test
+  public void compatibleIntegralBatches() {
+    batches(INTEGRAL_KEY, true);
+  }
+
+  @Test
+  public void fastIntegralBatches() {
+    batches(INTEGRAL_KEY, false);
+  }
+}
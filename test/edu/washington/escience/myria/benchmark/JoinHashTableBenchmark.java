@@ -0,0 +1,159 @@
+package edu.washington.escience.myria.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.collect.ImmutableList;
+import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
+import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.JoinHashTable;
+import edu.washington.escience.myria.storage.MutableTupleBuffer;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
+import edu.washington.escience.myria.util.HashUtils;
+
+/**
+ * Compares building and probing a {@link JoinHashTable} against the {@code IntObjectHashMap<IntArrayList>} plus
+ * {@link MutableTupleBuffer} layout that the hash joins used before.
+ */
+@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+public class JoinHashTableBenchmark extends AbstractBenchmark {
+  /** The logger for this class. */
+  private static final org.slf4j.Logger LOGGER =
+      LoggerFactory.getLogger(JoinHashTableBenchmark.class);
+
+  private static final Schema SCHEMA =
+      Schema.of(ImmutableList.of(Type.LONG_TYPE, Type.LONG_TYPE), ImmutableList.of("k", "v"));
+  private static final int[] KEY = new int[] {0};
+  /** Number of build tuples. Each key appears twice. */
+  private static final int NUM_TUPLES = 20 * TupleBatch.BATCH_SIZE;
+
+  private static List<TupleBatch> batches;
+  private static int[][] hashes;
+
+  @BeforeClass
+  public static void generateInput() {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      tbb.putLong(0, i / 2);
+      tbb.putLong(1, i);
+    }
+    batches = new ArrayList<>(tbb.getAll());
+    hashes = new int[batches.size()][];
+    for (int b = 0; b < batches.size(); ++b) {
+      TupleBatch tb = batches.get(b);
+      hashes[b] = new int[tb.numTuples()];
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        hashes[b][row] = HashUtils.hashSubRow(tb, KEY, row);
+      }
+    }
+  }
+
+  private static IntObjectHashMap<IntArrayList> buildMap(final MutableTupleBuffer buffer) {
+    IntObjectHashMap<IntArrayList> map = new IntObjectHashMap<>();
+    for (int b = 0; b < batches.size(); ++b) {
+      TupleBatch tb = batches.get(b);
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        IntArrayList indices = map.get(hashes[b][row]);
+        if (indices == null) {
+          indices = new IntArrayList(1);
+          map.put(hashes[b][row], indices);
+        }
+        indices.add(buffer.numTuples());
+        for (int column = 0; column < tb.numColumns(); ++column) {
+          buffer.put(column, tb.getDataColumns().get(column), row);
+        }
+      }
+    }
+    return map;
+  }
+
+  private static JoinHashTable buildTable() {
+    JoinHashTable table = new JoinHashTable(SCHEMA);
+    for (int b = 0; b < batches.size(); ++b) {
+      TupleBatch tb = batches.get(b);
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        table.add(hashes[b][row], tb, row);
+      }
+    }
+    return table;
+  }
+
+  @Test
+  public void probeIntObjectHashMap() {
+    MutableTupleBuffer buffer = new MutableTupleBuffer(SCHEMA);
+    IntObjectHashMap<IntArrayList> map = buildMap(buffer);
+    long matches = 0;
+    for (int b = 0; b < batches.size(); ++b) {
+      TupleBatch tb = batches.get(b);
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        IntArrayList indices = map.get(hashes[b][row]);
+        for (int i = 0; i < indices.size(); ++i) {
+          if (TupleUtils.tupleEquals(tb, KEY, row, buffer, KEY, indices.get(i))) {
+            ++matches;
+          }
+        }
+      }
+    }
+    assertEquals(2L * NUM_TUPLES, matches);
+  }
+
+  @Test
+  public void probeJoinHashTable() {
+    JoinHashTable table = buildTable();
+    MutableTupleBuffer buffer = table.getData();
+    long matches = 0;
+    for (int b = 0; b < batches.size(); ++b) {
+      TupleBatch tb = batches.get(b);
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        for (int index = table.getFirst(hashes[b][row]); index >= 0; index = table.getNext(index)) {
+          if (TupleUtils.tupleEquals(tb, KEY, row, buffer, KEY, index)) {
+            ++matches;
+          }
+        }
+      }
+    }
+    assertEquals(2L * NUM_TUPLES, matches);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; ++i) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  @Test
+  @BenchmarkOptions(benchmarkRounds = 1, warmupRounds = 0)
+  public void reportHeapUse() {
+    long before = usedHeap();
+    MutableTupleBuffer buffer = new MutableTupleBuffer(SCHEMA);
+    IntObjectHashMap<IntArrayList> map = buildMap(buffer);
+    long mapBytes = usedHeap() - before;
+    map = null;
+    buffer = null;
+
+    before = usedHeap();
+    JoinHashTable table = buildTable();
+    long tableBytes = usedHeap() - before;
+    LOGGER.info(
+        "heap used for {} tuples: IntObjectHashMap {} bytes, JoinHashTable {} bytes ({} keys)",
+        NUM_TUPLES,
+        mapBytes,
+        tableBytes,
+        table.numKeys());
+  }
+}
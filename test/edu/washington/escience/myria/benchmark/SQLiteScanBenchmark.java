@@ -0,0 +1,144 @@
+package edu.washington.escience.myria.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.SQLiteAccessMethod;
+import edu.washington.escience.myria.accessmethod.SQLiteInfo;
+import edu.washington.escience.myria.accessmethod.SQLiteTupleBatchIterator;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.builder.ColumnBuilder;
+import edu.washington.escience.myria.column.builder.ColumnFactory;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.util.FSUtils;
+
+/**
+ * Compares scanning a SQLite table of 10M tuples with {@link SQLiteTupleBatchIterator} against reading it one cell at
+ * a time into column builders, for a single LONG column, which is loaded in bulk, and for INT, LONG, and STRING
+ * columns. The number of tuples can be set with the system property {@code myria.benchmark.sqliteTuples}.
+ */
+@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+public class SQLiteScanBenchmark extends AbstractBenchmark {
+  private static final int NUM_TUPLES =
+      Integer.getInteger("myria.benchmark.sqliteTuples", 10000000);
+  private static final String LONG_QUERY = "SELECT b FROM scan";
+  private static final String MIXED_QUERY = "SELECT a, b, s FROM scan";
+  private static final Schema LONG_SCHEMA = Schema.ofFields("b", Type.LONG_TYPE);
+  private static final Schema MIXED_SCHEMA =
+      Schema.ofFields("a", Type.INT_TYPE, "b", Type.LONG_TYPE, "s", Type.STRING_TYPE);
+
+  private static Path tempDir;
+  private static SQLiteInfo sqliteInfo;
+
+  @BeforeClass
+  public static void generateInput() throws Exception {
+    Logger.getLogger("com.almworks.sqlite4java").setLevel(Level.SEVERE);
+    tempDir = Files.createTempDirectory(MyriaConstants.SYSTEM_NAME + "_SQLiteScanBenchmark");
+    final File file = new File(tempDir.toString(), "scan.db");
+    sqliteInfo = SQLiteInfo.of(file.getAbsolutePath());
+    final SQLiteConnection connection = new SQLiteConnection(file);
+    connection.open(true);
+    connection.exec("CREATE TABLE scan (a INTEGER, b INTEGER, s TEXT)");
+    connection.exec(
+        "WITH RECURSIVE x(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM x WHERE i + 1 < "
+            + NUM_TUPLES
+            + ") INSERT INTO scan SELECT i % 1000, i, 'value ' || (i % 100) FROM x");
+    connection.dispose();
+  }
+
+  @AfterClass
+  public static void cleanUp() throws Exception {
+    FSUtils.blockingDeleteDirectory(tempDir.toString());
+  }
+
+  private static long sum(final TupleBatch tb, final int column) {
+    long ret = 0;
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      ret += tb.getLong(column, row);
+    }
+    return ret;
+  }
+
+  private static long scan(final String query, final Schema schema, final int column)
+      throws DbException {
+    final Iterator<TupleBatch> tuples =
+        SQLiteAccessMethod.tupleBatchIteratorFromQuery(sqliteInfo, query, schema);
+    long total = 0;
+    while (tuples.hasNext()) {
+      total += sum(tuples.next(), column);
+    }
+    return total;
+  }
+
+  private static long scanCells(final String query, final Schema schema, final int column)
+      throws SQLiteException {
+    final SQLiteConnection connection =
+        new SQLiteConnection(new File(sqliteInfo.getDatabaseFilename()));
+    connection.openReadonly();
+    final SQLiteStatement statement = connection.prepare(query);
+    long total = 0;
+    statement.step();
+    while (statement.hasRow()) {
+      final List<ColumnBuilder<?>> builders = ColumnFactory.allocateColumns(schema);
+      int numTuples;
+      for (numTuples = 0; numTuples < TupleBatch.BATCH_SIZE && statement.hasRow(); ++numTuples) {
+        for (int c = 0; c < builders.size(); ++c) {
+          builders.get(c).appendFromSQLite(statement, c);
+        }
+        statement.step();
+      }
+      final Column<?> values = builders.get(column).build();
+      for (int row = 0; row < numTuples; ++row) {
+        total += values.getLong(row);
+      }
+    }
+    statement.dispose();
+    connection.dispose();
+    return total;
+  }
+
+  private static long expected() {
+    return (long) NUM_TUPLES * (NUM_TUPLES - 1) / 2;
+  }
+
+  @Test
+  public void longColumn() throws DbException {
+    assertEquals(expected(), scan(LONG_QUERY, LONG_SCHEMA, 0));
+  }
+
+  @Test
+  public void longColumnCells() throws SQLiteException {
+    assertEquals(expected(), scanCells(LONG_QUERY, LONG_SCHEMA, 0));
+  }
+
+  @Test
+  public void mixedColumns() throws DbException {
+    assertEquals(expected(), scan(MIXED_QUERY, MIXED_SCHEMA, 1));
+  }
+
+  @Test
+  public void mixedColumnsCells() throws SQLiteException {
+    assertEquals(expected(), scanCells(MIXED_QUERY, MIXED_SCHEMA, 1));
+  }
+}
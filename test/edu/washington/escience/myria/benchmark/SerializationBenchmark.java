@@ -0,0 +1,96 @@
+package edu.washington.escience.myria.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.protobuf.CodedInputStream;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.parallel.ColumnarFrame;
+import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.IPCUtils;
+
+/**
+ * Compares sending batches of numeric tuples as protobuf {@link TransportMessage}s against sending them as
+ * {@link ColumnarFrame}s, uncompressed and compressed. Each batch is serialized, copied once as if it was received from the network, deserialized,
+ * and read.
+ */
+@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+public class SerializationBenchmark extends AbstractBenchmark {
+  private static final int NUM_TUPLES = 200 * TupleBatch.BATCH_SIZE;
+
+  private static Schema schema;
+  private static List<TupleBatch> input;
+
+  @BeforeClass
+  public static void generateInput() {
+    schema =
+        Schema.ofFields(
+            "a", Type.INT_TYPE, "b", Type.LONG_TYPE, "c", Type.LONG_TYPE, "d", Type.DOUBLE_TYPE);
+    final TupleBatchBuffer tbb = new TupleBatchBuffer(schema);
+    final Random random = new Random(42);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      tbb.putInt(0, random.nextInt());
+      tbb.putLong(1, random.nextLong());
+      tbb.putLong(2, i);
+      tbb.putDouble(3, random.nextDouble());
+    }
+    input = tbb.getAll();
+  }
+
+  private static long sum(final TupleBatch tb) {
+    long ret = 0;
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      ret += tb.getLong(2, row);
+    }
+    return ret;
+  }
+
+  @Test
+  public void protobuf() throws IOException {
+    long total = 0;
+    for (TupleBatch tb : input) {
+      final ChannelBuffer sent =
+          ChannelBuffers.wrappedBuffer(tb.toTransportMessage().toByteArray());
+      final ChannelBuffer received = sent.copy();
+      final TransportMessage tm =
+          TransportMessage.parseFrom(
+              CodedInputStream.newInstance(
+                  received.array(), received.arrayOffset(), received.readableBytes()));
+      total += sum(IPCUtils.tmToTupleBatch(tm.getDataMessage(), schema));
+    }
+    assertEquals((long) NUM_TUPLES * (NUM_TUPLES - 1) / 2, total);
+  }
+
+  private static void sendFrames(final ColumnarFrame frames) throws IOException {
+    long total = 0;
+    for (TupleBatch tb : input) {
+      final ChannelBuffer received = frames.encode(tb).copy();
+      total += sum(ColumnarFrame.decode(received, schema));
+    }
+    assertEquals((long) NUM_TUPLES * (NUM_TUPLES - 1) / 2, total);
+  }
+
+  @Test
+  public void columnarFrame() throws IOException {
+    sendFrames(new ColumnarFrame(ColumnarFrame.Compression.NONE));
+  }
+
+  @Test
+  public void compressedColumnarFrame() throws IOException {
+    sendFrames(new ColumnarFrame(ColumnarFrame.Compression.ADAPTIVE));
+  }
+}
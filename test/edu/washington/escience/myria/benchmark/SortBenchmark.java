@@ -0,0 +1,70 @@
+package edu.washington.escience.myria.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.operator.BatchTupleSource;
+import edu.washington.escience.myria.operator.InMemoryOrderBy;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.TestUtils;
+
+/**
+ * Compares sorting with {@link InMemoryOrderBy}'s tuple comparator against sorting by normalized keys, on a LONG
+ * column, whose keys are complete, and on a LONG and a STRING column, whose keys are only a prefix.
+ */
+@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+public class SortBenchmark extends AbstractBenchmark {
+  private static final int NUM_TUPLES = 30 * TupleBatch.BATCH_SIZE;
+
+  private static TupleBatchBuffer input;
+
+  @BeforeClass
+  public static void generateInput() {
+    input = TestUtils.generateRandomTuples(NUM_TUPLES, NUM_TUPLES / 10, false);
+  }
+
+  private static void sort(
+      final int[] sortColumns, final boolean[] ascending, final boolean normalizedKeys)
+      throws DbException {
+    InMemoryOrderBy order =
+        new InMemoryOrderBy(new BatchTupleSource(input), sortColumns, ascending);
+    order.setNormalizedKeys(normalizedKeys);
+    order.open(null);
+    int numTuples = 0;
+    while (!order.eos()) {
+      TupleBatch tb = order.nextReady();
+      if (tb != null) {
+        numTuples += tb.numTuples();
+      }
+    }
+    order.close();
+    assertEquals(NUM_TUPLES, numTuples);
+  }
+
+  @Test
+  public void longTupleComparator() throws DbException {
+    sort(new int[] {0}, new boolean[] {true}, false);
+  }
+
+  @Test
+  public void longNormalizedKeys() throws DbException {
+    sort(new int[] {0}, new boolean[] {true}, true);
+  }
+
+  @Test
+  public void longStringTupleComparator() throws DbException {
+    sort(new int[] {0, 1}, new boolean[] {false, true}, false);
+  }
+
+  @Test
+  public void longStringNormalizedKeys() throws DbException {
+    sort(new int[] {0, 1}, new boolean[] {false, true}, true);
+  }
+}
@@ -0,0 +1,88 @@
+package edu.washington.escience.myria.column;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.builder.StringColumnBuilder;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.util.HashUtils;
+
+public class DictionaryStringColumnTest {
+
+  private static StringColumn build(final int numTuples, final int numDistinct) {
+    final StringColumnBuilder builder = new StringColumnBuilder();
+    for (int i = 0; i < numTuples; i++) {
+      builder.appendString(i % numDistinct == 1 ? "" : "välue " + i % numDistinct);
+    }
+    return builder.build();
+  }
+
+  private static void assertSameStrings(final Column<?> expected, final Column<?> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getString(i), actual.getString(i));
+    }
+  }
+
+  @Test
+  public void testBuilderChoosesEncoding() {
+    assertTrue(build(1000, 10) instanceof DictionaryStringColumn);
+    assertTrue(build(1000, 900) instanceof StringArrayColumn);
+    assertTrue(
+        build(TupleBatch.BATCH_SIZE, TupleBatch.BATCH_SIZE / 4) instanceof StringArrayColumn);
+    assertEquals("välue 7", build(1000, 10).getString(997));
+  }
+
+  @Test
+  public void testProto() {
+    for (int numDistinct : new int[] {3, 300}) {
+      final StringColumn column = build(1000, numDistinct);
+      final StringColumn deserialized =
+          StringColumnBuilder.buildFromProtobuf(column.serializeToProto(), column.size());
+      assertTrue(deserialized instanceof DictionaryStringColumn);
+      assertSameStrings(column, deserialized);
+    }
+    assertEquals(1, DictionaryStringColumn.codeWidth(256));
+    assertEquals(2, DictionaryStringColumn.codeWidth(257));
+  }
+
+  @Test
+  public void testFilterKeepsDictionary() {
+    final DictionaryStringColumn column = (DictionaryStringColumn) build(100, 5);
+    final DictionaryStringColumn filtered = column.filter(new int[] {99, 0, 3});
+    assertSame(column.getDictionary(), filtered.getDictionary());
+    assertEquals(column.getString(99), filtered.getString(0));
+    assertEquals(column.getCode(3), filtered.getCode(2));
+
+    final TupleBatch tb =
+        new TupleBatch(
+            Schema.ofFields(Type.STRING_TYPE, "s"), ImmutableList.<Column<?>>of(column), 100);
+    final TupleBatch selected = tb.selectRows(new int[] {4, 2});
+    assertTrue(selected.getDataColumns().get(0) instanceof DictionaryStringColumn);
+    assertTrue(selected.compact().getDataColumns().get(0) instanceof DictionaryStringColumn);
+    assertEquals(column.getString(2), selected.getString(0, 1));
+  }
+
+  @Test
+  public void testHashValues() {
+    final StringColumn column = build(1000, 10);
+    final TupleBatch tb =
+        new TupleBatch(
+                Schema.ofFields(Type.STRING_TYPE, "s"), ImmutableList.<Column<?>>of(column), 1000)
+            .selectRows(new int[] {5, 500, 999, 5});
+    final int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashValues(tb, 0, 3, hashes);
+    for (int row = 0; row < tb.numTuples(); row++) {
+      assertEquals(HashUtils.hashValue(tb, 0, row, 3), hashes[row]);
+    }
+    HashUtils.hashValues(tb, 0, 0, hashes);
+    assertEquals(HashUtils.hashSubRow(tb, new int[] {0}, 2), hashes[2]);
+  }
+}
@@ -11,11 +11,13 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.joda.time.DateTime;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Floats;
 import com.google.common.primitives.Ints;
@@ -36,6 +38,7 @@ import edu.washington.escience.myria.column.builder.LongColumnBuilder;
 import edu.washington.escience.myria.column.builder.StringColumnBuilder;
 import edu.washington.escience.myria.operator.agg.Aggregate;
 import edu.washington.escience.myria.operator.agg.AggregatorFactory;
+import edu.washington.escience.myria.operator.agg.CountAllAggregatorFactory;
 import edu.washington.escience.myria.operator.agg.MultiGroupByAggregate;
 import edu.washington.escience.myria.operator.agg.PrimitiveAggregator.AggregationOp;
 import edu.washington.escience.myria.operator.agg.SingleColumnAggregatorFactory;
@@ -43,6 +46,7 @@ import edu.washington.escience.myria.operator.agg.SingleGroupByAggregate;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
 import edu.washington.escience.myria.storage.TupleBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
 import edu.washington.escience.myria.util.HashUtils;
 import edu.washington.escience.myria.util.TestEnvVars;
 import edu.washington.escience.myria.util.TestUtils;
@@ -965,6 +969,152 @@ public class AggregateTest {
     mga.close();
   }
 
+  @Test
+  public void testMultiGroupColumnarStates() throws DbException {
+    final int numTuples = 3 * TupleBatch.BATCH_SIZE + 17;
+    final Schema schema =
+        Schema.ofFields(
+            Type.INT_TYPE,
+            Type.LONG_TYPE,
+            Type.INT_TYPE,
+            Type.LONG_TYPE,
+            Type.DOUBLE_TYPE,
+            Type.FLOAT_TYPE);
+    final Random random = new Random(42);
+    final TupleBatchBuffer tbb = new TupleBatchBuffer(schema);
+    for (int i = 0; i < numTuples; i++) {
+      tbb.putInt(0, random.nextInt(50));
+      tbb.putLong(1, random.nextInt(40));
+      tbb.putInt(2, random.nextInt(1000) - 500);
+      tbb.putLong(3, random.nextInt(2000000) - 1000000);
+      tbb.putDouble(4, random.nextGaussian());
+      tbb.putFloat(5, random.nextFloat());
+    }
+    final AggregationOp[] ops = {
+      AggregationOp.COUNT,
+      AggregationOp.MIN,
+      AggregationOp.MAX,
+      AggregationOp.SUM,
+      AggregationOp.AVG,
+      AggregationOp.STDEV
+    };
+    final List<AggregatorFactory> factories =
+        Lists.newArrayList(
+            new SingleColumnAggregatorFactory(2, ops),
+            new SingleColumnAggregatorFactory(3, ops),
+            new SingleColumnAggregatorFactory(4, ops),
+            new CountAllAggregatorFactory());
+    /* All aggregates have columnar states. */
+    MultiGroupByAggregate columnar =
+        new MultiGroupByAggregate(
+            new BatchTupleSource(tbb),
+            new int[] {0, 1},
+            factories.toArray(new AggregatorFactory[factories.size()]));
+    /* A FLOAT aggregate does not, so all aggregates use state objects. */
+    factories.add(new SingleColumnAggregatorFactory(5, AggregationOp.MAX));
+    MultiGroupByAggregate objects =
+        new MultiGroupByAggregate(
+            new BatchTupleSource(tbb),
+            new int[] {0, 1},
+            factories.toArray(new AggregatorFactory[factories.size()]));
+
+    TupleBuffer columnarResult = drain(columnar);
+    TupleBuffer objectsResult = drain(objects);
+    assertEquals(50 * 40, columnarResult.numTuples());
+    assertEquals(columnarResult.numTuples(), objectsResult.numTuples());
+    for (int row = 0; row < columnarResult.numTuples(); ++row) {
+      for (int col = 0; col < columnarResult.numColumns(); ++col) {
+        TestUtils.assertValueEquals(objectsResult, columnarResult, col, row);
+      }
+    }
+  }
+
+  @Test
+  public void testMultiGroupMemoryBudget() throws DbException {
+    final TupleBatchBuffer testBase = TestUtils.generateRandomTuples(20000, 5000, false);
+    final AggregatorFactory[] factories = {
+      new SingleColumnAggregatorFactory(0, AggregationOp.SUM, AggregationOp.MAX),
+      new CountAllAggregatorFactory()
+    };
+    MultiGroupByAggregate expected =
+        new MultiGroupByAggregate(new BatchTupleSource(testBase), new int[] {0, 1}, factories);
+    MultiGroupByAggregate spilled =
+        new MultiGroupByAggregate(new BatchTupleSource(testBase), new int[] {0, 1}, factories);
+    spilled.setMemoryBudget(100000);
+
+    spilled.open(null);
+    final TupleBatchBuffer result = new TupleBatchBuffer(spilled.getSchema());
+    while (!spilled.eos()) {
+      TupleBatch tb = spilled.nextReady();
+      if (tb != null) {
+        tb.compactInto(result);
+      }
+    }
+    assertTrue(spilled.getBytesSpilled() > 0);
+    spilled.close();
+    TestUtils.assertTupleBagEqual(
+        TestUtils.tupleBatchToTupleBag(runToBuffer(expected)),
+        TestUtils.tupleBatchToTupleBag(result));
+  }
+
+  @Test
+  public void testSingleGroupMemoryBudget() throws DbException {
+    final TupleBatchBuffer testBase = TestUtils.generateRandomTuples(20000, 5000, false);
+    final AggregatorFactory[] factories = {
+      new SingleColumnAggregatorFactory(1, AggregationOp.MIN), new CountAllAggregatorFactory()
+    };
+    SingleGroupByAggregate expected =
+        new SingleGroupByAggregate(new BatchTupleSource(testBase), 0, factories);
+    SingleGroupByAggregate spilled =
+        new SingleGroupByAggregate(new BatchTupleSource(testBase), 0, factories);
+    spilled.setMemoryBudget(100000);
+
+    spilled.open(null);
+    final TupleBatchBuffer result = new TupleBatchBuffer(spilled.getSchema());
+    while (!spilled.eos()) {
+      TupleBatch tb = spilled.nextReady();
+      if (tb != null) {
+        tb.compactInto(result);
+      }
+    }
+    assertTrue(spilled.getBytesSpilled() > 0);
+    spilled.close();
+    TestUtils.assertTupleBagEqual(
+        TestUtils.tupleBatchToTupleBag(runToBuffer(expected)),
+        TestUtils.tupleBatchToTupleBag(result));
+  }
+
+  private static TupleBatchBuffer runToBuffer(final Operator op) throws DbException {
+    op.open(null);
+    final TupleBatchBuffer result = new TupleBatchBuffer(op.getSchema());
+    while (!op.eos()) {
+      TupleBatch tb = op.nextReady();
+      if (tb != null) {
+        tb.compactInto(result);
+      }
+    }
+    op.close();
+    return result;
+  }
+
+  private static TupleBuffer drain(final Operator op) throws DbException {
+    op.open(null);
+    final TupleBuffer result = new TupleBuffer(op.getSchema());
+    while (!op.eos()) {
+      TupleBatch tb = op.nextReady();
+      if (tb == null) {
+        continue;
+      }
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        for (int col = 0; col < tb.numColumns(); ++col) {
+          TupleUtils.copyValue(tb, col, row, result, col);
+        }
+      }
+    }
+    op.close();
+    return result;
+  }
+
   @Test(expected = ArithmeticException.class)
   public void testLongAggOverflow() throws Exception {
     LongColumnBuilder builder =
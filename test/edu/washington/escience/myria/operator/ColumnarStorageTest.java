@@ -0,0 +1,188 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.RelationKey;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.AccessMethod;
+import edu.washington.escience.myria.accessmethod.ColumnarAccessMethod;
+import edu.washington.escience.myria.accessmethod.ColumnarInfo;
+import edu.washington.escience.myria.accessmethod.ConnectionInfo;
+import edu.washington.escience.myria.column.DoubleBufferColumn;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.FSUtils;
+
+public class ColumnarStorageTest {
+
+  private static final RelationKey KEY = RelationKey.of("test", "test", "columnar");
+  private static final Schema SCHEMA =
+      new Schema(
+          ImmutableList.of(
+              Type.INT_TYPE,
+              Type.LONG_TYPE,
+              Type.DOUBLE_TYPE,
+              Type.STRING_TYPE,
+              Type.BOOLEAN_TYPE,
+              Type.DATETIME_TYPE),
+          ImmutableList.of("i", "l", "d", "s", "b", "t"));
+  private static final int NUM_TUPLES = 2 * TupleBatch.BATCH_SIZE + 123;
+
+  private Path tempDir;
+  private ColumnarInfo columnarInfo;
+
+  @Before
+  public void setUp() throws Exception {
+    tempDir = Files.createTempDirectory(MyriaConstants.SYSTEM_NAME + "_ColumnarStorageTest");
+    columnarInfo = ColumnarInfo.of(tempDir.resolve("columnar").toString());
+  }
+
+  @After
+  public void cleanUp() throws Exception {
+    FSUtils.blockingDeleteDirectory(tempDir.toString());
+  }
+
+  private static List<TupleBatch> data(final int numTuples, final int offset) {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < numTuples; ++i) {
+      tbb.putInt(0, i + offset);
+      tbb.putLong(1, 3L * i);
+      tbb.putDouble(2, i / 7.0);
+      tbb.putString(3, "value " + i % 5);
+      tbb.putBoolean(4, i % 2 == 0);
+      tbb.putDateTime(5, new DateTime(1000L * i));
+    }
+    /* Batches of uneven sizes, which the storage gathers into full segments. */
+    List<TupleBatch> batches = new ArrayList<>();
+    for (TupleBatch tb : tbb.getAll()) {
+      int split = Math.min(1000, tb.numTuples());
+      batches.add(tb.selectRows(range(0, split)));
+      batches.add(tb.selectRows(range(split, tb.numTuples())));
+    }
+    return batches;
+  }
+
+  private static int[] range(final int from, final int to) {
+    int[] rows = new int[to - from];
+    for (int i = 0; i < rows.length; ++i) {
+      rows[i] = from + i;
+    }
+    return rows;
+  }
+
+  private static void insert(
+      final ConnectionInfo connectionInfo, final List<TupleBatch> batches, final boolean overwrite)
+      throws DbException {
+    DbInsert insert = new DbInsert(new BatchTupleSource(batches), KEY, connectionInfo, overwrite);
+    insert.open(null);
+    while (!insert.eos()) {
+      insert.nextReady();
+    }
+    insert.close();
+  }
+
+  private List<TupleBatch> scan() throws DbException {
+    DbQueryScan scan = new DbQueryScan(columnarInfo, KEY, SCHEMA);
+    scan.open(null);
+    List<TupleBatch> batches = new ArrayList<>();
+    while (!scan.eos()) {
+      TupleBatch tb = scan.nextReady();
+      if (tb != null) {
+        batches.add(tb);
+      }
+    }
+    scan.close();
+    return batches;
+  }
+
+  @Test
+  public void testInsertAndScan() throws DbException {
+    insert(columnarInfo, data(NUM_TUPLES, 0), false);
+    List<TupleBatch> batches = scan();
+    assertEquals(3, batches.size());
+    assertEquals(TupleBatch.BATCH_SIZE, batches.get(0).numTuples());
+    /* Doubles are stored plain, and scanned as views of the mapped file. */
+    assertTrue(batches.get(0).getDataColumns().get(2) instanceof DoubleBufferColumn);
+
+    int i = 0;
+    for (TupleBatch tb : batches) {
+      for (int row = 0; row < tb.numTuples(); ++row, ++i) {
+        assertEquals(i, tb.getInt(0, row));
+        assertEquals(3L * i, tb.getLong(1, row));
+        assertEquals(i / 7.0, tb.getDouble(2, row), 0);
+        assertEquals("value " + i % 5, tb.getString(3, row));
+        assertEquals(i % 2 == 0, tb.getBoolean(4, row));
+        assertEquals(new DateTime(1000L * i), tb.getDateTime(5, row));
+      }
+    }
+    assertEquals(NUM_TUPLES, i);
+  }
+
+  @Test
+  public void testAppendAndOverwrite() throws DbException {
+    insert(columnarInfo, data(10, 0), false);
+    insert(columnarInfo, data(10, 100), false);
+    List<TupleBatch> batches = scan();
+    assertEquals(2, batches.size());
+    assertEquals(100, batches.get(1).getInt(0, 0));
+
+    insert(columnarInfo, data(5, 200), true);
+    batches = scan();
+    assertEquals(1, batches.size());
+    assertEquals(5, batches.get(0).numTuples());
+    assertEquals(200, batches.get(0).getInt(0, 0));
+  }
+
+  @Test
+  public void testZoneMaps() throws DbException {
+    insert(columnarInfo, data(NUM_TUPLES, 0), false);
+    ColumnarAccessMethod accessMethod =
+        (ColumnarAccessMethod)
+            AccessMethod.of(MyriaConstants.STORAGE_SYSTEM_COLUMNAR, columnarInfo, true);
+    /* i > 2 * BATCH_SIZE only in the last segment. */
+    Iterator<TupleBatch> tuples =
+        accessMethod.scan(
+            KEY, SCHEMA, zoneMap -> (Integer) zoneMap.getMax(0) > 2 * TupleBatch.BATCH_SIZE);
+    assertTrue(tuples.hasNext());
+    TupleBatch tb = tuples.next();
+    assertEquals(123, tb.numTuples());
+    assertEquals(2 * TupleBatch.BATCH_SIZE, tb.getInt(0, 0));
+    assertFalse(tuples.hasNext());
+  }
+
+  @Test(expected = DbException.class)
+  public void testUnsupportedQuery() throws DbException {
+    insert(columnarInfo, data(10, 0), false);
+    AccessMethod.of(MyriaConstants.STORAGE_SYSTEM_COLUMNAR, columnarInfo, true)
+        .tupleBatchIteratorFromQuery(
+            "SELECT i FROM " + KEY.toString(MyriaConstants.STORAGE_SYSTEM_COLUMNAR), SCHEMA);
+  }
+
+  @Test
+  public void testConnectionInfo() {
+    String json =
+        ConnectionInfo.toJson(
+            MyriaConstants.STORAGE_SYSTEM_COLUMNAR, "localhost", "/tmp/x", 3, null, null, null);
+    ColumnarInfo info =
+        (ColumnarInfo) ConnectionInfo.of(MyriaConstants.STORAGE_SYSTEM_COLUMNAR, json);
+    assertEquals("/tmp/x/workers/3/columnar", info.getDirectory());
+  }
+}
@@ -0,0 +1,139 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.RelationKey;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.SimplePredicate;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.AccessMethod;
+import edu.washington.escience.myria.accessmethod.ColumnarAccessMethod;
+import edu.washington.escience.myria.accessmethod.ColumnarInfo;
+import edu.washington.escience.myria.accessmethod.ConnectionInfo;
+import edu.washington.escience.myria.accessmethod.SQLiteInfo;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.FSUtils;
+
+public class DbQueryScanPushdownTest {
+
+  private static final int NUM_TUPLES = 3 * TupleBatch.BATCH_SIZE + 5;
+  private static final RelationKey KEY = RelationKey.of("test", "test", "pushdown");
+  private static final Schema SCHEMA =
+      new Schema(
+          ImmutableList.of(Type.INT_TYPE, Type.LONG_TYPE, Type.STRING_TYPE),
+          ImmutableList.of("i", "l", "s"));
+  private static Path tempDir;
+  private static SQLiteInfo sqliteInfo;
+  private static ColumnarInfo columnarInfo;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Logger.getLogger("com.almworks.sqlite4java").setLevel(Level.SEVERE);
+    tempDir = Files.createTempDirectory(MyriaConstants.SYSTEM_NAME + "_DbQueryScanPushdownTest");
+    sqliteInfo = SQLiteInfo.of(new File(tempDir.toString(), "scan.db").getAbsolutePath());
+    columnarInfo = ColumnarInfo.of(tempDir.resolve("columnar").toString());
+
+    TupleBatchBuffer data = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      data.putInt(0, i);
+      data.putLong(1, 2L * i);
+      data.putString(2, i % 3 == 0 ? "it's" : "other");
+    }
+    for (ConnectionInfo connectionInfo : new ConnectionInfo[] {sqliteInfo, columnarInfo}) {
+      DbInsert insert = new DbInsert(new BatchTupleSource(data.getAll()), KEY, connectionInfo);
+      insert.open(null);
+      while (!insert.eos()) {
+        insert.nextReady();
+      }
+      insert.close();
+    }
+  }
+
+  private static List<TupleBatch> scan(final DbQueryScan scan) throws DbException {
+    scan.open(null);
+    List<TupleBatch> batches = new ArrayList<>();
+    while (!scan.eos()) {
+      TupleBatch tb = scan.nextReady();
+      if (tb != null) {
+        batches.add(tb);
+      }
+    }
+    scan.close();
+    return batches;
+  }
+
+  @Test
+  public void testSelectAndProject() throws DbException {
+    for (ConnectionInfo connectionInfo : new ConnectionInfo[] {sqliteInfo, columnarInfo}) {
+      DbQueryScan scan =
+          new DbQueryScan(connectionInfo, KEY, SCHEMA)
+              .project(new int[] {2, 0}, ImmutableList.of("str", "int"))
+              .select(
+                  ImmutableList.of(
+                      new SimplePredicate(1, SimplePredicate.Op.GREATER_THAN_OR_EQ, "100"),
+                      new SimplePredicate(0, SimplePredicate.Op.EQUALS, "it's")));
+      assertEquals(ImmutableList.of("str", "int"), scan.getSchema().getColumnNames());
+      int numTuples = 0;
+      for (TupleBatch tb : scan(scan)) {
+        assertEquals(scan.getSchema(), tb.getSchema());
+        for (int row = 0; row < tb.numTuples(); ++row, ++numTuples) {
+          assertEquals("it's", tb.getString(0, row));
+          int i = tb.getInt(1, row);
+          assertTrue(i >= 100 && i % 3 == 0);
+        }
+      }
+      int expected = 0;
+      for (int i = 100; i < NUM_TUPLES; ++i) {
+        expected += i % 3 == 0 ? 1 : 0;
+      }
+      assertEquals(expected, numTuples);
+    }
+  }
+
+  @Test
+  public void testColumnarSkipsSegments() throws DbException {
+    ColumnarAccessMethod.SegmentIterator tuples =
+        ((ColumnarAccessMethod)
+                AccessMethod.of(MyriaConstants.STORAGE_SYSTEM_COLUMNAR, columnarInfo, true))
+            .scan(
+                KEY,
+                SCHEMA,
+                ImmutableList.of(
+                    new SimplePredicate(
+                        0, SimplePredicate.Op.LESS_THAN, String.valueOf(TupleBatch.BATCH_SIZE))),
+                new int[] {1});
+    int numTuples = 0;
+    while (tuples.hasNext()) {
+      TupleBatch tb = tuples.next();
+      assertEquals(1, tb.numColumns());
+      numTuples += tb.numTuples();
+    }
+    assertEquals(TupleBatch.BATCH_SIZE, numTuples);
+    assertEquals(NUM_TUPLES, tuples.getNumTuples());
+    assertEquals(TupleBatch.BATCH_SIZE, tuples.getNumTuplesRead());
+    assertEquals(TupleBatch.BATCH_SIZE, tuples.getNumTuplesReturned());
+  }
+
+  @AfterClass
+  public static void cleanUp() throws Exception {
+    FSUtils.blockingDeleteDirectory(tempDir.toString());
+  }
+}
@@ -0,0 +1,91 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.TestUtils;
+
+public class ExternalOrderByTest {
+
+  private ArrayList<Entry<Long, String>> sort(final ExternalOrderBy order) throws DbException {
+    order.open(null);
+    final ArrayList<Entry<Long, String>> entries = new ArrayList<Entry<Long, String>>();
+    while (!order.eos()) {
+      TupleBatch tb = order.nextReady();
+      if (tb != null) {
+        for (int i = 0; i < tb.numTuples(); i++) {
+          entries.add(new SimpleEntry<Long, String>(tb.getLong(0, i), tb.getString(1, i)));
+        }
+      }
+    }
+    return entries;
+  }
+
+  private void checkAscending(final ArrayList<Entry<Long, String>> entries) {
+    Comparator<Entry<Long, String>> comparator = new TestUtils.EntryComparator();
+    Entry<Long, String> previous = null;
+    for (Entry<Long, String> entry : entries) {
+      if (previous != null) {
+        assertTrue(comparator.compare(previous, entry) <= 0);
+      }
+      previous = entry;
+    }
+  }
+
+  @Test
+  public void testInMemory() throws DbException {
+    TupleBatchBuffer randomTuples = TestUtils.generateRandomTuples(52300, 5000, false);
+    ExternalOrderBy order =
+        new ExternalOrderBy(
+            new BatchTupleSource(randomTuples), new int[] {0, 1}, new boolean[] {true, true});
+    ArrayList<Entry<Long, String>> entries = sort(order);
+    assertEquals(0, order.getBytesSpilled());
+    order.close();
+    assertEquals(52300, entries.size());
+    checkAscending(entries);
+  }
+
+  @Test
+  public void testSpilledRuns() throws DbException {
+    TupleBatchBuffer randomTuples = TestUtils.generateRandomTuples(52300, 5000, false);
+    ExternalOrderBy order =
+        new ExternalOrderBy(
+            new BatchTupleSource(randomTuples),
+            new int[] {0, 1},
+            new boolean[] {true, true},
+            100000);
+    ArrayList<Entry<Long, String>> entries = sort(order);
+    assertTrue(order.getBytesSpilled() > 0);
+    order.close();
+    assertEquals(52300, entries.size());
+    checkAscending(entries);
+  }
+
+  @Test
+  public void testSpilledRunsDescending() throws DbException {
+    TupleBatchBuffer randomTuples = TestUtils.generateRandomTuples(52300, 5000, false);
+    ExternalOrderBy order =
+        new ExternalOrderBy(
+            new BatchTupleSource(randomTuples), new int[] {1}, new boolean[] {false}, 100000);
+    ArrayList<Entry<Long, String>> entries = sort(order);
+    order.close();
+    assertEquals(52300, entries.size());
+    String previous = null;
+    for (Entry<Long, String> entry : entries) {
+      if (previous != null) {
+        assertTrue(previous.compareTo(entry.getValue()) >= 0);
+      }
+      previous = entry.getValue();
+    }
+  }
+}
@@ -2,6 +2,8 @@ package edu.washington.escience.myria.operator;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
@@ -10,10 +12,13 @@ import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
 import edu.washington.escience.myria.expression.AndExpression;
+import edu.washington.escience.myria.expression.ConstantExpression;
+import edu.washington.escience.myria.expression.EqualsExpression;
 import edu.washington.escience.myria.expression.Expression;
 import edu.washington.escience.myria.expression.ExpressionOperator;
 import edu.washington.escience.myria.expression.LessThanExpression;
 import edu.washington.escience.myria.expression.MinusExpression;
+import edu.washington.escience.myria.expression.OrExpression;
 import edu.washington.escience.myria.expression.PlusExpression;
 import edu.washington.escience.myria.expression.VariableExpression;
 import edu.washington.escience.myria.storage.TupleBatch;
@@ -148,6 +153,44 @@ public class FilterTest {
     assertEquals(2, getRowCount(filter));
   }
 
+  @Test
+  public void testBatchEvaluation() throws DbException {
+    final Schema schema =
+        new Schema(
+            ImmutableList.of(Type.INT_TYPE, Type.LONG_TYPE, Type.DOUBLE_TYPE, Type.STRING_TYPE),
+            ImmutableList.of("a", "b", "c", "d"));
+    final TupleBatchBuffer testBase = new TupleBatchBuffer(schema);
+    final Random random = new Random(42);
+    int expected = 0;
+    for (int i = 0; i < 3 * TupleBatch.BATCH_SIZE + 17; i++) {
+      int a = random.nextInt(100);
+      long b = random.nextInt(100);
+      double c = random.nextDouble() * 100;
+      String d = "Foo" + random.nextInt(10);
+      testBase.putInt(0, a);
+      testBase.putLong(1, b);
+      testBase.putDouble(2, c);
+      testBase.putString(3, d);
+      if ((a < c && b < 50) || d.equals("Foo1")) {
+        expected++;
+      }
+    }
+    Expression predicate =
+        new Expression(
+            "predicate",
+            new OrExpression(
+                new AndExpression(
+                    new LessThanExpression(new VariableExpression(0), new VariableExpression(2)),
+                    new LessThanExpression(new VariableExpression(1), new ConstantExpression(50))),
+                new EqualsExpression(new VariableExpression(3), new ConstantExpression("Foo1"))));
+
+    Filter rowFilter = new Filter(predicate, new BatchTupleSource(testBase));
+    rowFilter.setBatchEvaluation(false);
+    Filter batchFilter = new Filter(predicate, new BatchTupleSource(testBase));
+    assertEquals(expected, getRowCount(rowFilter));
+    assertEquals(expected, getRowCount(batchFilter));
+  }
+
   /*
    * helper method for getting the row count
    */
@@ -0,0 +1,121 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.expression.ConstantExpression;
+import edu.washington.escience.myria.expression.DivideExpression;
+import edu.washington.escience.myria.expression.Expression;
+import edu.washington.escience.myria.expression.LessThanExpression;
+import edu.washington.escience.myria.expression.ModuloExpression;
+import edu.washington.escience.myria.expression.NotEqualsExpression;
+import edu.washington.escience.myria.expression.PlusExpression;
+import edu.washington.escience.myria.expression.TimesExpression;
+import edu.washington.escience.myria.expression.ToUpperCaseExpression;
+import edu.washington.escience.myria.expression.VariableExpression;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.TestEnvVars;
+import edu.washington.escience.myria.util.TestUtils;
+
+public class FusedPipelineTest {
+
+  private static TupleBatchBuffer run(final Operator op) throws DbException {
+    op.open(TestEnvVars.get());
+    final TupleBatchBuffer result = new TupleBatchBuffer(op.getSchema());
+    while (!op.eos()) {
+      TupleBatch tb = op.nextReady();
+      if (tb != null) {
+        tb.compactInto(result);
+      }
+    }
+    op.close();
+    return result;
+  }
+
+  // (id, name) -> id % 3 != 0 -> (id * 2, name, id / 2.0) -> col0 < 1500 -> (col0 + 1, upper, half, 7)
+  private static Operator plan(final TupleBatchBuffer source) {
+    Filter first =
+        new Filter(
+            new Expression(
+                new NotEqualsExpression(
+                    new ModuloExpression(new VariableExpression(0), new ConstantExpression(3L)),
+                    new ConstantExpression(0L))),
+            new BatchTupleSource(source));
+    Apply second =
+        new Apply(
+            first,
+            ImmutableList.of(
+                new Expression(
+                    "twice",
+                    new TimesExpression(new VariableExpression(0), new ConstantExpression(2L))),
+                new Expression("name", new VariableExpression(1)),
+                new Expression(
+                    "half",
+                    new DivideExpression(new VariableExpression(0), new ConstantExpression(2.0)))));
+    Filter third =
+        new Filter(
+            new Expression(
+                new LessThanExpression(new VariableExpression(0), new ConstantExpression(1500L))),
+            second);
+    return new Apply(
+        third,
+        ImmutableList.of(
+            new Expression(
+                "next", new PlusExpression(new VariableExpression(0), new ConstantExpression(1L))),
+            new Expression("upper", new ToUpperCaseExpression(new VariableExpression(1))),
+            new Expression("half", new VariableExpression(2)),
+            new Expression("seven", new ConstantExpression(7))));
+  }
+
+  @Test
+  public void testSameResultAsUnfused() throws DbException {
+    final TupleBatchBuffer source = TestUtils.generateRandomTuples(20000, 1000, false);
+    TupleBatchBuffer expected = run(plan(source));
+
+    EmptySink root = new EmptySink(plan(source));
+    FusedPipeline fused = FusedPipeline.fuse(root);
+    assertSame(fused, root.getChild());
+    assertEquals(4, fused.getStages().size());
+    assertTrue(fused.getChild() instanceof BatchTupleSource);
+    assertEquals(expected.getSchema(), fused.getSchema());
+
+    TupleBatchBuffer actual = run(fused);
+    assertTrue(actual.numTuples() > 0);
+    TestUtils.assertTupleBagEqual(
+        TestUtils.tupleBatchToTupleBag(expected), TestUtils.tupleBatchToTupleBag(actual));
+  }
+
+  @Test
+  public void testNothingSelected() throws DbException {
+    final TupleBatchBuffer source = TestUtils.range(3 * TupleBatch.BATCH_SIZE);
+    Filter filter =
+        new Filter(
+            new Expression(
+                new LessThanExpression(new VariableExpression(0), new ConstantExpression(-1L))),
+            new BatchTupleSource(source));
+    Apply apply =
+        new Apply(filter, ImmutableList.of(new Expression("x", new VariableExpression(0))));
+    EmptySink root = new EmptySink(apply);
+    assertEquals(0, run(FusedPipeline.fuse(root)).numTuples());
+  }
+
+  @Test
+  public void testSingleOperatorIsNotFused() {
+    final TupleBatchBuffer source = TestUtils.range(10);
+    Apply apply =
+        new Apply(
+            new BatchTupleSource(source),
+            ImmutableList.of(new Expression("x", new VariableExpression(0))));
+    EmptySink root = new EmptySink(apply);
+    assertNull(FusedPipeline.fuse(root));
+    assertSame(apply, root.getChild());
+  }
+}
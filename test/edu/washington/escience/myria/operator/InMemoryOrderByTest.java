@@ -82,4 +82,38 @@ public class InMemoryOrderByTest {
       previous = entry;
     }
   }
+
+  @Test
+  public void testNormalizedKeys() throws DbException {
+    TupleBatchBuffer randomTuples = TestUtils.generateRandomTuples(52300, 5000, false);
+
+    BatchTupleSource child = new BatchTupleSource(randomTuples);
+
+    InMemoryOrderBy order =
+        new InMemoryOrderBy(child, new int[] {0, 1}, new boolean[] {true, true});
+    order.setNormalizedKeys(true);
+    order.open(null);
+    TupleBatch tb;
+    final ArrayList<Entry<Long, String>> entries = new ArrayList<Entry<Long, String>>();
+    while (!order.eos()) {
+      tb = order.nextReady();
+      if (tb != null) {
+        for (int i = 0; i < tb.numTuples(); i++) {
+          entries.add(new SimpleEntry<Long, String>(tb.getLong(0, i), tb.getString(1, i)));
+        }
+      }
+    }
+    order.close();
+
+    assertEquals(52300, entries.size());
+
+    Comparator<Entry<Long, String>> comparator = new TestUtils.EntryComparator();
+    Entry<Long, String> previous = null;
+    for (Entry<Long, String> entry : entries) {
+      if (previous != null) {
+        assertTrue(comparator.compare(previous, entry) <= 0);
+      }
+      previous = entry;
+    }
+  }
 }
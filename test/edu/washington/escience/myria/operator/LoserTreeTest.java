@@ -0,0 +1,54 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LoserTreeTest {
+
+  @Test
+  public void testMerge() {
+    Random random = new Random(1);
+    for (int k = 1; k <= 9; ++k) {
+      final int[][] sources = new int[k][];
+      int total = 0;
+      for (int i = 0; i < k; ++i) {
+        sources[i] = new int[random.nextInt(20)];
+        for (int j = 0; j < sources[i].length; ++j) {
+          sources[i][j] = random.nextInt(50);
+        }
+        Arrays.sort(sources[i]);
+        total += sources[i].length;
+      }
+      final int[] heads = new int[k];
+      LoserTree tree =
+          new LoserTree(
+              k,
+              (i, j) -> {
+                boolean iDone = heads[i] == sources[i].length;
+                boolean jDone = heads[j] == sources[j].length;
+                if (iDone || jDone) {
+                  return Boolean.compare(iDone, jDone);
+                }
+                return Integer.compare(sources[i][heads[i]], sources[j][heads[j]]);
+              });
+      int[] merged = new int[total];
+      int[] expected = new int[total];
+      int n = 0;
+      for (int i = 0; i < k; ++i) {
+        System.arraycopy(sources[i], 0, expected, n, sources[i].length);
+        n += sources[i].length;
+      }
+      Arrays.sort(expected);
+      for (int m = 0; m < total; ++m) {
+        int winner = tree.winner();
+        merged[m] = sources[winner][heads[winner]++];
+        tree.update();
+      }
+      assertArrayEquals(expected, merged);
+    }
+  }
+}
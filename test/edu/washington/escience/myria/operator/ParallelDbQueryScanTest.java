@@ -0,0 +1,101 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.RelationKey;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.AccessMethod;
+import edu.washington.escience.myria.accessmethod.SQLiteInfo;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.FSUtils;
+
+public class ParallelDbQueryScanTest {
+
+  private static final int NUM_TUPLES = 3 * TupleBatch.BATCH_SIZE + 5;
+  private static final RelationKey KEY = RelationKey.of("test", "test", "parallel_scan");
+  private static final Schema SCHEMA =
+      new Schema(ImmutableList.of(Type.INT_TYPE, Type.STRING_TYPE), ImmutableList.of("i", "s"));
+  private static Path tempDir;
+  private static SQLiteInfo sqliteInfo;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Logger.getLogger("com.almworks.sqlite4java").setLevel(Level.SEVERE);
+    tempDir = Files.createTempDirectory(MyriaConstants.SYSTEM_NAME + "_ParallelDbQueryScanTest");
+    sqliteInfo = SQLiteInfo.of(new File(tempDir.toString(), "scan.db").getAbsolutePath());
+
+    TupleBatchBuffer data = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < NUM_TUPLES; ++i) {
+      data.putInt(0, i);
+      data.putString(1, "tuple " + i);
+    }
+    DbInsert insert = new DbInsert(new BatchTupleSource(data), KEY, sqliteInfo);
+    insert.open(null);
+    while (!insert.eos()) {
+      insert.nextReady();
+    }
+    insert.close();
+  }
+
+  @Test
+  public void testScanRanges() throws Exception {
+    AccessMethod accessMethod =
+        AccessMethod.of(MyriaConstants.STORAGE_SYSTEM_SQLITE, sqliteInfo, true);
+    List<String> ranges = accessMethod.scanRanges(KEY, 3);
+    accessMethod.close();
+    int rows = NUM_TUPLES;
+    assertEquals(
+        ImmutableList.of(
+            "rowid < " + (1 + rows / 3 + 1),
+            "rowid >= " + (1 + rows / 3 + 1) + " AND rowid < " + (1 + 2 * (rows / 3) + 2),
+            "rowid >= " + (1 + 2 * (rows / 3) + 2)),
+        ranges);
+  }
+
+  @Test
+  public void testParallelScan() throws Exception {
+    for (int parallelism : new int[] {1, 4}) {
+      DbQueryScan scan = new DbQueryScan(sqliteInfo, KEY, SCHEMA);
+      scan.setParallelism(parallelism);
+      scan.open(null);
+      BitSet seen = new BitSet(NUM_TUPLES);
+      while (!scan.eos()) {
+        TupleBatch tb = scan.nextReady();
+        if (tb == null) {
+          continue;
+        }
+        for (int row = 0; row < tb.numTuples(); ++row) {
+          int i = tb.getInt(0, row);
+          assertFalse(seen.get(i));
+          seen.set(i);
+          assertEquals("tuple " + i, tb.getString(1, row));
+        }
+      }
+      scan.close();
+      assertEquals(NUM_TUPLES, seen.cardinality());
+    }
+  }
+
+  @AfterClass
+  public static void cleanUp() throws Exception {
+    FSUtils.blockingDeleteDirectory(tempDir.toString());
+  }
+}
@@ -0,0 +1,87 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.operator.agg.AggregatorFactory;
+import edu.washington.escience.myria.operator.agg.CountAllAggregatorFactory;
+import edu.washington.escience.myria.operator.agg.PartialGroupByAggregate;
+import edu.washington.escience.myria.operator.agg.PrimitiveAggregator.AggregationOp;
+import edu.washington.escience.myria.operator.agg.SingleColumnAggregatorFactory;
+import edu.washington.escience.myria.operator.agg.SingleGroupByAggregate;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.TestUtils;
+
+public class PartialGroupByAggregateTest {
+
+  private static TupleBatchBuffer run(final Operator op) throws DbException {
+    op.open(null);
+    final TupleBatchBuffer result = new TupleBatchBuffer(op.getSchema());
+    while (!op.eos()) {
+      TupleBatch tb = op.nextReady();
+      if (tb != null) {
+        tb.compactInto(result);
+      }
+    }
+    op.close();
+    return result;
+  }
+
+  @Test
+  public void testPartialThenFinal() throws DbException {
+    final TupleBatchBuffer source = TestUtils.generateRandomTuples(30000, 100, false);
+    final AggregatorFactory[] factories = {
+      new SingleColumnAggregatorFactory(0, AggregationOp.SUM, AggregationOp.MAX),
+      new SingleColumnAggregatorFactory(1, AggregationOp.COUNT, AggregationOp.MIN),
+      new CountAllAggregatorFactory()
+    };
+    PartialGroupByAggregate partial =
+        new PartialGroupByAggregate(new BatchTupleSource(source), new int[] {1}, factories);
+    partial.setMaxGroups(40);
+    TupleBatchBuffer partialResult = run(partial);
+    assertFalse(partial.isPassThrough());
+    assertTrue(partialResult.numTuples() < source.numTuples() / 10);
+
+    SingleGroupByAggregate combined =
+        new SingleGroupByAggregate(
+            new BatchTupleSource(partialResult), 0, partial.getFinalFactories());
+    SingleGroupByAggregate direct =
+        new SingleGroupByAggregate(new BatchTupleSource(source), 1, factories);
+    TestUtils.assertTupleBagEqual(
+        TestUtils.tupleBatchToTupleBag(run(direct)), TestUtils.tupleBatchToTupleBag(run(combined)));
+  }
+
+  @Test
+  public void testTurnsOffWithoutReduction() throws DbException {
+    final int numTuples = 8 * TupleBatch.BATCH_SIZE;
+    final TupleBatchBuffer source = TestUtils.range(numTuples);
+    final AggregatorFactory[] factories = {
+      new SingleColumnAggregatorFactory(0, AggregationOp.SUM, AggregationOp.COUNT),
+      new CountAllAggregatorFactory()
+    };
+    PartialGroupByAggregate partial =
+        new PartialGroupByAggregate(new BatchTupleSource(source), new int[] {0}, factories);
+    TupleBatchBuffer partialResult = run(partial);
+    assertTrue(partial.isPassThrough());
+    assertEquals(numTuples, partialResult.numTuples());
+
+    SingleGroupByAggregate combined =
+        new SingleGroupByAggregate(
+            new BatchTupleSource(partialResult), 0, partial.getFinalFactories());
+    SingleGroupByAggregate direct =
+        new SingleGroupByAggregate(new BatchTupleSource(source), 0, factories);
+    TestUtils.assertTupleBagEqual(
+        TestUtils.tupleBatchToTupleBag(run(direct)), TestUtils.tupleBatchToTupleBag(run(combined)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsAvg() {
+    new PartialGroupByAggregate(
+        null, new int[] {0}, new SingleColumnAggregatorFactory(0, AggregationOp.AVG));
+  }
+}
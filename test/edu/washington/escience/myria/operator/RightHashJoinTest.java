@@ -1,6 +1,7 @@
 package edu.washington.escience.myria.operator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -39,4 +40,36 @@ public class RightHashJoinTest {
     Operator join = new RightHashJoin(left, right, new int[] {0}, new int[] {0});
     join.open(TestEnvVars.get());
   }
+
+  @Test
+  public void testBatchProbe() throws DbException {
+    JoinTestUtils.checkRandomJoin(
+        12000,
+        (left, right) -> {
+          RightHashJoin join =
+              new RightHashJoin(
+                  JoinTestUtils.RANDOM_JOIN_COLUMNS, left, right, new int[] {0}, new int[] {0});
+          join.setBatchProbe(true);
+          return join;
+        },
+        join -> {});
+  }
+
+  @Test
+  public void testMemoryBudget() throws DbException {
+    /* The partitions that are joined after the spill are probed a batch at a time too. */
+    for (boolean batchProbe : new boolean[] {false, true}) {
+      JoinTestUtils.checkRandomJoin(
+          20000,
+          (left, right) -> {
+            RightHashJoin join =
+                new RightHashJoin(
+                    JoinTestUtils.RANDOM_JOIN_COLUMNS, left, right, new int[] {0}, new int[] {0});
+            join.setMemoryBudget(100000);
+            join.setBatchProbe(batchProbe);
+            return join;
+          },
+          join -> assertTrue(join.getBytesSpilled() > 0));
+    }
+  }
 }
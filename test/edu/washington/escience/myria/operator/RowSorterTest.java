@@ -0,0 +1,82 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+
+public class RowSorterTest {
+
+  private static final Schema SCHEMA =
+      Schema.of(
+          ImmutableList.of(
+              Type.INT_TYPE,
+              Type.LONG_TYPE,
+              Type.FLOAT_TYPE,
+              Type.DOUBLE_TYPE,
+              Type.BOOLEAN_TYPE,
+              Type.STRING_TYPE,
+              Type.DATETIME_TYPE),
+          ImmutableList.of("i", "l", "f", "d", "b", "s", "t"));
+
+  private static final float[] FLOATS = {
+    Float.NEGATIVE_INFINITY, -1.5f, -0.0f, 0.0f, 2.5f, Float.MAX_VALUE, Float.NaN
+  };
+  private static final double[] DOUBLES = {
+    Double.NEGATIVE_INFINITY, -1e300, -0.0, 0.0, Double.MIN_VALUE, 7.0, Double.NaN
+  };
+  private static final String[] STRINGS = {"", "a", "a\u0000", "ab", "abcd", "abcde", "abcdf", "b"};
+
+  private static TupleBatchBuffer generate(final int numTuples) {
+    Random random = new Random(7);
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < numTuples; ++i) {
+      tbb.putInt(0, random.nextInt(7) - 3 + (random.nextBoolean() ? 0 : Integer.MIN_VALUE));
+      tbb.putLong(1, random.nextInt(5) - 2 + (random.nextBoolean() ? 0 : Long.MAX_VALUE - 3));
+      tbb.putFloat(2, FLOATS[random.nextInt(FLOATS.length)]);
+      tbb.putDouble(3, DOUBLES[random.nextInt(DOUBLES.length)]);
+      tbb.putBoolean(4, random.nextBoolean());
+      tbb.putString(5, STRINGS[random.nextInt(STRINGS.length)]);
+      tbb.putDateTime(6, new DateTime((random.nextInt(5) - 2) * 1000L));
+    }
+    return tbb;
+  }
+
+  private static void check(final int[] sortColumns, final boolean[] ascending) {
+    TupleBatchBuffer tbb = generate(25000);
+    List<TupleBatch> batches = tbb.getAll();
+    int[] expected =
+        new RowSorter(SCHEMA, sortColumns, ascending, false).sort(batches, tbb.numTuples());
+    int[] actual =
+        new RowSorter(SCHEMA, sortColumns, ascending, true).sort(batches, tbb.numTuples());
+    /* Both sorts are stable, so they must produce the same permutation. */
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void testCompleteKeys() {
+    check(new int[] {0, 2}, new boolean[] {true, false});
+    check(new int[] {1}, new boolean[] {false});
+    check(new int[] {3}, new boolean[] {true});
+    check(new int[] {4, 0, 6}, new boolean[] {false, true, true});
+  }
+
+  @Test
+  public void testPrefixKeys() {
+    check(new int[] {5}, new boolean[] {true});
+    check(new int[] {5, 0}, new boolean[] {false, true});
+    check(new int[] {0, 1, 2}, new boolean[] {true, false, true});
+    check(new int[] {4, 2, 5, 3}, new boolean[] {true, true, false, false});
+    check(new int[] {6, 3}, new boolean[] {false, true});
+  }
+}
@@ -0,0 +1,95 @@
+package edu.washington.escience.myria.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.RelationKey;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.SQLiteInfo;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.FSUtils;
+
+public class SQLiteBulkScanTest {
+
+  private static final RelationKey KEY = RelationKey.of("test", "test", "bulk");
+  private static final Schema SCHEMA =
+      new Schema(ImmutableList.of(Type.INT_TYPE, Type.LONG_TYPE), ImmutableList.of("i", "l"));
+  private static Path tempDir;
+  private static SQLiteInfo sqliteInfo;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Logger.getLogger("com.almworks.sqlite4java").setLevel(Level.SEVERE);
+    tempDir = Files.createTempDirectory(MyriaConstants.SYSTEM_NAME + "_SQLiteBulkScanTest");
+    sqliteInfo = SQLiteInfo.of(new File(tempDir.toString(), "scan.db").getAbsolutePath());
+
+    TupleBatchBuffer data = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < 2 * TupleBatch.BATCH_SIZE; ++i) {
+      data.putInt(0, i);
+      data.putLong(1, 3L * i);
+    }
+    DbInsert insert = new DbInsert(new BatchTupleSource(data.getAll()), KEY, sqliteInfo);
+    insert.open(null);
+    while (!insert.eos()) {
+      insert.nextReady();
+    }
+    insert.close();
+  }
+
+  private static long sum(final String query, final Type type, final int expectedTuples)
+      throws DbException {
+    DbQueryScan scan = new DbQueryScan(sqliteInfo, query, Schema.ofFields("x", type));
+    scan.open(null);
+    long sum = 0;
+    int numTuples = 0;
+    while (!scan.eos()) {
+      TupleBatch tb = scan.nextReady();
+      if (tb != null) {
+        for (int row = 0; row < tb.numTuples(); ++row, ++numTuples) {
+          sum += type == Type.INT_TYPE ? tb.getInt(0, row) : tb.getLong(0, row);
+        }
+      }
+    }
+    scan.close();
+    assertEquals(expectedTuples, numTuples);
+    return sum;
+  }
+
+  @Test
+  public void testExactBatches() throws DbException {
+    String table = KEY.toString(MyriaConstants.STORAGE_SYSTEM_SQLITE);
+    long n = 2 * TupleBatch.BATCH_SIZE;
+    assertEquals(n * (n - 1) / 2, sum("SELECT i FROM " + table, Type.INT_TYPE, (int) n));
+    assertEquals(3 * n * (n - 1) / 2, sum("SELECT l FROM " + table, Type.LONG_TYPE, (int) n));
+  }
+
+  @Test
+  public void testPartialBatches() throws DbException {
+    String table = KEY.toString(MyriaConstants.STORAGE_SYSTEM_SQLITE);
+    long n = TupleBatch.BATCH_SIZE + 1;
+    assertEquals(
+        n * (n - 1) / 2, sum("SELECT i FROM " + table + " WHERE i < " + n, Type.INT_TYPE, (int) n));
+    assertEquals(3, sum("SELECT l FROM " + table + " WHERE i = 1", Type.LONG_TYPE, 1));
+    assertEquals(0, sum("SELECT l FROM " + table + " WHERE l < 0", Type.LONG_TYPE, 0));
+  }
+
+  @AfterClass
+  public static void cleanUp() throws Exception {
+    FSUtils.blockingDeleteDirectory(tempDir.toString());
+  }
+}
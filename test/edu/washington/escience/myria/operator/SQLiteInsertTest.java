@@ -1,12 +1,16 @@
 package edu.washington.escience.myria.operator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,7 +26,9 @@ import edu.washington.escience.myria.MyriaConstants;
 import edu.washington.escience.myria.RelationKey;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.accessmethod.ConnectionInfo;
 import edu.washington.escience.myria.accessmethod.SQLiteInfo;
+import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
 import edu.washington.escience.myria.util.FSUtils;
 
@@ -89,6 +95,103 @@ public class SQLiteInsertTest {
     sqliteConnection.dispose();
   }
 
+  private static int count(final RelationKey relationKey) throws Exception {
+    final SQLiteConnection sqliteConnection = new SQLiteConnection(tempFile);
+    sqliteConnection.open(false);
+    final SQLiteStatement statement =
+        sqliteConnection.prepare(
+            "SELECT COUNT(*) FROM " + relationKey.toString(MyriaConstants.STORAGE_SYSTEM_SQLITE));
+    assertTrue(statement.step());
+    final int count = statement.columnInt(0);
+    sqliteConnection.dispose();
+    return count;
+  }
+
+  @Test
+  public void testBatchedTransactions() throws Exception {
+    Logger.getLogger("com.almworks.sqlite4java").setLevel(Level.SEVERE);
+    final SQLiteInfo sqliteInfo =
+        SQLiteInfo.of(tempFile.getAbsolutePath(), "NORMAL", -2048, 1L << 20, 3);
+    final List<TupleBatch> batches = new ArrayList<>();
+    for (int start = 0; start < NUM_TUPLES; start += 100) {
+      final TupleBatchBuffer tbb = new TupleBatchBuffer(schema);
+      for (int i = start; i < start + 100; ++i) {
+        tbb.putInt(0, i);
+        tbb.putString(1, i + "th");
+      }
+      batches.addAll(tbb.getAll());
+    }
+    /* Two concurrent streams into the same database, one of them asynchronous. */
+    final List<Thread> threads = new ArrayList<>();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    for (final boolean asynchronous : new boolean[] {false, true}) {
+      threads.add(
+          new Thread(
+              () -> {
+                try {
+                  final DbInsert insert =
+                      new DbInsert(
+                          new BatchTupleSource(batches),
+                          RelationKey.of("test", "test", "batched_" + asynchronous),
+                          sqliteInfo);
+                  insert.setAsynchronous(asynchronous);
+                  insert.open(null);
+                  while (!insert.eos()) {
+                    insert.nextReady();
+                  }
+                  insert.close();
+                } catch (Throwable e) {
+                  error.set(e);
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(error.get());
+    assertEquals(NUM_TUPLES, count(RelationKey.of("test", "test", "batched_false")));
+    assertEquals(NUM_TUPLES, count(RelationKey.of("test", "test", "batched_true")));
+  }
+
+  @Test
+  public void testSQLiteInfoJson() throws Exception {
+    final SQLiteInfo sqliteInfo =
+        (SQLiteInfo)
+            ConnectionInfo.of(
+                MyriaConstants.STORAGE_SYSTEM_SQLITE,
+                ConnectionInfo.toJson(
+                    MyriaConstants.STORAGE_SYSTEM_SQLITE,
+                    "localhost",
+                    "/tmp/x",
+                    2,
+                    null,
+                    null,
+                    null));
+    assertEquals(SQLiteInfo.WORKER_SYNCHRONOUS, sqliteInfo.getSynchronous());
+    assertEquals(SQLiteInfo.WORKER_CACHE_SIZE, (int) sqliteInfo.getCacheSize());
+    assertEquals(SQLiteInfo.WORKER_MMAP_SIZE, (long) sqliteInfo.getMmapSize());
+    assertEquals(SQLiteInfo.WORKER_BATCHES_PER_TRANSACTION, sqliteInfo.getBatchesPerTransaction());
+    assertEquals(1, SQLiteInfo.of("/tmp/x.db").getBatchesPerTransaction());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSQLiteInfoJsonInvalidSynchronous() throws Throwable {
+    try {
+      ConnectionInfo.of(
+          MyriaConstants.STORAGE_SYSTEM_SQLITE,
+          "{\"databaseFilename\":\"/tmp/x.db\",\"synchronous\":\"OFF; DROP TABLE t\"}");
+    } catch (RuntimeException e) {
+      Throwable cause = e;
+      while (cause.getCause() != null && !(cause instanceof IllegalArgumentException)) {
+        cause = cause.getCause();
+      }
+      throw cause;
+    }
+  }
+
   /**
    * Cleanup what we created.
    *
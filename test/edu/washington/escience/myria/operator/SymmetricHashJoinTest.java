@@ -1,11 +1,13 @@
 package edu.washington.escience.myria.operator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.operator.SymmetricHashJoin.JoinPullOrder;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.util.JoinTestUtils;
 import edu.washington.escience.myria.util.TestEnvVars;
@@ -39,4 +41,40 @@ public class SymmetricHashJoinTest {
     Operator join = new SymmetricHashJoin(left, right, new int[] {0}, new int[] {0});
     join.open(TestEnvVars.get());
   }
+
+  @Test
+  public void testBatchProbe() throws DbException {
+    /* Each pull order probes a different mix of the two hash tables. */
+    for (JoinPullOrder order : JoinPullOrder.values()) {
+      JoinTestUtils.checkRandomJoin(
+          12000,
+          (left, right) -> {
+            SymmetricHashJoin join =
+                new SymmetricHashJoin(
+                    JoinTestUtils.RANDOM_JOIN_COLUMNS, left, right, new int[] {0}, new int[] {0});
+            join.setPullOrder(order);
+            join.setBatchProbe(true);
+            return join;
+          },
+          join -> {});
+    }
+  }
+
+  @Test
+  public void testMemoryBudget() throws DbException {
+    /* Both hash tables spill, whether both children are read at once or one after the other. */
+    for (JoinPullOrder order : new JoinPullOrder[] {JoinPullOrder.ALTER, JoinPullOrder.LEFT_EOS}) {
+      JoinTestUtils.checkRandomJoin(
+          20000,
+          (left, right) -> {
+            SymmetricHashJoin join =
+                new SymmetricHashJoin(
+                    JoinTestUtils.RANDOM_JOIN_COLUMNS, left, right, new int[] {0}, new int[] {0});
+            join.setPullOrder(order);
+            join.setMemoryBudget(100000);
+            return join;
+          },
+          join -> assertTrue(join.getBytesSpilled() > 0));
+    }
+  }
 }
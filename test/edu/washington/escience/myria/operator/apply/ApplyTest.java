@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.charset.Charset;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -55,7 +56,10 @@ import edu.washington.escience.myria.operator.Apply;
 import edu.washington.escience.myria.operator.BatchTupleSource;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
 import edu.washington.escience.myria.util.TestEnvVars;
+import edu.washington.escience.myria.util.TestUtils;
 
 public class ApplyTest {
 
@@ -655,6 +659,78 @@ public class ApplyTest {
     apply.close();
   }
 
+  @Test
+  public void testBatchEvaluation() throws DbException {
+    final Schema schema =
+        new Schema(
+            ImmutableList.of(
+                Type.INT_TYPE,
+                Type.LONG_TYPE,
+                Type.FLOAT_TYPE,
+                Type.DOUBLE_TYPE,
+                Type.STRING_TYPE,
+                Type.BOOLEAN_TYPE),
+            ImmutableList.of("a", "b", "c", "d", "e", "f"));
+    final TupleBatchBuffer tbb = new TupleBatchBuffer(schema);
+    final Random random = new Random(42);
+    for (int i = 0; i < NUM_TUPLES + 123; i++) {
+      tbb.putInt(0, random.nextInt(1000) - 500);
+      tbb.putLong(1, random.nextLong() % 1000000);
+      tbb.putFloat(2, random.nextFloat());
+      tbb.putDouble(3, random.nextDouble() * 1000);
+      tbb.putString(4, "Foo" + random.nextInt(100));
+      tbb.putBoolean(5, random.nextBoolean());
+    }
+    ExpressionOperator vara = new VariableExpression(0);
+    ExpressionOperator varb = new VariableExpression(1);
+    ExpressionOperator varc = new VariableExpression(2);
+    ExpressionOperator vard = new VariableExpression(3);
+    ExpressionOperator vare = new VariableExpression(4);
+    ExpressionOperator varf = new VariableExpression(5);
+    final ImmutableList<Expression> expressions =
+        ImmutableList.of(
+            new Expression("int", new TimesExpression(vara, vara)),
+            new Expression("long", new PlusExpression(vara, varb)),
+            new Expression("float", new MinusExpression(varc, varc)),
+            new Expression("double", new TimesExpression(varc, vard)),
+            new Expression("boolean", new GreaterThanExpression(varb, vard)),
+            new Expression("string", new ToUpperCaseExpression(vare)),
+            new Expression(
+                "conditional",
+                new ConditionalExpression(
+                    varf, vara, new PlusExpression(vara, new ConstantExpression(1)))));
+
+    Apply rowApply = new Apply(new BatchTupleSource(tbb), expressions);
+    rowApply.setBatchEvaluation(false);
+    Apply batchApply = new Apply(new BatchTupleSource(tbb), expressions);
+    TupleBuffer rowResult = run(rowApply);
+    TupleBuffer batchResult = run(batchApply);
+    assertEquals(tbb.numTuples(), batchResult.numTuples());
+    assertEquals(rowResult.getSchema(), batchResult.getSchema());
+    for (int column = 0; column < expressions.size(); ++column) {
+      for (int row = 0; row < tbb.numTuples(); ++row) {
+        TestUtils.assertValueEquals(rowResult, batchResult, column, row);
+      }
+    }
+  }
+
+  private static TupleBuffer run(final Apply apply) throws DbException {
+    apply.open(TestEnvVars.get());
+    final TupleBuffer result = new TupleBuffer(apply.getSchema());
+    while (!apply.eos()) {
+      TupleBatch tb = apply.nextReady();
+      if (tb != null) {
+        for (int row = 0; row < tb.numTuples(); ++row) {
+          for (int column = 0; column < tb.numColumns(); ++column) {
+            TupleUtils.copyValue(tb, column, row, result, column);
+          }
+        }
+      }
+    }
+    apply.close();
+    return result;
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void conditionalNeedsBooleancondition() throws IllegalArgumentException {
     ExpressionOperator a = new ConstantExpression(Type.INT_TYPE, "1");
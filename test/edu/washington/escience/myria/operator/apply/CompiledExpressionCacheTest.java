@@ -0,0 +1,140 @@
+package edu.washington.escience.myria.operator.apply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.DbException;
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.expression.ConstantExpression;
+import edu.washington.escience.myria.expression.Expression;
+import edu.washington.escience.myria.expression.LessThanExpression;
+import edu.washington.escience.myria.expression.PlusExpression;
+import edu.washington.escience.myria.expression.VariableExpression;
+import edu.washington.escience.myria.expression.evaluate.BooleanEvalInterface;
+import edu.washington.escience.myria.expression.evaluate.CompiledExpressionCache;
+import edu.washington.escience.myria.operator.Apply;
+import edu.washington.escience.myria.operator.BatchTupleSource;
+import edu.washington.escience.myria.operator.Filter;
+import edu.washington.escience.myria.operator.Operator;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.TestEnvVars;
+
+public class CompiledExpressionCacheTest {
+
+  @Before
+  public void clearCache() {
+    CompiledExpressionCache.clear();
+  }
+
+  private static TupleBatchBuffer input(final String... names) {
+    final TupleBatchBuffer tbb =
+        new TupleBatchBuffer(
+            new Schema(
+                ImmutableList.of(Type.LONG_TYPE, Type.LONG_TYPE), ImmutableList.copyOf(names)));
+    for (long i = 0; i < 100; ++i) {
+      tbb.putLong(0, i);
+      tbb.putLong(1, i * 2);
+    }
+    return tbb;
+  }
+
+  private static void open(final Operator op) throws DbException {
+    op.open(TestEnvVars.get());
+    op.close();
+  }
+
+  @Test
+  public void testReusedAcrossOperators() throws DbException {
+    final Expression predicate =
+        new Expression(
+            "p", new LessThanExpression(new VariableExpression(0), new ConstantExpression(50L)));
+    final Expression sum =
+        new Expression(
+            "s", new PlusExpression(new VariableExpression(0), new VariableExpression(1)));
+    final CacheStats before = CompiledExpressionCache.getStats();
+
+    open(new Filter(predicate, new BatchTupleSource(input("a", "b"))));
+    open(new Apply(new BatchTupleSource(input("a", "b")), ImmutableList.of(sum)));
+    CacheStats stats = CompiledExpressionCache.getStats().minus(before);
+    assertEquals(0, stats.hitCount());
+    assertEquals(2, stats.missCount());
+
+    /* Column names do not change the generated code. */
+    open(new Filter(predicate, new BatchTupleSource(input("x", "y"))));
+    open(new Apply(new BatchTupleSource(input("x", "y")), ImmutableList.of(sum)));
+    stats = CompiledExpressionCache.getStats().minus(before);
+    assertEquals(2, stats.hitCount());
+    assertEquals(2, stats.missCount());
+    assertEquals(2, CompiledExpressionCache.size());
+  }
+
+  @Test
+  public void testSharedByConcurrentFragments() throws Exception {
+    final Expression predicate =
+        new Expression(
+            "p", new LessThanExpression(new VariableExpression(1), new ConstantExpression(7L)));
+    final CacheStats before = CompiledExpressionCache.getStats();
+
+    /* Like two fragments of a query on one worker, each with its own copy of the plan. */
+    final ExecutorService fragments = Executors.newFixedThreadPool(2);
+    final List<Future<?>> done = new ArrayList<>();
+    for (int i = 0; i < 2; ++i) {
+      done.add(
+          fragments.submit(
+              () -> {
+                open(new Filter(predicate, new BatchTupleSource(input("a", "b"))));
+                return null;
+              }));
+    }
+    for (Future<?> f : done) {
+      f.get();
+    }
+    fragments.shutdown();
+
+    /* A fragment that waits for the other one to compile the predicate counts as a miss, but does not compile it. */
+    final CacheStats stats = CompiledExpressionCache.getStats().minus(before);
+    assertEquals(2, stats.requestCount());
+    assertEquals(1, stats.loadCount());
+  }
+
+  @Test
+  public void testKeyedOnSourceAndSchema() throws DbException {
+    final String[] params = {Expression.TB, Expression.ROW};
+    final Schema longs = Schema.ofFields("a", Type.LONG_TYPE);
+    final Schema ints = Schema.ofFields("a", Type.INT_TYPE);
+    BooleanEvalInterface first =
+        CompiledExpressionCache.getExpressionEvaluator(
+            "tb.getLong(0, row) < 5", BooleanEvalInterface.class, params, longs);
+    assertSame(
+        first,
+        CompiledExpressionCache.getExpressionEvaluator(
+            "tb.getLong(0, row) < 5", BooleanEvalInterface.class, params, longs));
+    CompiledExpressionCache.getExpressionEvaluator(
+        "tb.getLong(0, row) < 5", BooleanEvalInterface.class, params, ints);
+    CompiledExpressionCache.getExpressionEvaluator(
+        "tb.getLong(0, row) < 6", BooleanEvalInterface.class, params, longs);
+    assertEquals(3, CompiledExpressionCache.size());
+  }
+
+  @Test(expected = DbException.class)
+  public void testCompileError() throws DbException {
+    CompiledExpressionCache.getExpressionEvaluator(
+        "tb.noSuchMethod(row)",
+        BooleanEvalInterface.class,
+        new String[] {Expression.TB, Expression.ROW},
+        null);
+  }
+}
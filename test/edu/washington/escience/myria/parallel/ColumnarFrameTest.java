@@ -0,0 +1,185 @@
+package edu.washington.escience.myria.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.column.Column;
+import edu.washington.escience.myria.column.IntBufferColumn;
+import edu.washington.escience.myria.column.LongColumn;
+import edu.washington.escience.myria.parallel.ColumnarFrame.Compression;
+import edu.washington.escience.myria.proto.TransportProto.TransportMessage;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.util.IPCUtils;
+
+public class ColumnarFrameTest {
+
+  private static final ColumnarFrame PLAIN = new ColumnarFrame(Compression.NONE);
+
+  private static final Schema SCHEMA =
+      new Schema(
+          ImmutableList.of(
+              Type.INT_TYPE,
+              Type.LONG_TYPE,
+              Type.FLOAT_TYPE,
+              Type.DOUBLE_TYPE,
+              Type.STRING_TYPE,
+              Type.BOOLEAN_TYPE,
+              Type.DATETIME_TYPE),
+          ImmutableList.of("i", "l", "f", "d", "s", "b", "t"));
+
+  private static TupleBatch batch(final int numTuples) {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < numTuples; ++i) {
+      tbb.putInt(0, i);
+      tbb.putLong(1, -3L * i);
+      tbb.putFloat(2, i / 4f);
+      tbb.putDouble(3, i / 8.0);
+      tbb.putString(4, "s" + i);
+      tbb.putBoolean(5, i % 3 == 0);
+      tbb.putDateTime(6, new DateTime(1000L * i));
+    }
+    return tbb.popAny();
+  }
+
+  private static void assertSameTuples(final TupleBatch expected, final TupleBatch actual) {
+    assertEquals(expected.numTuples(), actual.numTuples());
+    for (int row = 0; row < expected.numTuples(); ++row) {
+      assertEquals(expected.getInt(0, row), actual.getInt(0, row));
+      assertEquals(expected.getLong(1, row), actual.getLong(1, row));
+      assertEquals(expected.getFloat(2, row), actual.getFloat(2, row), 0);
+      assertEquals(expected.getDouble(3, row), actual.getDouble(3, row), 0);
+      assertEquals(expected.getString(4, row), actual.getString(4, row));
+      assertEquals(expected.getBoolean(5, row), actual.getBoolean(5, row));
+      assertEquals(expected.getDateTime(6, row), actual.getDateTime(6, row));
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    TupleBatch tb = batch(1000);
+    ChannelBuffer frame = PLAIN.encode(tb);
+    assertTrue(ColumnarFrame.isFrame(frame));
+    /* As received from the network, in a heap buffer preceded by other data. */
+    ChannelBuffer received =
+        ChannelBuffers.wrappedBuffer(ChannelBuffers.wrappedBuffer(new byte[3]), frame).copy();
+    received.skipBytes(3);
+    TupleBatch decoded = ColumnarFrame.decode(received, SCHEMA);
+    assertFalse(received.readable());
+    assertTrue(decoded.getDataColumns().get(0) instanceof IntBufferColumn);
+    assertSameTuples(tb, decoded);
+    assertEquals(
+        tb.getDataColumns().get(0).getIntArray()[999],
+        decoded.getDataColumns().get(0).getIntArray()[999]);
+  }
+
+  @Test
+  public void testSelectedRowsAndEmptyBatch() throws IOException {
+    TupleBatch selected = batch(100).selectRows(new int[] {99, 3, 50});
+    assertSameTuples(selected, ColumnarFrame.decode(PLAIN.encode(selected).copy(), SCHEMA));
+    TupleBatch empty = batch(5).selectRows(new int[0]);
+    assertEquals(0, ColumnarFrame.decode(PLAIN.encode(empty).copy(), SCHEMA).numTuples());
+  }
+
+  @Test
+  public void testSerializer() throws IOException {
+    TransportMessageSerializer serializer = new TransportMessageSerializer();
+    TupleBatch tb = batch(10);
+    Object decoded = serializer.deSerialize(serializer.serialize(tb).copy(), null, SCHEMA);
+    assertSameTuples(tb, (TupleBatch) decoded);
+
+    ChannelBuffer eoi = serializer.serialize(TupleBatch.eoiTupleBatch(SCHEMA));
+    assertFalse(ColumnarFrame.isFrame(eoi));
+    assertEquals(IPCUtils.EOI, serializer.deSerialize(eoi, null, SCHEMA));
+    ChannelBuffer control = serializer.serialize(IPCUtils.CONTROL_SHUTDOWN);
+    assertFalse(ColumnarFrame.isFrame(control));
+    assertTrue(serializer.deSerialize(control, null, null) instanceof TransportMessage);
+  }
+
+  @Test(expected = IOException.class)
+  public void testSchemaMismatch() throws IOException {
+    ColumnarFrame.decode(PLAIN.encode(batch(1)).copy(), Schema.ofFields(Type.INT_TYPE, "i"));
+  }
+
+  private static TupleBatch roundTrip(final ColumnarFrame frames, final TupleBatch tb)
+      throws IOException {
+    return ColumnarFrame.decode(frames.encode(tb).copy(), tb.getSchema());
+  }
+
+  private static int columnBytes(final ColumnarFrame frames, final Column<?> column) {
+    Schema schema = Schema.ofFields(column.getType(), "c");
+    TupleBatch tb = new TupleBatch(schema, ImmutableList.<Column<?>>of(column), column.size());
+    return frames.encode(tb).readableBytes();
+  }
+
+  @Test
+  public void testCompressedRoundTrip() throws IOException {
+    for (Compression compression : Compression.values()) {
+      ColumnarFrame frames = new ColumnarFrame(compression);
+      TupleBatch tb = batch(TupleBatch.BATCH_SIZE);
+      assertSameTuples(tb, roundTrip(frames, tb));
+      TupleBatch selected = tb.selectRows(new int[] {7, 1, 4000});
+      assertSameTuples(selected, roundTrip(frames, selected));
+      assertSameTuples(batch(1), roundTrip(frames, batch(1)));
+    }
+  }
+
+  @Test
+  public void testIntegerEncodings() throws IOException {
+    ColumnarFrame frames = new ColumnarFrame(Compression.LIGHTWEIGHT);
+    int n = 10000;
+    long[][] inputs = new long[5][n];
+    Random random = new Random(42);
+    for (int i = 0; i < n; ++i) {
+      inputs[0][i] = 1000000L * i; // delta
+      inputs[1][i] = i / 1000; // run-length
+      inputs[2][i] = (i * 7919L) % 100 - 50; // frame of reference
+      inputs[3][i] = i % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE; // full range
+      inputs[4][i] = random.nextLong();
+    }
+    for (long[] values : inputs) {
+      LongColumn column = new LongColumn(values, n);
+      TupleBatch decoded =
+          roundTrip(
+              frames,
+              new TupleBatch(
+                  Schema.ofFields(Type.LONG_TYPE, "l"), ImmutableList.<Column<?>>of(column), n));
+      for (int i = 0; i < n; ++i) {
+        assertEquals(values[i], decoded.getLong(0, i));
+      }
+    }
+    assertTrue(columnBytes(frames, new LongColumn(inputs[0], n)) < n);
+    assertTrue(columnBytes(frames, new LongColumn(inputs[1], n)) < 200);
+    assertTrue(columnBytes(frames, new LongColumn(inputs[2], n)) < n);
+    assertTrue(columnBytes(frames, new LongColumn(inputs[4], n)) > n * Long.BYTES);
+  }
+
+  @Test
+  public void testAdaptiveDeflate() throws IOException {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(Schema.ofFields(Type.STRING_TYPE, "s"));
+    for (int i = 0; i < TupleBatch.BATCH_SIZE; ++i) {
+      tbb.putString(0, "a repetitive string value " + i % 10);
+    }
+    TupleBatch tb = tbb.popAny();
+    ColumnarFrame frames = new ColumnarFrame(Compression.ADAPTIVE);
+    int deflated = frames.encode(tb).readableBytes();
+    assertTrue(deflated * 4 < PLAIN.encode(tb).readableBytes());
+    TupleBatch decoded = roundTrip(frames, tb);
+    for (int i = 0; i < tb.numTuples(); ++i) {
+      assertEquals(tb.getString(0, i), decoded.getString(0, i));
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package edu.washington.escience.myria.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.MyriaConstants;
+import edu.washington.escience.myria.MyriaConstants.QueryPriority;
+
+public class QueryAdmissionTest {
+
+  private static void report(final QueryAdmission admission, final long heapLive) {
+    admission.updateWorker(1, stats(ResourceStats.HEAP_MAX, 1000));
+    admission.updateWorker(1, stats(ResourceStats.HEAP_LIVE, heapLive));
+  }
+
+  private static ResourceStats stats(final String measurement, final long value) {
+    return new ResourceStats(
+        System.currentTimeMillis(),
+        -1,
+        measurement,
+        value,
+        MyriaConstants.WORKER_RESOURCE_QUERY_ID,
+        -1);
+  }
+
+  @Test
+  public void testOneQueryAtATimeInOrder() {
+    QueryAdmission admission = new QueryAdmission(1, 25, 0.8, 2.0);
+    for (long id = 1; id <= 3; ++id) {
+      admission.enqueue(id, QueryPriority.NORMAL, "q" + id);
+    }
+    assertEquals(ImmutableList.of(1L), admission.admit());
+    assertTrue(admission.admit().isEmpty());
+    admission.finish(1);
+    assertEquals(ImmutableList.of(2L), admission.admit());
+    admission.finish(2);
+    assertEquals(ImmutableList.of(3L), admission.admit());
+  }
+
+  @Test
+  public void testWeightedPriorities() {
+    QueryAdmission admission = new QueryAdmission(1, 25, 0.8, 2.0);
+    for (long id = 0; id < 20; ++id) {
+      admission.enqueue(id, id % 2 == 0 ? QueryPriority.HIGH : QueryPriority.LOW, null);
+    }
+    int high = 0;
+    for (int i = 0; i < 10; ++i) {
+      List<Long> admitted = admission.admit();
+      assertEquals(1, admitted.size());
+      high += admitted.get(0) % 2 == 0 ? 1 : 0;
+      admission.finish(admitted.get(0));
+    }
+    assertEquals(8, high);
+  }
+
+  @Test
+  public void testBoundedQueues() {
+    QueryAdmission admission = new QueryAdmission(1, 2, 0.8, 2.0);
+    long id = 0;
+    while (admission.canEnqueue(QueryPriority.NORMAL)) {
+      assertTrue(admission.enqueue(id++, QueryPriority.NORMAL, null));
+    }
+    assertEquals(2, id);
+    assertFalse(admission.enqueue(id, QueryPriority.NORMAL, null));
+    while (admission.canEnqueue(QueryPriority.HIGH)) {
+      assertTrue(admission.enqueue(id++, QueryPriority.HIGH, null));
+    }
+    assertEquals(6, id);
+    assertTrue(admission.enqueue(id++, QueryPriority.LOW, null));
+    assertFalse(admission.canEnqueue(QueryPriority.LOW));
+    assertFalse(admission.enqueue(id, QueryPriority.LOW, null));
+    admission.clearQueued();
+    assertTrue(admission.canEnqueue(QueryPriority.LOW));
+  }
+
+  @Test
+  public void testMemory() {
+    QueryAdmission admission = new QueryAdmission(10, 25, 0.8, 2.0);
+    report(admission, 500);
+    for (long id = 1; id <= 4; ++id) {
+      admission.enqueue(id, QueryPriority.NORMAL, "q" + id);
+    }
+    /* 0.5 in use, and each query is expected to use 0.1 more. */
+    assertEquals(ImmutableList.of(1L, 2L, 3L), admission.admit());
+    /* Memory was freed, but the footprints of the running queries stay reserved until they show up. */
+    report(admission, 450);
+    assertTrue(admission.admit().isEmpty());
+    report(admission, 300);
+    assertEquals(ImmutableList.of(4L), admission.admit());
+  }
+
+  @Test
+  public void testLearnedFootprint() {
+    QueryAdmission admission = new QueryAdmission(10, 25, 0.8, 2.0);
+    report(admission, 100);
+    admission.enqueue(1, QueryPriority.NORMAL, "big");
+    assertEquals(ImmutableList.of(1L), admission.admit());
+    report(admission, 600);
+    admission.finish(1);
+    report(admission, 300);
+
+    admission.enqueue(2, QueryPriority.NORMAL, "small");
+    assertEquals(ImmutableList.of(2L), admission.admit());
+    /* 0.3 in use, 0.1 for the small query, and 0.5 for the big one. */
+    admission.enqueue(3, QueryPriority.NORMAL, "big");
+    assertTrue(admission.admit().isEmpty());
+    admission.finish(2);
+    assertEquals(ImmutableList.of(3L), admission.admit());
+  }
+
+  @Test
+  public void testLoad() {
+    QueryAdmission admission = new QueryAdmission(10, 25, 0.8, 2.0);
+    admission.updateWorker(1, stats(ResourceStats.LOAD_PER_CORE, 3000));
+    admission.enqueue(1, QueryPriority.NORMAL, null);
+    admission.enqueue(2, QueryPriority.NORMAL, null);
+    assertEquals(ImmutableList.of(1L), admission.admit());
+    admission.updateWorker(1, stats(ResourceStats.LOAD_PER_CORE, 1000));
+    assertEquals(ImmutableList.of(2L), admission.admit());
+  }
+}
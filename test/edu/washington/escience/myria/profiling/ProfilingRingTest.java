@@ -0,0 +1,104 @@
+package edu.washington.escience.myria.profiling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+
+public class ProfilingRingTest {
+
+  private static final Schema SCHEMA =
+      Schema.ofFields("thread", Type.INT_TYPE, "seq", Type.LONG_TYPE, "s", Type.STRING_TYPE);
+
+  private static void append(
+      final ProfilingRing ring, final long pos, final int thread, final long seq) {
+    ring.putLong(pos, 0, thread);
+    ring.putLong(pos, 1, seq);
+    ring.putString(pos, 2, "r" + seq);
+    ring.publish(pos);
+  }
+
+  @Test
+  public void testFullRing() {
+    ProfilingRing ring = new ProfilingRing(SCHEMA, 5);
+    assertEquals(8, ring.capacity());
+    for (int i = 0; i < 8; ++i) {
+      append(ring, ring.claim(), 0, i);
+    }
+    assertEquals(-1, ring.claim());
+    ring.drop();
+
+    TupleBatchBuffer buffer = new TupleBatchBuffer(SCHEMA);
+    assertEquals(3, ring.drainTo(buffer, 3));
+    /* A claimed slot that is not published yet stops the draining. */
+    long pos = ring.claim();
+    assertEquals(5, ring.drainTo(buffer, 100));
+    assertEquals(0, ring.drainTo(buffer, 100));
+    append(ring, pos, 0, 8);
+    assertEquals(1, ring.drainTo(buffer, 100));
+
+    TupleBatch tb = buffer.popAny();
+    assertEquals(9, tb.numTuples());
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      assertEquals(row, tb.getLong(1, row));
+      assertEquals("r" + row, tb.getString(2, row));
+    }
+    assertEquals(1, ring.takeNumDropped());
+    assertEquals(0, ring.takeNumDropped());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    final int numThreads = 4;
+    final int numRecords = 50000;
+    final ProfilingRing ring = new ProfilingRing(SCHEMA, 1024);
+    List<Thread> producers = new ArrayList<>();
+    for (int t = 0; t < numThreads; ++t) {
+      final int thread = t;
+      Thread producer =
+          new Thread(
+              () -> {
+                for (int i = 0; i < numRecords; ++i) {
+                  long pos = ring.claim();
+                  while (pos < 0) {
+                    Thread.yield();
+                    pos = ring.claim();
+                  }
+                  append(ring, pos, thread, i);
+                }
+              });
+      producer.start();
+      producers.add(producer);
+    }
+
+    TupleBatchBuffer buffer = new TupleBatchBuffer(SCHEMA);
+    long[] next = new long[numThreads];
+    int numDrained = 0;
+    while (numDrained < numThreads * numRecords) {
+      numDrained += ring.drainTo(buffer, TupleBatch.BATCH_SIZE);
+      for (TupleBatch tb = buffer.popAny(); tb != null; tb = buffer.popAny()) {
+        for (int row = 0; row < tb.numTuples(); ++row) {
+          int thread = tb.getInt(0, row);
+          /* The records of each producer arrive once each, in order. */
+          assertEquals(next[thread]++, tb.getLong(1, row));
+          assertEquals("r" + tb.getLong(1, row), tb.getString(2, row));
+        }
+      }
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    for (int t = 0; t < numThreads; ++t) {
+      assertEquals(numRecords, next[t]);
+    }
+    assertTrue(ring.claim() >= 0);
+  }
+}
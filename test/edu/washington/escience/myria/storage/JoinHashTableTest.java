@@ -0,0 +1,74 @@
+package edu.washington.escience.myria.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+
+public class JoinHashTableTest {
+
+  private static final Schema SCHEMA =
+      Schema.of(ImmutableList.of(Type.LONG_TYPE, Type.STRING_TYPE), ImmutableList.of("k", "v"));
+
+  private static TupleBatch makeBatch(final int numTuples) {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < numTuples; ++i) {
+      tbb.putLong(0, i);
+      tbb.putString(1, "v" + i);
+    }
+    return tbb.popAny();
+  }
+
+  @Test
+  public void testChainsKeepInsertionOrder() {
+    TupleBatch tb = makeBatch(6);
+    JoinHashTable table = new JoinHashTable(SCHEMA);
+    /* Rows 0, 2, 4 share one hash code and rows 1, 3, 5 share another. */
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      assertEquals(row, table.add(row % 2 == 0 ? 7 : -7, tb, row));
+    }
+    assertEquals(6, table.numTuples());
+    assertEquals(2, table.numKeys());
+
+    int expected = 0;
+    for (int index = table.getFirst(7); index >= 0; index = table.getNext(index)) {
+      assertEquals(expected, index);
+      assertEquals(expected, table.getData().getLong(0, index));
+      assertEquals("v" + expected, table.getData().getString(1, index));
+      expected += 2;
+    }
+    assertEquals(6, expected);
+    assertTrue(table.getFirst(0) < 0);
+  }
+
+  @Test
+  public void testSubRow() {
+    TupleBatch tb = makeBatch(3);
+    JoinHashTable table = new JoinHashTable(SCHEMA.getSubSchema(new int[] {1}));
+    table.add(0, tb, new int[] {1}, 2);
+    assertEquals("v2", table.getData().getString(0, table.getFirst(0)));
+  }
+
+  @Test
+  public void testManyKeys() {
+    TupleBatch tb = makeBatch(TupleBatch.BATCH_SIZE);
+    JoinHashTable table = new JoinHashTable(SCHEMA);
+    final int numRows = 3 * TupleBatch.BATCH_SIZE;
+    for (int i = 0; i < numRows; ++i) {
+      /* Multiply to spread the hash codes over the slots, including negative ones. */
+      table.add(i * 0x9E3779B1, tb, i % TupleBatch.BATCH_SIZE);
+    }
+    assertEquals(numRows, table.numKeys());
+    for (int i = 0; i < numRows; ++i) {
+      int index = table.getFirst(i * 0x9E3779B1);
+      assertEquals(i, index);
+      assertTrue(table.getNext(index) < 0);
+      assertEquals(i % TupleBatch.BATCH_SIZE, table.getData().getLong(0, index));
+    }
+  }
+}
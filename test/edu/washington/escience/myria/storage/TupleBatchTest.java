@@ -0,0 +1,122 @@
+package edu.washington.escience.myria.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.operator.network.partition.PartitionFunction;
+import edu.washington.escience.myria.util.IPCUtils;
+
+public class TupleBatchTest {
+
+  private static final Schema SCHEMA =
+      new Schema(
+          ImmutableList.of(Type.INT_TYPE, Type.STRING_TYPE, Type.DOUBLE_TYPE),
+          ImmutableList.of("i", "s", "d"));
+
+  private static TupleBatch batch(final int numTuples) {
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < numTuples; ++i) {
+      tbb.putInt(0, i);
+      tbb.putString(1, "s" + i);
+      tbb.putDouble(2, i / 2.0);
+    }
+    return tbb.popAny();
+  }
+
+  private static void assertRows(final TupleBatch tb, final int... expected) {
+    assertEquals(expected.length, tb.numTuples());
+    for (int row = 0; row < expected.length; ++row) {
+      assertEquals(expected[row], tb.getInt(0, row));
+      assertEquals("s" + expected[row], tb.getString(1, row));
+      assertEquals(expected[row] / 2.0, tb.getDouble(2, row), 0);
+      assertEquals(expected[row], tb.getDataColumns().get(0).getInt(row));
+      assertEquals("s" + expected[row], tb.asColumn(1).getString(row));
+    }
+  }
+
+  @Test
+  public void testFilterAndSelectRows() {
+    TupleBatch tb = batch(10);
+    BitSet even = new BitSet();
+    for (int i = 0; i < 10; i += 2) {
+      even.set(i);
+    }
+    TupleBatch filtered = tb.filter(even);
+    assertTrue(filtered.hasSelection());
+    assertRows(filtered, 0, 2, 4, 6, 8);
+
+    BitSet some = new BitSet();
+    some.set(1);
+    some.set(4);
+    assertRows(filtered.filter(some), 2, 8);
+    assertRows(filtered.selectRows(new int[] {3, 0}), 6, 0);
+    assertRows(filtered.prefix(2), 0, 2);
+    assertRows(filtered.filterOut(some), 0, 4, 6);
+    assertEquals("s4", filtered.selectColumns(new int[] {1}).getString(0, 2));
+  }
+
+  @Test
+  public void testCompactAndSerialize() {
+    TupleBatch filtered = batch(10).selectRows(new int[] {9, 5, 1});
+    TupleBatch compact = filtered.compact();
+    assertFalse(compact.hasSelection());
+    assertRows(compact, 9, 5, 1);
+    assertSame(compact, compact.compact());
+
+    TupleBatch received =
+        IPCUtils.tmToTupleBatch(filtered.toTransportMessage().getDataMessage(), SCHEMA);
+    assertRows(received, 9, 5, 1);
+
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    tbb.appendTB(filtered);
+    TupleBatch stored = tbb.popAny();
+    assertFalse(stored.hasSelection());
+    assertRows(stored, 9, 5, 1);
+  }
+
+  @Test
+  public void testPartition() {
+    PartitionFunction pf =
+        new PartitionFunction(3) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          public int[] partition(final TupleBatch data) {
+            int[] ret = new int[data.numTuples()];
+            for (int i = 0; i < ret.length; ++i) {
+              ret[i] = data.getInt(0, i) % 2 == 0 ? 0 : 2;
+            }
+            return ret;
+          }
+        };
+    TupleBatch[] parts = batch(7).filterOut(bits(3)).partition(pf);
+    assertEquals(3, parts.length);
+    assertRows(parts[0], 0, 2, 4, 6);
+    assertNull(parts[1]);
+    assertRows(parts[2], 1, 5);
+
+    TupleBatch evens = batch(7).selectRows(new int[] {0, 2, 4});
+    TupleBatch[] same = evens.partition(pf);
+    assertSame(evens, same[0]);
+    assertNull(same[2]);
+  }
+
+  private static BitSet bits(final int... rows) {
+    BitSet ret = new BitSet();
+    for (int row : rows) {
+      ret.set(row);
+    }
+    return ret;
+  }
+}
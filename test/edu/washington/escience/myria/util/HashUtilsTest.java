@@ -0,0 +1,121 @@
+package edu.washington.escience.myria.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import edu.washington.escience.myria.Schema;
+import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.storage.TupleBatch;
+import edu.washington.escience.myria.storage.TupleBatchBuffer;
+import edu.washington.escience.myria.storage.TupleUtils;
+
+public class HashUtilsTest {
+
+  private static final Schema SCHEMA =
+      Schema.ofFields(
+          "b",
+          Type.BOOLEAN_TYPE,
+          "i",
+          Type.INT_TYPE,
+          "l",
+          Type.LONG_TYPE,
+          "f",
+          Type.FLOAT_TYPE,
+          "d",
+          Type.DOUBLE_TYPE,
+          "s",
+          Type.STRING_TYPE,
+          "t",
+          Type.DATETIME_TYPE);
+
+  private static TupleBatch data(final int numTuples) {
+    Random random = new Random(7);
+    TupleBatchBuffer tbb = new TupleBatchBuffer(SCHEMA);
+    for (int i = 0; i < numTuples; ++i) {
+      tbb.putBoolean(0, random.nextBoolean());
+      tbb.putInt(1, random.nextInt(20));
+      tbb.putLong(2, random.nextLong());
+      tbb.putFloat(3, random.nextFloat());
+      tbb.putDouble(4, random.nextDouble());
+      StringBuilder s = new StringBuilder();
+      for (int c = random.nextInt(20); c > 0; --c) {
+        s.append((char) random.nextInt(Character.MAX_VALUE));
+      }
+      tbb.putString(5, s.toString());
+      tbb.putDateTime(6, new DateTime(random.nextLong() >>> 20));
+    }
+    return tbb.popAny();
+  }
+
+  @Test
+  public void testCompatibleHashes() {
+    TupleBatch tb = data(500);
+    int[] hashes = new int[tb.numTuples()];
+    int[][] keys = {{0}, {1, 0}, {2, 5, 1}, {5, 5, 3}, {0, 1, 2, 3, 4, 5, 6}, {4, 6}, {}};
+    for (int[] key : keys) {
+      HashUtils.hashSubRows(tb, key, true, hashes);
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        assertEquals(HashUtils.hashSubRow(tb, key, row), hashes[row]);
+      }
+    }
+    for (int column = 0; column < tb.numColumns(); ++column) {
+      HashUtils.hashValues(tb, column, 3, hashes);
+      for (int row = 0; row < tb.numTuples(); ++row) {
+        assertEquals(HashUtils.hashValue(tb, column, row, 3), hashes[row]);
+      }
+    }
+    HashUtils.hashRows(tb, true, hashes);
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      assertEquals(HashUtils.hashRow(tb, row), hashes[row]);
+    }
+    /* Integral keys are read from the arrays of the columns, which a filtered batch does not share. */
+    TupleBatch filtered = tb.filter(evenRows(tb.numTuples()));
+    HashUtils.hashSubRows(filtered, new int[] {2, 1}, true, hashes);
+    for (int row = 0; row < filtered.numTuples(); ++row) {
+      assertEquals(HashUtils.hashSubRow(filtered, new int[] {2, 1}, row), hashes[row]);
+    }
+  }
+
+  @Test
+  public void testFastHashes() {
+    TupleBatch tb = data(500);
+    int[] key = {1, 0};
+    int[] hashes = new int[tb.numTuples()];
+    HashUtils.hashSubRows(tb, key, false, hashes);
+    /* Equal keys have equal hash codes, and the 40 distinct keys have distinct hash codes. */
+    Set<Integer> distinct = new HashSet<>();
+    for (int row = 0; row < tb.numTuples(); ++row) {
+      distinct.add(hashes[row]);
+      for (int other = 0; other < row; ++other) {
+        if (TupleUtils.tupleEquals(tb, key, row, tb, key, other)) {
+          assertEquals(hashes[other], hashes[row]);
+        }
+      }
+    }
+    assertEquals(40, distinct.size());
+
+    int[] selected = new int[tb.numTuples()];
+    TupleBatch filtered = tb.filter(evenRows(tb.numTuples()));
+    HashUtils.hashSubRows(filtered, key, false, selected);
+    for (int row = 0; row < filtered.numTuples(); ++row) {
+      assertEquals(hashes[2 * row], selected[row]);
+    }
+    assertTrue(filtered.numTuples() < tb.numTuples());
+  }
+
+  private static BitSet evenRows(final int numTuples) {
+    BitSet rows = new BitSet(numTuples);
+    for (int row = 0; row < numTuples; row += 2) {
+      rows.set(row);
+    }
+    return rows;
+  }
+}
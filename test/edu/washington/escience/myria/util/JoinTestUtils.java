@@ -1,12 +1,17 @@
 package edu.washington.escience.myria.util;
 
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
+import edu.washington.escience.myria.DbException;
 import edu.washington.escience.myria.Schema;
 import edu.washington.escience.myria.Type;
+import edu.washington.escience.myria.operator.BatchTupleSource;
+import edu.washington.escience.myria.operator.Operator;
 import edu.washington.escience.myria.storage.TupleBatch;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
 
@@ -20,6 +25,9 @@ public final class JoinTestUtils {
           "right1", Type.STRING_TYPE, "right2", Type.LONG_TYPE, "right3", Type.BOOLEAN_TYPE);
   public static ImmutableList<TupleBatch> leftInput = ImmutableList.copyOf(getLeftInput());
   public static ImmutableList<TupleBatch> rightInput = ImmutableList.copyOf(getRightInput());
+  /** The output columns of a join of two relations made by {@link TestUtils#generateRandomTuples}. */
+  public static final ImmutableList<String> RANDOM_JOIN_COLUMNS =
+      ImmutableList.of("id1", "name1", "id2", "name2");
 
   /** Utility class can't be constructed. */
   private JoinTestUtils() {}
@@ -91,4 +99,35 @@ public final class JoinTestUtils {
 
     return ret;
   }
+
+  /**
+   * Join two random relations on their ids, and check the result against {@link TestUtils#naturalJoin}.
+   *
+   * @param numTuples the number of tuples of each relation.
+   * @param makeJoin makes the join, with output columns {@link #RANDOM_JOIN_COLUMNS}, of its two arguments.
+   * @param atEos called with the join once it is EOS, before it is closed.
+   * @throws DbException if the join fails.
+   */
+  public static <T extends Operator> void checkRandomJoin(
+      final int numTuples,
+      final BiFunction<Operator, Operator, T> makeJoin,
+      final Consumer<T> atEos)
+      throws DbException {
+    TupleBatchBuffer leftTuples = TestUtils.generateRandomTuples(numTuples, 1000, false);
+    TupleBatchBuffer rightTuples = TestUtils.generateRandomTuples(numTuples, 1000, false);
+    T join = makeJoin.apply(new BatchTupleSource(leftTuples), new BatchTupleSource(rightTuples));
+    join.open(TestEnvVars.get());
+    TupleBatchBuffer result = new TupleBatchBuffer(join.getSchema());
+    while (!join.eos()) {
+      TupleBatch tb = join.nextReady();
+      if (tb != null) {
+        result.appendTB(tb);
+      }
+    }
+    atEos.accept(join);
+    join.close();
+    TestUtils.assertTupleBagEqual(
+        TestUtils.naturalJoin(leftTuples, rightTuples, 0, 0),
+        TestUtils.tupleBatchToTupleBag(result));
+  }
 }
@@ -39,6 +39,7 @@ import edu.washington.escience.myria.operator.network.partition.PartitionFunctio
 import edu.washington.escience.myria.parallel.ExchangePairID;
 import edu.washington.escience.myria.parallel.SubQuery;
 import edu.washington.escience.myria.parallel.SubQueryPlan;
+import edu.washington.escience.myria.storage.ReadableTable;
 import edu.washington.escience.myria.storage.TupleBatchBuffer;
 
 public final class TestUtils {
@@ -558,4 +559,43 @@ public final class TestUtils {
     }
     return sourceBuffer;
   }
+
+  /**
+   * Asserts that a value of two tables is the same, reading it with the getter of its type.
+   *
+   * @param expected the table with the expected value.
+   * @param actual the table with the actual value.
+   * @param column the column of the value, which has the same type in both tables.
+   * @param row the row of the value.
+   */
+  public static void assertValueEquals(
+      final ReadableTable expected, final ReadableTable actual, final int column, final int row) {
+    final Type type = actual.getSchema().getColumnType(column);
+    Assert.assertEquals(expected.getSchema().getColumnType(column), type);
+    switch (type) {
+      case BOOLEAN_TYPE:
+        Assert.assertEquals(expected.getBoolean(column, row), actual.getBoolean(column, row));
+        break;
+      case DATETIME_TYPE:
+        Assert.assertEquals(expected.getDateTime(column, row), actual.getDateTime(column, row));
+        break;
+      case DOUBLE_TYPE:
+        Assert.assertEquals(expected.getDouble(column, row), actual.getDouble(column, row), 0);
+        break;
+      case FLOAT_TYPE:
+        Assert.assertEquals(expected.getFloat(column, row), actual.getFloat(column, row), 0);
+        break;
+      case INT_TYPE:
+        Assert.assertEquals(expected.getInt(column, row), actual.getInt(column, row));
+        break;
+      case LONG_TYPE:
+        Assert.assertEquals(expected.getLong(column, row), actual.getLong(column, row));
+        break;
+      case STRING_TYPE:
+        Assert.assertEquals(expected.getString(column, row), actual.getString(column, row));
+        break;
+      default:
+        Assert.fail("Unknown type " + type);
+    }
+  }
 }